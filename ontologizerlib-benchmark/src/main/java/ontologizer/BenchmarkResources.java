@@ -0,0 +1,46 @@
+package ontologizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Provides access to the resources that are shared with the tests.
+ *
+ * @author Sebastian Bauer
+ */
+public class BenchmarkResources
+{
+	/** The name of the obo file that is used by most benchmarks */
+	public static final String OBO_NAME = "gene_ontology.1_2.obo.gz";
+
+	/** The name of the association file that is used by the benchmarks */
+	public static final String GAF_NAME = "gene_association.sgd.gz";
+
+	/**
+	 * Determine a filename of the given resource that can be used to directly
+	 * read from the filesystem. If the resource is inside an archive, its contents
+	 * are copied to a temporary file.
+	 *
+	 * @param name the name of the resource
+	 * @return the filename
+	 * @throws IOException
+	 */
+	public static String getFilename(String name) throws IOException
+	{
+		ClassLoader cl = BenchmarkResources.class.getClassLoader();
+		String filename = cl.getResource(name).getPath();
+		if (filename.contains("!/"))
+		{
+			/* The requested file is inside an archive, copy the contents to a temporary file */
+			InputStream is = cl.getResourceAsStream(name);
+			File tmpFile = File.createTempFile("benchmark", name);
+			tmpFile.deleteOnExit();
+			Files.copy(is, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			filename = tmpFile.getAbsolutePath();
+		}
+		return filename;
+	}
+}
@@ -0,0 +1,64 @@
+package ontologizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ontologizer.io.ParserFileInput;
+import ontologizer.io.obo.OBOParser;
+import ontologizer.io.obographs.OBOGraphsParser;
+import ontologizer.io.obographs.OBOGraphsWriter;
+import ontologizer.ontology.TermContainer;
+
+@State(Scope.Benchmark)
+public class OBOGraphsParserBenchmark
+{
+	private static String jsonFilename;
+
+	static
+	{
+		try
+		{
+			/* Convert the obo file that is used by the other benchmarks */
+			OBOParser oboParser = new OBOParser(new ParserFileInput(BenchmarkResources.getFilename(BenchmarkResources.OBO_NAME)), OBOParser.PARSE_DEFINITIONS | OBOParser.PARSE_XREFS);
+			oboParser.doParse();
+			File jsonFile = File.createTempFile("benchmark", ".json");
+			jsonFile.deleteOnExit();
+			OBOGraphsWriter.write(new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate()), jsonFile);
+			jsonFilename = jsonFile.getAbsolutePath();
+		} catch (Exception e)
+		{
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
+	@Benchmark
+	@Warmup(iterations=5)
+	@Fork(value=1)
+	@Measurement(time=2,timeUnit=TimeUnit.SECONDS)
+	public OBOGraphsParser benchmarkOBOGraphsParser() throws IOException
+	{
+		OBOGraphsParser parser = new OBOGraphsParser(new ParserFileInput(jsonFilename));
+		parser.doParse();
+		return parser;
+	}
+
+	@Benchmark
+	@Warmup(iterations=5)
+	@Fork(value=1)
+	@Measurement(time=2,timeUnit=TimeUnit.SECONDS)
+	public OBOGraphsParser benchmarkOBOGraphsParserAllValues() throws IOException
+	{
+		OBOGraphsParser parser = new OBOGraphsParser(new ParserFileInput(jsonFilename), OBOParser.PARSE_DEFINITIONS | OBOParser.PARSE_XREFS);
+		parser.doParse();
+		return parser;
+	}
+}
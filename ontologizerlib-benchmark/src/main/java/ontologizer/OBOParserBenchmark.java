@@ -1,10 +1,6 @@
 package ontologizer;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.util.concurrent.TimeUnit;
 
 import org.openjdk.jmh.annotations.Benchmark;
@@ -21,26 +17,13 @@ import ontologizer.io.obo.OBOParserException;
 @State(Scope.Benchmark)
 public class OBOParserBenchmark
 {
-	private static final String OBO_NAME = "gene_ontology.1_2.obo.gz";
-
 	private static String oboFilename;
 
 	static
 	{
-		/* Determine an oboFilename that can be used to directly read from the filesystem */
 		try
 		{
-			ClassLoader cl = OBOParserBenchmark.class.getClassLoader();
-			oboFilename = cl.getResource(OBO_NAME).getPath();
-			if (oboFilename.contains("!/"))
-			{
-				/* The requested file is inside an archive, copy the contents to a temporary file */
-				InputStream is = cl.getResourceAsStream(OBO_NAME);
-				File tmpFile = File.createTempFile("obofile", ".obo.gz");
-				tmpFile.deleteOnExit();
-				Files.copy(is, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-				oboFilename = tmpFile.getAbsolutePath();
-			}
+			oboFilename = BenchmarkResources.getFilename(BenchmarkResources.OBO_NAME);
 		} catch (IOException e)
 		{
 			e.printStackTrace();
@@ -58,4 +41,26 @@ public class OBOParserBenchmark
 		oboParser.doParse();
 		return oboParser;
 	}
+
+	@Benchmark
+	@Warmup(iterations=5)
+	@Fork(value=1)
+	@Measurement(time=2,timeUnit=TimeUnit.SECONDS)
+	public OBOParser benchmarkOBOParserAllValues() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new ParserFileInput(oboFilename), OBOParser.PARSE_DEFINITIONS | OBOParser.PARSE_XREFS);
+		oboParser.doParse();
+		return oboParser;
+	}
+
+	@Benchmark
+	@Warmup(iterations=5)
+	@Fork(value=1)
+	@Measurement(time=2,timeUnit=TimeUnit.SECONDS)
+	public OBOParser benchmarkOBOParserLazyBodies() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new ParserFileInput(oboFilename), OBOParser.LAZY_BODIES);
+		oboParser.doParse();
+		return oboParser;
+	}
 }
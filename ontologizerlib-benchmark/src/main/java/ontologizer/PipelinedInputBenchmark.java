@@ -0,0 +1,67 @@
+package ontologizer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ontologizer.io.ParserFileInput;
+import ontologizer.io.annotation.AssociationParser;
+import ontologizer.io.obo.OBOParser;
+import ontologizer.io.obo.OBOParserException;
+import ontologizer.ontology.TermContainer;
+
+/**
+ * Compares parsing compressed files with and without decompressing them
+ * on a separate thread.
+ *
+ * @author Sebastian Bauer
+ */
+@State(Scope.Benchmark)
+public class PipelinedInputBenchmark
+{
+	@Param({"false", "true"})
+	public boolean pipelined;
+
+	private String oboFilename;
+	private String gafFilename;
+	private TermContainer terms;
+
+	@Setup
+	public void setup() throws IOException, OBOParserException
+	{
+		oboFilename = BenchmarkResources.getFilename(BenchmarkResources.OBO_NAME);
+		gafFilename = BenchmarkResources.getFilename(BenchmarkResources.GAF_NAME);
+
+		OBOParser oboParser = new OBOParser(new ParserFileInput(oboFilename));
+		oboParser.doParse();
+		terms = new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate());
+	}
+
+	@Benchmark
+	@Warmup(iterations=5)
+	@Fork(value=1)
+	@Measurement(time=2,timeUnit=TimeUnit.SECONDS)
+	public OBOParser benchmarkOBOParser() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new ParserFileInput(oboFilename, pipelined));
+		oboParser.doParse();
+		return oboParser;
+	}
+
+	@Benchmark
+	@Warmup(iterations=5)
+	@Fork(value=1)
+	@Measurement(time=2,timeUnit=TimeUnit.SECONDS)
+	public AssociationParser benchmarkAssociationParser() throws IOException
+	{
+		return new AssociationParser(new ParserFileInput(gafFilename, pipelined), terms);
+	}
+}
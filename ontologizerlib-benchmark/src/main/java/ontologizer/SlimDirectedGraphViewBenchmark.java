@@ -0,0 +1,84 @@
+package ontologizer;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ontologizer.io.obo.OBOOntologyCreator;
+import ontologizer.io.obo.OBOParserException;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.RelationType;
+import ontologizer.ontology.TermID;
+import sonumina.math.graph.DirectedGraph;
+import sonumina.math.graph.SlimDirectedGraphView;
+import sonumina.math.graph.SlimDirectedGraphView.ClosureType;
+
+/**
+ * Compares the different ways to construct a slim graph view of
+ * the gene ontology.
+ *
+ * @author Sebastian Bauer
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations=5)
+@Fork(value=1)
+@Measurement(time=2,timeUnit=TimeUnit.SECONDS)
+public class SlimDirectedGraphViewBenchmark
+{
+	private DirectedGraph<TermID, RelationType> graph;
+
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setup() throws IOException, OBOParserException
+	{
+		Ontology ontology = OBOOntologyCreator.create(BenchmarkResources.getFilename(BenchmarkResources.OBO_NAME));
+		graph = ontology.getGraph();
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public SlimDirectedGraphView<TermID> benchmarkBFS()
+	{
+		return SlimDirectedGraphView.create(graph);
+	}
+
+	@Benchmark
+	public SlimDirectedGraphView<TermID> benchmarkTopological()
+	{
+		return SlimDirectedGraphView.create(graph, ClosureType.SORTED_ARRAYS, null);
+	}
+
+	@Benchmark
+	public SlimDirectedGraphView<TermID> benchmarkParallelTopological()
+	{
+		return SlimDirectedGraphView.create(graph, ClosureType.SORTED_ARRAYS, pool);
+	}
+
+	@Benchmark
+	public SlimDirectedGraphView<TermID> benchmarkTopologicalBitmaps()
+	{
+		return SlimDirectedGraphView.create(graph, ClosureType.BITMAPS, null);
+	}
+
+	@Benchmark
+	public SlimDirectedGraphView<TermID> benchmarkParallelTopologicalBitmaps()
+	{
+		return SlimDirectedGraphView.create(graph, ClosureType.BITMAPS, pool);
+	}
+}
@@ -0,0 +1,75 @@
+package ontologizer;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ontologizer.association.AssociationContainer;
+import ontologizer.enumeration.TermEnumerator;
+import ontologizer.io.ParserFileInput;
+import ontologizer.io.annotation.AssociationParser;
+import ontologizer.io.obo.OBOParser;
+import ontologizer.io.obo.OBOParserException;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.TermContainer;
+import ontologizer.types.ByteString;
+
+/**
+ * Compares the sequential and the parallel construction of a
+ * term enumerator for all annotated items.
+ *
+ * @author Sebastian Bauer
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations=5)
+@Fork(value=1)
+@Measurement(time=2,timeUnit=TimeUnit.SECONDS)
+public class TermEnumeratorBenchmark
+{
+	private Ontology ontology;
+
+	private AssociationContainer container;
+
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setup() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new ParserFileInput(BenchmarkResources.getFilename(BenchmarkResources.OBO_NAME)));
+		oboParser.doParse();
+		TermContainer terms = new TermContainer(oboParser.getTermMap(), ByteString.EMPTY, ByteString.EMPTY);
+		ontology = Ontology.create(terms);
+		ontology.freeze();
+
+		AssociationParser ap = new AssociationParser(new ParserFileInput(BenchmarkResources.getFilename(BenchmarkResources.GAF_NAME)), terms);
+		container = new AssociationContainer(ap.getAssociations(), ap.getAnnotationMapping());
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public TermEnumerator benchmarkSequential()
+	{
+		return TermEnumerator.ontology(ontology).forAll(container).build();
+	}
+
+	@Benchmark
+	public TermEnumerator benchmarkParallel()
+	{
+		return TermEnumerator.ontology(ontology).forAll(container).parallel(pool).build();
+	}
+}
@@ -175,6 +175,28 @@ public class Association implements Serializable
 
 	private Association() {};
 
+	/**
+	 * Constructs a new association object with the given attributes but
+	 * without synonyms.
+	 *
+	 * @param db_object the object id
+	 * @param db_object_symbol the object symbol
+	 * @param termID the id of the term to which the object is associated
+	 * @param evidence the evidence code
+	 * @param aspect the aspect
+	 * @param notQualifier whether the association is qualified with NOT
+	 */
+	Association(ByteString db_object, ByteString db_object_symbol, TermID termID, ByteString evidence, ByteString aspect, boolean notQualifier)
+	{
+		DB_Object = db_object;
+		DB_Object_Symbol = db_object_symbol;
+		synonyms = EMPTY_BYTESTRING_ARRAY;
+		this.termID = termID;
+		this.evidence = evidence;
+		this.aspect = aspect;
+		this.notQualifier = notQualifier;
+	}
+
 	/**
 	 * Returns the Term ID of this association.
 	 *
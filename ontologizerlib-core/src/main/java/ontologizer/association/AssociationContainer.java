@@ -6,6 +6,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import ontologizer.types.ByteString;
@@ -18,12 +19,15 @@ public class AssociationContainer implements Iterable<ItemAssociations>, Seriali
 {
 	private static final long serialVersionUID = 1L;
 
-	/** Associations keys by the unique id */
+	/** Associations keys by the unique id, null if the container is backed by a table */
 	private ItemAssociations [] associations;
 
 	/** Mapping */
 	private AnnotationContext annotationMapping;
 
+	/** The table from which the associations are created on demand or null */
+	private AssociationTable table;
+
 	/**
 	 * Constructs the container using a list of association and an annotation mapping created from it.
 	 *
@@ -38,6 +42,19 @@ public class AssociationContainer implements Iterable<ItemAssociations>, Seriali
 			addAssociation(a);
 	}
 
+	/**
+	 * Constructs the container on top of the given table. The associations of
+	 * an item are created not until they are requested and are not retained
+	 * by the container, so each request creates new objects.
+	 *
+	 * @param table the table
+	 */
+	public AssociationContainer(AssociationTable table)
+	{
+		this.table = table;
+		this.annotationMapping = table.getContext();
+	}
+
 	/**
 	 * Adds a new association. Note that this will not read out synonyms or any other field
 	 * than the object symbol.
@@ -86,7 +103,7 @@ public class AssociationContainer implements Iterable<ItemAssociations>, Seriali
 		if (index == Integer.MAX_VALUE)
 			return null;
 
-		return associations[index];
+		return getItemAssociations(index);
 	}
 
 	/**
@@ -150,7 +167,7 @@ public class AssociationContainer implements Iterable<ItemAssociations>, Seriali
 			@Override
 			public boolean hasNext()
 			{
-				if (current == associations.length)
+				if (current == annotationMapping.getSymbols().length)
 					return false;
 				return true;
 			}
@@ -158,7 +175,13 @@ public class AssociationContainer implements Iterable<ItemAssociations>, Seriali
 			@Override
 			public ItemAssociations next()
 			{
-				ItemAssociations value = associations[current];
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				/* Items without associations are represented by empty objects */
+				ItemAssociations value = getItemAssociations(current);
+				if (value == null)
+					value = new ItemAssociations(annotationMapping.getSymbols()[current]);
 				current++;
 				return value;
 			}
@@ -177,7 +200,7 @@ public class AssociationContainer implements Iterable<ItemAssociations>, Seriali
 	public Map<String,Integer> getAllEvidenceCodes()
 	{
 		Map<String,Integer> evidenceCounts = new HashMap<String, Integer>();
-		for (ItemAssociations g2a : associations)
+		for (ItemAssociations g2a : this)
 		{
 			for (Association a : g2a)
 			{
@@ -194,11 +217,16 @@ public class AssociationContainer implements Iterable<ItemAssociations>, Seriali
 	}
 
 	/**
+	 * Returns the associations of the item with the given index. If the
+	 * container is backed by a table, a new object is created on each call.
+	 *
 	 * @param i index
-	 * @return the i'th ItemAssociations
+	 * @return the i'th ItemAssociations or null if the item has no associations.
 	 */
 	public ItemAssociations getItemAssociations(int i)
 	{
+		if (table != null)
+			return table.getItemAssociations(i);
 		return associations[i];
 	}
 
@@ -44,6 +44,33 @@ public class AssociationResolver
 		this(terms, null);
 	}
 
+	/**
+	 * Constructs a resolver that shares the terms, the evidences and the
+	 * mapping of alternative ids with the given resolver, but maintains own
+	 * counts. Several of such resolvers can be used concurrently.
+	 *
+	 * @param parent the resolver whose settings are shared.
+	 * @see #merge(AssociationResolver)
+	 */
+	public AssociationResolver(AssociationResolver parent)
+	{
+		this.terms = parent.terms;
+		this.evidences = parent.evidences;
+		this.altTermIDMap = parent.getAltTermIDMap();
+	}
+
+	/**
+	 * @return the mapping of alternative ids to primary ids.
+	 */
+	private synchronized TermPropertyMap<TermID> getAltTermIDMap()
+	{
+		if (altTermIDMap == null)
+		{
+			altTermIDMap = new TermPropertyMap<TermID>(terms, TermPropertyMap.term2AltIdMap);
+		}
+		return altTermIDMap;
+	}
+
 	/**
 	 * Resolve the given association, i.e., try to find an alternative if the target doesn't
 	 * map to a primary term id.
@@ -60,13 +87,8 @@ public class AssociationResolver
 		{
 			TermID altID;
 
-			if (altTermIDMap == null)
-			{
-				altTermIDMap = new TermPropertyMap<TermID>(terms, TermPropertyMap.term2AltIdMap);
-			}
-
 			/* Try to find the term among the alternative terms before giving up. */
-			altID = altTermIDMap.get(currentTermID);
+			altID = getAltTermIDMap().get(currentTermID);
 			if (altID != null)
 				currentTerm = terms.get(altID);
 			if (altID == null || currentTerm == null)
@@ -138,6 +160,18 @@ public class AssociationResolver
 		return evidenceMismatch;
 	}
 
+	/**
+	 * Adds the counts of the given resolver to the counts of this resolver.
+	 *
+	 * @param other the resolver whose counts are added.
+	 */
+	public void merge(AssociationResolver other)
+	{
+		unknown += other.unknown;
+		obsolete += other.obsolete;
+		evidenceMismatch += other.evidenceMismatch;
+	}
+
 	/**
 	 * Resolve all annotations of a given list using the given resolver and
 	 * apply the resolving.
@@ -0,0 +1,434 @@
+package ontologizer.association;
+
+import static ontologizer.types.ByteString.EMPTY;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import ontologizer.ontology.TermID;
+import ontologizer.types.ByteString;
+
+/**
+ * Stores associations in a columnar fashion. Each association is a row that
+ * consists of the index of the item within the annotation context, the index
+ * of the term within the term dictionary of the table, the codes of the
+ * evidence and the aspect, and a bit for the NOT qualifier. All columns are
+ * primitive arrays, so a row needs about ten bytes.
+ *
+ * Rows can be accessed via a {@link Cursor}, which is a flyweight that
+ * provides an Association-like view on the current row.
+ *
+ * @author Sebastian Bauer
+ */
+public class AssociationTable implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The context that defines the items */
+	private AnnotationContext context;
+
+	/** The number of rows */
+	private int size;
+
+	/** The item column */
+	private int [] items;
+
+	/** The term column */
+	private int [] terms;
+
+	/** The evidence column */
+	private byte [] evidences;
+
+	/** The aspect column */
+	private byte [] aspects;
+
+	/** The NOT qualifier column as bit set */
+	private long [] nots;
+
+	/** Maps term indices to term ids */
+	private TermID [] termDictionary;
+
+	/** Maps evidence codes to evidences */
+	private ByteString [] evidenceDictionary;
+
+	/** Maps aspect codes to aspects */
+	private ByteString [] aspectDictionary;
+
+	/** The rows ordered by items. Rows of item i start at itemRowsStart[i] */
+	private int [] itemRows;
+	private int [] itemRowsStart;
+
+	private AssociationTable(Builder builder)
+	{
+		context = builder.context;
+		size = builder.size;
+		items = Arrays.copyOf(builder.items, size);
+		terms = Arrays.copyOf(builder.terms, size);
+		evidences = Arrays.copyOf(builder.evidences, size);
+		aspects = Arrays.copyOf(builder.aspects, size);
+		nots = Arrays.copyOf(builder.nots, (size + 63) / 64);
+		termDictionary = builder.termDictionary.toArray(new TermID[builder.termDictionary.size()]);
+		evidenceDictionary = builder.evidenceDictionary.toArray(new ByteString[builder.evidenceDictionary.size()]);
+		aspectDictionary = builder.aspectDictionary.toArray(new ByteString[builder.aspectDictionary.size()]);
+
+		/* Counting sort of the rows by item, which keeps the order of rows of the same item */
+		int numberOfItems = context.getSymbols().length;
+		itemRowsStart = new int[numberOfItems + 1];
+		for (int r = 0; r < size; r++)
+			itemRowsStart[items[r] + 1]++;
+		for (int i = 0; i < numberOfItems; i++)
+			itemRowsStart[i + 1] += itemRowsStart[i];
+		itemRows = new int[size];
+		int [] pos = Arrays.copyOf(itemRowsStart, numberOfItems);
+		for (int r = 0; r < size; r++)
+			itemRows[pos[items[r]]++] = r;
+	}
+
+	/**
+	 * Builds an association table row by row.
+	 */
+	public static class Builder implements IAssociationVisitor
+	{
+		private AnnotationContext context;
+		private int size;
+		private int [] items = new int[64];
+		private int [] terms = new int[64];
+		private byte [] evidences = new byte[64];
+		private byte [] aspects = new byte[64];
+		private long [] nots = new long[1];
+
+		private List<TermID> termDictionary = new ArrayList<TermID>();
+		private HashMap<TermID,Integer> termMap = new HashMap<TermID,Integer>();
+		private List<ByteString> evidenceDictionary = new ArrayList<ByteString>();
+		private List<ByteString> aspectDictionary = new ArrayList<ByteString>();
+
+		/**
+		 * Constructs the builder.
+		 *
+		 * @param context the context whose items are referenced by the rows.
+		 */
+		public Builder(AnnotationContext context)
+		{
+			this.context = context;
+		}
+
+		/**
+		 * Returns the code of the value in the given dictionary and adds it
+		 * if it is new.
+		 */
+		private static byte code(List<ByteString> dictionary, ByteString value)
+		{
+			if (value == null)
+				value = EMPTY;
+			int code = dictionary.indexOf(value);
+			if (code == -1)
+			{
+				if (dictionary.size() == 256)
+					throw new IllegalArgumentException("More than 256 distinct values are not supported");
+				code = dictionary.size();
+				dictionary.add(value);
+			}
+			return (byte)code;
+		}
+
+		/**
+		 * Adds a new row.
+		 *
+		 * @param item the index of the item within the context
+		 * @param termID the id of the term
+		 * @param evidence the evidence code
+		 * @param aspect the aspect
+		 * @param notQualifier whether the association is qualified with NOT
+		 * @return this for composing further calls.
+		 */
+		public Builder add(int item, TermID termID, ByteString evidence, ByteString aspect, boolean notQualifier)
+		{
+			if (item < 0 || item >= context.getSymbols().length)
+				throw new IllegalArgumentException("Item " + item + " is not part of the context");
+
+			Integer term = termMap.get(termID);
+			if (term == null)
+			{
+				term = termDictionary.size();
+				termDictionary.add(termID);
+				termMap.put(termID, term);
+			}
+
+			if (size == items.length)
+			{
+				int newLength = size * 2;
+				items = Arrays.copyOf(items, newLength);
+				terms = Arrays.copyOf(terms, newLength);
+				evidences = Arrays.copyOf(evidences, newLength);
+				aspects = Arrays.copyOf(aspects, newLength);
+				nots = Arrays.copyOf(nots, (newLength + 63) / 64);
+			}
+
+			items[size] = item;
+			terms[size] = term;
+			evidences[size] = code(evidenceDictionary, evidence);
+			aspects[size] = code(aspectDictionary, aspect);
+			if (notQualifier)
+				nots[size >>> 6] |= 1L << size;
+			size++;
+			return this;
+		}
+
+		/**
+		 * Adds the given association. Associations whose object symbol is not
+		 * known to the context are ignored as in {@link AssociationContainer}.
+		 *
+		 * @param a the association to add
+		 * @return this for composing further calls.
+		 */
+		public Builder add(Association a)
+		{
+			int item = context.mapSymbol(a.getObjectSymbol());
+			if (item != Integer.MAX_VALUE)
+				add(item, a.getTermID(), a.getEvidence(), a.getAspect(), a.hasNotQualifier());
+			return this;
+		}
+
+		@Override
+		public boolean visited(Association association)
+		{
+			add(association);
+			return true;
+		}
+
+		/**
+		 * @return the table consisting of all rows added so far.
+		 */
+		public AssociationTable build()
+		{
+			return new AssociationTable(this);
+		}
+	}
+
+	/**
+	 * Creates a table for the given associations.
+	 *
+	 * @param assocs the associations
+	 * @param context the context created from the associations.
+	 * @return the table
+	 */
+	public static AssociationTable create(List<Association> assocs, AnnotationContext context)
+	{
+		Builder builder = new Builder(context);
+		for (Association a : assocs)
+			builder.add(a);
+		return builder.build();
+	}
+
+	/**
+	 * A flyweight that provides access to the rows of the table. A cursor
+	 * is positioned before the first row initially.
+	 */
+	public final class Cursor
+	{
+		/** The rows to be visited or null if all rows are visited in order */
+		private final int [] rows;
+		private final int from;
+		private final int to;
+
+		private int pos;
+		private int row;
+
+		private Cursor(int [] rows, int from, int to)
+		{
+			this.rows = rows;
+			this.from = from;
+			this.to = to;
+			this.pos = from - 1;
+			this.row = -1;
+		}
+
+		/**
+		 * Advances the cursor to the next row.
+		 *
+		 * @return false if there is no further row.
+		 */
+		public boolean next()
+		{
+			if (pos + 1 >= to)
+			{
+				pos = to;
+				return false;
+			}
+			pos++;
+			row = rows != null ? rows[pos] : pos;
+			return true;
+		}
+
+		/**
+		 * Resets the cursor to the position before the first row.
+		 */
+		public void reset()
+		{
+			pos = from - 1;
+			row = -1;
+		}
+
+		/**
+		 * @return the index of the current row within the table.
+		 */
+		public int getRow()
+		{
+			return row;
+		}
+
+		/**
+		 * @return the index of the item of the current row.
+		 */
+		public int getItem()
+		{
+			return items[row];
+		}
+
+		/**
+		 * @return the index of the term of the current row.
+		 */
+		public int getTermIndex()
+		{
+			return terms[row];
+		}
+
+		/**
+		 * @return the id of the term of the current row.
+		 */
+		public TermID getTermID()
+		{
+			return termDictionary[terms[row]];
+		}
+
+		/**
+		 * @return the object symbol of the current row.
+		 */
+		public ByteString getObjectSymbol()
+		{
+			return context.getSymbols()[items[row]];
+		}
+
+		/**
+		 * @return the object id of the current row.
+		 */
+		public ByteString getDB_Object()
+		{
+			ByteString objectId = context.getObjectIds()[items[row]];
+			return objectId != null ? objectId : EMPTY;
+		}
+
+		/**
+		 * @return the evidence code of the current row.
+		 */
+		public ByteString getEvidence()
+		{
+			return evidenceDictionary[evidences[row] & 0xff];
+		}
+
+		/**
+		 * @return the aspect of the current row.
+		 */
+		public ByteString getAspect()
+		{
+			return aspectDictionary[aspects[row] & 0xff];
+		}
+
+		/**
+		 * @return whether the current row is qualified as "NOT".
+		 */
+		public boolean hasNotQualifier()
+		{
+			return (nots[row >>> 6] & (1L << row)) != 0;
+		}
+
+		/**
+		 * @return a new association object for the current row.
+		 */
+		public Association toAssociation()
+		{
+			return new Association(getDB_Object(), getObjectSymbol(), getTermID(), getEvidence(), getAspect(), hasNotQualifier());
+		}
+	}
+
+	/**
+	 * @return a cursor that visits all rows in the order they were added.
+	 */
+	public Cursor cursor()
+	{
+		return new Cursor(null, 0, size);
+	}
+
+	/**
+	 * @param item the index of the item
+	 * @return a cursor that visits the rows of the given item in the order
+	 *  they were added.
+	 */
+	public Cursor cursor(int item)
+	{
+		return new Cursor(itemRows, itemRowsStart[item], itemRowsStart[item + 1]);
+	}
+
+	/**
+	 * @return the number of rows.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the context of the items.
+	 */
+	public AnnotationContext getContext()
+	{
+		return context;
+	}
+
+	/**
+	 * @return the number of distinct terms.
+	 */
+	public int getNumberOfTerms()
+	{
+		return termDictionary.length;
+	}
+
+	/**
+	 * @param termIndex the index of the term
+	 * @return the id of the term with the given index.
+	 */
+	public TermID getTermID(int termIndex)
+	{
+		return termDictionary[termIndex];
+	}
+
+	/**
+	 * @param item the index of the item
+	 * @return the number of rows of the given item.
+	 */
+	public int getNumberOfRows(int item)
+	{
+		return itemRowsStart[item + 1] - itemRowsStart[item];
+	}
+
+	/**
+	 * Creates the associations of the given item.
+	 *
+	 * @param item the index of the item
+	 * @return the associations or null if the item has none.
+	 */
+	public ItemAssociations getItemAssociations(int item)
+	{
+		if (getNumberOfRows(item) == 0)
+			return null;
+
+		ItemAssociations itemAssociations = new ItemAssociations(context.getSymbols()[item]);
+		Cursor c = cursor(item);
+		while (c.next())
+			itemAssociations.add(c.toAssociation());
+		return itemAssociations;
+	}
+}
@@ -0,0 +1,20 @@
+package ontologizer.association;
+
+/**
+ * This interface is used as a callback mechanism by sources that provide
+ * associations one by one.
+ *
+ * @author Sebastian Bauer
+ */
+public interface IAssociationVisitor
+{
+	/**
+	 * Called for every association provided by the source.
+	 *
+	 * @param association the association that has been just read.
+	 *
+	 * @return false if the source should be stopped (i.e. no further
+	 *         calls to this method will be issued) otherwise true
+	 */
+	boolean visited(Association association);
+}
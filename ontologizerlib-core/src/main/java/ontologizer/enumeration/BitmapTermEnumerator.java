@@ -0,0 +1,600 @@
+package ontologizer.enumeration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import ontologizer.association.AnnotationContext;
+import ontologizer.association.Association;
+import ontologizer.association.ItemAssociations;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.RelationType;
+import ontologizer.ontology.TermID;
+import ontologizer.types.ByteString;
+import sonumina.collections.ObjectIntHashMap;
+import sonumina.math.graph.SlimDirectedGraphView;
+
+/**
+ * An alternative to {@link TermEnumerator} that works on dense integer ids.
+ * Items are identified by their index within an {@link AnnotationContext},
+ * terms by their vertex index within a {@link SlimDirectedGraphView} of the
+ * ontology. For each term, the directly and the totally annotated items are
+ * stored as sorted int arrays, so counts and intersections can be
+ * determined without materializing any list of item names. Like in
+ * {@link TermEnumerator}, an item is directly annotated to a term once for
+ * each pushed association to that term, e.g., if an item is pushed once per
+ * evidence code. In contrast to {@link TermEnumerator}, an item is annotated
+ * to a term at most once including propagated annotations.
+ *
+ * The arrays are sorted lazily once they are queried, pushing further items
+ * afterwards is allowed. Like {@link TermEnumerator}, this class is not
+ * thread-safe.
+ *
+ * @author Sebastian Bauer
+ */
+public class BitmapTermEnumerator implements Iterable<TermID>
+{
+	private static final int [] EMPTY = new int[0];
+
+	/** The ontology */
+	private final Ontology ontology;
+
+	/** The view that defines the term indices */
+	private final SlimDirectedGraphView<TermID> view;
+
+	/** The parents along which annotations are propagated, indexed by term index */
+	private final int [][] propagationParents;
+
+	/** The context that defines the item indices */
+	private final AnnotationContext context;
+
+	/** Items that are not known to the context get indices after the items of the context */
+	private final ObjectIntHashMap<ByteString> extraItemMap = new ObjectIntHashMap<ByteString>();
+	private final ArrayList<ByteString> extraItems = new ArrayList<ByteString>();
+
+	/** The items directly annotated to each term including duplicates, the first sizes entries are valid */
+	private final int [][] direct;
+	private final int [] directSizes;
+
+	/** The items annotated to each term including propagated annotations */
+	private final int [][] total;
+	private final int [] totalSizes;
+
+	/** Whether the arrays of a term need to be sorted before they are queried */
+	private final boolean [] unsorted;
+	private boolean anyUnsorted;
+
+	/** The number of terms with at least one annotation */
+	private int numberOfAnnotatedTerms;
+
+	/** The number of distinct items that have been pushed */
+	private int numberOfItems;
+
+	/** Stamps of terms visited during the propagation of the current item */
+	private final int [] visitStamps;
+	private int stamp;
+
+	/** Work queue of the propagation */
+	private final int [] queue;
+
+	/** Whether an item has been pushed already, indexed by item index */
+	private boolean [] pushedItems = new boolean[64];
+
+	/**
+	 * Constructs the enumerator with propagating annotations through all relations.
+	 *
+	 * @param ontology the ontology to work on
+	 * @param context the context that maps items to indices
+	 */
+	public BitmapTermEnumerator(Ontology ontology, AnnotationContext context)
+	{
+		this(ontology, context, false);
+	}
+
+	/**
+	 * Constructs the enumerator. If the ontology is frozen, the term indices
+	 * are the vertex indices of {@link Ontology#getAncestorView()} and the
+	 * parents are taken from the cached views of the ontology.
+	 *
+	 * @param ontology the ontology to work on
+	 * @param context the context that maps items to indices. Items that are
+	 *  not part of the context are assigned further indices.
+	 * @param respectAnnotationPropagationRules if set to true, annotations are only
+	 *  propagated via relation types that have the propagating property set to true
+	 */
+	public BitmapTermEnumerator(Ontology ontology, AnnotationContext context, boolean respectAnnotationPropagationRules)
+	{
+		this.ontology = ontology;
+		this.context = context;
+
+		if (ontology.isFrozen())
+		{
+			/* The cached views of the ontology share the vertex indices */
+			view = ontology.getAncestorView();
+			propagationParents = respectAnnotationPropagationRules ?
+					ontology.getAncestorView(RelationType.PROPAGATING_MEANINGS).vertexParents : view.vertexParents;
+		} else
+		{
+			/* Only the parents are needed, so no closures are determined */
+			view = SlimDirectedGraphView.create(ontology.getGraph(), SlimDirectedGraphView.ClosureType.NONE);
+			if (respectAnnotationPropagationRules)
+			{
+				propagationParents = new int[view.getNumberOfVertices()][];
+				int [] buf = new int[16];
+				for (int i = 0; i < propagationParents.length; i++)
+				{
+					int [] parents = view.vertexParents[i];
+					if (buf.length < parents.length)
+						buf = new int[parents.length];
+					int len = 0;
+					for (int p : parents)
+					{
+						if (ontology.getDirectRelation(view.getVertex(p), view.getVertex(i)).isPropagating())
+							buf[len++] = p;
+					}
+					propagationParents[i] = len == parents.length ? parents : Arrays.copyOf(buf, len);
+				}
+			} else
+			{
+				propagationParents = view.vertexParents;
+			}
+		}
+
+		int n = view.getNumberOfVertices();
+
+		direct = new int[n][];
+		directSizes = new int[n];
+		total = new int[n][];
+		totalSizes = new int[n];
+		unsorted = new boolean[n];
+		visitStamps = new int[n];
+		queue = new int[n];
+	}
+
+	/**
+	 * Returns the index of the given item, assigning a new one if the item
+	 * is neither known to the context nor has been seen before.
+	 *
+	 * @param item
+	 * @return the index
+	 */
+	private int mapItem(ByteString item)
+	{
+		int index = context != null ? context.mapSymbol(item) : Integer.MAX_VALUE;
+		if (index != Integer.MAX_VALUE)
+			return index;
+
+		index = extraItemMap.getIfAbsent(item, -1);
+		if (index == -1)
+		{
+			index = getNumberOfContextItems() + extraItems.size();
+			extraItemMap.put(item, index);
+			extraItems.add(item);
+		}
+		return index;
+	}
+
+	private int getNumberOfContextItems()
+	{
+		return context != null ? context.getSymbols().length : 0;
+	}
+
+	/**
+	 * Appends the item to the given list of items of a term.
+	 *
+	 * @param distinct whether the item is not appended if it was the last
+	 *  one appended to the list.
+	 * @return whether the item has been appended.
+	 */
+	private boolean append(int [][] lists, int [] sizes, int term, int item, boolean distinct)
+	{
+		int [] list = lists[term];
+		int size = sizes[term];
+		if (list == null)
+		{
+			list = lists[term] = new int[4];
+		} else
+		{
+			/* Items are pushed in arbitrary order */
+			if (distinct && list[size - 1] == item)
+				return false;
+			if (list[size - 1] > item && !unsorted[term])
+			{
+				unsorted[term] = true;
+				anyUnsorted = true;
+			}
+			if (size == list.length)
+				list = lists[term] = Arrays.copyOf(list, size * 2);
+		}
+		list[size++] = item;
+		sizes[term] = size;
+		return true;
+	}
+
+	/**
+	 * Pushes the given item associations into the enumerator.
+	 *
+	 * @param itemAssociations
+	 */
+	public void push(ItemAssociations itemAssociations)
+	{
+		push(itemAssociations, null);
+	}
+
+	/**
+	 * Pushes the given item associations into the enumerator, i.e., adds
+	 * the item to all terms the item is annotated to.
+	 *
+	 * @param itemAssociations the associations of the item
+	 * @param evidences consider only annotation entries that correspond to
+	 *  the given evidence codes.
+	 */
+	public void push(ItemAssociations itemAssociations, Set<ByteString> evidences)
+	{
+		int item = mapItem(itemAssociations.name());
+
+		if (item >= pushedItems.length)
+			pushedItems = Arrays.copyOf(pushedItems, Math.max(item + 1, pushedItems.length * 2));
+		if (!pushedItems[item])
+		{
+			pushedItems[item] = true;
+			numberOfItems++;
+		}
+
+		if (++stamp == 0)
+		{
+			Arrays.fill(visitStamps, 0);
+			stamp = 1;
+		}
+
+		int head = 0;
+		int tail = 0;
+
+		/* At first add the direct annotations and remember the terms */
+		for (Association association : itemAssociations)
+		{
+			if (evidences != null && !evidences.contains(association.getEvidence()))
+				continue;
+
+			int term = view.getVertexIndex(association.getTermID());
+			if (term == -1)
+				continue;
+
+			append(direct, directSizes, term, item, false);
+
+			if (visitStamps[term] != stamp)
+			{
+				visitStamps[term] = stamp;
+				queue[tail++] = term;
+			}
+		}
+
+		/* Then propagate to all ancestors */
+		while (head < tail)
+		{
+			int term = queue[head++];
+			if (append(total, totalSizes, term, item, true) && totalSizes[term] == 1)
+				numberOfAnnotatedTerms++;
+
+			for (int p : propagationParents[term])
+			{
+				if (visitStamps[p] != stamp)
+				{
+					visitStamps[p] = stamp;
+					queue[tail++] = p;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sorts the given list of items of a term.
+	 *
+	 * @param distinct whether duplicates are removed.
+	 */
+	private static void sort(int [][] lists, int [] sizes, int term, boolean distinct)
+	{
+		int [] list = lists[term];
+		if (list == null)
+			return;
+
+		int size = sizes[term];
+		Arrays.sort(list, 0, size);
+		if (!distinct)
+			return;
+
+		int n = 1;
+		for (int i = 1; i < size; i++)
+		{
+			if (list[i] != list[n - 1])
+				list[n++] = list[i];
+		}
+		sizes[term] = n;
+	}
+
+	/**
+	 * Makes sure that the lists of all terms are sorted.
+	 */
+	private void sortAll()
+	{
+		if (!anyUnsorted)
+			return;
+
+		for (int i = 0; i < unsorted.length; i++)
+		{
+			if (unsorted[i])
+			{
+				sort(direct, directSizes, i, false);
+				sort(total, totalSizes, i, true);
+				unsorted[i] = false;
+			}
+		}
+		anyUnsorted = false;
+	}
+
+	/**
+	 * @return the view that defines the term indices.
+	 */
+	public SlimDirectedGraphView<TermID> getView()
+	{
+		return view;
+	}
+
+	/**
+	 * Returns the index of the given term.
+	 *
+	 * @param tid
+	 * @return the index or -1 if the term is not part of the ontology.
+	 */
+	public int getTermIndex(TermID tid)
+	{
+		return view.getVertexIndex(tid);
+	}
+
+	/**
+	 * Returns the index of the given item.
+	 *
+	 * @param item
+	 * @return the index or -1 if the item is not known.
+	 */
+	public int getItemIndex(ByteString item)
+	{
+		int index = context != null ? context.mapSymbol(item) : Integer.MAX_VALUE;
+		if (index != Integer.MAX_VALUE)
+			return index;
+		return extraItemMap.getIfAbsent(item, -1);
+	}
+
+	/**
+	 * @param index
+	 * @return the name of the item with the given index.
+	 */
+	public ByteString getItem(int index)
+	{
+		int n = getNumberOfContextItems();
+		if (index < n)
+			return context.getSymbols()[index];
+		return extraItems.get(index - n);
+	}
+
+	/**
+	 * Returns the indices of the items that are annotated to the term with
+	 * the given index including propagated annotations. The array must not
+	 * be modified and only the first {@link #getTotalAnnotatedCount(int)}
+	 * entries are valid.
+	 *
+	 * @param term the index of the term
+	 * @return the sorted indices of the items
+	 */
+	public int [] getTotalAnnotated(int term)
+	{
+		sortAll();
+		return total[term] != null ? total[term] : EMPTY;
+	}
+
+	/**
+	 * Returns the indices of the items that are directly annotated to the
+	 * term with the given index. An item appears once for each pushed
+	 * association to the term. The array must not be modified and only the
+	 * first {@link #getDirectAnnotatedCount(int)} entries are valid.
+	 *
+	 * @param term the index of the term
+	 * @return the sorted indices of the items
+	 */
+	public int [] getDirectAnnotated(int term)
+	{
+		sortAll();
+		return direct[term] != null ? direct[term] : EMPTY;
+	}
+
+	/**
+	 * @param term the index of the term
+	 * @return the number of items annotated to the term including propagated annotations.
+	 */
+	public int getTotalAnnotatedCount(int term)
+	{
+		sortAll();
+		return totalSizes[term];
+	}
+
+	/**
+	 * @param term the index of the term
+	 * @return the number of direct annotations of the term, which counts an
+	 *  item once per association.
+	 */
+	public int getDirectAnnotatedCount(int term)
+	{
+		sortAll();
+		return directSizes[term];
+	}
+
+	/**
+	 * @param tid the term
+	 * @return the number of items annotated to the term including propagated annotations.
+	 */
+	public int getTotalAnnotatedCount(TermID tid)
+	{
+		int term = getTermIndex(tid);
+		return term != -1 ? getTotalAnnotatedCount(term) : 0;
+	}
+
+	/**
+	 * @param tid the term
+	 * @return the number of items directly annotated to the term.
+	 */
+	public int getDirectAnnotatedCount(TermID tid)
+	{
+		int term = getTermIndex(tid);
+		return term != -1 ? getDirectAnnotatedCount(term) : 0;
+	}
+
+	/**
+	 * Returns the number of values that are contained in both sorted arrays.
+	 */
+	private static int intersectionCount(int [] a, int aLen, int [] b, int bLen)
+	{
+		int i = 0;
+		int j = 0;
+		int count = 0;
+		while (i < aLen && j < bLen)
+		{
+			int x = a[i];
+			int y = b[j];
+			if (x < y) i++;
+			else if (x > y) j++;
+			else
+			{
+				count++;
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of items that are annotated to both terms including
+	 * propagated annotations.
+	 *
+	 * @param term1 the index of the first term
+	 * @param term2 the index of the second term
+	 * @return the size of the intersection
+	 */
+	public int getTotalAnnotatedIntersectionCount(int term1, int term2)
+	{
+		sortAll();
+		if (total[term1] == null || total[term2] == null)
+			return 0;
+		return intersectionCount(total[term1], totalSizes[term1], total[term2], totalSizes[term2]);
+	}
+
+	/**
+	 * Returns the number of the given items that are annotated to the given
+	 * term including propagated annotations. This can be used to count the
+	 * items of a study set that are annotated to a term.
+	 *
+	 * @param term the index of the term
+	 * @param items the sorted indices of the items
+	 * @return the number of items that are annotated to the term
+	 */
+	public int getTotalAnnotatedIntersectionCount(int term, int [] items)
+	{
+		sortAll();
+		if (total[term] == null)
+			return 0;
+		return intersectionCount(total[term], totalSizes[term], items, items.length);
+	}
+
+	/**
+	 * Returns the items annotated to the given term as {@link TermAnnotations},
+	 * which is compatible to {@link TermEnumerator#getAnnotatedGenes(TermID)}.
+	 * The lists are created on each call and are ordered by the item index.
+	 *
+	 * @param tid
+	 * @return the annotated items
+	 */
+	public TermAnnotations getAnnotatedGenes(TermID tid)
+	{
+		TermAnnotations ta = new TermAnnotations();
+		int term = getTermIndex(tid);
+		if (term == -1)
+			return ta;
+
+		sortAll();
+		ta.directAnnotated = new ArrayList<ByteString>(directSizes[term]);
+		for (int i = 0; i < directSizes[term]; i++)
+			ta.directAnnotated.add(getItem(direct[term][i]));
+		ta.totalAnnotated = new ArrayList<ByteString>(totalSizes[term]);
+		for (int i = 0; i < totalSizes[term]; i++)
+			ta.totalAnnotated.add(getItem(total[term][i]));
+		return ta;
+	}
+
+	/**
+	 * @return the total number of terms to which at least a single item has been annotated.
+	 */
+	public int getTotalNumberOfAnnotatedTerms()
+	{
+		return numberOfAnnotatedTerms;
+	}
+
+	/**
+	 * @return the number of distinct items that have been pushed.
+	 */
+	public int getNumberOfItems()
+	{
+		return numberOfItems;
+	}
+
+	/**
+	 * @return the ontology.
+	 */
+	public Ontology getOntology()
+	{
+		return ontology;
+	}
+
+	/**
+	 * Iterates over all terms to which at least one item has been annotated,
+	 * in the order of the term indices.
+	 */
+	@Override
+	public Iterator<TermID> iterator()
+	{
+		return new Iterator<TermID>()
+		{
+			private int next = advance(0);
+
+			private int advance(int i)
+			{
+				while (i < totalSizes.length && totalSizes[i] == 0)
+					i++;
+				return i;
+			}
+
+			@Override
+			public boolean hasNext()
+			{
+				return next < totalSizes.length;
+			}
+
+			@Override
+			public TermID next()
+			{
+				if (!hasNext())
+					throw new NoSuchElementException();
+				TermID tid = view.getVertex(next);
+				next = advance(next + 1);
+				return tid;
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
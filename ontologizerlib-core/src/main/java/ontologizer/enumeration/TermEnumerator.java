@@ -2,6 +2,7 @@ package ontologizer.enumeration;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -11,17 +12,23 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import ontologizer.association.Association;
 import ontologizer.association.AssociationContainer;
+import ontologizer.association.IAssociationVisitor;
 import ontologizer.association.ItemAssociations;
 import ontologizer.ontology.Ontology;
 import ontologizer.ontology.Ontology.ITermIDVisitor;
+import ontologizer.ontology.RelationType;
 import ontologizer.ontology.TermID;
 import ontologizer.types.ByteString;
 import sonumina.math.graph.Algorithms;
 import sonumina.math.graph.Grabbers;
 import sonumina.math.graph.INeighbourGrabber;
+import sonumina.math.graph.SlimDirectedGraphView;
 
 /**
  * This class encapsulates the enumeration of explicit and implicit
@@ -40,6 +47,37 @@ public class TermEnumerator implements Iterable<TermID>
 	/** The grabber that is used to propagate annotations */
 	private INeighbourGrabber<TermID> grabber;
 
+	/**
+	 * The view whose parents and ancestor closures define the propagation or
+	 * null if the ontology was not frozen during construction.
+	 */
+	private SlimDirectedGraphView<TermID> closures;
+
+	/** The last push that visited each term of the closures view */
+	private int [] visitStamps;
+	private int stamp;
+
+	/** The terms of the closures view in the order of the last propagation */
+	private int [] propagationOrder;
+
+	/**
+	 * The associations of the pushed items, needed to remove them again, or
+	 * null if the enumerator is not incremental.
+	 */
+	private HashMap<ByteString,ItemAssociations> pushedItems;
+
+	/** The evidences of pushed items that were restricted to some evidences */
+	private HashMap<ByteString,Set<ByteString>> itemEvidences;
+
+	/** The terms that have been removed by removeTerms() or null */
+	private HashSet<TermID> removedTerms;
+
+	/** Whether the enumerator must not be modified anymore */
+	private boolean readOnly;
+
+	/** The minimum number of items that are pushed by a single task */
+	private static final int MIN_ITEMS_PER_TASK = 256;
+
 	/** Holds the number of suspicious annotations */
 //	private int suspiciousCount;
 
@@ -61,11 +99,33 @@ public class TermEnumerator implements Iterable<TermID>
 	 *  propagated via relation types that have the propagating property set to true
 	 */
 	public TermEnumerator(Ontology ont, boolean respectAnnotationPropagationRules)
+	{
+		this(ont, respectAnnotationPropagationRules, false);
+	}
+
+	/**
+	 * Construct the enumerator.
+	 *
+	 * @param ont the ontology to work on
+	 * @param respectAnnotationPropagationRules if set to true, annotations are only
+	 *  propagated via relation types that have the propagating property set to true
+	 * @param incremental if set to true, the associations of the pushed items
+	 *  are kept, so items can be added and removed later via
+	 *  {@link #add(ItemAssociations, Set)} and {@link #remove(ByteString)}.
+	 */
+	public TermEnumerator(Ontology ont, boolean respectAnnotationPropagationRules, boolean incremental)
 	{
 		this.graph = ont;
+		this.closures = ont.getAncestorView(respectAnnotationPropagationRules ? RelationType.PROPAGATING_MEANINGS : null);
 
 		map = new HashMap<TermID,TermAnnotations>();
 
+		if (incremental)
+		{
+			pushedItems = new HashMap<ByteString,ItemAssociations>();
+			itemEvidences = new HashMap<ByteString,Set<ByteString>>();
+		}
+
 		/* Construct different grabber depending whether the propagation
 		 * property shall be respected or not.
 		 */
@@ -117,8 +177,12 @@ public class TermEnumerator implements Iterable<TermID>
 	 */
 	public void push(ItemAssociations geneAssociations, Set<ByteString> evidences)
 	{
+		checkMutable();
+
 		ByteString geneName = geneAssociations.name();
 
+		remember(geneAssociations, evidences);
+
 		/* Check for suspicious annotations. An annotation i is suspicious
 		 * if there exists a more specialized annotation orgininating from
 		 * i. If an annotation isn't suspicious it is valid and placed in
@@ -167,6 +231,12 @@ public class TermEnumerator implements Iterable<TermID>
 					continue;
 			}
 
+			/* This term is annotated */
+			termIDSet.add(association.getTermID());
+
+			if (isRemoved(termID))
+				continue;
+
 			TermAnnotations termGenes = map.get(termID);
 
 			/* Create an entry if it doesn't exist */
@@ -177,9 +247,12 @@ public class TermEnumerator implements Iterable<TermID>
 			}
 
 			termGenes.directAnnotated.add(geneName);
+		}
 
-			/* This term is annotated */
-			termIDSet.add(association.getTermID());
+		if (closures != null)
+		{
+			pushClosures(termIDSet, geneName);
+			return;
 		}
 
 		/* Then add the total counts */
@@ -202,6 +275,9 @@ public class TermEnumerator implements Iterable<TermID>
 
 			public boolean visited(TermID tid)
 			{
+				if (isRemoved(tid))
+					return true;
+
 				TermAnnotations termGenes = map.get(tid);
 
 				if (termGenes == null)
@@ -221,6 +297,448 @@ public class TermEnumerator implements Iterable<TermID>
 		Algorithms.bfs(termIDSet, grabber, vistingGOVertex);
 	}
 
+	/**
+	 * Returns whether the given term has been removed by
+	 * {@link #removeTerms(IRemover)}, in which case it is not added again.
+	 *
+	 * @param tid
+	 * @return whether the term has been removed.
+	 */
+	private boolean isRemoved(TermID tid)
+	{
+		return removedTerms != null && removedTerms.contains(tid);
+	}
+
+	/**
+	 * Remembers the associations of the given item, so the item can be
+	 * removed later. Does nothing if the enumerator is not incremental.
+	 *
+	 * @param itemAssociations
+	 * @param evidences
+	 */
+	private void remember(ItemAssociations itemAssociations, Set<ByteString> evidences)
+	{
+		if (pushedItems == null)
+			return;
+
+		ByteString name = itemAssociations.name();
+		pushedItems.put(name, itemAssociations);
+		if (evidences != null)
+			itemEvidences.put(name, evidences);
+		else if (!itemEvidences.isEmpty())
+			itemEvidences.remove(name);
+	}
+
+	/**
+	 * Throws an exception if the enumerator is read-only.
+	 */
+	private void checkMutable()
+	{
+		if (readOnly)
+			throw new UnsupportedOperationException("The enumerator is read-only");
+	}
+
+	/**
+	 * Makes the enumerator read-only, so it can be shared. All methods that
+	 * modify the enumerator throw an {@link UnsupportedOperationException}
+	 * afterwards, and the lists of the term annotations become unmodifiable.
+	 */
+	void setReadOnly()
+	{
+		if (readOnly)
+			return;
+
+		readOnly = true;
+		for (TermAnnotations termGenes : map.values())
+		{
+			termGenes.directAnnotated = Collections.unmodifiableList(termGenes.directAnnotated);
+			termGenes.totalAnnotated = Collections.unmodifiableList(termGenes.totalAnnotated);
+		}
+	}
+
+	/**
+	 * Throws an exception if the enumerator is not incremental.
+	 */
+	private void checkIncremental()
+	{
+		if (pushedItems == null)
+			throw new IllegalStateException("The enumerator has not been constructed to be incremental");
+	}
+
+	/**
+	 * Adds the given item to the enumerator unless an item of the same name
+	 * has been added already. Only the terms to which the item is annotated
+	 * are updated. The enumerator must be incremental.
+	 *
+	 * @param itemAssociations the associations of the item
+	 * @return whether the item has been added.
+	 */
+	public boolean add(ItemAssociations itemAssociations)
+	{
+		return add(itemAssociations, null);
+	}
+
+	/**
+	 * Adds the given item to the enumerator unless an item of the same name
+	 * has been added already. Only the terms to which the item is annotated
+	 * are updated. Terms that have been removed by
+	 * {@link #removeTerms(IRemover)} are not added again. The enumerator must
+	 * be incremental.
+	 *
+	 * @param itemAssociations the associations of the item
+	 * @param evidences consider only annotation entries that correspond to
+	 *  the given evidence codes.
+	 * @return whether the item has been added.
+	 */
+	public boolean add(ItemAssociations itemAssociations, Set<ByteString> evidences)
+	{
+		checkIncremental();
+		if (pushedItems.containsKey(itemAssociations.name()))
+			return false;
+		push(itemAssociations, evidences);
+		return true;
+	}
+
+	/**
+	 * Removes the given item from the enumerator. Only the terms to which the
+	 * item is annotated are updated. Terms that are no longer annotated are
+	 * removed, as if the enumerator was built without the item. Terms that
+	 * have been removed by {@link #removeTerms(IRemover)} stay removed. The
+	 * enumerator must be incremental.
+	 *
+	 * @param item the name of the item as returned by {@link ItemAssociations#name()}
+	 * @return whether the item has been removed.
+	 */
+	public boolean remove(ByteString item)
+	{
+		checkMutable();
+		checkIncremental();
+		ItemAssociations itemAssociations = pushedItems.remove(item);
+		if (itemAssociations == null)
+			return false;
+		Set<ByteString> evidences = itemEvidences.remove(item);
+
+		for (Association association : itemAssociations)
+		{
+			if (evidences != null && !evidences.contains(association.getEvidence()))
+				continue;
+
+			TermAnnotations termGenes = map.get(association.getTermID());
+			if (termGenes != null)
+				termGenes.directAnnotated.remove(item);
+		}
+
+		for (TermID tid : new LinkedHashSet<TermID>(getPushOrder(itemAssociations, evidences)))
+		{
+			TermAnnotations termGenes = map.get(tid);
+			if (termGenes == null)
+				continue;
+
+			termGenes.totalAnnotated.remove(item);
+			if (termGenes.totalAnnotated.isEmpty() && termGenes.directAnnotated.isEmpty())
+				map.remove(tid);
+		}
+		return true;
+	}
+
+	/**
+	 * Determines the terms to which the given terms are propagated, i.e., the
+	 * terms that are reachable via the parents of the closures view. The terms
+	 * are stored in propagationOrder in breadth-first order, which is the
+	 * same order as the one of a traversal via the grabber.
+	 *
+	 * @param termIDSet the terms to start with
+	 * @return the number of terms stored in propagationOrder
+	 */
+	private int propagate(Set<TermID> termIDSet)
+	{
+		if (visitStamps == null)
+		{
+			visitStamps = new int[closures.getNumberOfVertices()];
+			propagationOrder = new int[closures.getNumberOfVertices()];
+		}
+		if (++stamp == 0)
+		{
+			Arrays.fill(visitStamps, 0);
+			stamp = 1;
+		}
+
+		int tail = 0;
+		for (TermID tid : termIDSet)
+		{
+			int term = closures.getVertexIndex(tid);
+			if (term == -1 || visitStamps[term] == stamp)
+				continue;
+			visitStamps[term] = stamp;
+			propagationOrder[tail++] = term;
+		}
+
+		for (int head = 0; head < tail; head++)
+		{
+			for (int p : closures.vertexParents[propagationOrder[head]])
+			{
+				if (visitStamps[p] == stamp)
+					continue;
+				visitStamps[p] = stamp;
+				propagationOrder[tail++] = p;
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Adds the given item to all terms to which the directly annotated terms
+	 * are propagated. The parents are looked up in the closures view rather
+	 * than filtered, but the terms are visited in the same order.
+	 *
+	 * @param termIDSet the directly annotated terms
+	 * @param name
+	 */
+	private void pushClosures(Set<TermID> termIDSet, ByteString name)
+	{
+		int num = propagate(termIDSet);
+		for (int i = 0; i < num; i++)
+		{
+			TermID tid = closures.getVertex(propagationOrder[i]);
+			if (isRemoved(tid))
+				continue;
+
+			TermAnnotations termGenes = map.get(tid);
+			if (termGenes == null)
+			{
+				termGenes = new TermAnnotations();
+				map.put(tid, termGenes);
+			}
+			termGenes.totalAnnotated.add(name);
+		}
+	}
+
+	/**
+	 * Returns the terms in the order in which {@link #push(ItemAssociations)}
+	 * adds them to an empty enumerator for the given item, i.e., the directly
+	 * annotated terms in the order of the associations followed by the
+	 * remaining terms in the order of propagation. Terms may appear more than
+	 * once.
+	 *
+	 * @param itemAssociations
+	 * @param evidences the evidences to consider or null
+	 * @return the terms in push order.
+	 */
+	private List<TermID> getPushOrder(ItemAssociations itemAssociations, Set<ByteString> evidences)
+	{
+		List<TermID> order = new ArrayList<TermID>();
+		HashSet<TermID> termIDSet = new HashSet<TermID>();
+
+		for (Association association : itemAssociations)
+		{
+			TermID termID = association.getTermID();
+			if (!graph.termExists(termID))
+				continue;
+			if (evidences != null && !evidences.contains(association.getEvidence()))
+				continue;
+			order.add(termID);
+			termIDSet.add(termID);
+		}
+
+		if (closures != null)
+		{
+			int num = propagate(termIDSet);
+			for (int i = 0; i < num; i++)
+				order.add(closures.getVertex(propagationOrder[i]));
+		} else
+		{
+			order.addAll(Algorithms.bfsOrder(termIDSet, grabber));
+		}
+		return order;
+	}
+
+	/**
+	 * The annotations of a contiguous range of items that have been
+	 * pushed independently of the other items. Items and terms are
+	 * identified by their index.
+	 */
+	private static class PushChunk implements Callable<PushChunk>
+	{
+		private final List<ItemAssociations> items;
+		private final SlimDirectedGraphView<TermID> view;
+		private final int from;
+		private final int to;
+
+		/** Items directly annotated to each term, including duplicates */
+		private int [][] direct;
+		private int [] directSizes;
+
+		/** Items annotated to each term */
+		private int [][] total;
+		private int [] totalSizes;
+
+		/** The first item of the chunk that has been annotated to each term or -1 */
+		private int [] firstItem;
+
+		/** The terms that are annotated to at least one item of the chunk */
+		private int [] terms;
+		private int numTerms;
+
+		public PushChunk(List<ItemAssociations> items, SlimDirectedGraphView<TermID> view, int from, int to)
+		{
+			this.items = items;
+			this.view = view;
+			this.from = from;
+			this.to = to;
+		}
+
+		private static void append(int [][] lists, int [] sizes, int term, int item)
+		{
+			int [] list = lists[term];
+			if (list == null)
+				list = lists[term] = new int[4];
+			else if (sizes[term] == list.length)
+				list = lists[term] = Arrays.copyOf(list, list.length * 2);
+			list[sizes[term]++] = item;
+		}
+
+		@Override
+		public PushChunk call()
+		{
+			int n = view.getNumberOfVertices();
+			direct = new int[n][];
+			directSizes = new int[n];
+			total = new int[n][];
+			totalSizes = new int[n];
+			firstItem = new int[n];
+			Arrays.fill(firstItem, -1);
+			terms = new int[16];
+
+			/* The last item that has been annotated to each term */
+			int [] lastItem = new int[n];
+			Arrays.fill(lastItem, -1);
+
+			for (int i = from; i < to; i++)
+			{
+				for (Association association : items.get(i))
+				{
+					int term = view.getVertexIndex(association.getTermID());
+					if (term == -1)
+						continue;
+
+					append(direct, directSizes, term, i);
+
+					if (lastItem[term] == i)
+						continue;
+
+					/* The ancestors include the term itself */
+					for (int a : view.getAncestorIndices(term))
+					{
+						if (lastItem[a] == i)
+							continue;
+						lastItem[a] = i;
+						append(total, totalSizes, a, i);
+
+						if (firstItem[a] == -1)
+						{
+							firstItem[a] = i;
+							if (numTerms == terms.length)
+								terms = Arrays.copyOf(terms, numTerms * 2);
+							terms[numTerms++] = a;
+						}
+					}
+				}
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Pushes the given items using the given pool. The annotations of the
+	 * items are propagated by using the ancestor closures of the ontology
+	 * rather than a breadth-first search per item. The state is the same as
+	 * the one after pushing all items one after another, including the
+	 * order of the terms and the order of the items within each term.
+	 *
+	 * The closures are taken from {@link Ontology#getAncestorView(Set)}, so the
+	 * items are pushed in parallel only if the ontology was frozen when the
+	 * enumerator was constructed. They are also pushed sequentially if the
+	 * enumerator already contains annotations or if terms have been removed.
+	 *
+	 * @param items the items to push.
+	 * @param pool the pool used for propagating the annotations. If null,
+	 *  the items are pushed sequentially.
+	 */
+	public void pushAll(List<ItemAssociations> items, ForkJoinPool pool)
+	{
+		checkMutable();
+
+		SlimDirectedGraphView<TermID> view = closures;
+
+		if (pool == null || view == null || !map.isEmpty() || removedTerms != null || items.size() < 2 * MIN_ITEMS_PER_TASK)
+		{
+			for (ItemAssociations itemAssociations : items)
+				push(itemAssociations);
+			return;
+		}
+
+		int numChunks = Math.min(items.size() / MIN_ITEMS_PER_TASK, pool.getParallelism() * 4);
+		List<ForkJoinTask<PushChunk>> tasks = new ArrayList<ForkJoinTask<PushChunk>>(numChunks);
+		for (int c = 0; c < numChunks; c++)
+		{
+			int from = (int)((long)items.size() * c / numChunks);
+			int to = (int)((long)items.size() * (c + 1) / numChunks);
+			tasks.add(pool.submit(new PushChunk(items, view, from, to)));
+		}
+
+		TermAnnotations [] annotations = new TermAnnotations[view.getNumberOfVertices()];
+
+		for (ForkJoinTask<PushChunk> task : tasks)
+		{
+			PushChunk chunk = task.join();
+
+			/* Terms that were not annotated by a previous chunk need to be
+			 * added in the order of the sequential push, as the iteration
+			 * order of the map depends on it. Hence, we replay the push order
+			 * of the items that touch new terms.
+			 */
+			int [] newTerms = new int[chunk.numTerms];
+			int numNewTerms = 0;
+			for (int i = 0; i < chunk.numTerms; i++)
+			{
+				if (annotations[chunk.terms[i]] == null)
+					newTerms[numNewTerms++] = chunk.terms[i];
+			}
+
+			int lastReplayedItem = -1;
+			for (int i = 0; i < numNewTerms; i++)
+			{
+				int item = chunk.firstItem[newTerms[i]];
+				if (item == lastReplayedItem || annotations[newTerms[i]] != null)
+					continue;
+				lastReplayedItem = item;
+
+				for (TermID tid : getPushOrder(items.get(item), null))
+				{
+					int term = view.getVertexIndex(tid);
+					if (annotations[term] == null)
+					{
+						annotations[term] = new TermAnnotations();
+						map.put(tid, annotations[term]);
+					}
+				}
+			}
+
+			for (int i = 0; i < chunk.numTerms; i++)
+			{
+				int term = chunk.terms[i];
+				TermAnnotations ta = annotations[term];
+				for (int j = 0; j < chunk.directSizes[term]; j++)
+					ta.directAnnotated.add(items.get(chunk.direct[term][j]).name());
+				for (int j = 0; j < chunk.totalSizes[term]; j++)
+					ta.totalAnnotated.add(items.get(chunk.total[term][j]).name());
+			}
+		}
+
+		for (ItemAssociations itemAssociations : items)
+			remember(itemAssociations, null);
+	}
+
 	/**
 	 * Return genes directly or indirectly annotated to the given
 	 * goTermID.
@@ -303,9 +821,60 @@ public class TermEnumerator implements Iterable<TermID>
 
 	public Iterator<TermID> iterator()
 	{
+		if (readOnly)
+			return Collections.unmodifiableSet(map.keySet()).iterator();
 		return map.keySet().iterator();
 	}
 
+	/**
+	 * Estimates the number of bytes occupied by the enumerator. The estimate
+	 * assumes 8 byte references and a 16 byte object header and considers
+	 * only the structures that grow with the number of annotations. The
+	 * associations kept by an incremental enumerator are included, the items
+	 * names are not.
+	 *
+	 * @return the estimated number of bytes.
+	 */
+	long estimateBytes()
+	{
+		/* Map entry, TermAnnotations, and two ArrayLists with their arrays */
+		final long perTerm = 48 + 32 + 2 * (40 + 16);
+		/* Map entries of the remembered associations and evidences */
+		final long perItem = 48;
+
+		long bytes = map.size() * perTerm;
+		for (TermAnnotations termGenes : map.values())
+			bytes += 8L * (termGenes.directAnnotated.size() + termGenes.totalAnnotated.size());
+		if (pushedItems != null)
+		{
+			bytes += (pushedItems.size() + itemEvidences.size()) * perItem;
+			for (ItemAssociations itemAssociations : pushedItems.values())
+				bytes += estimateBytes(itemAssociations);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Estimates the number of bytes occupied by the given associations of an
+	 * item, excluding the objects that are usually shared such as the term
+	 * ids and names.
+	 *
+	 * @param itemAssociations
+	 * @return the estimated number of bytes.
+	 */
+	static long estimateBytes(ItemAssociations itemAssociations)
+	{
+		/* ItemAssociations and its ArrayList with the array */
+		final long perItem = 32 + 40 + 16;
+		/* Reference within the array and the Association */
+		final long perAssociation = 8 + 72;
+
+		long bytes = perItem;
+		for (Iterator<Association> iter = itemAssociations.iterator(); iter.hasNext(); iter.next())
+			bytes += perAssociation;
+		return bytes;
+	}
+
 	/**
 	 * @return the total number of terms to which at least a single gene has been annotated.
 	 */
@@ -368,27 +937,60 @@ public class TermEnumerator implements Iterable<TermID>
 
 	/**
 	 * Removes existing terms from the enumerator according to
-	 * the remover.
+	 * the remover. The terms are not added again by subsequent pushes.
 	 * @param remove
 	 */
 	public void removeTerms(IRemover remove)
 	{
+		checkMutable();
+
 		ArrayList<TermID> toBeRemoved = new ArrayList<TermID>();
 		for (Entry<TermID, TermAnnotations> entry : map.entrySet())
 		{
 			if (remove.remove(entry.getKey(),entry.getValue()))
 					toBeRemoved.add(entry.getKey());
 		}
+		if (toBeRemoved.isEmpty())
+			return;
+
+		/* Remember the terms, so they are not added again */
+		if (removedTerms == null)
+			removedTerms = new HashSet<TermID>();
 		for (TermID tid : toBeRemoved)
+		{
 			map.remove(tid);
+			removedTerms.add(tid);
+		}
 	}
 
-	public static interface Optional
+	/**
+	 * The optional parameters of the builder. Associations can be also
+	 * streamed into the builder as it is an {@link IAssociationVisitor}.
+	 */
+	public static interface Optional extends IAssociationVisitor
 	{
 		Optional forAll(AssociationContainer container);
 
 		Optional forAll(List<Association> associations);
 
+		/**
+		 * Propagates the annotations using the given pool if the ontology
+		 * is frozen. The result is identical to the one of the sequential
+		 * build.
+		 *
+		 * @param pool the pool or null for a sequential build.
+		 * @return this
+		 */
+		Optional parallel(ForkJoinPool pool);
+
+		/**
+		 * Builds an incremental enumerator, i.e., one whose items can be
+		 * added and removed later.
+		 *
+		 * @return this
+		 */
+		Optional incremental();
+
 		TermEnumerator build();
 	}
 
@@ -401,7 +1003,13 @@ public class TermEnumerator implements Iterable<TermID>
 	{
 		private Ontology ontology;
 		private AssociationContainer assocs;
-		private List<Association> associationList;
+		private ForkJoinPool pool;
+		private boolean incremental;
+
+		/* TODO: GAFLineScanner does a similar thing (and more). Extract this from there
+		 * and make it reusable.
+		 */
+		private Map<ByteString, ItemAssociations> itemMap = new LinkedHashMap<ByteString, ItemAssociations>();
 
 		@Override
 		public Optional forAll(AssociationContainer assocs)
@@ -417,42 +1025,54 @@ public class TermEnumerator implements Iterable<TermID>
 			return this;
 		}
 
+		@Override
+		public Optional parallel(ForkJoinPool pool)
+		{
+			this.pool = pool;
+			return this;
+		}
+
+		@Override
+		public Optional incremental()
+		{
+			this.incremental = true;
+			return this;
+		}
+
 		@Override
 		public Optional forAll(List<Association> associations)
 		{
-			associationList = associations;
+			for (Association a : associations)
+				visited(a);
 			return this;
 		}
 
+		@Override
+		public boolean visited(Association a)
+		{
+			ByteString name = a.getObjectSymbol();
+			ItemAssociations itemAssociations = itemMap.get(name);
+			if (itemAssociations == null)
+			{
+				itemAssociations = new ItemAssociations(name);
+				itemMap.put(name, itemAssociations);
+			}
+			itemAssociations.add(a);
+			return true;
+		}
+
 		@Override
 		public TermEnumerator build()
 		{
-			TermEnumerator te = new TermEnumerator(ontology);
+			TermEnumerator te = new TermEnumerator(ontology, false, incremental);
+			List<ItemAssociations> items = new ArrayList<ItemAssociations>();
 			if (assocs != null)
 			{
 				for (ItemAssociations itemAssociations : assocs)
-					te.push(itemAssociations);
-			}
-			if (associationList != null)
-			{
-				/* TODO: GAFLineScanner does a similar thing (and more). Extract this from there
-				 * and make it reusable.
-				 */
-				Map<ByteString, ItemAssociations> map = new LinkedHashMap<ByteString, ItemAssociations>();
-				for (Association a : associationList)
-				{
-					ByteString name = a.getObjectSymbol();
-					ItemAssociations itemAssociations = map.get(name);
-					if (itemAssociations == null)
-					{
-						itemAssociations = new ItemAssociations(name);
-						map.put(name, itemAssociations);
-					}
-					itemAssociations.add(a);
-				}
-				for (ItemAssociations itemAssociations : map.values())
-					te.push(itemAssociations);
+					items.add(itemAssociations);
 			}
+			items.addAll(itemMap.values());
+			te.pushAll(items, pool);
 			return te;
 		}
 	}
@@ -0,0 +1,360 @@
+package ontologizer.enumeration;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import ontologizer.association.AssociationContainer;
+import ontologizer.association.ItemAssociations;
+import ontologizer.enumeration.TermEnumerator.IRemover;
+import ontologizer.ontology.Ontology;
+import ontologizer.types.ByteString;
+
+/**
+ * A bounded cache of term enumerators that can be shared by several
+ * threads. Enumerators are keyed by the identity of the population, the
+ * identity of the ontology, the set of evidence codes, and the identity of
+ * the remover, so switching between different evidence filters of the same
+ * population doesn't require to enumerate the population again.
+ *
+ * The cache evicts the least recently used enumerators once their estimated
+ * size exceeds the given number of bytes. As the cache also keeps the
+ * populations alive, the estimated size of the items of a population is
+ * accounted once for all enumerators of the population. Concurrent requests
+ * for the same key wait for a single enumeration. The returned enumerators
+ * are shared and therefore read-only, i.e., attempts to modify them throw an
+ * {@link UnsupportedOperationException}.
+ *
+ * @author Sebastian Bauer
+ */
+public class TermEnumeratorCache
+{
+	/**
+	 * The key of an enumerator. Population, ontology, and remover are
+	 * compared by identity, the evidences by equality.
+	 */
+	private static final class Key
+	{
+		private final Object population;
+		private final Ontology ontology;
+		private final Set<ByteString> evidences;
+		private final IRemover remover;
+
+		public Key(Object population, Ontology ontology, Set<ByteString> evidences, IRemover remover)
+		{
+			this.population = population;
+			this.ontology = ontology;
+			this.evidences = evidences;
+			this.remover = remover;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int hash = System.identityHashCode(population);
+			hash = hash * 31 + System.identityHashCode(ontology);
+			hash = hash * 31 + (evidences != null ? evidences.hashCode() : 0);
+			hash = hash * 31 + System.identityHashCode(remover);
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key)obj;
+			return population == other.population && ontology == other.ontology && remover == other.remover &&
+				(evidences == null ? other.evidences == null : evidences.equals(other.evidences));
+		}
+	}
+
+	/**
+	 * An entry of the cache.
+	 */
+	private static final class Entry
+	{
+		final FutureTask<TermEnumerator> future;
+
+		/** The estimated size or -1 if the enumerator is not yet available */
+		long bytes = -1;
+
+		public Entry(FutureTask<TermEnumerator> future)
+		{
+			this.future = future;
+		}
+	}
+
+	private final long maxBytes;
+
+	/** The entries in access order, guarded by this */
+	private final LinkedHashMap<Key,Entry> entries = new LinkedHashMap<Key,Entry>(16, 0.75f, true);
+
+	/**
+	 * The number of available enumerators and the estimated size of the
+	 * items of each population, guarded by this
+	 */
+	private final IdentityHashMap<Object,long[]> populations = new IdentityHashMap<Object,long[]>();
+
+	/** The estimated size of all available enumerators and their populations, guarded by this */
+	private long bytes;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructs the cache.
+	 *
+	 * @param maxBytes the maximum of the estimated sizes of all cached
+	 *  enumerators and their populations.
+	 */
+	public TermEnumeratorCache(long maxBytes)
+	{
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("The maximum number of bytes must not be negative");
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the enumerator of all items of the given container.
+	 *
+	 * @param population the items, which also identify the population.
+	 * @param ontology the ontology
+	 * @param evidences consider only annotation entries that correspond to
+	 *  the given evidence codes or null to consider all annotations.
+	 * @param remover the remover that is applied to the enumerator or null.
+	 * @return the read-only enumerator
+	 * @see #get(Object, Iterable, Ontology, Set, IRemover)
+	 */
+	public TermEnumerator get(AssociationContainer population, Ontology ontology, Set<ByteString> evidences, IRemover remover)
+	{
+		return get(population, population, ontology, evidences, remover);
+	}
+
+	/**
+	 * Returns the enumerator for the given key. If the enumerator is not
+	 * cached, it is built from the given items within the calling thread.
+	 *
+	 * @param population the identity of the population. It must not change
+	 *  its items as long as it is cached, see {@link #invalidate(Object)}.
+	 * @param items the items of the population.
+	 * @param ontology the ontology
+	 * @param evidences consider only annotation entries that correspond to
+	 *  the given evidence codes or null to consider all annotations.
+	 * @param remover the remover that is applied to the enumerator or null.
+	 * @return the read-only enumerator
+	 */
+	public TermEnumerator get(Object population, final Iterable<ItemAssociations> items, final Ontology ontology, Set<ByteString> evidences, final IRemover remover)
+	{
+		final Set<ByteString> evidenceSet = evidences != null ? Collections.unmodifiableSet(new HashSet<ByteString>(evidences)) : null;
+		Key key = new Key(population, ontology, evidenceSet, remover);
+
+		/* The estimated size of the items, determined during the enumeration */
+		final long [] populationBytes = new long[1];
+
+		Entry entry;
+		boolean compute = false;
+		synchronized (this)
+		{
+			entry = entries.get(key);
+			if (entry != null)
+			{
+				hits++;
+			} else
+			{
+				misses++;
+				entry = new Entry(new FutureTask<TermEnumerator>(new Callable<TermEnumerator>()
+				{
+					@Override
+					public TermEnumerator call()
+					{
+						TermEnumerator enumerator = new TermEnumerator(ontology);
+						for (ItemAssociations itemAssociations : items)
+						{
+							enumerator.push(itemAssociations, evidenceSet);
+							populationBytes[0] += TermEnumerator.estimateBytes(itemAssociations);
+						}
+						if (remover != null)
+							enumerator.removeTerms(remover);
+						enumerator.setReadOnly();
+						return enumerator;
+					}
+				}));
+				entries.put(key, entry);
+				compute = true;
+			}
+		}
+
+		if (compute)
+		{
+			entry.future.run();
+			synchronized (this)
+			{
+				if (entries.get(key) == entry)
+				{
+					try
+					{
+						entry.bytes = entry.future.get().estimateBytes();
+						bytes += entry.bytes;
+
+						long [] populationEntry = populations.get(population);
+						if (populationEntry == null)
+						{
+							populationEntry = new long[]{0, populationBytes[0]};
+							populations.put(population, populationEntry);
+							bytes += populationEntry[1];
+						}
+						populationEntry[0]++;
+						evict();
+					} catch (Exception e)
+					{
+						/* The failure is reported below */
+						entries.remove(key);
+					}
+				}
+			}
+		}
+
+		try
+		{
+			return entry.future.get();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Evicts the least recently used enumerators until the estimated size
+	 * fits into the bounds. Enumerators that are still being built are kept.
+	 */
+	private void evict()
+	{
+		Iterator<Map.Entry<Key,Entry>> iter = entries.entrySet().iterator();
+		while (bytes > maxBytes && iter.hasNext())
+		{
+			Map.Entry<Key,Entry> e = iter.next();
+			if (e.getValue().bytes < 0)
+				continue;
+			iter.remove();
+			release(e.getKey(), e.getValue());
+			evictions++;
+		}
+	}
+
+	/**
+	 * Releases the estimated size of an available enumerator that has been
+	 * removed, including the size of its population if no other enumerator
+	 * of the population is left.
+	 *
+	 * @param key
+	 * @param entry
+	 */
+	private void release(Key key, Entry entry)
+	{
+		bytes -= entry.bytes;
+
+		long [] populationEntry = populations.get(key.population);
+		if (--populationEntry[0] == 0)
+		{
+			populations.remove(key.population);
+			bytes -= populationEntry[1];
+		}
+	}
+
+	/**
+	 * Removes all enumerators of the given population, e.g., because its
+	 * items have been changed.
+	 *
+	 * @param population the identity of the population
+	 */
+	public synchronized void invalidate(Object population)
+	{
+		Iterator<Map.Entry<Key,Entry>> iter = entries.entrySet().iterator();
+		while (iter.hasNext())
+		{
+			Map.Entry<Key,Entry> e = iter.next();
+			if (e.getKey().population == population)
+			{
+				iter.remove();
+				if (e.getValue().bytes >= 0)
+					release(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Removes all enumerators.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		populations.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return the number of cached enumerators, including the ones that
+	 *  are currently built.
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return the estimated size of all cached enumerators and their populations.
+	 */
+	public synchronized long getEstimatedBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * @return the maximum estimated size of all cached enumerators and their populations.
+	 */
+	public long getMaxBytes()
+	{
+		return maxBytes;
+	}
+
+	/**
+	 * @return the number of requests that were answered by the cache,
+	 *  including the ones that waited for an enumeration of another thread.
+	 */
+	public synchronized long getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return the number of requests that required an enumeration.
+	 */
+	public synchronized long getMissCount()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return the number of enumerators that have been evicted.
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictions;
+	}
+}
@@ -0,0 +1,24 @@
+package ontologizer.ontology;
+
+/**
+ * Loads the parts of a term that are not needed by most clients, i.e., the
+ * definition, the synonyms, and the xrefs, on demand. The parts are
+ * identified by the location of the term's definition within the source.
+ *
+ * @author Sebastian Bauer
+ */
+public interface ITermBodyLoader
+{
+	/**
+	 * Loads the body of the given term and sets it via
+	 * {@link Term#setDefinition(ontologizer.types.ByteString)},
+	 * {@link Term#setSynonyms(java.util.ArrayList)}, and
+	 * {@link Term#setXrefs(java.util.ArrayList)}. Failures should be
+	 * reported as unchecked exceptions.
+	 *
+	 * @param term the term whose body shall be loaded
+	 * @param offset the offset of the term's definition within the source
+	 * @param length the length of the term's definition
+	 */
+	public void loadBody(Term term, long offset, int length);
+}
@@ -6,22 +6,33 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import sonumina.collections.Map;
+import sonumina.math.graph.AbstractGraph;
 import sonumina.math.graph.Algorithms;
+import sonumina.math.graph.CompactDirectedGraph;
 import sonumina.math.graph.DirectedGraph;
 import sonumina.math.graph.Edge;
 import sonumina.math.graph.IDirectedGraph;
 import sonumina.math.graph.IDistanceVisitor;
+import sonumina.math.graph.IEdgeFilter;
+import sonumina.math.graph.Grabbers;
 import sonumina.math.graph.INeighbourGrabber;
 import sonumina.math.graph.IVisitor;
+import sonumina.math.graph.IntNeighbourGrabber;
+import sonumina.math.graph.IntSearchState;
+import sonumina.math.graph.IntVisitor;
+import sonumina.math.graph.ReachabilityIndex;
 import sonumina.math.graph.SlimDirectedGraphView;
 
 /**
@@ -39,9 +50,24 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	/** This is used to identify Gene Ontology until a better way is found */
 	private static HashSet<String> level1TermNames = new HashSet<String>(Arrays.asList("molecular_function","biological_process", "cellular_component"));
 
-	/** The graph */
+	/** The graph or null if the ontology is frozen */
 	private DirectedGraph<TermID, RelationType> graph; /* FIXME: Edge type should a list of relations */
 
+	/** The frozen, compact representation of the graph or null if the ontology is not frozen */
+	private CompactDirectedGraph<TermID, RelationType> compactGraph;
+
+	/** Reachability index of the frozen graph, initialized lazily by getReachabilityIndex() */
+	private transient volatile ReachabilityIndex<TermID> reachabilityIndex;
+
+	/** Slim view with the ancestor closures of the frozen graph, initialized lazily by getAncestorView() */
+	private transient volatile SlimDirectedGraphView<TermID> ancestorView;
+
+	/** Slim views restricted to the given relations, initialized lazily by getAncestorView(Set) */
+	private transient volatile ConcurrentHashMap<Set<RelationMeaning>,SlimDirectedGraphView<TermID>> relationAncestorViews;
+
+	/** Per-thread state for walks on the frozen graph, initialized lazily */
+	private transient volatile ThreadLocal<WalkState> walkState;
+
 	/** We also pack a TermContainer */
 	private TermContainer termContainer;
 
@@ -90,10 +116,14 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 				allTerms.add(tid2);
 
 		subgraph.availableSubsets 	= availableSubsets;
-		subgraph.graph 				= graph.subGraph(allTerms);
+		subgraph.graph 				= directedGraph().subGraph(allTerms);
 		subgraph.termContainer 		= termContainer;
 		subgraph.availableSubsets 	= availableSubsets;
 
+		/* The (possibly artificial) root is part of the subgraph */
+		if (allTerms.contains(rootTerm.getID()))
+			subgraph.rootTerm = rootTerm;
+
 		subgraph.assignLevel1TermsAndFixRoot();
 
 		return subgraph;
@@ -105,11 +135,8 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	public ArrayList<Term> getLeafTerms()
 	{
 		ArrayList<Term> leafTerms = new ArrayList<Term>();
-		for (TermID t : graph.getVertices())
-		{
-			if (graph.getOutDegree(t) == 0)
-				leafTerms.add(getTerm(t));
-		}
+		for (TermID t : getLeafTermIDs())
+			leafTerms.add(getTerm(t));
 
 		return leafTerms;
 	}
@@ -120,6 +147,17 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	public Collection<TermID> getLeafTermIDs()
 	{
 		ArrayList<TermID> leafTerms = new ArrayList<TermID>();
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+		{
+			for (int i = 0; i < cg.getNumberOfVertices(); i++)
+			{
+				if (cg.getOutDegree(i) == 0)
+					leafTerms.add(cg.getVertex(i));
+			}
+			return leafTerms;
+		}
+
 		for (TermID t : graph.getVertices())
 		{
 			if (graph.getOutDegree(t) == 0)
@@ -134,7 +172,7 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public List<TermID> getTermsInTopologicalOrder()
 	{
-		return Algorithms.topologicalOrder(graph);
+		return Algorithms.topologicalOrder(traversalGraph());
 	}
 
 	/**
@@ -142,14 +180,19 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public SlimDirectedGraphView<Term> getSlimGraphView()
 	{
-		return SlimDirectedGraphView.create(graph, new Map<TermID,Term>()
+		Map<TermID,Term> map = new Map<TermID,Term>()
 		{
 			@Override
 			public Term map(TermID key)
 			{
 				return getTerm(key);
 			}
-		});
+		};
+
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+			return SlimDirectedGraphView.create(cg, map);
+		return SlimDirectedGraphView.create(graph, map);
 	}
 
 	/**
@@ -157,6 +200,9 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public SlimDirectedGraphView<TermID> getTermIDSlimGraphView()
 	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+			return SlimDirectedGraphView.create(cg, null, SlimDirectedGraphView.ClosureType.SORTED_ARRAYS, null);
 		return SlimDirectedGraphView.create(graph);
 	}
 
@@ -287,9 +333,8 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 			goTerm = termContainer.get(termID);
 
 		HashSet<TermID> terms = new HashSet<TermID>();
-		Iterator<Edge<TermID,RelationType>> edgeIter = graph.getOutEdges(goTerm.getID());
-		while (edgeIter.hasNext())
-			terms.add(edgeIter.next().getDest());
+		for (TermID child : traversalGraph().getChildNodes(goTerm.getID()))
+			terms.add(child);
 		return terms;
 	}
 
@@ -308,9 +353,8 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 			goTerm = termContainer.get(term.getID());
 
 		HashSet<Term> terms = new HashSet<Term>();
-		Iterator<Edge<TermID,RelationType>> edgeIter = graph.getOutEdges(goTerm.getID());
-		while (edgeIter.hasNext())
-			terms.add(getTerm(edgeIter.next().getDest()));
+		for (TermID child : traversalGraph().getChildNodes(goTerm.getID()))
+			terms.add(getTerm(child));
 		return terms;
 	}
 
@@ -332,9 +376,8 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 		else
 			goTerm = termContainer.get(goTermID);
 
-		Iterator<Edge<TermID,RelationType>> edgeIter = graph.getInEdges(goTerm.getID());
-		while (edgeIter.hasNext())
-			terms.add(edgeIter.next().getSource());
+		for (TermID parent : traversalGraph().getParentNodes(goTerm.getID()))
+			terms.add(parent);
 		return terms;
 	}
 
@@ -356,9 +399,8 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 		else
 			goTerm = termContainer.get(term.getID());
 
-		Iterator<Edge<TermID,RelationType>> edgeIter = graph.getInEdges(goTerm.getID());
-		while (edgeIter.hasNext())
-			terms.add(getTerm(edgeIter.next().getSource()));
+		for (TermID parent : traversalGraph().getParentNodes(goTerm.getID()))
+			terms.add(getTerm(parent));
 		return terms;
 	}
 
@@ -377,6 +419,15 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 
 		Term goTerm = termContainer.get(goTermID);
 
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+		{
+			int v = cg.getVertexIndex(goTerm.getID());
+			for (int k = 0; k < cg.getInDegree(v); k++)
+				terms.add(new ParentTermID(cg.getVertex(cg.getParent(v, k)), cg.getInEdgeData(v, k)));
+			return terms;
+		}
+
 		Iterator<Edge<TermID,RelationType>> edgeIter = graph.getInEdges(goTerm.getID());
 		while (edgeIter.hasNext())
 		{
@@ -397,6 +448,14 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public RelationType getDirectRelation(TermID parent, TermID term)
 	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+		{
+			if (isRootTerm(term))
+				return null;
+			return cg.getEdgeData(parent, term);
+		}
+
 		Set<ParentTermID> parents = getTermParentsWithRelation(term);
 		for (ParentTermID p : parents)
 			if (p.getRelated().equals(parent)) return p.getRelation();
@@ -422,7 +481,8 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 
 	/**
 	 * Determines if there exists a directed path from sourceID to destID on the
-	 * ontology graph (in that direction).
+	 * ontology graph (in that direction). If the ontology is frozen, the
+	 * query is answered by a reachability index.
 	 *
 	 * @param sourceID the id of the source term
 	 * @param destID teh id of the destination term
@@ -437,6 +497,10 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 			return false;
 		}
 
+		ReachabilityIndex<TermID> index = getReachabilityIndex();
+		if (index != null)
+			return index.reaches(sourceID, destID);
+
 		/*
 		 * We walk from the destination to the source against the graph
 		 * direction. Basically a breadth-depth search is done.
@@ -444,7 +508,7 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 
 		final boolean [] pathExists = new boolean[1];
 
-		graph.bfs(destID, true, new IVisitor<TermID>()
+		traversalGraph().bfs(destID, true, new IVisitor<TermID>()
 		{
 			@Override
 			public boolean visited(TermID vertex)
@@ -522,14 +586,106 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public void walkToSource(Collection<TermID> termIDSet, ITermIDVisitor vistingVertex)
 	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+		{
+			walk(cg, termIDSet, Grabbers.intInGrabber(cg), vistingVertex);
+			return;
+		}
 		graph.bfs(termIDSet, true, vistingVertex);
 	}
 
+	/**
+	 * The reusable state of walks on the frozen graph.
+	 */
+	private static final class WalkState
+	{
+		final IntSearchState search = new IntSearchState();
+		int [] initial = new int[16];
+		boolean inUse;
+	}
+
+	/**
+	 * Walks along the frozen graph using the index-based bfs, which doesn't
+	 * allocate memory per visited vertex.
+	 *
+	 * @param cg the frozen graph
+	 * @param termIDSet the terms to start with
+	 * @param grabber the grabber defining the direction
+	 * @param visitor the visitor that is called for every visited term
+	 */
+	private void walk(final CompactDirectedGraph<TermID,RelationType> cg, Collection<TermID> termIDSet, IntNeighbourGrabber grabber, final IVisitor<TermID> visitor)
+	{
+		WalkState ws = acquireWalkState();
+
+		if (ws.initial.length < termIDSet.size())
+			ws.initial = new int[termIDSet.size()];
+
+		int [] initial = ws.initial;
+		int numInitial = 0;
+		for (TermID t : termIDSet)
+		{
+			int v = cg.getVertexIndex(t);
+			if (v == -1)
+				throw new IllegalArgumentException("Vertex " + t + " is not contained in the graph");
+			initial[numInitial++] = v;
+		}
+
+		ws.inUse = true;
+		try
+		{
+			Algorithms.bfs(initial, numInitial, grabber, new IntVisitor()
+			{
+				@Override
+				public boolean visited(int vertex)
+				{
+					return visitor.visited(cg.getVertex(vertex));
+				}
+			}, ws.search);
+		} finally
+		{
+			ws.inUse = false;
+		}
+	}
+
+	/**
+	 * Returns the walk state of the current thread. If the state is in use
+	 * by an outer walk, a new one is returned.
+	 *
+	 * @return the state
+	 */
+	private WalkState acquireWalkState()
+	{
+		ThreadLocal<WalkState> tl = walkState;
+		if (tl == null)
+		{
+			synchronized (this)
+			{
+				tl = walkState;
+				if (tl == null)
+					walkState = tl = new ThreadLocal<WalkState>();
+			}
+		}
+		WalkState ws = tl.get();
+		if (ws == null)
+		{
+			ws = new WalkState();
+			tl.set(ws);
+		} else if (ws.inUse)
+		{
+			/* A nested walk issued by a visitor gets its own state */
+			ws = new WalkState();
+		}
+		return ws;
+	}
+
 	/**
 	 * Starting at the vertices within the goTermIDSet walk to the source of the
 	 * DAG (ontology vertex) and call the method visiting of given object
 	 * Implementing ITermIDVisitor. Only relations in relationsToFollow are
-	 * considered.
+	 * considered. The terms are visited in breadth-first order. If the
+	 * ontology is frozen, the parents are taken from the view returned by
+	 * {@link #getAncestorView(Set)} rather than filtered on each visit.
 	 *
 	 * @param termIDSet
 	 * @param vistingVertex
@@ -537,6 +693,24 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public void walkToSource(Collection<TermID>  termIDSet, ITermIDVisitor vistingVertex, final Set<RelationMeaning> relationsToFollow)
 	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+		{
+			/* The parents of the view are already restricted to the relations */
+			final int [][] parents = getAncestorView(relationsToFollow).vertexParents;
+			walk(cg, termIDSet, new IntNeighbourGrabber() {
+				public int grabNeighbours(int v, int [] buffer)
+				{
+					int [] p = parents[v];
+					if (p.length > buffer.length)
+						return p.length;
+					System.arraycopy(p, 0, buffer, 0, p.length);
+					return p.length;
+				}
+			}, vistingVertex);
+			return;
+		}
+
 		bfs(termIDSet, new INeighbourGrabber<TermID>() {
 			public Iterator<TermID> grabNeighbours(TermID t)
 			{
@@ -585,6 +759,12 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public void walkToSinks(Collection<TermID> goTermIDSet, ITermIDVisitor vistingVertex)
 	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+		{
+			walk(cg, goTermIDSet, Grabbers.intOutGrabber(cg), vistingVertex);
+			return;
+		}
 		graph.bfs(goTermIDSet, false, vistingVertex);
 	}
 
@@ -643,7 +823,7 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 		 * are only in the TermContainer but not in the graph
 		 * we check here that the term is contained in the graph.
 		 */
-		if (  ! graph.containsVertex(go.getID()) ){
+		if (  ! containsVertex(go.getID()) ){
 			return null;
 		}
 
@@ -715,7 +895,7 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public boolean termExists(TermID term)
 	{
-		return graph.getOutDegree(term) != -1;
+		return containsVertex(term);
 	}
 
 
@@ -865,6 +1045,20 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public Collection<TermID> getSharedParents(TermID t1, TermID t2)
 	{
+		SlimDirectedGraphView<TermID> view = getAncestorView();
+		if (view != null)
+		{
+			int i = viewIndex(view, t1);
+			int j = viewIndex(view, t2);
+
+			int [] buffer = new int[Math.min(view.vertexAncestors[i].length, view.vertexAncestors[j].length)];
+			int n = view.getCommonAncestors(i, j, buffer);
+			ArrayList<TermID> sharedParents = new ArrayList<TermID>(n);
+			for (int k = 0; k < n; k++)
+				sharedParents.add(view.getVertex(buffer[k]));
+			return sharedParents;
+		}
+
 		final Set<TermID> p1 = getTermsOfInducedGraph(null,t1);
 
 		final ArrayList<TermID> sharedParents = new ArrayList<TermID>();
@@ -882,6 +1076,168 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 		return sharedParents;
 	}
 
+	/**
+	 * Returns the slim view of the frozen ontology in which only the ancestors
+	 * of each term are materialized as sorted arrays. The view is built on the
+	 * first call and is used to answer shared ancestor queries. Information
+	 * content tables passed to getMostInformativeCommonAncestor() are indexed
+	 * by the vertex indices of this view.
+	 *
+	 * @return the view or null if the ontology is not frozen.
+	 */
+	public SlimDirectedGraphView<TermID> getAncestorView()
+	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg == null)
+			return null;
+
+		SlimDirectedGraphView<TermID> view = ancestorView;
+		if (view == null)
+		{
+			synchronized (this)
+			{
+				view = ancestorView;
+				if (view == null)
+					ancestorView = view = SlimDirectedGraphView.create(cg, null, SlimDirectedGraphView.ClosureType.ANCESTOR_ARRAYS, null);
+			}
+		}
+		return view;
+	}
+
+	/**
+	 * Returns a slim view of the frozen ontology that contains only the edges
+	 * of the given relations. Only the ancestors of each term are materialized
+	 * as sorted arrays, so they can be looked up instead of being determined by
+	 * a filtered traversal. The vertex indices are the same as the ones of
+	 * {@link #getAncestorView()}. Views are built on the first call and
+	 * cached per set of relations.
+	 *
+	 * @param relations the relations to follow, e.g.,
+	 *  {@link RelationType#PROPAGATING_MEANINGS}. If null, all relations are followed.
+	 * @return the view or null if the ontology is not frozen.
+	 */
+	public SlimDirectedGraphView<TermID> getAncestorView(Set<RelationMeaning> relations)
+	{
+		if (relations == null || relations.containsAll(EnumSet.allOf(RelationMeaning.class)))
+			return getAncestorView();
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg == null)
+			return null;
+
+		ConcurrentHashMap<Set<RelationMeaning>,SlimDirectedGraphView<TermID>> views = relationAncestorViews;
+		if (views == null)
+		{
+			synchronized (this)
+			{
+				views = relationAncestorViews;
+				if (views == null)
+					relationAncestorViews = views = new ConcurrentHashMap<Set<RelationMeaning>,SlimDirectedGraphView<TermID>>();
+			}
+		}
+
+		SlimDirectedGraphView<TermID> view = views.get(relations);
+		if (view == null)
+		{
+			final Set<RelationMeaning> key = relations.isEmpty() ? EnumSet.noneOf(RelationMeaning.class) : EnumSet.copyOf(relations);
+
+			/* The view keeps the ids of the compact graph as vertex indices */
+			view = SlimDirectedGraphView.create(cg, new IEdgeFilter<RelationType>()
+			{
+				@Override
+				public boolean leaveOut(RelationType ed)
+				{
+					return ed == null || !key.contains(ed.meaning());
+				}
+			}, SlimDirectedGraphView.ClosureType.ANCESTOR_ARRAYS, null);
+			SlimDirectedGraphView<TermID> other = views.putIfAbsent(key, view);
+			if (other != null)
+				view = other;
+		}
+		return view;
+	}
+
+	/**
+	 * Returns the index of the given term within the view.
+	 *
+	 * @throws IllegalArgumentException if the term is not known.
+	 */
+	private static int viewIndex(SlimDirectedGraphView<TermID> view, TermID t)
+	{
+		int i = view.getVertexIndex(t);
+		if (i == -1)
+			throw new IllegalArgumentException("\"" + t + "\" could not be mapped to a known term!");
+		return i;
+	}
+
+	/**
+	 * Returns the most informative common ancestor (MICA) of the given terms,
+	 * i.e., the shared parent with the highest information content.
+	 *
+	 * @param t1 term 1
+	 * @param t2 term 2
+	 * @param ic the information content of each term, indexed by the vertex
+	 *  indices of getAncestorView().
+	 * @return the MICA or null if the terms don't share any parent.
+	 * @throws IllegalStateException if the ontology is not frozen.
+	 */
+	public TermID getMostInformativeCommonAncestor(TermID t1, TermID t2, double [] ic)
+	{
+		SlimDirectedGraphView<TermID> view = getAncestorView();
+		if (view == null)
+			throw new IllegalStateException("The ontology must be frozen");
+
+		int mica = view.getMostInformativeCommonAncestor(viewIndex(view, t1), viewIndex(view, t2), ic);
+		if (mica == -1)
+			return null;
+		return view.getVertex(mica);
+	}
+
+	/**
+	 * Returns the most informative common ancestor (MICA) of the given terms
+	 * for an integral information content.
+	 *
+	 * @param t1 term 1
+	 * @param t2 term 2
+	 * @param ic the information content of each term, indexed by the vertex
+	 *  indices of getAncestorView().
+	 * @return the MICA or null if the terms don't share any parent.
+	 * @throws IllegalStateException if the ontology is not frozen.
+	 */
+	public TermID getMostInformativeCommonAncestor(TermID t1, TermID t2, int [] ic)
+	{
+		SlimDirectedGraphView<TermID> view = getAncestorView();
+		if (view == null)
+			throw new IllegalStateException("The ontology must be frozen");
+
+		int mica = view.getMostInformativeCommonAncestor(viewIndex(view, t1), viewIndex(view, t2), ic);
+		if (mica == -1)
+			return null;
+		return view.getVertex(mica);
+	}
+
+	/**
+	 * Returns the most informative common ancestors of many pairs of terms,
+	 * which are processed in parallel.
+	 *
+	 * @param first the vertex indices of the first terms of the pairs as
+	 *  defined by getAncestorView()
+	 * @param second the vertex indices of the second terms of the pairs
+	 * @param ic the information content of each term, indexed by the vertex
+	 *  indices of getAncestorView().
+	 * @param pool the pool used for the processing or null if the pairs
+	 *  shall be processed in the current thread.
+	 * @return the vertex indices of the MICAs, -1 for pairs without shared
+	 *  parent.
+	 * @throws IllegalStateException if the ontology is not frozen.
+	 */
+	public int [] getMostInformativeCommonAncestors(int [] first, int [] second, double [] ic, ForkJoinPool pool)
+	{
+		SlimDirectedGraphView<TermID> view = getAncestorView();
+		if (view == null)
+			throw new IllegalStateException("The ontology must be frozen");
+		return view.getMostInformativeCommonAncestors(first, second, ic, pool);
+	}
+
 	public static class TermLevels
 	{
 		private HashMap<Integer,HashSet<TermID>> level2terms = new HashMap<Integer,HashSet<TermID>>();
@@ -939,6 +1295,7 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	{
 		DirectedGraph<TermID,RelationType> transGraph;
 		Term transRoot;
+		CompactDirectedGraph<TermID,RelationType> cg = null;
 
 		if ((getRelevantSubontology() != null && !isRootTerm(getRelevantSubontology())) || getRelevantSubset() != null)
 		{
@@ -947,12 +1304,26 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 			transRoot = ontologyTransGraph.getRootTerm();
 		} else
 		{
+			cg = compactGraph;
 			transGraph = graph;
 			transRoot = rootTerm;
 		}
 
 		final TermLevels levels = new TermLevels();
 
+		if (cg != null)
+		{
+			/* Determine the depth table of all terms in one pass */
+			int [] depths = cg.getDepths(new int[]{cg.getVertexIndex(transRoot.getID())}, 1, true);
+			for (TermID t : termids)
+			{
+				int v = cg.getVertexIndex(t);
+				if (v != -1 && depths[v] != -1)
+					levels.putLevel(t, depths[v]);
+			}
+			return levels;
+		}
+
 		transGraph.singleSourceLongestPath(transRoot.getID(), new IDistanceVisitor<TermID>()
 				{
 					public boolean visit(TermID vertex, List<TermID> path,
@@ -972,6 +1343,9 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	 */
 	public int getNumberOfTerms()
 	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+			return cg.getNumberOfVertices();
 		return graph.getNumberOfVertices();
 	}
 
@@ -998,7 +1372,7 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	{
 		return new Iterator<Term>()
 		{
-			private Iterator<TermID> iter = graph.iterator();
+			private Iterator<TermID> iter = traversalGraph().getVertices().iterator();
 
 			@Override
 			public boolean hasNext()
@@ -1224,7 +1598,7 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 			}
 		}
 
-		DirectedGraph<TermID,RelationType> trans = graph.pathMaintainingSubGraph(terms);
+		DirectedGraph<TermID,RelationType> trans = directedGraph().pathMaintainingSubGraph(terms);
 
 		Ontology g 		= new Ontology();
 		g.graph 			= trans;
@@ -1241,14 +1615,35 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 	}
 
 	/**
+	 * Returns the underlying graph. If the ontology is frozen, a read-only
+	 * copy of the compact graph is created on each call, so attempts to
+	 * modify it throw an {@link UnsupportedOperationException}. Use
+	 * {@link #getCompactGraph()} or the traversal methods of the ontology
+	 * to avoid the copy.
+	 *
 	 * @return the underlying graph.
 	 */
 	public DirectedGraph<TermID,RelationType> getGraph()
 	{
 		/* We should think about removing this though */
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+		{
+			DirectedGraph<TermID,RelationType> copy = cg.toDirectedGraph();
+			copy.setReadOnly();
+			return copy;
+		}
 		return graph;
 	}
 
+	/**
+	 * @return the compact graph or null if the ontology is not frozen.
+	 */
+	public CompactDirectedGraph<TermID,RelationType> getCompactGraph()
+	{
+		return compactGraph;
+	}
+
 	/**
 	 * Merges equivalent terms. The first term given to this
 	 * method will be the representative of this
@@ -1269,19 +1664,115 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 			t1.addAlternativeId(tId);
 		}
 
-		this.graph.mergeVertices(t1.getID(), termIDList(eqTerms));
+		/* Thaw the ontology, the compact graph no longer reflects the structure */
+		graph = directedGraph();
+		compactGraph = null;
+		graph.mergeVertices(t1.getID(), termIDList(eqTerms));
+
+		reachabilityIndex = null;
+		ancestorView = null;
+		relationAncestorViews = null;
+	}
+
+	/**
+	 * Freezes the ontology. Once the construction of the ontology is finished,
+	 * this method can be called to switch to a compact immutable representation of
+	 * the graph, which is then used for traversals and parent/child queries.
+	 * The mutable graph is released, so only the compact representation is
+	 * kept. Modifications via mergeTerms() will unfreeze the ontology again.
+	 * Modifications to the graph returned by getGraph() are not reflected
+	 * after this call.
+	 */
+	public void freeze()
+	{
+		if (compactGraph != null)
+			return;
+
+		compactGraph = CompactDirectedGraph.create(graph);
+		graph = null;
+		reachabilityIndex = null;
+		ancestorView = null;
+		relationAncestorViews = null;
+	}
+
+	/**
+	 * Returns the reachability index of the ontology, which is built on the
+	 * first call. The index is available only for frozen ontologies.
+	 *
+	 * @return the reachability index or null if the ontology is not frozen.
+	 */
+	public ReachabilityIndex<TermID> getReachabilityIndex()
+	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg == null)
+			return null;
+
+		ReachabilityIndex<TermID> index = reachabilityIndex;
+		if (index == null)
+		{
+			synchronized (this)
+			{
+				index = reachabilityIndex;
+				if (index == null)
+					reachabilityIndex = index = ReachabilityIndex.create(cg);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return whether the ontology is frozen.
+	 */
+	public boolean isFrozen()
+	{
+		return compactGraph != null;
+	}
+
+	/**
+	 * @return the mutable graph, which is created from the compact graph
+	 *  if the ontology is frozen.
+	 */
+	private DirectedGraph<TermID,RelationType> directedGraph()
+	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+			return cg.toDirectedGraph();
+		return graph;
+	}
+
+	/**
+	 * @param t the term id
+	 * @return whether the graph contains the given term.
+	 */
+	private boolean containsVertex(TermID t)
+	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+			return cg.containsVertex(t);
+		return graph.containsVertex(t);
+	}
+
+	/**
+	 * @return the graph that should be used for traversals.
+	 */
+	private AbstractGraph<TermID> traversalGraph()
+	{
+		CompactDirectedGraph<TermID,RelationType> cg = compactGraph;
+		if (cg != null)
+			return cg;
+		return graph;
 	}
 
 	@Override
 	public Iterable<TermID> getParentNodes(TermID v)
 	{
-		return graph.getParentNodes(v);
+		return traversalGraph().getParentNodes(v);
 	}
 
 	@Override
 	public Iterable<TermID> getChildNodes(TermID v)
 	{
-		return graph.getChildNodes(v);
+		return traversalGraph().getChildNodes(v);
 	}
 
 	/**
@@ -1346,4 +1837,71 @@ public class Ontology implements Iterable<Term>, IDirectedGraph<TermID>, Seriali
 		init(o, tc);
 		return o;
 	}
+
+	/**
+	 * Create a frozen ontology from a term container and the already
+	 * constructed compact graph, e.g., as read from a serialized
+	 * representation. Unlike {@link #create(TermContainer)}, the graph is not
+	 * built from the parents of the terms.
+	 *
+	 * @param tc defines the term container
+	 * @param graph the graph of the ontology, which contains the artificial
+	 *  root if there is one.
+	 * @param ancestorView the view that is returned by
+	 *  {@link #getAncestorView()}, whose vertex indices must be the ids of
+	 *  the graph, or null if the view shall be built on demand.
+	 * @param artificialRoot the artificial root term, which is part of the
+	 *  graph but not of the term container, or null if the ontology has a
+	 *  single level-one term.
+	 * @return the frozen ontology
+	 * @throws IllegalArgumentException if the arguments don't match.
+	 */
+	public static Ontology createFrozen(TermContainer tc, CompactDirectedGraph<TermID,RelationType> graph, SlimDirectedGraphView<TermID> ancestorView, Term artificialRoot)
+	{
+		if (ancestorView != null && ancestorView.getNumberOfVertices() != graph.getNumberOfVertices())
+			throw new IllegalArgumentException("The ancestor view doesn't match the graph");
+
+		Ontology o = new Ontology();
+		o.termContainer = tc;
+		o.compactGraph = graph;
+		o.ancestorView = ancestorView;
+
+		for (Term term : tc)
+		{
+			if (term.getSubsets() != null)
+				for (Subset s : term.getSubsets())
+					o.availableSubsets.add(s);
+		}
+
+		if (artificialRoot != null)
+		{
+			if (!graph.containsVertex(artificialRoot.getID()))
+				throw new IllegalArgumentException("The artificial root " + artificialRoot.getID() + " is not contained in the graph");
+
+			o.rootTerm = artificialRoot;
+			for (TermID lvl1 : graph.getChildNodes(artificialRoot.getID()))
+				o.level1terms.add(lvl1);
+		} else
+		{
+			/* Find the terms without any ancestors */
+			for (int i = 0; i < graph.getNumberOfVertices(); i++)
+			{
+				if (graph.getInDegree(i) != 0)
+					continue;
+
+				TermID tid = graph.getVertex(i);
+				Term t = tc.get(tid);
+				if (t != null && t.isObsolete())
+					continue;
+
+				o.level1terms.add(tid);
+			}
+
+			if (o.level1terms.size() > 1)
+				throw new IllegalArgumentException("The graph contains multiple level-one terms but no artificial root");
+			if (o.level1terms.size() == 1)
+				o.rootTerm = tc.get(o.level1terms.get(0));
+		}
+		return o;
+	}
 }
@@ -12,7 +12,24 @@ public class PrefixPool implements Serializable
 {
 	private static final long serialVersionUID = 1L;
 
-	private ReferencePool<Prefix> prefixPool = new ReferencePool<Prefix>();
+	private ReferencePool<Prefix> prefixPool;
+
+	public PrefixPool()
+	{
+		prefixPool = new ReferencePool<Prefix>();
+	}
+
+	/**
+	 * Constructs a pool that is backed by the given parent pool. Prefixes that
+	 * are not yet known are mapped via the parent.
+	 *
+	 * @param parent the shared parent pool
+	 * @see ReferencePool#ReferencePool(ReferencePool)
+	 */
+	public PrefixPool(PrefixPool parent)
+	{
+		prefixPool = new ReferencePool<Prefix>(parent.prefixPool);
+	}
 
 	public Prefix map(Prefix ref)
 	{
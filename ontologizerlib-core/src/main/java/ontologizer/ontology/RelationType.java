@@ -3,6 +3,9 @@ package ontologizer.ontology;
 import static ontologizer.types.ByteString.b;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 import ontologizer.types.ByteString;
 
@@ -15,6 +18,9 @@ public final class RelationType implements Serializable
 {
 	private static final long serialVersionUID = 1L;
 
+	/** The meanings of relations that propagate annotations */
+	public static final Set<RelationMeaning> PROPAGATING_MEANINGS = Collections.unmodifiableSet(EnumSet.of(RelationMeaning.IS_A, RelationMeaning.PART_OF_A));
+
 	/** A default relation meaning that is the most unspecific one */
 	public static final RelationType UNKNOWN = new RelationType(b("unknown"), RelationMeaning.UNKOWN);
 
@@ -37,17 +43,7 @@ public final class RelationType implements Serializable
 		this.name = name;
 		this.fancyName = name.replace('_',' ');
 		this.meaning = meaning;
-		switch (meaning)
-		{
-		case	IS_A:
-		case	PART_OF_A:
-				propagating = true;
-				break;
-
-		default:
-				propagating = false;
-				break;
-		}
+		this.propagating = PROPAGATING_MEANINGS.contains(meaning);
 	}
 
 	public RelationType(RelationMeaning type)
@@ -19,10 +19,27 @@ public class RelationTypePool implements Serializable
 	private ReferencePool<RelationType> pool;
 	private Map<ByteString,RelationType> name2Type;
 
+	/** The pool that is consulted for unknown relation types or null */
+	private final RelationTypePool parent;
+
 	public RelationTypePool()
+	{
+		this(null);
+	}
+
+	/**
+	 * Constructs a pool that is backed by the given parent pool. Relation types
+	 * that are not known to this pool are mapped via the parent, which is
+	 * locked during the access. Relation types with the same name are mapped
+	 * to the same representative in all pools that share the parent.
+	 *
+	 * @param parent the parent pool or null.
+	 */
+	public RelationTypePool(RelationTypePool parent)
 	{
 		pool = new ReferencePool<RelationType>();
 		name2Type = new HashMap<ByteString,RelationType>();
+		this.parent = parent;
 	}
 
 	/**
@@ -34,6 +51,15 @@ public class RelationTypePool implements Serializable
 	 */
 	public RelationType map(RelationType ref)
 	{
+		if (parent != null)
+		{
+			synchronized (parent)
+			{
+				RelationType known = parent.map(ref.name());
+				ref = known != null ? known : parent.map(ref);
+			}
+		}
+
 		RelationType type = pool.map(ref);
 		if (type == ref)
 		{
@@ -50,7 +76,17 @@ public class RelationTypePool implements Serializable
 	 */
 	public RelationType map(ByteString name)
 	{
-		return name2Type.get(name);
+		RelationType type = name2Type.get(name);
+		if (type == null && parent != null)
+		{
+			synchronized (parent)
+			{
+				type = parent.map(name);
+			}
+			if (type != null)
+				map(type);
+		}
+		return type;
 	}
 
 	/**
@@ -1,5 +1,7 @@
 package ontologizer.ontology;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -61,6 +63,13 @@ public class Term implements ITerm, Serializable
 	/** Whether term is declared as obsolete */
 	private boolean obsolete;
 
+	/** The loader of the body or null if the body has been loaded already */
+	private transient volatile ITermBodyLoader bodyLoader;
+
+	/** The location of the body that is passed to the loader */
+	private transient long bodyOffset;
+	private transient int bodyLength;
+
 	/**
 	 * Default constructor. For builder only.
 	 */
@@ -293,6 +302,7 @@ public class Term implements ITerm, Serializable
 
 	@Override
 	public ByteString getDefinition() {
+		loadBody();
 		return definition;
 	}
 
@@ -367,6 +377,7 @@ public class Term implements ITerm, Serializable
 
 	@Override
 	public ByteString[] getSynonyms() {
+		loadBody();
 		return synonyms;
 	}
 
@@ -379,9 +390,54 @@ public class Term implements ITerm, Serializable
 
 	@Override
 	public TermXref[] getXrefs() {
+		loadBody();
 		return xrefs;
 	}
 
+	/**
+	 * Defers the loading of the definition, the synonyms, and the xrefs
+	 * until one of them is accessed for the first time.
+	 *
+	 * @param loader the loader that is invoked on the first access
+	 * @param offset the offset of the body that is passed to the loader
+	 * @param length the length of the body that is passed to the loader
+	 */
+	public void setBodyLoader(ITermBodyLoader loader, long offset, int length)
+	{
+		synchronized (this)
+		{
+			bodyOffset = offset;
+			bodyLength = length;
+			bodyLoader = loader;
+		}
+	}
+
+	/**
+	 * Loads the body if this hasn't been done yet.
+	 */
+	private void loadBody()
+	{
+		if (bodyLoader == null)
+			return;
+
+		synchronized (this)
+		{
+			ITermBodyLoader loader = bodyLoader;
+			if (loader != null)
+			{
+				loader.loadBody(this, bodyOffset, bodyLength);
+				bodyLoader = null;
+			}
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		/* The loader is not serialized, so the body must be present */
+		loadBody();
+		out.defaultWriteObject();
+	}
+
 	public void setIntersections(ArrayList<String> currentIntersections) {
 		if (currentIntersections.size() > 0) {
 			intersections = new String[currentIntersections.size()];
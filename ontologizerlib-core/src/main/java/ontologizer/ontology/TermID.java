@@ -181,6 +181,48 @@ public class TermID implements Comparable<TermID>, Serializable
 		this.id = tid;
 	}
 
+	/**
+	 * Returns whether the term id stored in the given buffer can be constructed
+	 * without making a new integer id, i.e., whether it is either a numeric id
+	 * or an arbitrary id that has been seen before. As the integer ids of
+	 * arbitrary ids depend on the order in which they are seen, concurrent
+	 * parsers can use this to defer such ids.
+	 *
+	 * @param id
+	 * @param start
+	 * @param len
+	 * @return whether the integer part of the id is already determined.
+	 */
+	public static boolean isDetermined(byte [] id, int start, int len)
+	{
+		int colon = -1;
+
+		for (int i=start;i<start+len;i++)
+		{
+			if (id[i] == ':')
+			{
+				colon = i;
+				break;
+			}
+		}
+
+		/* Let the constructor report the missing prefix */
+		if (colon < 1)
+			return true;
+
+		for (int i=colon;i<start+len;i++)
+		{
+			if (id[i] >= '0' && id[i] <= '9')
+				return true;
+		}
+
+		String strID = new String(id,colon+1,start+len-colon-1);
+		synchronized (string2id)
+		{
+			return string2id.containsKey(strID);
+		}
+	}
+
 	/**
 	 * Make an unique integer id from an arbitray string.
 	 *
@@ -189,12 +231,15 @@ public class TermID implements Comparable<TermID>, Serializable
 	 */
 	private int makeIdFromString(String id)
 	{
-		if (string2id.containsKey(id))
-			return string2id.get(id);
+		synchronized (string2id)
+		{
+			if (string2id.containsKey(id))
+				return string2id.get(id);
 
-		nextId--;
-		string2id.put(id, nextId);
-		return nextId;
+			nextId--;
+			string2id.put(id, nextId);
+			return nextId;
+		}
 	}
 
 	/**
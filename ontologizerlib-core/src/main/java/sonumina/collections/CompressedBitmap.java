@@ -0,0 +1,619 @@
+package sonumina.collections;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An immutable compressed bitmap of non-negative ints. The value domain is
+ * split into chunks of 65536 values. Similar to roaring bitmaps, each
+ * non-empty chunk is stored either as a sorted array of the lower 16 bits of
+ * its values, if it is sparse, or as a plain bitset, if it is dense.
+ *
+ * Membership tests are done in constant time for dense chunks and via
+ * a binary search over at most 4096 values for sparse chunks.
+ *
+ * Instances are created via a {@link Builder}, which can also be used to merge
+ * many bitmaps efficiently.
+ *
+ * @author Sebastian Bauer
+ */
+public final class CompressedBitmap implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/** Chunks with more values than this are stored as bitsets */
+	private static final int MAX_ARRAY_CARDINALITY = 4096;
+
+	/** Number of longs of a bitset chunk */
+	private static final int BITSET_WORDS = 1024;
+
+	/** The empty bitmap */
+	public static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new char[0][], new long[0][], new int[0]);
+
+	/** The sorted upper 16 bits of the chunks */
+	private final char [] keys;
+
+	/** The sparse chunks, null if the chunk is stored in bitsets */
+	private final char [][] arrays;
+
+	/** The dense chunks, null if the chunk is stored in arrays */
+	private final long [][] bitsets;
+
+	/** The cardinality of each chunk */
+	private final int [] cardinalities;
+
+	/** The total cardinality */
+	private final int cardinality;
+
+	private CompressedBitmap(char [] keys, char [][] arrays, long [][] bitsets, int [] cardinalities)
+	{
+		this.keys = keys;
+		this.arrays = arrays;
+		this.bitsets = bitsets;
+		this.cardinalities = cardinalities;
+
+		int c = 0;
+		for (int i = 0; i < cardinalities.length; i++)
+			c += cardinalities[i];
+		this.cardinality = c;
+	}
+
+	/**
+	 * @return the number of values in this bitmap.
+	 */
+	public int cardinality()
+	{
+		return cardinality;
+	}
+
+	/**
+	 * @return whether the bitmap is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return cardinality == 0;
+	}
+
+	/**
+	 * Find the chunk for the given key.
+	 *
+	 * @param key
+	 * @return the index of the chunk or a negative value if there is no such chunk.
+	 */
+	private int chunk(char key)
+	{
+		/* Usually there are only very few chunks, so a linear scan is fine */
+		if (keys.length < 8)
+		{
+			for (int i = 0; i < keys.length; i++)
+			{
+				if (keys[i] == key)
+					return i;
+				if (keys[i] > key)
+					return -1;
+			}
+			return -1;
+		}
+		return Arrays.binarySearch(keys, key);
+	}
+
+	/**
+	 * Determines whether the given value is contained in the bitmap.
+	 *
+	 * @param value
+	 * @return whether the value is contained.
+	 */
+	public boolean contains(int value)
+	{
+		if (value < 0)
+			return false;
+
+		int c = chunk((char)(value >>> 16));
+		if (c < 0)
+			return false;
+
+		char low = (char)value;
+		long [] bitset = bitsets[c];
+		if (bitset != null)
+			return (bitset[low >>> 6] & (1L << low)) != 0;
+		return Arrays.binarySearch(arrays[c], low) >= 0;
+	}
+
+	/**
+	 * Returns the number of values that are contained in both chunks.
+	 */
+	private static int andCardinality(CompressedBitmap a, int ca, CompressedBitmap b, int cb)
+	{
+		long [] ba = a.bitsets[ca];
+		long [] bb = b.bitsets[cb];
+
+		if (ba != null && bb != null)
+		{
+			int c = 0;
+			for (int i = 0; i < BITSET_WORDS; i++)
+				c += Long.bitCount(ba[i] & bb[i]);
+			return c;
+		}
+
+		if (ba != null || bb != null)
+		{
+			long [] bitset = ba != null ? ba : bb;
+			char [] array = ba != null ? b.arrays[cb] : a.arrays[ca];
+			int c = 0;
+			for (int i = 0; i < array.length; i++)
+			{
+				char low = array[i];
+				if ((bitset[low >>> 6] & (1L << low)) != 0)
+					c++;
+			}
+			return c;
+		}
+
+		char [] aa = a.arrays[ca];
+		char [] ab = b.arrays[cb];
+		int i = 0, j = 0, c = 0;
+		while (i < aa.length && j < ab.length)
+		{
+			if (aa[i] < ab[j]) i++;
+			else if (aa[i] > ab[j]) j++;
+			else
+			{
+				c++;
+				i++;
+				j++;
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Returns the number of values that are contained in this and the
+	 * other bitmap. No intermediate bitmap is created.
+	 *
+	 * @param other
+	 * @return the cardinality of the intersection.
+	 */
+	public int andCardinality(CompressedBitmap other)
+	{
+		int i = 0, j = 0, c = 0;
+		while (i < keys.length && j < other.keys.length)
+		{
+			if (keys[i] < other.keys[j]) i++;
+			else if (keys[i] > other.keys[j]) j++;
+			else
+			{
+				c += andCardinality(this, i, other, j);
+				i++;
+				j++;
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Returns whether this and the other bitmap have at least one value
+	 * in common.
+	 *
+	 * @param other
+	 * @return whether the intersection is not empty.
+	 */
+	public boolean intersects(CompressedBitmap other)
+	{
+		int i = 0, j = 0;
+		while (i < keys.length && j < other.keys.length)
+		{
+			if (keys[i] < other.keys[j]) i++;
+			else if (keys[i] > other.keys[j]) j++;
+			else
+			{
+				if (andCardinality(this, i, other, j) > 0)
+					return true;
+				i++;
+				j++;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of values that are contained in this or the
+	 * other bitmap. No intermediate bitmap is created.
+	 *
+	 * @param other
+	 * @return the cardinality of the union.
+	 */
+	public int orCardinality(CompressedBitmap other)
+	{
+		return cardinality + other.cardinality - andCardinality(other);
+	}
+
+	/**
+	 * Returns the intersection of this and the other bitmap.
+	 *
+	 * @param other
+	 * @return the intersection as new bitmap.
+	 */
+	public CompressedBitmap and(CompressedBitmap other)
+	{
+		Builder b = new Builder();
+		b.addAll(this);
+		b.retainAll(other);
+		return b.build();
+	}
+
+	/**
+	 * Writes the values of both chunks that are contained in both into
+	 * the buffer starting at the given position.
+	 *
+	 * @return the new position.
+	 */
+	private static int and(CompressedBitmap a, int ca, CompressedBitmap b, int cb, int [] buffer, int pos)
+	{
+		int high = a.keys[ca] << 16;
+		long [] ba = a.bitsets[ca];
+		long [] bb = b.bitsets[cb];
+
+		if (ba != null && bb != null)
+		{
+			for (int w = 0; w < BITSET_WORDS; w++)
+			{
+				long word = ba[w] & bb[w];
+				while (word != 0)
+				{
+					buffer[pos++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+			return pos;
+		}
+
+		if (ba != null || bb != null)
+		{
+			long [] bitset = ba != null ? ba : bb;
+			char [] array = ba != null ? b.arrays[cb] : a.arrays[ca];
+			for (int i = 0; i < array.length; i++)
+			{
+				char low = array[i];
+				if ((bitset[low >>> 6] & (1L << low)) != 0)
+					buffer[pos++] = high | low;
+			}
+			return pos;
+		}
+
+		char [] aa = a.arrays[ca];
+		char [] ab = b.arrays[cb];
+		int i = 0, j = 0;
+		while (i < aa.length && j < ab.length)
+		{
+			if (aa[i] < ab[j]) i++;
+			else if (aa[i] > ab[j]) j++;
+			else
+			{
+				buffer[pos++] = high | aa[i];
+				i++;
+				j++;
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * Writes the values that are contained in this and the other bitmap in
+	 * ascending order into the given buffer. No intermediate bitmap is created.
+	 *
+	 * @param other
+	 * @param buffer the buffer, which must be able to hold at least as many
+	 *  values as the smaller of both bitmaps.
+	 * @return the number of values written, i.e., the cardinality of the
+	 *  intersection.
+	 */
+	public int and(CompressedBitmap other, int [] buffer)
+	{
+		int i = 0, j = 0, pos = 0;
+		while (i < keys.length && j < other.keys.length)
+		{
+			if (keys[i] < other.keys[j]) i++;
+			else if (keys[i] > other.keys[j]) j++;
+			else
+			{
+				pos = and(this, i, other, j, buffer, pos);
+				i++;
+				j++;
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * Returns the union of this and the other bitmap.
+	 *
+	 * @param other
+	 * @return the union as new bitmap.
+	 */
+	public CompressedBitmap or(CompressedBitmap other)
+	{
+		Builder b = new Builder();
+		b.addAll(this);
+		b.addAll(other);
+		return b.build();
+	}
+
+	/**
+	 * Returns the values of the bitmap in ascending order.
+	 *
+	 * @return the values as a sorted array.
+	 */
+	public int [] toArray()
+	{
+		int [] values = new int[cardinality];
+		int pos = 0;
+		for (int c = 0; c < keys.length; c++)
+		{
+			int high = keys[c] << 16;
+			long [] bitset = bitsets[c];
+			if (bitset != null)
+			{
+				for (int w = 0; w < BITSET_WORDS; w++)
+				{
+					long word = bitset[w];
+					while (word != 0)
+					{
+						values[pos++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+						word &= word - 1;
+					}
+				}
+			} else
+			{
+				char [] array = arrays[c];
+				for (int i = 0; i < array.length; i++)
+					values[pos++] = high | array[i];
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(toArray());
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CompressedBitmap))
+			return false;
+		CompressedBitmap other = (CompressedBitmap)obj;
+		return cardinality == other.cardinality && andCardinality(other) == cardinality;
+	}
+
+	@Override
+	public String toString()
+	{
+		return Arrays.toString(toArray());
+	}
+
+	/**
+	 * Create a bitmap that contains the given values.
+	 *
+	 * @param values the values which don't need to be sorted.
+	 * @return the bitmap.
+	 */
+	public static CompressedBitmap of(int...values)
+	{
+		Builder b = new Builder();
+		for (int v : values)
+			b.add(v);
+		return b.build();
+	}
+
+	/**
+	 * A mutable builder for compressed bitmaps. Internally, all chunks are kept
+	 * as plain bitsets. A builder can be reused after calling clear().
+	 */
+	public static final class Builder
+	{
+		/** Bitsets indexed by the key, null if not allocated yet */
+		private long [][] chunks = new long[1][];
+
+		/** Whether the chunk of the given key is in use */
+		private boolean [] used = new boolean[1];
+
+		/** The keys of all chunks that are in use */
+		private char [] usedKeys = new char[1];
+		private int numUsedKeys;
+
+		/**
+		 * Return the bitset for the given key. Allocate it if it doesn't exist.
+		 *
+		 * @param key
+		 * @return the bitset
+		 */
+		private long [] bitset(int key)
+		{
+			if (key >= chunks.length)
+			{
+				int newLength = Math.max(key + 1, chunks.length * 2);
+				chunks = Arrays.copyOf(chunks, newLength);
+				used = Arrays.copyOf(used, newLength);
+			}
+
+			long [] bitset = chunks[key];
+			if (bitset == null)
+				bitset = chunks[key] = new long[BITSET_WORDS];
+			if (!used[key])
+			{
+				used[key] = true;
+				if (numUsedKeys == usedKeys.length)
+					usedKeys = Arrays.copyOf(usedKeys, usedKeys.length * 2);
+				usedKeys[numUsedKeys++] = (char)key;
+			}
+			return bitset;
+		}
+
+		/**
+		 * Add a single value.
+		 *
+		 * @param value a non-negative value
+		 * @return this builder
+		 */
+		public Builder add(int value)
+		{
+			if (value < 0)
+				throw new IllegalArgumentException("Only non-negative values are supported");
+			long [] bitset = bitset(value >>> 16);
+			char low = (char)value;
+			bitset[low >>> 6] |= 1L << low;
+			return this;
+		}
+
+		/**
+		 * Add all values of the given bitmap.
+		 *
+		 * @param bitmap
+		 * @return this builder
+		 */
+		public Builder addAll(CompressedBitmap bitmap)
+		{
+			for (int c = 0; c < bitmap.keys.length; c++)
+			{
+				long [] bitset = bitset(bitmap.keys[c]);
+				long [] other = bitmap.bitsets[c];
+				if (other != null)
+				{
+					for (int w = 0; w < BITSET_WORDS; w++)
+						bitset[w] |= other[w];
+				} else
+				{
+					char [] array = bitmap.arrays[c];
+					for (int i = 0; i < array.length; i++)
+					{
+						char low = array[i];
+						bitset[low >>> 6] |= 1L << low;
+					}
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Keep only the values that are also contained in the given bitmap.
+		 *
+		 * @param bitmap
+		 * @return this builder
+		 */
+		public Builder retainAll(CompressedBitmap bitmap)
+		{
+			for (int k = 0; k < numUsedKeys; k++)
+			{
+				long [] bitset = chunks[usedKeys[k]];
+				int c = bitmap.chunk(usedKeys[k]);
+				if (c < 0)
+				{
+					Arrays.fill(bitset, 0);
+					continue;
+				}
+
+				long [] other = bitmap.bitsets[c];
+				if (other != null)
+				{
+					for (int w = 0; w < BITSET_WORDS; w++)
+						bitset[w] &= other[w];
+				} else
+				{
+					long [] tmp = new long[BITSET_WORDS];
+					char [] array = bitmap.arrays[c];
+					for (int i = 0; i < array.length; i++)
+					{
+						char low = array[i];
+						tmp[low >>> 6] |= bitset[low >>> 6] & (1L << low);
+					}
+					System.arraycopy(tmp, 0, bitset, 0, BITSET_WORDS);
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Removes all values so the builder can be reused. The memory
+		 * allocated so far is kept.
+		 *
+		 * @return this builder
+		 */
+		public Builder clear()
+		{
+			for (int k = 0; k < numUsedKeys; k++)
+			{
+				Arrays.fill(chunks[usedKeys[k]], 0);
+				used[usedKeys[k]] = false;
+			}
+			numUsedKeys = 0;
+			return this;
+		}
+
+		/**
+		 * Builds the immutable bitmap from the current state of the builder.
+		 *
+		 * @return the bitmap.
+		 */
+		public CompressedBitmap build()
+		{
+			char [] sortedKeys = Arrays.copyOf(usedKeys, numUsedKeys);
+			Arrays.sort(sortedKeys);
+
+			/* Count non-empty chunks */
+			int [] cards = new int[sortedKeys.length];
+			int numChunks = 0;
+			for (int k = 0; k < sortedKeys.length; k++)
+			{
+				long [] bitset = chunks[sortedKeys[k]];
+				int c = 0;
+				for (int w = 0; w < BITSET_WORDS; w++)
+					c += Long.bitCount(bitset[w]);
+				cards[k] = c;
+				if (c != 0) numChunks++;
+			}
+
+			if (numChunks == 0)
+				return EMPTY;
+
+			char [] keys = new char[numChunks];
+			char [][] arrays = new char[numChunks][];
+			long [][] bitsets = new long[numChunks][];
+			int [] cardinalities = new int[numChunks];
+
+			int n = 0;
+			for (int k = 0; k < sortedKeys.length; k++)
+			{
+				if (cards[k] == 0)
+					continue;
+
+				long [] bitset = chunks[sortedKeys[k]];
+				keys[n] = sortedKeys[k];
+				cardinalities[n] = cards[k];
+				if (cards[k] > MAX_ARRAY_CARDINALITY)
+				{
+					bitsets[n] = Arrays.copyOf(bitset, BITSET_WORDS);
+				} else
+				{
+					char [] array = new char[cards[k]];
+					int pos = 0;
+					for (int w = 0; w < BITSET_WORDS; w++)
+					{
+						long word = bitset[w];
+						while (word != 0)
+						{
+							array[pos++] = (char)((w << 6) | Long.numberOfTrailingZeros(word));
+							word &= word - 1;
+						}
+					}
+					arrays[n] = array;
+				}
+				n++;
+			}
+			return new CompressedBitmap(keys, arrays, bitsets, cardinalities);
+		}
+	}
+}
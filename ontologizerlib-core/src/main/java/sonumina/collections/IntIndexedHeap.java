@@ -0,0 +1,197 @@
+package sonumina.collections;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int ids with int keys. In contrast to a plain
+ * priority queue, the position of each id within the heap is tracked,
+ * so the key of an id that is already in the heap can be decreased in
+ * logarithmic time. The ids must be non-negative and should be dense as
+ * the position table is as large as the largest id.
+ *
+ * @author Sebastian Bauer
+ */
+public final class IntIndexedHeap
+{
+	/** The ids in heap order */
+	private int [] heap;
+
+	/** The keys, indexed by id */
+	private int [] keys;
+
+	/** The position of each id within the heap or -1 if the id is not in the heap */
+	private int [] pos;
+
+	/** The number of ids in the heap */
+	private int size;
+
+	/**
+	 * Constructs the heap.
+	 *
+	 * @param capacity the initial capacity, i.e., one plus the largest id
+	 *  that can be stored without growing.
+	 */
+	public IntIndexedHeap(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		heap = new int[capacity];
+		keys = new int[capacity];
+		pos = new int[capacity];
+		Arrays.fill(pos, -1);
+	}
+
+	private void ensureId(int id)
+	{
+		if (id < pos.length)
+			return;
+
+		int newCapacity = Math.max(id + 1, pos.length * 2);
+		int oldCapacity = pos.length;
+		heap = Arrays.copyOf(heap, newCapacity);
+		keys = Arrays.copyOf(keys, newCapacity);
+		pos = Arrays.copyOf(pos, newCapacity);
+		Arrays.fill(pos, oldCapacity, newCapacity, -1);
+	}
+
+	/**
+	 * Inserts the given id with the given key. If the id is already
+	 * contained, its key is decreased if the given key is smaller.
+	 *
+	 * @param id the id
+	 * @param key the key
+	 * @return whether the heap was changed.
+	 */
+	public boolean offer(int id, int key)
+	{
+		ensureId(id);
+
+		int p = pos[id];
+		if (p == -1)
+		{
+			p = size++;
+			heap[p] = id;
+			pos[id] = p;
+		} else if (key >= keys[id])
+		{
+			return false;
+		}
+		keys[id] = key;
+		siftUp(p);
+		return true;
+	}
+
+	/**
+	 * Removes the id with the smallest key.
+	 *
+	 * @return the removed id
+	 */
+	public int poll()
+	{
+		int id = heap[0];
+		pos[id] = -1;
+		if (--size > 0)
+		{
+			heap[0] = heap[size];
+			pos[heap[0]] = 0;
+			siftDown(0);
+		}
+		return id;
+	}
+
+	/**
+	 * @return the smallest key of the heap.
+	 */
+	public int peekKey()
+	{
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Returns the key that was last assigned to the given id.
+	 *
+	 * @param id
+	 * @return the key.
+	 */
+	public int getKey(int id)
+	{
+		return keys[id];
+	}
+
+	/**
+	 * @param id
+	 * @return whether the given id is in the heap.
+	 */
+	public boolean contains(int id)
+	{
+		return id < pos.length && pos[id] != -1;
+	}
+
+	/**
+	 * @return whether the heap is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return the number of ids in the heap.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes all ids from the heap.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < size; i++)
+			pos[heap[i]] = -1;
+		size = 0;
+	}
+
+	private void siftUp(int p)
+	{
+		int id = heap[p];
+		int key = keys[id];
+		while (p > 0)
+		{
+			int parent = (p - 1) >>> 1;
+			int pid = heap[parent];
+			if (keys[pid] <= key)
+				break;
+			heap[p] = pid;
+			pos[pid] = p;
+			p = parent;
+		}
+		heap[p] = id;
+		pos[id] = p;
+	}
+
+	private void siftDown(int p)
+	{
+		int id = heap[p];
+		int key = keys[id];
+		int half = size >>> 1;
+		while (p < half)
+		{
+			int c = 2 * p + 1;
+			int cid = heap[c];
+			int r = c + 1;
+			if (r < size && keys[heap[r]] < keys[cid])
+			{
+				c = r;
+				cid = heap[c];
+			}
+			if (key <= keys[cid])
+				break;
+			heap[p] = cid;
+			pos[cid] = p;
+			p = c;
+		}
+		heap[p] = id;
+		pos[id] = p;
+	}
+}
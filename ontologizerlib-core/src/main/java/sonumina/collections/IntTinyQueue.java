@@ -0,0 +1,111 @@
+package sonumina.collections;
+
+import java.util.Arrays;
+
+/**
+ * A tiny queue for primitive ints. The elements are kept in a ring buffer
+ * that only grows, hence once the queue has reached its working size,
+ * no further allocations take place. The object-based methods of the super
+ * class are supported as well but box the elements.
+ *
+ * @author Sebastian Bauer
+ */
+public class IntTinyQueue extends TinyQueue<Integer>
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The ring buffer */
+	private int [] elements;
+
+	/** Index of the first element */
+	private int first;
+
+	/** Number of elements */
+	private int size;
+
+	public IntTinyQueue()
+	{
+		this(16);
+	}
+
+	/**
+	 * Constructs the queue.
+	 *
+	 * @param initialCapacity the number of elements the queue can
+	 *  hold without growing.
+	 */
+	public IntTinyQueue(int initialCapacity)
+	{
+		elements = new int[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Offers a new element for the queue (i.e., appends it)
+	 *
+	 * @param t
+	 */
+	public void offerInt(int t)
+	{
+		if (size == elements.length)
+		{
+			int [] newElements = Arrays.copyOf(elements, size * 2);
+			/* Unwrap the part that starts at the beginning of the old ring */
+			System.arraycopy(elements, 0, newElements, size, first);
+			elements = newElements;
+		}
+		int idx = first + size;
+		if (idx >= elements.length)
+			idx -= elements.length;
+		elements[idx] = t;
+		size++;
+	}
+
+	/**
+	 * Polls the first element of the queue (i.e., removes it).
+	 *
+	 * @return the first element.
+	 */
+	public int pollInt()
+	{
+		int t = elements[first];
+		if (++first == elements.length)
+			first = 0;
+		size--;
+		return t;
+	}
+
+	/**
+	 * Removes all elements from the queue.
+	 */
+	public void clear()
+	{
+		first = 0;
+		size = 0;
+	}
+
+	/**
+	 * @return the number of elements of the queue.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public void offer(Integer t)
+	{
+		offerInt(t);
+	}
+
+	@Override
+	public Integer poll()
+	{
+		return pollInt();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+}
@@ -22,11 +22,43 @@ public class ReferencePool<T> implements Serializable
 	 */
 	private HashMap<T,T> referenceMap = new HashMap<T,T>();
 
+	/** The pool that is consulted for references that are not known locally or null */
+	private final ReferencePool<T> parent;
+
+	public ReferencePool()
+	{
+		this(null);
+	}
+
+	/**
+	 * Constructs a pool that is backed by the given parent pool. References
+	 * that are not known to this pool are mapped via the parent, which is
+	 * locked during the access. Hence several pools that are used by different
+	 * threads can share the same parent, while all of them hand out the same
+	 * references.
+	 *
+	 * @param parent the parent pool or null.
+	 */
+	public ReferencePool(ReferencePool<T> parent)
+	{
+		this.parent = parent;
+	}
+
 	public T map(T toBeMapped)
 	{
 		T ref = referenceMap.get(toBeMapped);
 		if (ref != null) return ref;
-		referenceMap.put(toBeMapped, toBeMapped);
-		return toBeMapped;
+		if (parent != null)
+		{
+			synchronized (parent)
+			{
+				ref = parent.map(toBeMapped);
+			}
+		} else
+		{
+			ref = toBeMapped;
+		}
+		referenceMap.put(ref, ref);
+		return ref;
 	}
 }
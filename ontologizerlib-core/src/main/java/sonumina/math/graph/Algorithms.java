@@ -1,6 +1,7 @@
 package sonumina.math.graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -9,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
+import sonumina.collections.IntTinyQueue;
 import sonumina.collections.TinyQueue;
 
 /**
@@ -181,6 +183,111 @@ public class Algorithms
 		bfs(initial,grabber,visitor);
 	}
 
+	/**
+	 * Performs a breadth-first search onto a graph whose vertices are
+	 * identified by dense indices starting at a given set of vertices.
+	 * Vertices occurring in loops are visited only once. Besides the
+	 * state, which can be reused, no memory is allocated.
+	 *
+	 * @param initial the indices of the vertices to start with.
+	 * @param numInitial the number of valid entries in initial.
+	 * @param grabber the grabber that writes the indices of the vertices
+	 *        which should be visited next.
+	 * @param visitor for every vertex visited by the algorithm the
+	 *        visitor.visited() method is called. Note that the method is also
+	 *        called for the initial vertices.
+	 * @param state the state of the search. After the search, it can be
+	 *        queried for the vertices that have been visited.
+	 */
+	public static void bfs(int [] initial, int numInitial, IntNeighbourGrabber grabber, IntVisitor visitor, IntSearchState state)
+	{
+		state.reset();
+
+		IntTinyQueue queue = state.queue;
+		for (int i = 0; i < numInitial; i++)
+		{
+			int vertex = initial[i];
+			if (!state.visit(vertex))
+				continue;
+			queue.offerInt(vertex);
+			if (!visitor.visited(vertex))
+				return;
+		}
+
+		while (!queue.isEmpty())
+		{
+			int head = queue.pollInt();
+			int num = state.grab(grabber, head);
+			int [] neighbours = state.neighbours;
+
+			for (int i = 0; i < num; i++)
+			{
+				int neighbour = neighbours[i];
+				if (state.visit(neighbour))
+				{
+					queue.offerInt(neighbour);
+					if (!visitor.visited(neighbour))
+						return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Performs a breadth-first search onto a graph whose vertices are
+	 * identified by dense indices starting at the given vertex.
+	 *
+	 * @param vertex the index of the vertex to start with.
+	 * @param grabber
+	 * @param visitor
+	 * @param state
+	 * @see #bfs(int[], int, IntNeighbourGrabber, IntVisitor, IntSearchState)
+	 */
+	public static void bfs(int vertex, IntNeighbourGrabber grabber, IntVisitor visitor, IntSearchState state)
+	{
+		int [] initial = state.initial;
+		initial[0] = vertex;
+		bfs(initial, 1, grabber, visitor, state);
+	}
+
+	/**
+	 * Performs a depth-first like search onto a graph whose vertices are
+	 * identified by dense indices starting at the given vertex.
+	 *
+	 * @param vertex the index of the vertex to start with.
+	 * @param grabber
+	 * @param visitor
+	 * @param state
+	 */
+	public static void dfs(int vertex, IntNeighbourGrabber grabber, IntVisitor visitor, IntSearchState state)
+	{
+		state.reset();
+
+		int [] stack = state.stack;
+		int sp = 0;
+		state.visit(vertex);
+		stack[sp++] = vertex;
+
+		while (sp > 0)
+		{
+			int v = stack[--sp];
+			if (!visitor.visited(v))
+				break;
+
+			int num = state.grab(grabber, v);
+			int [] neighbours = state.neighbours;
+			for (int i = 0; i < num; i++)
+			{
+				int n = neighbours[i];
+				if (!state.visit(n)) continue;
+				if (sp == stack.length)
+					stack = Arrays.copyOf(stack, sp * 2);
+				stack[sp++] = n;
+			}
+		}
+		state.stack = stack;
+	}
+
 	/**
 	 * Performs a depth-first like search starting at the given vertex along nodes returned
 	 * the grabber.
@@ -276,4 +383,44 @@ public class Algorithms
 
 		return order;
 	}
+
+	/**
+	 * Returns the vertices of a graph given as parent and child index arrays
+	 * in a topological order. Note that if the length of the returned array
+	 * differs from the number of vertices we have a cycle.
+	 *
+	 * @param vertexParents the parents of each vertex
+	 * @param vertexChildren the children of each vertex
+	 * @return the indices of the vertices in a topological order.
+	 */
+	public static int [] topologicalOrder(int [][] vertexParents, int [][] vertexChildren)
+	{
+		int numVertices = vertexParents.length;
+		int [] numParents = new int[numVertices];
+		int [] order = new int[numVertices];
+		int head = 0;
+		int tail = 0;
+
+		for (int i = 0; i < numVertices; i++)
+		{
+			numParents[i] = vertexParents[i].length;
+			if (numParents[i] == 0)
+				order[tail++] = i;
+		}
+
+		/* The order array doubles as queue of vertices whose parents have been all seen */
+		while (head < tail)
+		{
+			int top = order[head++];
+			for (int c : vertexChildren[top])
+			{
+				if (--numParents[c] == 0)
+					order[tail++] = c;
+			}
+		}
+
+		if (tail != numVertices)
+			return Arrays.copyOf(order, tail);
+		return order;
+	}
 }
@@ -0,0 +1,836 @@
+package sonumina.math.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import sonumina.collections.IntIndexedHeap;
+import sonumina.collections.IntMapper;
+
+/**
+ * An immutable directed graph whose structure is stored in compressed sparse
+ * row (CSR) form. Vertices are identified by dense int ids, the in- and
+ * out-edges of a vertex are stored as contiguous slices within shared int
+ * arrays, and the edge data is stored as a short index into a small pool
+ * of distinct edge data objects.
+ *
+ * Instances are created from a fully constructed DirectedGraph via
+ * {@link #create(DirectedGraph)}. The order of vertices and of the
+ * edges of each vertex is the same as in the originating graph.
+ * Alternatively, instances can be created from the parent lists of
+ * the vertices via {@link #create(Object[], int[][], Object[][])}.
+ *
+ * @author Sebastian Bauer
+ *
+ * @param <V> the type of the vertices
+ * @param <ED> the type of the data that is associated with each edge.
+ */
+public final class CompactDirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
+{
+	private static final long serialVersionUID = 1L;
+
+	/** Maps vertices to their dense ids and vice versa */
+	private final IntMapper<V> mapper;
+
+	/** The in-edges of vertex i are stored in inSources[inOffsets[i]] to inSources[inOffsets[i+1]-1] */
+	private final int [] inOffsets;
+	private final int [] inSources;
+	private final short [] inData;
+
+	/** The out-edges of vertex i are stored in outTargets[outOffsets[i]] to outTargets[outOffsets[i+1]-1] */
+	private final int [] outOffsets;
+	private final int [] outTargets;
+	private final short [] outData;
+
+	/** The pool of all distinct edge data objects */
+	private final Object [] dataPool;
+
+	/** The vertices in topological order, determined on demand */
+	private transient volatile int [] topologicalOrder;
+
+	private CompactDirectedGraph(IntMapper<V> mapper, int [] inOffsets, int [] inSources, short [] inData, int [] outOffsets, int [] outTargets, short [] outData, Object [] dataPool)
+	{
+		this.mapper = mapper;
+		this.inOffsets = inOffsets;
+		this.inSources = inSources;
+		this.inData = inData;
+		this.outOffsets = outOffsets;
+		this.outTargets = outTargets;
+		this.outData = outData;
+		this.dataPool = dataPool;
+	}
+
+	/**
+	 * @return the number of vertices.
+	 */
+	public int getNumberOfVertices()
+	{
+		return mapper.getSize();
+	}
+
+	/**
+	 * @return the number of edges.
+	 */
+	public int getNumberOfEdges()
+	{
+		return outTargets.length;
+	}
+
+	/**
+	 * Returns the dense id of the given vertex.
+	 *
+	 * @param v the vertex
+	 * @return the id of the vertex or -1 if the vertex is not contained in the graph.
+	 */
+	public int getVertexIndex(V v)
+	{
+		return mapper.getIndex(v);
+	}
+
+	/**
+	 * Returns the vertex with the given dense id.
+	 *
+	 * @param i the id of the vertex
+	 * @return the vertex
+	 */
+	public V getVertex(int i)
+	{
+		return mapper.get(i);
+	}
+
+	/**
+	 * @return the underlying mapping of vertices to dense ids.
+	 */
+	public IntMapper<V> getVertexMapper()
+	{
+		return mapper;
+	}
+
+	/**
+	 * Returns whether the given vertex is contained in the graph.
+	 *
+	 * @param v the vertex
+	 * @return whether v is contained.
+	 */
+	public boolean containsVertex(V v)
+	{
+		return mapper.getIndex(v) != -1;
+	}
+
+	/**
+	 * Returns the index of the given vertex and fails if it is not known.
+	 *
+	 * @param v the vertex
+	 * @return the index
+	 */
+	private int checkedIndex(V v)
+	{
+		int i = mapper.getIndex(v);
+		if (i == -1)
+			throw new IllegalArgumentException("Vertex " + v + " is not contained in the graph");
+		return i;
+	}
+
+	/**
+	 * Get the in-degree of the given vertex.
+	 *
+	 * @param v vertex for which the in-degree shall be determined
+	 * @return the in-degree or -1 if the vertex is not contained in the graph.
+	 */
+	public int getInDegree(V v)
+	{
+		int i = mapper.getIndex(v);
+		if (i == -1) return -1;
+		return getInDegree(i);
+	}
+
+	/**
+	 * Get the out-degree of the given vertex.
+	 *
+	 * @param v vertex for which the out-degree shall be determined
+	 * @return the out-degree or -1 if the vertex is not contained in the graph.
+	 */
+	public int getOutDegree(V v)
+	{
+		int i = mapper.getIndex(v);
+		if (i == -1) return -1;
+		return getOutDegree(i);
+	}
+
+	/**
+	 * @param v the id of the vertex
+	 * @return the in-degree of the vertex with the given id.
+	 */
+	public int getInDegree(int v)
+	{
+		return inOffsets[v+1] - inOffsets[v];
+	}
+
+	/**
+	 * @param v the id of the vertex
+	 * @return the out-degree of the vertex with the given id.
+	 */
+	public int getOutDegree(int v)
+	{
+		return outOffsets[v+1] - outOffsets[v];
+	}
+
+	/**
+	 * Returns the id of the k-th parent of the vertex with id v.
+	 *
+	 * @param v the id of the vertex
+	 * @param k the number of the in-edge, must be smaller than the in-degree.
+	 * @return the id of the parent
+	 */
+	public int getParent(int v, int k)
+	{
+		return inSources[inOffsets[v] + k];
+	}
+
+	/**
+	 * Returns the id of the k-th child of the vertex with id v.
+	 *
+	 * @param v the id of the vertex
+	 * @param k the number of the out-edge, must be smaller than the out-degree.
+	 * @return the id of the child
+	 */
+	public int getChild(int v, int k)
+	{
+		return outTargets[outOffsets[v] + k];
+	}
+
+	/**
+	 * Returns the data of the k-th in-edge of the vertex with id v.
+	 *
+	 * @param v the id of the vertex
+	 * @param k the number of the in-edge, must be smaller than the in-degree.
+	 * @return the data associated with the edge
+	 */
+	@SuppressWarnings("unchecked")
+	public ED getInEdgeData(int v, int k)
+	{
+		return (ED)dataPool[inData[inOffsets[v] + k]];
+	}
+
+	/**
+	 * Returns the data of the k-th out-edge of the vertex with id v.
+	 *
+	 * @param v the id of the vertex
+	 * @param k the number of the out-edge, must be smaller than the out-degree.
+	 * @return the data associated with the edge
+	 */
+	@SuppressWarnings("unchecked")
+	public ED getOutEdgeData(int v, int k)
+	{
+		return (ED)dataPool[outData[outOffsets[v] + k]];
+	}
+
+	/**
+	 * Copies the ids of the parents of the vertex with id v into the given
+	 * buffer.
+	 *
+	 * @param v the id of the vertex
+	 * @param buf the buffer that must be able to hold at least in-degree elements.
+	 * @return the number of ids that were written.
+	 */
+	public int getParents(int v, int [] buf)
+	{
+		int from = inOffsets[v];
+		int len = inOffsets[v+1] - from;
+		System.arraycopy(inSources, from, buf, 0, len);
+		return len;
+	}
+
+	/**
+	 * Copies the ids of the children of the vertex with id v into the given
+	 * buffer.
+	 *
+	 * @param v the id of the vertex
+	 * @param buf the buffer that must be able to hold at least out-degree elements.
+	 * @return the number of ids that were written.
+	 */
+	public int getChildren(int v, int [] buf)
+	{
+		int from = outOffsets[v];
+		int len = outOffsets[v+1] - from;
+		System.arraycopy(outTargets, from, buf, 0, len);
+		return len;
+	}
+
+	/**
+	 * Returns the position of the edge from source to dest within the out
+	 * arrays.
+	 *
+	 * @param source
+	 * @param dest
+	 * @return the position or -1 if there is no such edge.
+	 */
+	private int findOutEdge(int source, int dest)
+	{
+		for (int i = outOffsets[source]; i < outOffsets[source+1]; i++)
+		{
+			if (outTargets[i] == dest)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns whether there is an edge between source and dest.
+	 *
+	 * @param source
+	 * @param dest
+	 * @return whether an edge exists.
+	 */
+	public boolean hasEdge(V source, V dest)
+	{
+		int s = mapper.getIndex(source);
+		int d = mapper.getIndex(dest);
+		if (s == -1 || d == -1) return false;
+		return findOutEdge(s, d) != -1;
+	}
+
+	/**
+	 * Returns the data that is associated with the edge from source to dest.
+	 *
+	 * @param source
+	 * @param dest
+	 * @return the data or null if there is no edge between the specified nodes.
+	 */
+	@SuppressWarnings("unchecked")
+	public ED getEdgeData(V source, V dest)
+	{
+		int s = mapper.getIndex(source);
+		int d = mapper.getIndex(dest);
+		if (s == -1 || d == -1) return null;
+		int e = findOutEdge(s, d);
+		if (e == -1) return null;
+		return (ED)dataPool[outData[e]];
+	}
+
+	/**
+	 * Returns the ids of the vertices in a topological order. The order is
+	 * determined on the first call.
+	 *
+	 * @return the ids in topological order.
+	 * @throws IllegalArgumentException if the graph contains a cycle
+	 */
+	private int [] topologicalOrder()
+	{
+		int [] order = topologicalOrder;
+		if (order != null)
+			return order;
+
+		int n = getNumberOfVertices();
+		int [] numParents = new int[n];
+		order = new int[n];
+		int head = 0;
+		int tail = 0;
+
+		for (int i = 0; i < n; i++)
+		{
+			numParents[i] = inOffsets[i+1] - inOffsets[i];
+			if (numParents[i] == 0)
+				order[tail++] = i;
+		}
+
+		/* The order array doubles as queue of vertices whose parents have been all seen */
+		while (head < tail)
+		{
+			int top = order[head++];
+			for (int j = outOffsets[top]; j < outOffsets[top+1]; j++)
+			{
+				if (--numParents[outTargets[j]] == 0)
+					order[tail++] = outTargets[j];
+			}
+		}
+
+		if (tail != n)
+			throw new IllegalArgumentException("The graph contains a cycle");
+		topologicalOrder = order;
+		return order;
+	}
+
+	/**
+	 * Creates a lazy path for the given parent array.
+	 */
+	private LazyPath<V> path(int [] parent, int dest)
+	{
+		return new LazyPath<V>(parent, dest)
+		{
+			@Override
+			protected V vertex(int id)
+			{
+				return mapper.get(id);
+			}
+		};
+	}
+
+	/**
+	 * Calculates the shortest path from the given vertex to all vertices. Note that
+	 * negative weights are not supported! The vertices are reported in
+	 * the order of increasing distance and the paths are built only when
+	 * they are accessed.
+	 *
+	 * @param vertex defines the source
+	 * @param againstFlow if specified the path is walked against the direction of the graph
+	 * @param visitor object implementing IDistanceVisitor which can be used to process the
+	 *        results
+	 * @param weighter the edge weighter. If null, all weights are considered as 1.
+	 */
+	public void singleSourceShortestPath(V vertex, boolean againstFlow, IDistanceVisitor<V> visitor, IEdgeWeighter<V,ED> weighter)
+	{
+		int source = mapper.getIndex(vertex);
+		if (source == -1)
+			throw new IllegalArgumentException(vertex + " not found.");
+
+		int n = getNumberOfVertices();
+		int [] offsets = againstFlow ? inOffsets : outOffsets;
+		int [] neighbours = againstFlow ? inSources : outTargets;
+		short [] data = againstFlow ? inData : outData;
+
+		int [] distance = new int[n];
+		int [] parent = new int[n];
+		boolean [] settled = new boolean[n];
+		IntIndexedHeap heap = new IntIndexedHeap(n);
+
+		parent[source] = -1;
+		heap.offer(source, 0);
+
+		while (!heap.isEmpty())
+		{
+			int next = heap.poll();
+			settled[next] = true;
+
+			for (int j = offsets[next]; j < offsets[next+1]; j++)
+			{
+				int neighbour = neighbours[j];
+				if (settled[neighbour]) continue;
+
+				int weight;
+				if (weighter == null) weight = 1;
+				else if (againstFlow) weight = weighter.getWeight(mapper.get(neighbour), mapper.get(next), dataOf(data[j]));
+				else weight = weighter.getWeight(mapper.get(next), mapper.get(neighbour), dataOf(data[j]));
+
+				int newDistance = distance[next] + weight;
+				if (heap.offer(neighbour, newDistance))
+				{
+					distance[neighbour] = newDistance;
+					parent[neighbour] = next;
+				}
+			}
+
+			if (!visitor.visit(mapper.get(next), path(parent, next), distance[next]))
+				return;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private ED dataOf(short index)
+	{
+		return (ED)dataPool[index];
+	}
+
+	/**
+	 * Calculates the longest path from the given vertex to all vertices. The
+	 * graph must be acyclic. The vertices are reported in topological order
+	 * and the paths are built only when they are accessed.
+	 *
+	 * @param source defines the source
+	 * @param visitor object implementing IDistanceVisitor which can be used to process the
+	 *        results
+	 * @throws IllegalArgumentException if the graph contains a cycle
+	 */
+	public void singleSourceLongestPath(V source, IDistanceVisitor<V> visitor)
+	{
+		int s = mapper.getIndex(source);
+		if (s == -1)
+			throw new IllegalArgumentException(source + " not found.");
+
+		int [] parent = new int[getNumberOfVertices()];
+		int [] distance = longestDistances(new int[]{s}, 1, parent);
+
+		for (int v : topologicalOrder())
+		{
+			if (distance[v] == -1) continue;
+			if (!visitor.visit(mapper.get(v), path(parent, v), distance[v]))
+				return;
+		}
+	}
+
+	/**
+	 * Determines the longest distances from the given sources to all vertices.
+	 *
+	 * @param sources the ids of the sources
+	 * @param numSources the number of valid entries in sources
+	 * @param parent the array receiving the parents on the longest paths or null
+	 * @return the distances, -1 for vertices that cannot be reached.
+	 */
+	private int [] longestDistances(int [] sources, int numSources, int [] parent)
+	{
+		int [] distance = new int[getNumberOfVertices()];
+		Arrays.fill(distance, -1);
+		for (int i = 0; i < numSources; i++)
+		{
+			distance[sources[i]] = 0;
+			if (parent != null)
+				parent[sources[i]] = -1;
+		}
+
+		for (int u : topologicalOrder())
+		{
+			int du = distance[u];
+			if (du == -1) continue;
+
+			for (int j = outOffsets[u]; j < outOffsets[u+1]; j++)
+			{
+				int v = outTargets[j];
+				if (distance[v] < du + 1)
+				{
+					distance[v] = du + 1;
+					if (parent != null)
+						parent[v] = u;
+				}
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Determines the depth of all vertices with respect to the given source
+	 * vertices (usually the roots) in a single pass. Each edge counts as one.
+	 *
+	 * @param sources the ids of the source vertices, which get depth 0.
+	 * @param numSources the number of valid entries in sources.
+	 * @param longest if true, the depth is the length of the longest path
+	 *  from any of the sources, which requires that the graph is acyclic.
+	 *  Otherwise, it is the length of the shortest one.
+	 * @return the depth table indexed by vertex ids. Vertices that cannot be
+	 *  reached from any source have depth -1.
+	 */
+	public int [] getDepths(int [] sources, int numSources, boolean longest)
+	{
+		if (longest)
+			return longestDistances(sources, numSources, null);
+
+		int [] depth = new int[getNumberOfVertices()];
+		Arrays.fill(depth, -1);
+
+		/* Multi-source bfs, the queue is an array as every vertex is enqueued once */
+		int [] queue = new int[depth.length];
+		int head = 0;
+		int tail = 0;
+		for (int i = 0; i < numSources; i++)
+		{
+			if (depth[sources[i]] == -1)
+			{
+				depth[sources[i]] = 0;
+				queue[tail++] = sources[i];
+			}
+		}
+
+		while (head < tail)
+		{
+			int u = queue[head++];
+			for (int j = outOffsets[u]; j < outOffsets[u+1]; j++)
+			{
+				int v = outTargets[j];
+				if (depth[v] == -1)
+				{
+					depth[v] = depth[u] + 1;
+					queue[tail++] = v;
+				}
+			}
+		}
+		return depth;
+	}
+
+	/**
+	 * An iterable over a slice of one of the adjacency arrays.
+	 */
+	private final class SliceIterable implements Iterable<V>
+	{
+		private final int [] array;
+		private final int from;
+		private final int to;
+
+		public SliceIterable(int [] array, int from, int to)
+		{
+			this.array = array;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Iterator<V> iterator()
+		{
+			return new Iterator<V>()
+			{
+				private int pos = from;
+
+				@Override
+				public boolean hasNext()
+				{
+					return pos < to;
+				}
+
+				@Override
+				public V next()
+				{
+					if (pos >= to)
+						throw new NoSuchElementException();
+					return mapper.get(array[pos++]);
+				}
+
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+	@Override
+	public Iterable<V> getParentNodes(V v)
+	{
+		int i = checkedIndex(v);
+		return new SliceIterable(inSources, inOffsets[i], inOffsets[i+1]);
+	}
+
+	@Override
+	public Iterable<V> getChildNodes(V v)
+	{
+		int i = checkedIndex(v);
+		return new SliceIterable(outTargets, outOffsets[i], outOffsets[i+1]);
+	}
+
+	@Override
+	public Iterable<V> getVertices()
+	{
+		return this;
+	}
+
+	@Override
+	public Iterator<V> iterator()
+	{
+		return new Iterator<V>()
+		{
+			private int i;
+
+			@Override
+			public boolean hasNext()
+			{
+				return i < mapper.getSize();
+			}
+
+			@Override
+			public V next()
+			{
+				if (i >= mapper.getSize())
+					throw new NoSuchElementException();
+				return mapper.get(i++);
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Creates a compact version of the given graph. Changes to the given graph
+	 * that are done after this call are not reflected by the returned graph.
+	 *
+	 * @param graph the graph from which the compact graph shall be created
+	 * @return the compact graph.
+	 * @throws IllegalArgumentException if the graph contains more distinct
+	 *  edge data objects than can be indexed by a short.
+	 */
+	public static <V,ED> CompactDirectedGraph<V,ED> create(DirectedGraph<V,ED> graph)
+	{
+		int numVertices = graph.getNumberOfVertices();
+		IntMapper<V> mapper = IntMapper.create(graph.getVertices(), numVertices);
+
+		int [] inOffsets = new int[numVertices + 1];
+		int [] outOffsets = new int[numVertices + 1];
+
+		for (int i = 0; i < numVertices; i++)
+		{
+			V v = mapper.get(i);
+			inOffsets[i+1] = inOffsets[i] + graph.getInDegree(v);
+			outOffsets[i+1] = outOffsets[i] + graph.getOutDegree(v);
+		}
+
+		int [] inSources = new int[inOffsets[numVertices]];
+		short [] inData = new short[inOffsets[numVertices]];
+		int [] outTargets = new int[outOffsets[numVertices]];
+		short [] outData = new short[outOffsets[numVertices]];
+
+		ArrayList<Object> dataPool = new ArrayList<Object>();
+		HashMap<Object,Short> data2Index = new HashMap<Object,Short>();
+
+		for (int i = 0; i < numVertices; i++)
+		{
+			V v = mapper.get(i);
+
+			int pos = inOffsets[i];
+			Iterator<Edge<V,ED>> iter = graph.getInEdges(v);
+			while (iter.hasNext())
+			{
+				Edge<V,ED> e = iter.next();
+				inSources[pos] = mapper.getIndex(e.getSource());
+				inData[pos] = poolIndex(e.getData(), dataPool, data2Index);
+				pos++;
+			}
+
+			pos = outOffsets[i];
+			iter = graph.getOutEdges(v);
+			while (iter.hasNext())
+			{
+				Edge<V,ED> e = iter.next();
+				outTargets[pos] = mapper.getIndex(e.getDest());
+				outData[pos] = poolIndex(e.getData(), dataPool, data2Index);
+				pos++;
+			}
+		}
+
+		return new CompactDirectedGraph<V,ED>(mapper, inOffsets, inSources, inData, outOffsets, outTargets, outData, dataPool.toArray());
+	}
+
+	/**
+	 * Creates a compact graph from the given parent lists, e.g., as read from
+	 * a serialized representation. The ids of the vertices are their indices
+	 * within the given array and the order of the parents of each vertex is
+	 * kept. The out-edges of each vertex are ordered by the ids of their
+	 * targets.
+	 *
+	 * @param vertices the vertices, which must not contain any duplicates.
+	 * @param parents the ids of the parents of each vertex.
+	 * @param parentData the data of the edges to the parents of each vertex
+	 *  in the order of parents.
+	 * @return the compact graph.
+	 * @throws IllegalArgumentException if the arrays don't match or refer to
+	 *  unknown vertices, or if the graph contains more distinct edge data
+	 *  objects than can be indexed by a short.
+	 */
+	public static <V,ED> CompactDirectedGraph<V,ED> create(V [] vertices, int [][] parents, ED [][] parentData)
+	{
+		int numVertices = vertices.length;
+		if (parents.length != numVertices || parentData.length != numVertices)
+			throw new IllegalArgumentException("The number of parent lists doesn't match the number of vertices");
+
+		IntMapper<V> mapper = IntMapper.create(vertices);
+
+		int [] inOffsets = new int[numVertices + 1];
+		int [] outOffsets = new int[numVertices + 1];
+
+		for (int i = 0; i < numVertices; i++)
+		{
+			if (mapper.getIndex(vertices[i]) != i)
+				throw new IllegalArgumentException("Vertex " + vertices[i] + " is contained more than once");
+			if (parentData[i].length != parents[i].length)
+				throw new IllegalArgumentException("The number of edge data objects of vertex " + vertices[i] + " doesn't match the number of its parents");
+			inOffsets[i+1] = inOffsets[i] + parents[i].length;
+			for (int p : parents[i])
+			{
+				if (p < 0 || p >= numVertices)
+					throw new IllegalArgumentException("Parent " + p + " of vertex " + vertices[i] + " is out of range");
+				outOffsets[p+1]++;
+			}
+		}
+		for (int i = 0; i < numVertices; i++)
+			outOffsets[i+1] += outOffsets[i];
+
+		int [] inSources = new int[inOffsets[numVertices]];
+		short [] inData = new short[inOffsets[numVertices]];
+		int [] outTargets = new int[outOffsets[numVertices]];
+		short [] outData = new short[outOffsets[numVertices]];
+		int [] outPos = Arrays.copyOf(outOffsets, numVertices);
+
+		ArrayList<Object> dataPool = new ArrayList<Object>();
+		HashMap<Object,Short> data2Index = new HashMap<Object,Short>();
+
+		/* Vertices are visited in the order of their ids, so the children of each parent end up being sorted */
+		for (int i = 0; i < numVertices; i++)
+		{
+			for (int k = 0; k < parents[i].length; k++)
+			{
+				int p = parents[i][k];
+				short data = poolIndex(parentData[i][k], dataPool, data2Index);
+				inSources[inOffsets[i] + k] = p;
+				inData[inOffsets[i] + k] = data;
+				outTargets[outPos[p]] = i;
+				outData[outPos[p]++] = data;
+			}
+		}
+
+		return new CompactDirectedGraph<V,ED>(mapper, inOffsets, inSources, inData, outOffsets, outTargets, outData, dataPool.toArray());
+	}
+
+	/**
+	 * Creates a mutable directed graph with the same structure. The order
+	 * of the vertices and of the in- and out-edges of each vertex is kept.
+	 *
+	 * @return the new graph.
+	 */
+	public DirectedGraph<V,ED> toDirectedGraph()
+	{
+		int n = getNumberOfVertices();
+		DirectedGraph<V,ED> graph = new DirectedGraph<V,ED>();
+		for (int i = 0; i < n; i++)
+			graph.addVertex(mapper.get(i));
+
+		/* Each edge is created once for its in-edge position and then added at its out-edge position */
+		@SuppressWarnings("unchecked")
+		Edge<V,ED> [] edges = new Edge[inSources.length];
+		for (int i = 0; i < n; i++)
+		{
+			V v = mapper.get(i);
+			for (int j = inOffsets[i]; j < inOffsets[i+1]; j++)
+			{
+				edges[j] = Edge.newEdge(mapper.get(inSources[j]), v, dataOf(inData[j]));
+				graph.addInEdge(edges[j]);
+			}
+		}
+		for (int i = 0; i < n; i++)
+		{
+			for (int j = outOffsets[i]; j < outOffsets[i+1]; j++)
+			{
+				int target = outTargets[j];
+				int k = inOffsets[target];
+				while (inSources[k] != i)
+					k++;
+				graph.addOutEdge(edges[k]);
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Returns the index of the given data within the pool. The data is added
+	 * to the pool if it is not yet contained.
+	 *
+	 * @param data
+	 * @param dataPool
+	 * @param data2Index
+	 * @return the index of data within the pool.
+	 */
+	private static short poolIndex(Object data, ArrayList<Object> dataPool, HashMap<Object,Short> data2Index)
+	{
+		Short idx = data2Index.get(data);
+		if (idx == null)
+		{
+			if (dataPool.size() > Short.MAX_VALUE)
+				throw new IllegalArgumentException("Too many distinct edge data objects");
+			idx = (short)dataPool.size();
+			dataPool.add(data);
+			data2Index.put(data, idx);
+		}
+		return idx;
+	}
+}
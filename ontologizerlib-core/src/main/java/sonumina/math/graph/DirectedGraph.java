@@ -5,7 +5,9 @@ import static sonumina.collections.ImmutableMappedIterable.immutable;
 import static sonumina.math.graph.Edge.newEdge;
 
 import java.io.Serializable;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,9 +17,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.PriorityQueue;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+import sonumina.collections.IntIndexedHeap;
+import sonumina.collections.IntMapper;
+import sonumina.collections.ObjectIntHashMap;
+
 final class VertexAttributes<V,ED> implements Serializable
 {
 	private static final long serialVersionUID = 1L;
@@ -45,6 +51,9 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	/** Contains the vertices associated to meta information (edges) */
 	private LinkedHashMap<V,VertexAttributes<V,ED>> vertices;
 
+	/** Whether the structure of the graph must not be changed */
+	private boolean readOnly;
+
 	/**
 	 * Constructs the directed graph.
 	 */
@@ -61,6 +70,7 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	 */
 	public void addVertex(V vertex)
 	{
+		checkMutable();
 		if (!vertices.containsKey(vertex))
 		{
 			VertexAttributes<V,ED> va = new VertexAttributes<V,ED>();
@@ -75,6 +85,7 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	 */
 	public void removeVertex(V vertex)
 	{
+		checkMutable();
 		VertexAttributes<V,ED> va = vertices.get(vertex);
 		if (va != null)
 		{
@@ -118,6 +129,7 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	 */
 	public void removeVertexMaintainConnectivity(V vertex, IEdgeDataMerger<ED> merger)
 	{
+		checkMutable();
 		VertexAttributes<V,ED> va = vertices.get(vertex);
 		if (va == null)
 		{
@@ -249,6 +261,7 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	 */
 	private void addEdge(Edge<V,ED> edge)
 	{
+		checkMutable();
 		VertexAttributes<V,ED> vaSource = vertices.get(edge.getSource());
 		VertexAttributes<V,ED> vaDest = vertices.get(edge.getDest());
 
@@ -261,6 +274,55 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 		vaDest.inEdges.add(edge);
 	}
 
+	/**
+	 * Appends the given edge to the in-edges of its dest only. Together with
+	 * {@link #addOutEdge(Edge)}, this allows to control the order of the in-
+	 * and out-edges independently. The caller is responsible for adding the
+	 * same edge object to both lists.
+	 *
+	 * @param edge
+	 */
+	void addInEdge(Edge<V,ED> edge)
+	{
+		checkMutable();
+		vertices.get(edge.getDest()).inEdges.add(edge);
+	}
+
+	/**
+	 * Appends the given edge to the out-edges of its source only.
+	 *
+	 * @param edge
+	 * @see #addInEdge(Edge)
+	 */
+	void addOutEdge(Edge<V,ED> edge)
+	{
+		checkMutable();
+		vertices.get(edge.getSource()).outEdges.add(edge);
+	}
+
+	/**
+	 * Makes the graph read-only. Any further attempt to change the structure
+	 * of the graph will throw an {@link UnsupportedOperationException}.
+	 */
+	public void setReadOnly()
+	{
+		readOnly = true;
+	}
+
+	/**
+	 * @return whether the graph is read-only.
+	 */
+	public boolean isReadOnly()
+	{
+		return readOnly;
+	}
+
+	private void checkMutable()
+	{
+		if (readOnly)
+			throw new UnsupportedOperationException("The graph is read-only");
+	}
+
 	/**
 	 * Returns true if there is a directed edge between source and dest.
 	 *
@@ -288,6 +350,7 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	 */
 	public void removeConnections(V source, V dest)
 	{
+		checkMutable();
 		VertexAttributes<V,ED> vaSource = vertices.get(source);
 		VertexAttributes<V,ED> vaDest = vertices.get(dest);
 
@@ -489,114 +552,75 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	 * @param weighter the edge weighter. If null, all weights are considered as 1.
 	 */
 	public void singleSourceShortestPath(V vertex, boolean againstFlow, IDistanceVisitor<V> visitor, IEdgeWeighter<V,ED> weighter)
-	{		/**
-		 * This class implements some meta information needed by Dijkstra's
-		 * algorithm.
-		 *
-		 * @author Sebastian Bauer
-		 */
-		class VertexExtension implements Comparable<VertexExtension>
-		{
-			/** The vertex */
-			public V vertex;
-
-			/** The current distance of the vertex (to the source vertex) */
-			public int distance;
-
-			/** The current parent of the vertex */
-			public V parent;
-
-			VertexExtension(V vertex, int distance, V parent)
-			{
-				this.vertex = vertex;
-				this.distance = distance;
-				this.parent = parent;
-			}
-
-			public int compareTo(VertexExtension arg0)
-			{
-				return distance - arg0.distance;
-			}
-
-			public int hashCode()
-			{
-				return vertex.hashCode();
-			}
-		}
-
+	{
 		if (!vertices.containsKey(vertex))
 			throw new IllegalArgumentException(vertex + " not found.");
 
-		/* This is the implementation of the Dijkstra algorithm */
-
-		/* Within the priority queue we maintain the vertices which has been already
-		 * discovered by the algorithm.
-		 *
-		 * TODO: Get rid of Java's PriorityQueue by using a better suited data structure */
-		PriorityQueue<VertexExtension> queue = new PriorityQueue<VertexExtension>();
-		HashMap<V,VertexExtension> map = new HashMap<V,VertexExtension>();
-
-		/* Place the starting node into the priorty queue. It has a distance of 0 and no parent */
-		VertexExtension ve = new VertexExtension(vertex,0,null);
-		queue.offer(ve);
-		map.put(ve.vertex,ve);
-
-		while (!queue.isEmpty())
+		/* This is the implementation of the Dijkstra algorithm. Vertices get
+		 * dense ids in the order they are discovered, which index the distance
+		 * and parent arrays as well as the heap. */
+		final ArrayList<V> discovered = new ArrayList<V>();
+		ObjectIntHashMap<V> ids = new ObjectIntHashMap<V>();
+		int [] distance = new int[16];
+		int [] parent = new int[16];
+		IntIndexedHeap heap = new IntIndexedHeap(16);
+
+		/* Place the starting node into the heap. It has a distance of 0 and no parent */
+		discovered.add(vertex);
+		ids.put(vertex, 0);
+		parent[0] = -1;
+		heap.offer(0, 0);
+
+		while (!heap.isEmpty())
 		{
-			/* Take a node which has minimal distance to the starting node */
-			VertexExtension next = queue.poll();
+			/* Take a node which has minimal distance to the starting node,
+			 * its distance is final now */
+			int next = heap.poll();
+			V nextVertex = discovered.get(next);
 
 			/* We iterate over the edges of the chosen node to find the neighbours */
-			Iterator<Edge<V,ED>> edgeIter;
-			if (againstFlow) edgeIter = getInEdges(next.vertex);
-			else edgeIter = getOutEdges(next.vertex);
-
-			while (edgeIter.hasNext())
+			VertexAttributes<V,ED> va = vertices.get(nextVertex);
+			ArrayList<Edge<V,ED>> edges = againstFlow ? va.inEdges : va.outEdges;
+			for (int i = 0; i < edges.size(); i++)
 			{
-				Edge<V,ED> edge = edgeIter.next();
-				V neighbour;
-				int weight = weightOf(edge, weighter);
-
-				if (againstFlow) neighbour = edge.getSource();
-				else neighbour = edge.getDest();
+				Edge<V,ED> edge = edges.get(i);
+				V neighbour = againstFlow ? edge.getSource() : edge.getDest();
+				int newDistance = distance[next] + weightOf(edge, weighter);
 
 				/* Relax the neighbour (or add it if it is not available) */
-				VertexExtension neighbourExt = map.get(neighbour);
-				if (neighbourExt == null)
+				int n = ids.getIfAbsent(neighbour, -1);
+				if (n == -1)
 				{
-					neighbourExt = new VertexExtension(neighbour, next.distance + weight, next.vertex);
-					map.put(neighbour,neighbourExt);
-					queue.offer(neighbourExt);
-				} else
-				{
-					/* Would the edge from the current vertex to the neighbour
-					 * make the path to the neighbour shorter? */
-					if (neighbourExt.distance > next.distance + weight)
+					n = discovered.size();
+					discovered.add(neighbour);
+					ids.put(neighbour, n);
+					if (n == distance.length)
 					{
-						queue.remove(neighbourExt);
-						neighbourExt.distance = next.distance + weight;
-						neighbourExt.parent = next.vertex;
-						queue.offer(neighbourExt);
+						distance = Arrays.copyOf(distance, n * 2);
+						parent = Arrays.copyOf(parent, n * 2);
 					}
+					distance[n] = newDistance;
+					parent[n] = next;
+					heap.offer(n, newDistance);
+				} else if (heap.contains(n) && distance[n] > newDistance)
+				{
+					/* The edge from the current vertex to the neighbour
+					 * makes the path to the neighbour shorter */
+					distance[n] = newDistance;
+					parent[n] = next;
+					heap.offer(n, newDistance);
 				}
 			}
-		}
-
-		/* Now throw out the results */
-		for (Entry<V,VertexExtension> v : map.entrySet())
-		{
-			/* Build the path by successively traversing the path from
-			 * the current destination through the stored ancestors
-			 * (parents) */
-			LinkedList<V> ll = new LinkedList<V>();
-			VertexExtension curVe = v.getValue();
-			do
-			{
-				ll.addFirst(curVe.vertex);
-				curVe = map.get(curVe.parent);
-			} while (curVe != null);
 
-			if (!visitor.visit(v.getValue().vertex,ll,v.getValue().distance))
+			/* Throw out the result, the path is built on demand only */
+			if (!visitor.visit(nextVertex, new LazyPath<V>(parent, next)
+				{
+					@Override
+					protected V vertex(int id)
+					{
+						return discovered.get(id);
+					}
+				}, distance[next]))
 				return;
 		}
 	}
@@ -619,79 +643,72 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	/**
 	 * The bellman-ford algorithm (computes single-source shortest paths in a weighted digraph)
 	 *
-	 * @param source
+	 * @param source the source. If it is not contained in the graph, only the
+	 *  source itself is visited.
 	 * @param weightMultiplier multiplies the weights by the given factor.
 	 * @param visitor
 	 * @param weighter the edge weighter. If null, all weights are considered as 1.
 	 */
 	public void bf(V source, int weightMultiplier, IDistanceVisitor<V> visitor, IEdgeWeighter<V,ED> weighter)
 	{
-		/**
-		 * This class implements some meta information needed by the BF algorithm.
-		 *
-		 * @author Sebastian Bauer
-		 */
-		class VertexExtension implements Comparable<VertexExtension>
+		int numVertices = vertices.size();
+		final IntMapper<V> mapper = IntMapper.create(vertices.keySet());
+
+		/* Flatten the edges into arrays */
+		int numEdges = 0;
+		for (VertexAttributes<V,ED> va : vertices.values())
+			numEdges += va.outEdges.size();
+
+		int [] edgeSources = new int[numEdges];
+		int [] edgeDests = new int[numEdges];
+		int [] edgeWeights = new int[numEdges];
+		int e = 0;
+		for (Entry<V, VertexAttributes<V,ED>> ent : vertices.entrySet())
 		{
-			public V vertex;
-			public int distance;
-			public V parent;
-
-			public VertexExtension(V vertex, int distance, V parent)
-			{
-				this.vertex = vertex;
-				this.distance = distance;
-				this.parent = parent;
-			}
-
-			public int compareTo(VertexExtension arg0)
-			{
-				return distance - arg0.distance;
-			}
-
-			public int hashCode()
+			int u = mapper.getIndex(ent.getKey());
+			for (Edge<V,ED> edge : ent.getValue().outEdges)
 			{
-				return vertex.hashCode();
+				edgeSources[e] = u;
+				edgeDests[e] = mapper.getIndex(edge.getDest());
+				edgeWeights[e] = weightOf(edge, weighter) * weightMultiplier;
+				e++;
 			}
 		}
 
-		HashMap<V,VertexExtension> map = new HashMap<V,VertexExtension>();
-		map.put(source, new VertexExtension(source,0,null));
+		boolean [] reached = new boolean[numVertices];
+		int [] distance = new int[numVertices];
+		final int [] parent = new int[numVertices];
+		int s = mapper.getIndex(source);
+		if (s == -1)
+		{
+			/* A source that is not part of the graph reaches only itself */
+			List<V> path = new ArrayList<V>(1);
+			path.add(source);
+			visitor.visit(source, path, 0);
+			return;
+		}
+		reached[s] = true;
+		parent[s] = -1;
 
 		/* Vertices loop */
-		for (int i=0;i<vertices.size();i++)
+		for (int i=0;i<numVertices;i++)
 		{
 			boolean changed = false;
 
 			/* Edge loop */
-			for (Entry<V, VertexAttributes<V,ED>> ent : vertices.entrySet())
+			for (e = 0; e < numEdges; e++)
 			{
-				V u = ent.getKey();
+				int u = edgeSources[e];
+				if (!reached[u]) continue;
 
-				VertexExtension uExt = map.get(u);
-				if (uExt == null) continue;
-
-				for (Edge<V,ED> edge : ent.getValue().outEdges)
+				int v = edgeDests[e];
+				int newDistance = distance[u] + edgeWeights[e];
+				if (!reached[v] || distance[v] > newDistance)
 				{
-					V v = edge.getDest();
-					int weight = weightOf(edge, weighter);
-
-
-					VertexExtension vExt = map.get(v);
-					if (vExt == null)
-					{
-						vExt = new VertexExtension(v, uExt.distance + weight*weightMultiplier, u);
-						map.put(v,vExt);
-						changed = true;
-					} else
-					{
-						if (vExt.distance > uExt.distance + weight * weightMultiplier)
-						{
-							vExt.distance = uExt.distance + weight * weightMultiplier;
-							vExt.parent = u;
-							changed = true;
-						}
-					}
+					reached[v] = true;
+					distance[v] = newDistance;
+					parent[v] = u;
+					changed = true;
 				}
 			}
 
@@ -700,21 +717,19 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 				break;
 		}
 
-		/* Now throw out the results */
-		for (Entry<V,VertexExtension> v : map.entrySet())
+		/* Now throw out the results, the paths are built on demand only */
+		for (int v = 0; v < numVertices; v++)
 		{
-			/* Build the path by successively traversing the path from
-			 * the current destination through the stored ancestors
-			 * (parents) */
-			LinkedList<V> ll = new LinkedList<V>();
-			VertexExtension curVe = v.getValue();
-			do
-			{
-				ll.addFirst(curVe.vertex);
-				curVe = map.get(curVe.parent);
-			} while (curVe != null);
+			if (!reached[v]) continue;
 
-			if (!visitor.visit(v.getValue().vertex,ll,v.getValue().distance))
+			if (!visitor.visit(mapper.get(v), new LazyPath<V>(parent, v)
+				{
+					@Override
+					protected V vertex(int id)
+					{
+						return mapper.get(id);
+					}
+				}, distance[v]))
 				return;
 		}
 	}
@@ -750,21 +765,191 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	}
 
 	/**
-	 * Returns the number of distinct paths from source to dest.
+	 * Returns whether there is a path from source to dest using the
+	 * given reachability index.
+	 *
+	 * @param source
+	 * @param dest
+	 * @param index the reachability index of this graph or null, in which case
+	 *  the path is determined by a breadth-first search.
+	 * @return whether there is a path from source to dest or not
+	 */
+	public boolean existsPath(V source, V dest, ReachabilityIndex<V> index)
+	{
+		if (index == null)
+			return existsPath(source, dest);
+		return index.reaches(source, dest);
+	}
+
+	/**
+	 * Creates a reachability index for the current state of the graph, which
+	 * must be acyclic. Note that the index doesn't reflect any later changes
+	 * to the graph.
+	 *
+	 * @return the reachability index.
+	 */
+	public ReachabilityIndex<V> createReachabilityIndex()
+	{
+		return ReachabilityIndex.create(CompactDirectedGraph.create(this));
+	}
+
+	/**
+	 * Returns the number of distinct paths from source to dest. The paths are
+	 * not enumerated but counted via dynamic programming over the vertices
+	 * reachable from source in reverse topological order.
 	 *
 	 * @param source where to start.
 	 * @param dest where to end.
 	 * @return the number of paths.
+	 * @throws ArithmeticException if the number doesn't fit into an int.
+	 *  Use getNumberOfPathsExact() or getLogNumberOfPaths() in this case.
+	 * @throws IllegalArgumentException if a cycle is reachable from source.
 	 */
 	public int getNumberOfPaths(V source, V dest)
 	{
-		if (source.equals(dest))
-			return 1;
+		long paths = getNumberOfPathsLong(source, dest);
+		if (paths < 0 || paths > Integer.MAX_VALUE)
+			throw new ArithmeticException("Number of paths from " + source + " to " + dest + " exceeds the int range");
+		return (int)paths;
+	}
+
+	/**
+	 * Returns the number of distinct paths from source to dest as long.
+	 *
+	 * @param source where to start.
+	 * @param dest where to end.
+	 * @return the number of paths or -1 if the number doesn't fit into a long.
+	 * @throws IllegalArgumentException if a cycle is reachable from source.
+	 */
+	private long getNumberOfPathsLong(V source, V dest)
+	{
+		PathCountingOrder<V> order = new PathCountingOrder<V>(this, source);
+		int d = order.ids.getIfAbsent(dest, -1);
+		if (d == -1)
+			return 0;
+
+		long [] counts = new long[order.size()];
+		counts[d] = 1;
+		for (int i = order.size() - 1; i >= 0; i--)
+		{
+			int v = order.order[i];
+			if (v == d) continue;
+
+			long c = 0;
+			for (int child : order.children[v])
+			{
+				c += counts[child];
+				if (c < 0)
+					return -1;
+			}
+			counts[v] = c;
+		}
+		return counts[0];
+	}
+
+	/**
+	 * Returns the exact number of distinct paths from source to dest.
+	 * Like getNumberOfPaths(), the paths are counted via dynamic programming.
+	 *
+	 * @param source where to start.
+	 * @param dest where to end.
+	 * @return the number of paths.
+	 * @throws IllegalArgumentException if a cycle is reachable from source.
+	 */
+	public BigInteger getNumberOfPathsExact(V source, V dest)
+	{
+		long paths = getNumberOfPathsLong(source, dest);
+		if (paths >= 0)
+			return BigInteger.valueOf(paths);
+
+		PathCountingOrder<V> order = new PathCountingOrder<V>(this, source);
+		int d = order.ids.getIfAbsent(dest, -1);
+
+		BigInteger [] counts = new BigInteger[order.size()];
+		for (int i = order.size() - 1; i >= 0; i--)
+		{
+			int v = order.order[i];
+			if (v == d)
+			{
+				counts[v] = BigInteger.ONE;
+				continue;
+			}
+
+			BigInteger c = BigInteger.ZERO;
+			for (int child : order.children[v])
+				c = c.add(counts[child]);
+			counts[v] = c;
+		}
+		return counts[0];
+	}
+
+	/**
+	 * Returns the natural logarithm of the number of distinct paths from source
+	 * to dest. The counting is done in log-space, so it doesn't overflow
+	 * but is subject to rounding.
+	 *
+	 * @param source where to start.
+	 * @param dest where to end.
+	 * @return the logarithm of the number of paths, negative infinity if there
+	 *  is no path.
+	 * @throws IllegalArgumentException if a cycle is reachable from source.
+	 */
+	public double getLogNumberOfPaths(V source, V dest)
+	{
+		PathCountingOrder<V> order = new PathCountingOrder<V>(this, source);
+		int d = order.ids.getIfAbsent(dest, -1);
+		if (d == -1)
+			return Double.NEGATIVE_INFINITY;
+
+		double [] logCounts = new double[order.size()];
+		for (int i = order.size() - 1; i >= 0; i--)
+		{
+			int v = order.order[i];
+			if (v == d)
+			{
+				logCounts[v] = 0;
+				continue;
+			}
 
-		int paths = 0;
-		for (V next : getChildNodes(source))
-			paths += getNumberOfPaths(next,dest);
-		return paths;
+			/* log(sum exp(x)) computed relative to the maximum */
+			double max = Double.NEGATIVE_INFINITY;
+			for (int child : order.children[v])
+				max = Math.max(max, logCounts[child]);
+			if (max == Double.NEGATIVE_INFINITY)
+			{
+				logCounts[v] = max;
+				continue;
+			}
+
+			double sum = 0;
+			for (int child : order.children[v])
+				sum += Math.exp(logCounts[child] - max);
+			logCounts[v] = max + Math.log(sum);
+		}
+		return logCounts[0];
+	}
+
+	/**
+	 * Returns all paths from source to dest. The paths are generated on
+	 * demand while iterating, so callers that stop early don't pay for the
+	 * remaining paths. Only vertices from which dest can be reached are
+	 * visited, so each step yields a path.
+	 *
+	 * @param source where to start.
+	 * @param dest where to end.
+	 * @return an iterable of the paths, each starting with source and ending
+	 *  with dest.
+	 */
+	public Iterable<List<V>> getPaths(final V source, final V dest)
+	{
+		return new Iterable<List<V>>()
+		{
+			@Override
+			public Iterator<List<V>> iterator()
+			{
+				return new PathIterator<V>(DirectedGraph.this, source, dest);
+			}
+		};
 	}
 
 	/**
@@ -773,7 +958,10 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	 * @param source where to start.
 	 * @param dest where to end.
 	 * @return the number of paths.
+	 * @deprecated use getPaths(), which properly separates the paths and
+	 *  generates them lazily.
 	 */
+	@Deprecated
 	public ArrayList<V> getAllPathes(V source, V dest, ArrayList<V> pathes)
 	{
 		if (source.equals(dest)){
@@ -784,7 +972,6 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 
 		for (V next : getChildNodes(source)){
 			ArrayList<V> rec = getAllPathes(next, dest, pathes);
-			System.out.println("recur: "+rec);
 			pathes.addAll(rec);
 		}
 		return pathes;
@@ -1087,6 +1274,21 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	 * @return the set of vertices defining the upper induced graph
 	 */
 	public Set<V> getVerticesOfUpperInducedGraph(final V root, V termID)
+	{
+		return getVerticesOfUpperInducedGraph(root, termID, null);
+	}
+
+	/**
+	 * Returns a set of induced terms that are the terms of the induced graph.
+	 * The path queries are answered using the given reachability index.
+	 *
+	 * @param root the root term (all terms up to this are included)
+	 * @param termID the inducing term.
+	 * @param index the reachability index of this graph or null, in which case
+	 *  paths are determined by a breadth-first search.
+	 * @return the set of vertices defining the upper induced graph
+	 */
+	public Set<V> getVerticesOfUpperInducedGraph(final V root, V termID, final ReachabilityIndex<V> index)
 	{
 		/**
 		 * Visitor which simply add all nodes to the nodeSet.
@@ -1101,7 +1303,7 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 			{
 				if (root != null)
 				{
-					if (vertex.equals(root) || existsPath(root, vertex))
+					if (vertex.equals(root) || existsPath(root, vertex, index))
 						nodeSet.add(vertex);
 				} else
 					nodeSet.add(vertex);
@@ -1126,6 +1328,7 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	 */
 	public void mergeVertices(V vertex1, Iterable<V> eqVertices)
 	{
+		checkMutable();
 		for (V vertex2 : eqVertices)
 		{
 			/* New outgoing/ingoing edges to/from vertex1 */
@@ -1191,4 +1394,172 @@ public class DirectedGraph<V,ED> extends AbstractGraph<V> implements Iterable<V>
 	public boolean containsVertex(V vertex){
 		return vertices.containsKey(vertex);
 	}
+
+	/**
+	 * The vertices reachable from a source vertex in topological order
+	 * together with their children, all identified by dense ids. The source
+	 * has id 0.
+	 */
+	private static final class PathCountingOrder<V>
+	{
+		final ObjectIntHashMap<V> ids = new ObjectIntHashMap<V>();
+		final int [] order;
+		final int [][] children;
+
+		PathCountingOrder(DirectedGraph<V,?> graph, V source)
+		{
+			if (!graph.vertices.containsKey(source))
+				throw new IllegalArgumentException(source + " not found.");
+
+			/* Discover the reachable vertices */
+			ArrayList<V> discovered = new ArrayList<V>();
+			discovered.add(source);
+			ids.put(source, 0);
+			for (int i = 0; i < discovered.size(); i++)
+			{
+				for (V c : graph.getChildNodes(discovered.get(i)))
+				{
+					if (ids.getIfAbsent(c, -1) == -1)
+					{
+						ids.put(c, discovered.size());
+						discovered.add(c);
+					}
+				}
+			}
+
+			int n = discovered.size();
+			children = new int[n][];
+			int [] numParents = new int[n];
+			for (int i = 0; i < n; i++)
+			{
+				VertexAttributes<V,?> va = graph.vertices.get(discovered.get(i));
+				int [] c = children[i] = new int[va.outEdges.size()];
+				for (int k = 0; k < c.length; k++)
+				{
+					c[k] = ids.get(va.outEdges.get(k).getDest());
+					numParents[c[k]]++;
+				}
+			}
+
+			/* Kahn's algorithm, the order array doubles as queue. Only the
+			 * source has no parents within the reachable subgraph. */
+			order = new int[n];
+			int head = 0;
+			int tail = 0;
+			order[tail++] = 0;
+			while (head < tail)
+			{
+				int top = order[head++];
+				for (int c : children[top])
+				{
+					if (--numParents[c] == 0)
+						order[tail++] = c;
+				}
+			}
+			if (tail != n)
+				throw new IllegalArgumentException("The vertices reachable from " + source + " contain a cycle");
+		}
+
+		int size()
+		{
+			return order.length;
+		}
+	}
+
+	/**
+	 * Iterates lazily over all paths from a source to a destination by a
+	 * depth-first search that is restricted to vertices from which the
+	 * destination can be reached.
+	 */
+	private static final class PathIterator<V> implements Iterator<List<V>>
+	{
+		private final DirectedGraph<V,?> graph;
+		private final V dest;
+
+		/** The vertices from which dest can be reached */
+		private final HashSet<V> relevant = new HashSet<V>();
+
+		/** The current path */
+		private final ArrayList<V> path = new ArrayList<V>();
+
+		/** The iterators over the children of each vertex on the current path */
+		private final ArrayList<Iterator<V>> iterators = new ArrayList<Iterator<V>>();
+
+		/** The next path or null if it needs to be determined */
+		private List<V> next;
+
+		PathIterator(DirectedGraph<V,?> graph, V source, V dest)
+		{
+			this.graph = graph;
+			this.dest = dest;
+
+			if (graph.vertices.containsKey(dest))
+			{
+				graph.bfs(dest, true, new IVisitor<V>()
+				{
+					@Override
+					public boolean visited(V vertex)
+					{
+						relevant.add(vertex);
+						return true;
+					}
+				});
+			}
+
+			if (relevant.contains(source))
+			{
+				path.add(source);
+				iterators.add(graph.getChildNodes(source).iterator());
+				if (source.equals(dest))
+					next = new ArrayList<V>(path);
+			}
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if (next != null)
+				return true;
+
+			while (!iterators.isEmpty())
+			{
+				Iterator<V> iter = iterators.get(iterators.size() - 1);
+				if (!iter.hasNext() || path.get(path.size() - 1).equals(dest))
+				{
+					iterators.remove(iterators.size() - 1);
+					path.remove(path.size() - 1);
+					continue;
+				}
+
+				V c = iter.next();
+				if (!relevant.contains(c))
+					continue;
+
+				path.add(c);
+				iterators.add(graph.getChildNodes(c).iterator());
+				if (c.equals(dest))
+				{
+					next = new ArrayList<V>(path);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public List<V> next()
+		{
+			if (!hasNext())
+				throw new NoSuchElementException();
+			List<V> n = next;
+			next = null;
+			return n;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
 }
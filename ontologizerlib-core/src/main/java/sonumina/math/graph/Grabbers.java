@@ -33,4 +33,34 @@ public class Grabbers
 			}
 		};
 	}
+
+	public static IntNeighbourGrabber intOutGrabber(final CompactDirectedGraph<?,?> g)
+	{
+		return new IntNeighbourGrabber()
+		{
+			@Override
+			public int grabNeighbours(int v, int [] buffer)
+			{
+				int deg = g.getOutDegree(v);
+				if (deg > buffer.length)
+					return deg;
+				return g.getChildren(v, buffer);
+			}
+		};
+	}
+
+	public static IntNeighbourGrabber intInGrabber(final CompactDirectedGraph<?,?> g)
+	{
+		return new IntNeighbourGrabber()
+		{
+			@Override
+			public int grabNeighbours(int v, int [] buffer)
+			{
+				int deg = g.getInDegree(v);
+				if (deg > buffer.length)
+					return deg;
+				return g.getParents(v, buffer);
+			}
+		};
+	}
 }
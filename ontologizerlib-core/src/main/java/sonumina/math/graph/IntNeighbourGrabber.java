@@ -0,0 +1,23 @@
+package sonumina.math.graph;
+
+/**
+ * This interface is used as a callback for the index-based searches in
+ * Algorithms and used to determine valid neighbours. Unlike the
+ * INeighbourGrabber, the neighbours are written into a buffer supplied by
+ * the caller.
+ *
+ * @author Sebastian Bauer
+ */
+public interface IntNeighbourGrabber
+{
+	/**
+	 * Writes the indices of the neighbours of vertex v into the given buffer.
+	 *
+	 * @param v the index of the vertex
+	 * @param buffer the buffer to which the neighbours are written.
+	 * @return the number of neighbours. If this exceeds the length of the
+	 *  buffer, the contents of the buffer are undefined and the call is
+	 *  repeated with a buffer that is large enough.
+	 */
+	int grabNeighbours(int v, int [] buffer);
+}
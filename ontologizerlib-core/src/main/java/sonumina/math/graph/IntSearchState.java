@@ -0,0 +1,106 @@
+package sonumina.math.graph;
+
+import java.util.Arrays;
+
+import sonumina.collections.IntTinyQueue;
+
+/**
+ * The state of the index-based searches of Algorithms, i.e., the set of
+ * visited vertices, the queue or stack, and the neighbour buffer. An
+ * instance can be reused for subsequent searches, which then don't
+ * allocate any memory. Instances must not be shared by concurrent
+ * searches.
+ *
+ * @author Sebastian Bauer
+ */
+public final class IntSearchState
+{
+	/** Bitset of the visited vertices */
+	long [] visited;
+
+	/** Queue used by the breadth-first search */
+	final IntTinyQueue queue = new IntTinyQueue();
+
+	/** Stack used by the depth-first search */
+	int [] stack = new int[16];
+
+	/** Buffer for the single initial vertex */
+	final int [] initial = new int[1];
+
+	/** Buffer for the neighbours of the current vertex */
+	int [] neighbours = new int[16];
+
+	public IntSearchState()
+	{
+		this(0);
+	}
+
+	/**
+	 * Constructs the search state.
+	 *
+	 * @param numberOfVertices the number of vertices of the graph.
+	 *  This is a hint only, the state grows if needed.
+	 */
+	public IntSearchState(int numberOfVertices)
+	{
+		visited = new long[(numberOfVertices + 63) >>> 6];
+	}
+
+	/**
+	 * Prepares the state for a new search.
+	 */
+	void reset()
+	{
+		Arrays.fill(visited, 0);
+		queue.clear();
+	}
+
+	/**
+	 * Marks the given vertex as visited.
+	 *
+	 * @param v
+	 * @return true if the vertex was not visited before.
+	 */
+	boolean visit(int v)
+	{
+		int w = v >>> 6;
+		if (w >= visited.length)
+			visited = Arrays.copyOf(visited, Math.max(w + 1, visited.length * 2));
+		long mask = 1L << v;
+		if ((visited[w] & mask) != 0)
+			return false;
+		visited[w] |= mask;
+		return true;
+	}
+
+	/**
+	 * Determines whether the given vertex has been visited by the last search.
+	 *
+	 * @param v
+	 * @return whether v was visited.
+	 */
+	public boolean isVisited(int v)
+	{
+		int w = v >>> 6;
+		if (w >= visited.length)
+			return false;
+		return (visited[w] & (1L << v)) != 0;
+	}
+
+	/**
+	 * Grabs the neighbours of v into the neighbour buffer, which is grown
+	 * when necessary.
+	 *
+	 * @return the number of neighbours.
+	 */
+	int grab(IntNeighbourGrabber grabber, int v)
+	{
+		int n = grabber.grabNeighbours(v, neighbours);
+		if (n > neighbours.length)
+		{
+			neighbours = new int[Math.max(n, neighbours.length * 2)];
+			n = grabber.grabNeighbours(v, neighbours);
+		}
+		return n;
+	}
+}
@@ -0,0 +1,77 @@
+package sonumina.math.graph;
+
+import java.util.AbstractList;
+
+/**
+ * A list representing the path from a source vertex to a destination vertex
+ * that is stored implicitly via an array of parent ids. The path is
+ * materialized on first access only.
+ *
+ * @author Sebastian Bauer
+ *
+ * @param <V> the type of the vertices
+ */
+abstract class LazyPath<V> extends AbstractList<V>
+{
+	/** The parents of each id, -1 for the source */
+	private final int [] parent;
+
+	/** The id of the destination */
+	private final int dest;
+
+	/** The ids on the path from the source to the destination, null if not yet determined */
+	private int [] ids;
+
+	/**
+	 * Constructs the path.
+	 *
+	 * @param parent the parents of each id, -1 for the source.
+	 * @param dest the id of the destination.
+	 */
+	LazyPath(int [] parent, int dest)
+	{
+		this.parent = parent;
+		this.dest = dest;
+	}
+
+	/**
+	 * Maps the given id to the vertex.
+	 *
+	 * @param id
+	 * @return the vertex
+	 */
+	protected abstract V vertex(int id);
+
+	private int [] ids()
+	{
+		if (ids == null)
+		{
+			/* The length is bounded by the number of ids, which also guards against cycles */
+			int len = 0;
+			for (int v = dest; v != -1 && len <= parent.length; v = parent[v])
+				len++;
+
+			int [] p = new int[len];
+			int v = dest;
+			for (int i = len - 1; i >= 0; i--)
+			{
+				p[i] = v;
+				v = parent[v];
+			}
+			ids = p;
+		}
+		return ids;
+	}
+
+	@Override
+	public V get(int index)
+	{
+		return vertex(ids()[index]);
+	}
+
+	@Override
+	public int size()
+	{
+		return ids().length;
+	}
+}
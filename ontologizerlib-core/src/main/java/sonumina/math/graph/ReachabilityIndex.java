@@ -0,0 +1,366 @@
+package sonumina.math.graph;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+import sonumina.collections.IntMapper;
+
+/**
+ * An index that answers whether a vertex of a directed acyclic graph can be
+ * reached from another vertex. The index is based on interval labeling and
+ * needs memory that is linear in the number of vertices and edges.
+ *
+ * Each vertex gets the pre-order interval of a spanning forest, which
+ * positively answers all queries along tree edges. Additionally, each vertex gets
+ * a number of GRAIL-like intervals that are determined via randomized
+ * post-order traversals. If one of them doesn't contain the interval of the
+ * destination, the destination cannot be reached. Only the remaining queries
+ * need a depth-first search, which is pruned by the same two criteria.
+ *
+ * @author Sebastian Bauer
+ *
+ * @param <V> the type of the vertices
+ */
+public final class ReachabilityIndex<V> implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The default number of randomized labels */
+	private static final int DEFAULT_NUMBER_OF_LABELS = 3;
+
+	/** Maps the vertices to indices */
+	private final IntMapper<V> mapper;
+
+	/** The children of vertex i are childTargets[childOffsets[i]] to childTargets[childOffsets[i+1]-1] */
+	private final int [] childOffsets;
+	private final int [] childTargets;
+
+	/** Pre-order number of each vertex within the spanning forest */
+	private final int [] treePre;
+
+	/** Largest pre-order number within the subtree of the spanning forest */
+	private final int [] treeLast;
+
+	/** The randomized labels, the interval of vertex v in labeling d is [low[d][v], post[d][v]] */
+	private final int [][] low;
+	private final int [][] post;
+
+	/** Scratch space for the fallback search */
+	private static final class Scratch
+	{
+		public int [] visited;
+		public int stamp;
+		public int [] stack = new int[16];
+	}
+
+	/** Scratch space of each thread, created on demand */
+	private transient volatile ThreadLocal<Scratch> scratch;
+
+	private ReachabilityIndex(IntMapper<V> mapper, int [] childOffsets, int [] childTargets, int numberOfLabels)
+	{
+		this.mapper = mapper;
+		this.childOffsets = childOffsets;
+		this.childTargets = childTargets;
+
+		int n = childOffsets.length - 1;
+		int [] inDegree = new int[n];
+		for (int t : childTargets)
+			inDegree[t]++;
+
+		/* Spanning forest */
+		treePre = new int[n];
+		treeLast = new int[n];
+		int [] stack = new int[n];
+		int [] next = new int[n];
+		boolean [] visited = new boolean[n];
+		boolean [] onStack = new boolean[n];
+		int counter = 0;
+
+		for (int r = 0; r < n; r++)
+		{
+			if (inDegree[r] != 0) continue;
+
+			int sp = 0;
+			stack[sp++] = r;
+			visited[r] = true;
+			onStack[r] = true;
+			treePre[r] = counter++;
+			next[r] = childOffsets[r];
+
+			while (sp > 0)
+			{
+				int v = stack[sp - 1];
+				if (next[v] < childOffsets[v + 1])
+				{
+					int c = childTargets[next[v]++];
+					if (onStack[c])
+						throw new IllegalArgumentException("The reachability index can be only created for acyclic graphs");
+					if (!visited[c])
+					{
+						visited[c] = true;
+						onStack[c] = true;
+						treePre[c] = counter++;
+						next[c] = childOffsets[c];
+						stack[sp++] = c;
+					}
+				} else
+				{
+					treeLast[v] = counter - 1;
+					onStack[v] = false;
+					sp--;
+				}
+			}
+		}
+		if (counter != n)
+			throw new IllegalArgumentException("The reachability index can be only created for acyclic graphs");
+
+		/* Randomized labels */
+		Random rnd = new Random(n);
+		low = new int[numberOfLabels][];
+		post = new int[numberOfLabels][];
+		int [] roots = new int[n];
+		int numRoots = 0;
+		for (int r = 0; r < n; r++)
+		{
+			if (inDegree[r] == 0)
+				roots[numRoots++] = r;
+		}
+
+		for (int d = 0; d < numberOfLabels; d++)
+		{
+			int [] l = low[d] = new int[n];
+			int [] p = post[d] = new int[n];
+			int [] perm = new int[childTargets.length];
+			Arrays.fill(visited, false);
+			shuffle(roots, numRoots, rnd);
+			counter = 0;
+
+			for (int ri = 0; ri < numRoots; ri++)
+			{
+				int r = roots[ri];
+				int sp = 0;
+				stack[sp++] = r;
+				visited[r] = true;
+				next[r] = 0;
+				l[r] = Integer.MAX_VALUE;
+
+				while (sp > 0)
+				{
+					int v = stack[sp - 1];
+					int from = childOffsets[v];
+					int deg = childOffsets[v + 1] - from;
+					if (next[v] == 0 && deg > 1)
+					{
+						/* Choose a random order of the children of v */
+						for (int k = 0; k < deg; k++)
+							perm[from + k] = k;
+						shuffle(perm, from, deg, rnd);
+					}
+
+					if (next[v] < deg)
+					{
+						int k = next[v]++;
+						int c = childTargets[from + (deg > 1 ? perm[from + k] : k)];
+						if (!visited[c])
+						{
+							visited[c] = true;
+							next[c] = 0;
+							l[c] = Integer.MAX_VALUE;
+							stack[sp++] = c;
+						} else
+						{
+							l[v] = Math.min(l[v], l[c]);
+						}
+					} else
+					{
+						p[v] = counter++;
+						l[v] = Math.min(l[v], p[v]);
+						sp--;
+						if (sp > 0)
+						{
+							int parent = stack[sp - 1];
+							l[parent] = Math.min(l[parent], l[v]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static void shuffle(int [] array, int len, Random rnd)
+	{
+		shuffle(array, 0, len, rnd);
+	}
+
+	private static void shuffle(int [] array, int from, int len, Random rnd)
+	{
+		for (int i = len - 1; i > 0; i--)
+		{
+			int j = rnd.nextInt(i + 1);
+			int tmp = array[from + i];
+			array[from + i] = array[from + j];
+			array[from + j] = tmp;
+		}
+	}
+
+	/**
+	 * @return the number of vertices covered by the index.
+	 */
+	public int getNumberOfVertices()
+	{
+		return treePre.length;
+	}
+
+	/**
+	 * Returns whether dest is within the spanning tree below source.
+	 */
+	private boolean inTree(int source, int dest)
+	{
+		return treePre[source] <= treePre[dest] && treePre[dest] <= treeLast[source];
+	}
+
+	/**
+	 * Returns whether one of the randomized labels proves that dest cannot
+	 * be reached from source.
+	 */
+	private boolean excluded(int source, int dest)
+	{
+		for (int d = 0; d < low.length; d++)
+		{
+			if (post[d][dest] > post[d][source] || low[d][dest] < low[d][source])
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether there is a directed path from the vertex with index
+	 * source to the vertex with index dest. A vertex reaches itself.
+	 *
+	 * @param source
+	 * @param dest
+	 * @return whether dest can be reached from source.
+	 */
+	public boolean reaches(int source, int dest)
+	{
+		if (source == dest || inTree(source, dest))
+			return true;
+		if (excluded(source, dest))
+			return false;
+
+		/* Fallback to a pruned depth-first search */
+		ThreadLocal<Scratch> tl = scratch;
+		if (tl == null)
+		{
+			synchronized (this)
+			{
+				tl = scratch;
+				if (tl == null)
+					scratch = tl = new ThreadLocal<Scratch>();
+			}
+		}
+
+		Scratch sc = tl.get();
+		if (sc == null)
+		{
+			sc = new Scratch();
+			sc.visited = new int[treePre.length];
+			tl.set(sc);
+		}
+		if (++sc.stamp == Integer.MAX_VALUE)
+		{
+			Arrays.fill(sc.visited, 0);
+			sc.stamp = 1;
+		}
+
+		int current = sc.stamp;
+		int [] visited = sc.visited;
+		int [] stack = sc.stack;
+		int sp = 0;
+		stack[sp++] = source;
+		visited[source] = current;
+
+		while (sp > 0)
+		{
+			int v = stack[--sp];
+			for (int i = childOffsets[v]; i < childOffsets[v + 1]; i++)
+			{
+				int c = childTargets[i];
+				if (visited[c] == current)
+					continue;
+				visited[c] = current;
+
+				if (c == dest || inTree(c, dest))
+					return true;
+				if (excluded(c, dest))
+					continue;
+
+				if (sp == stack.length)
+					stack = sc.stack = Arrays.copyOf(stack, sp * 2);
+				stack[sp++] = c;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether there is a directed path from source to dest. A vertex
+	 * reaches itself.
+	 *
+	 * @param source
+	 * @param dest
+	 * @return whether dest can be reached from source. If one of the vertices is
+	 *  not known, false is returned.
+	 */
+	public boolean reaches(V source, V dest)
+	{
+		int s = mapper.getIndex(source);
+		int d = mapper.getIndex(dest);
+		if (s == -1 || d == -1)
+			return false;
+		return reaches(s, d);
+	}
+
+	/**
+	 * Create the reachability index from the children arrays of the vertices.
+	 *
+	 * @param mapper maps the vertices to indices
+	 * @param vertexChildren the indices of the children of each vertex
+	 * @return the index
+	 * @throws IllegalArgumentException if the graph contains a cycle
+	 */
+	public static <V> ReachabilityIndex<V> create(IntMapper<V> mapper, int [][] vertexChildren)
+	{
+		int n = vertexChildren.length;
+		int [] offsets = new int[n + 1];
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] = offsets[i] + vertexChildren[i].length;
+		int [] targets = new int[offsets[n]];
+		for (int i = 0; i < n; i++)
+			System.arraycopy(vertexChildren[i], 0, targets, offsets[i], vertexChildren[i].length);
+		return new ReachabilityIndex<V>(mapper, offsets, targets, DEFAULT_NUMBER_OF_LABELS);
+	}
+
+	/**
+	 * Create the reachability index for the given compact graph.
+	 *
+	 * @param graph the acyclic graph
+	 * @return the index
+	 * @throws IllegalArgumentException if the graph contains a cycle
+	 */
+	public static <V> ReachabilityIndex<V> create(CompactDirectedGraph<V,?> graph)
+	{
+		int n = graph.getNumberOfVertices();
+		int [] offsets = new int[n + 1];
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] = offsets[i] + graph.getOutDegree(i);
+		int [] targets = new int[offsets[n]];
+		for (int i = 0; i < n; i++)
+		{
+			for (int k = 0; k < offsets[i + 1] - offsets[i]; k++)
+				targets[offsets[i] + k] = graph.getChild(i, k);
+		}
+		return new ReachabilityIndex<V>(graph.getVertexMapper(), offsets, targets, DEFAULT_NUMBER_OF_LABELS);
+	}
+}
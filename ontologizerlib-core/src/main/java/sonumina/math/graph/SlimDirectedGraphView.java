@@ -6,7 +6,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import sonumina.collections.CompressedBitmap;
 import sonumina.collections.IntMapper;
 import sonumina.collections.Map;
 
@@ -20,10 +23,43 @@ public final class SlimDirectedGraphView<V> implements Serializable
 {
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Defines how the ancestors and descendants of the vertices
+	 * are represented.
+	 */
+	public static enum ClosureType
+	{
+		/** As sorted int arrays in vertexAncestors and vertexDescendants */
+		SORTED_ARRAYS,
+
+		/**
+		 * Only the ancestors are materialized as sorted int arrays in vertexAncestors,
+		 * vertexDescendants is null. Descendant queries are answered by the ancestors
+		 * or by a traversal.
+		 */
+		ANCESTOR_ARRAYS,
+
+		/** As compressed bitmaps, vertexAncestors and vertexDescendants are null */
+		BITMAPS,
+
+		/**
+		 * Closures are not materialized, vertexAncestors and vertexDescendants are null.
+		 * Ancestor queries are answered by a reachability index.
+		 */
+		REACHABILITY_INDEX,
+
+		/**
+		 * Only the parents and children are set up, vertexAncestors and vertexDescendants
+		 * are null. Ancestor and descendant queries are answered by a traversal.
+		 */
+		NONE
+	};
+
 	private IntMapper<V> mapper;
 
 	/** Contains all the ancestors of the terms (and the terms itself).
-	 * Note that the array of ancestors is sorted. */
+	 * Note that the array of ancestors is sorted. This is null if the
+	 * closure is represented as bitmaps. */
 	public int [][] vertexAncestors;
 
 	/** Contains the parents of the terms */
@@ -33,9 +69,22 @@ public final class SlimDirectedGraphView<V> implements Serializable
 	public int [][] vertexChildren;
 
 	/** Contains the descendants of the (i.e., children, grand-children, etc. and the term itself).
-	 * Note that the array of descendants is sorted.*/
+	 * Note that the array of descendants is sorted. This is null if the
+	 * closure is represented as bitmaps or if only ancestors are materialized. */
 	public int [][] vertexDescendants;
 
+	/** The ancestors of the vertices (including the vertices itself) or null */
+	private CompressedBitmap [] ancestorBitmaps;
+
+	/** The descendants of the vertices (including the vertices itself) or null */
+	private CompressedBitmap [] descendantBitmaps;
+
+	/** The reachability index used to answer ancestor queries or null */
+	private ReachabilityIndex<?> reachabilityIndex;
+
+	/** Per-thread buffer for intersecting ancestor bitmaps, created on demand */
+	private transient volatile ThreadLocal<int []> intersectionBuffer;
+
 	/**
 	 * Default constructor.
 	 */
@@ -103,6 +152,13 @@ public final class SlimDirectedGraphView<V> implements Serializable
 	 */
 	public boolean isAncestor(int i, int j)
 	{
+		if (ancestorBitmaps != null)
+			return ancestorBitmaps[j].contains(i);
+		if (reachabilityIndex != null)
+			return reachabilityIndex.reaches(i, j);
+		if (vertexAncestors == null)
+			return Arrays.binarySearch(collectClosure(j, vertexParents), i) >= 0;
+
 		int [] ancs = vertexAncestors[j];
 		int r 		=  Arrays.binarySearch(ancs,i);
 		return r >= 0;
@@ -120,6 +176,13 @@ public final class SlimDirectedGraphView<V> implements Serializable
 	 */
 	public boolean isDescendant(int i, int j)
 	{
+		if (descendantBitmaps != null)
+			return descendantBitmaps[j].contains(i);
+		if (reachabilityIndex != null)
+			return reachabilityIndex.reaches(j, i);
+		if (vertexDescendants == null)
+			return isAncestor(j, i);
+
 		int [] descs 	= vertexDescendants[j];
 		int r 			= Arrays.binarySearch(descs,i);
 		return r >= 0;
@@ -181,7 +244,7 @@ public final class SlimDirectedGraphView<V> implements Serializable
 		/* get the index of the vertex */
 		int indexOfTerm 						= getVertexIndex(t);
 		/* get all descendent indices of the vertex */
-		int[] descendantIndices					= vertexDescendants[indexOfTerm];
+		int[] descendantIndices					= getDescendantIndices(indexOfTerm);
 
 		/* init the return list of vertex-objects */
 		ArrayList<V> descendantObjects = new ArrayList<V>(descendantIndices.length);
@@ -206,7 +269,7 @@ public final class SlimDirectedGraphView<V> implements Serializable
 		/* get the index of the vertex */
 		int indexOfTerm 							= getVertexIndex(t);
 		/* get all descendent indices of the vertex */
-		int[] ancestorIndices					= vertexAncestors[indexOfTerm];
+		int[] ancestorIndices					= getAncestorIndices(indexOfTerm);
 
 		/* init the return list of vertex-objects */
 		ArrayList<V> ancestorObjects 	= new ArrayList<V>(ancestorIndices.length);
@@ -219,6 +282,424 @@ public final class SlimDirectedGraphView<V> implements Serializable
 		return ancestorObjects;
 	}
 
+	/**
+	 * Returns the sorted indices of the ancestors of the vertex with the given
+	 * index. Note that the ancestors include the vertex itself. If the
+	 * ancestors are not materialized, they are determined by a traversal.
+	 *
+	 * @param i the index of the vertex
+	 * @return the indices of the ancestors
+	 */
+	public int [] getAncestorIndices(int i)
+	{
+		if (ancestorBitmaps != null)
+			return ancestorBitmaps[i].toArray();
+		if (reachabilityIndex != null || vertexAncestors == null)
+			return collectClosure(i, vertexParents);
+		return vertexAncestors[i];
+	}
+
+	/**
+	 * Returns the sorted indices of the descendants of the vertex with the given
+	 * index. Note that the descendants include the vertex itself. If the
+	 * descendants are not materialized, they are determined by a traversal.
+	 *
+	 * @param i the index of the vertex
+	 * @return the indices of the descendants
+	 */
+	public int [] getDescendantIndices(int i)
+	{
+		if (descendantBitmaps != null)
+			return descendantBitmaps[i].toArray();
+		if (reachabilityIndex != null || vertexDescendants == null)
+			return collectClosure(i, vertexChildren);
+		return vertexDescendants[i];
+	}
+
+	/**
+	 * Determine the closure of the vertex with the given index along the
+	 * given neighbours.
+	 *
+	 * @param i the index of the vertex
+	 * @param neighbours the neighbours of each vertex
+	 * @return the sorted indices of the vertices that are reachable including i.
+	 */
+	private int [] collectClosure(int i, int [][] neighbours)
+	{
+		boolean [] visited = new boolean[neighbours.length];
+		int [] queue = new int[neighbours.length];
+		int head = 0;
+		int tail = 0;
+
+		queue[tail++] = i;
+		visited[i] = true;
+		while (head < tail)
+		{
+			for (int n : neighbours[queue[head++]])
+			{
+				if (!visited[n])
+				{
+					visited[n] = true;
+					queue[tail++] = n;
+				}
+			}
+		}
+
+		int [] closure = Arrays.copyOf(queue, tail);
+		Arrays.sort(closure);
+		return closure;
+	}
+
+	/**
+	 * @return the reachability index or null if the closures are materialized.
+	 */
+	public ReachabilityIndex<?> getReachabilityIndex()
+	{
+		return reachabilityIndex;
+	}
+
+	/**
+	 * Returns the ancestors of the vertex with the given index as bitmap.
+	 * If the closure is not represented as bitmaps, a new bitmap is created.
+	 *
+	 * @param i the index of the vertex
+	 * @return the ancestors including the vertex itself
+	 */
+	public CompressedBitmap getAncestorBitmap(int i)
+	{
+		if (ancestorBitmaps != null)
+			return ancestorBitmaps[i];
+		return CompressedBitmap.of(getAncestorIndices(i));
+	}
+
+	/**
+	 * Returns the descendants of the vertex with the given index as bitmap.
+	 * If the closure is not represented as bitmaps, a new bitmap is created.
+	 *
+	 * @param i the index of the vertex
+	 * @return the descendants including the vertex itself
+	 */
+	public CompressedBitmap getDescendantBitmap(int i)
+	{
+		if (descendantBitmaps != null)
+			return descendantBitmaps[i];
+		return CompressedBitmap.of(getDescendantIndices(i));
+	}
+
+	/**
+	 * Returns the number of ancestors that the vertices with indices i and j
+	 * have in common.
+	 *
+	 * @param i
+	 * @param j
+	 * @return the number of common ancestors
+	 */
+	public int getNumberOfCommonAncestors(int i, int j)
+	{
+		if (ancestorBitmaps != null)
+			return ancestorBitmaps[i].andCardinality(ancestorBitmaps[j]);
+
+		int [] ai = getAncestorIndices(i);
+		int [] aj = getAncestorIndices(j);
+		int k = 0, l = 0, c = 0;
+		while (k < ai.length && l < aj.length)
+		{
+			if (ai[k] < aj[l]) k++;
+			else if (ai[k] > aj[l]) l++;
+			else
+			{
+				c++;
+				k++;
+				l++;
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Writes the sorted indices of the ancestors that the vertices with
+	 * indices i and j have in common into the given buffer. No memory is
+	 * allocated unless the closures are represented by the reachability index.
+	 *
+	 * @param i
+	 * @param j
+	 * @param buffer the buffer, which must be able to hold the ancestors of
+	 *  any of both vertices.
+	 * @return the number of common ancestors written into the buffer.
+	 */
+	public int getCommonAncestors(int i, int j, int [] buffer)
+	{
+		if (ancestorBitmaps != null)
+			return ancestorBitmaps[i].and(ancestorBitmaps[j], buffer);
+
+		int [] ai = getAncestorIndices(i);
+		int [] aj = getAncestorIndices(j);
+		int k = 0, l = 0, c = 0;
+		while (k < ai.length && l < aj.length)
+		{
+			if (ai[k] < aj[l]) k++;
+			else if (ai[k] > aj[l]) l++;
+			else
+			{
+				buffer[c++] = ai[k];
+				k++;
+				l++;
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Returns the common ancestors of the vertices with indices i and j using
+	 * a buffer of the current thread. Only for the bitmap representation.
+	 *
+	 * @return the buffer, the number of valid entries is stored in the last
+	 *  slot of the returned array.
+	 */
+	private int [] commonAncestorBitmapsIntoBuffer(int i, int j)
+	{
+		ThreadLocal<int []> tl = intersectionBuffer;
+		if (tl == null)
+		{
+			synchronized (this)
+			{
+				tl = intersectionBuffer;
+				if (tl == null)
+					intersectionBuffer = tl = new ThreadLocal<int []>();
+			}
+		}
+
+		int needed = Math.min(ancestorBitmaps[i].cardinality(), ancestorBitmaps[j].cardinality()) + 1;
+		int [] buffer = tl.get();
+		if (buffer == null || buffer.length < needed)
+		{
+			buffer = new int[Math.max(needed, 64)];
+			tl.set(buffer);
+		}
+		buffer[buffer.length - 1] = ancestorBitmaps[i].and(ancestorBitmaps[j], buffer);
+		return buffer;
+	}
+
+	/**
+	 * Returns the most informative common ancestor (MICA) of the vertices with
+	 * indices i and j, i.e., the common ancestor with the highest information
+	 * content. Ties are resolved in favour of the smaller index.
+	 *
+	 * @param i
+	 * @param j
+	 * @param ic the information content of each vertex indexed by the vertex index.
+	 * @return the index of the MICA or -1 if the vertices have no common ancestor.
+	 */
+	public int getMostInformativeCommonAncestor(int i, int j, double [] ic)
+	{
+		int best = -1;
+		double bestIC = Double.NEGATIVE_INFINITY;
+
+		if (ancestorBitmaps != null)
+		{
+			int [] buffer = commonAncestorBitmapsIntoBuffer(i, j);
+			int n = buffer[buffer.length - 1];
+			for (int k = 0; k < n; k++)
+			{
+				int v = buffer[k];
+				if (best == -1 || ic[v] > bestIC)
+				{
+					best = v;
+					bestIC = ic[v];
+				}
+			}
+			return best;
+		}
+
+		int [] ai = getAncestorIndices(i);
+		int [] aj = getAncestorIndices(j);
+		int k = 0, l = 0;
+		while (k < ai.length && l < aj.length)
+		{
+			if (ai[k] < aj[l]) k++;
+			else if (ai[k] > aj[l]) l++;
+			else
+			{
+				int v = ai[k];
+				if (best == -1 || ic[v] > bestIC)
+				{
+					best = v;
+					bestIC = ic[v];
+				}
+				k++;
+				l++;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the most informative common ancestor (MICA) of the vertices with
+	 * indices i and j for an integral information content.
+	 *
+	 * @param i
+	 * @param j
+	 * @param ic the information content of each vertex indexed by the vertex index.
+	 * @return the index of the MICA or -1 if the vertices have no common ancestor.
+	 * @see #getMostInformativeCommonAncestor(int, int, double[])
+	 */
+	public int getMostInformativeCommonAncestor(int i, int j, int [] ic)
+	{
+		int best = -1;
+		int bestIC = Integer.MIN_VALUE;
+
+		if (ancestorBitmaps != null)
+		{
+			int [] buffer = commonAncestorBitmapsIntoBuffer(i, j);
+			int n = buffer[buffer.length - 1];
+			for (int k = 0; k < n; k++)
+			{
+				int v = buffer[k];
+				if (best == -1 || ic[v] > bestIC)
+				{
+					best = v;
+					bestIC = ic[v];
+				}
+			}
+			return best;
+		}
+
+		int [] ai = getAncestorIndices(i);
+		int [] aj = getAncestorIndices(j);
+		int k = 0, l = 0;
+		while (k < ai.length && l < aj.length)
+		{
+			if (ai[k] < aj[l]) k++;
+			else if (ai[k] > aj[l]) l++;
+			else
+			{
+				int v = ai[k];
+				if (best == -1 || ic[v] > bestIC)
+				{
+					best = v;
+					bestIC = ic[v];
+				}
+				k++;
+				l++;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Action to determine the MICAs of a range of vertex pairs.
+	 */
+	private static final class MicaAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final SlimDirectedGraphView<?> slim;
+		private final int [] first;
+		private final int [] second;
+		private final double [] doubleIC;
+		private final int [] intIC;
+		private final int [] micas;
+		private final int from;
+		private final int to;
+
+		public MicaAction(SlimDirectedGraphView<?> slim, int [] first, int [] second, double [] doubleIC, int [] intIC, int [] micas, int from, int to)
+		{
+			this.slim = slim;
+			this.first = first;
+			this.second = second;
+			this.doubleIC = doubleIC;
+			this.intIC = intIC;
+			this.micas = micas;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= PARALLEL_THRESHOLD)
+			{
+				computeDirectly();
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new MicaAction(slim, first, second, doubleIC, intIC, micas, from, mid),
+					new MicaAction(slim, first, second, doubleIC, intIC, micas, mid, to));
+		}
+
+		public void computeDirectly()
+		{
+			for (int k = from; k < to; k++)
+			{
+				if (doubleIC != null) micas[k] = slim.getMostInformativeCommonAncestor(first[k], second[k], doubleIC);
+				else micas[k] = slim.getMostInformativeCommonAncestor(first[k], second[k], intIC);
+			}
+		}
+	}
+
+	private int [] getMostInformativeCommonAncestors(int [] first, int [] second, double [] doubleIC, int [] intIC, ForkJoinPool pool)
+	{
+		if (first.length != second.length)
+			throw new IllegalArgumentException("Both index arrays must have the same length");
+
+		int [] micas = new int[first.length];
+		MicaAction action = new MicaAction(this, first, second, doubleIC, intIC, micas, 0, first.length);
+		if (pool == null) action.computeDirectly();
+		else pool.invoke(action);
+		return micas;
+	}
+
+	/**
+	 * Returns the most informative common ancestors of many pairs of
+	 * vertices. The pair k consists of the vertices with indices first[k]
+	 * and second[k].
+	 *
+	 * @param first the indices of the first vertices of the pairs
+	 * @param second the indices of the second vertices of the pairs
+	 * @param ic the information content of each vertex indexed by the vertex index.
+	 * @param pool the pool in which the pairs are processed in parallel. If null,
+	 *  all pairs are processed in the current thread.
+	 * @return the indices of the MICAs, -1 for pairs without common ancestor.
+	 */
+	public int [] getMostInformativeCommonAncestors(int [] first, int [] second, double [] ic, ForkJoinPool pool)
+	{
+		return getMostInformativeCommonAncestors(first, second, ic, null, pool);
+	}
+
+	/**
+	 * Returns the most informative common ancestors of many pairs of
+	 * vertices for an integral information content.
+	 *
+	 * @param first the indices of the first vertices of the pairs
+	 * @param second the indices of the second vertices of the pairs
+	 * @param ic the information content of each vertex indexed by the vertex index.
+	 * @param pool the pool in which the pairs are processed in parallel. If null,
+	 *  all pairs are processed in the current thread.
+	 * @return the indices of the MICAs, -1 for pairs without common ancestor.
+	 * @see #getMostInformativeCommonAncestors(int[], int[], double[], ForkJoinPool)
+	 */
+	public int [] getMostInformativeCommonAncestors(int [] first, int [] second, int [] ic, ForkJoinPool pool)
+	{
+		return getMostInformativeCommonAncestors(first, second, null, ic, pool);
+	}
+
+	/**
+	 * @return the representation of the closures.
+	 */
+	public ClosureType getClosureType()
+	{
+		if (ancestorBitmaps != null)
+			return ClosureType.BITMAPS;
+		if (reachabilityIndex != null)
+			return ClosureType.REACHABILITY_INDEX;
+		if (vertexAncestors == null)
+			return ClosureType.NONE;
+		if (vertexDescendants == null)
+			return ClosureType.ANCESTOR_ARRAYS;
+		return ClosureType.SORTED_ARRAYS;
+	}
+
 	/**
 	 * Checks if a given vertex can be found in the graph.
 	 * @param The vertex to be searched.
@@ -270,8 +751,11 @@ public final class SlimDirectedGraphView<V> implements Serializable
 	 *
 	 * @param slim
 	 * @param graph
+	 * @param closureType
+	 * @param topological whether the closures shall be determined in topological order
+	 * @param pool the pool used for determining the closures in parallel or null.
 	 */
-	private static <V,ED> void init(SlimDirectedGraphView<V> slim, DirectedGraph<V,ED> graph)
+	private static <V,ED> void init(SlimDirectedGraphView<V> slim, DirectedGraph<V,ED> graph, ClosureType closureType, boolean topological, ForkJoinPool pool)
 	{
 		int i;
 		IntMapper<V> mapper;
@@ -287,6 +771,29 @@ public final class SlimDirectedGraphView<V> implements Serializable
 			slim.vertexParents[i] = createIndexArray(mapper,graph.getParentNodes(v));
 		}
 
+		/* Term children stuff */
+		slim.vertexChildren = new int[mapper.getSize()][];
+		for (i=0;i<mapper.getSize();i++)
+		{
+			V v = mapper.get(i);
+			slim.vertexChildren[i] = createIndexArray(mapper,graph.getChildNodes(v));
+		}
+
+		if (closureType == ClosureType.NONE)
+			return;
+
+		if (closureType == ClosureType.REACHABILITY_INDEX)
+		{
+			slim.reachabilityIndex = ReachabilityIndex.create(mapper, slim.vertexChildren);
+			return;
+		}
+
+		if (closureType == ClosureType.BITMAPS || topological)
+		{
+			initTopologicalClosures(slim, closureType, pool);
+			return;
+		}
+
 		/* Term ancestor stuff */
 		slim.vertexAncestors = new int[mapper.getSize()][];
 		for (i=0;i<slim.mapper.getSize();i++)
@@ -306,13 +813,8 @@ public final class SlimDirectedGraphView<V> implements Serializable
 			Arrays.sort(slim.vertexAncestors[i]);
 		}
 
-		/* Term children stuff */
-		slim.vertexChildren = new int[mapper.getSize()][];
-		for (i=0;i<mapper.getSize();i++)
-		{
-			V v = mapper.get(i);
-			slim.vertexChildren[i] = createIndexArray(mapper,graph.getChildNodes(v));
-		}
+		if (closureType == ClosureType.ANCESTOR_ARRAYS)
+			return;
 
 		/* Term descendants stuff */
 		slim.vertexDescendants = new int[mapper.getSize()][];
@@ -334,6 +836,191 @@ public final class SlimDirectedGraphView<V> implements Serializable
 		}
 	}
 
+	/** Levels with fewer vertices than this are processed sequentially */
+	private static final int PARALLEL_THRESHOLD = 256;
+
+	/**
+	 * Determines the closures of a range of vertices of a single topological
+	 * level. As vertices on the same level don't depend on each other, the
+	 * range is split and processed in parallel if it is large enough.
+	 */
+	private static final class ClosureAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final SlimDirectedGraphView<?> slim;
+		private final ClosureType closureType;
+		private final boolean ancestors;
+		private final int [] vertices;
+		private final int from;
+		private final int to;
+
+		public ClosureAction(SlimDirectedGraphView<?> slim, ClosureType closureType, boolean ancestors, int [] vertices, int from, int to)
+		{
+			this.slim = slim;
+			this.closureType = closureType;
+			this.ancestors = ancestors;
+			this.vertices = vertices;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= PARALLEL_THRESHOLD)
+			{
+				computeDirectly();
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new ClosureAction(slim, closureType, ancestors, vertices, from, mid),
+					new ClosureAction(slim, closureType, ancestors, vertices, mid, to));
+		}
+
+		/**
+		 * Determine the closures of all vertices of the range in the current thread.
+		 */
+		public void computeDirectly()
+		{
+			int [][] neighbours = ancestors ? slim.vertexParents : slim.vertexChildren;
+
+			if (closureType == ClosureType.BITMAPS)
+			{
+				CompressedBitmap [] closures = ancestors ? slim.ancestorBitmaps : slim.descendantBitmaps;
+				CompressedBitmap.Builder builder = new CompressedBitmap.Builder();
+
+				for (int i = from; i < to; i++)
+				{
+					int v = vertices[i];
+					builder.clear();
+					builder.add(v);
+					for (int n : neighbours[v])
+						builder.addAll(closures[n]);
+					closures[v] = builder.build();
+				}
+				return;
+			}
+
+			int [][] closures = ancestors ? slim.vertexAncestors : slim.vertexDescendants;
+			int [] cur = new int[64];
+			int [] next = new int[64];
+
+			for (int i = from; i < to; i++)
+			{
+				int v = vertices[i];
+				int len = 1;
+				cur[0] = v;
+
+				/* Merge the sorted closures of all neighbours */
+				for (int n : neighbours[v])
+				{
+					int [] nc = closures[n];
+					if (next.length < len + nc.length)
+						next = new int[Math.max(len + nc.length, next.length * 2)];
+
+					int a = 0, b = 0, k = 0;
+					while (a < len && b < nc.length)
+					{
+						if (cur[a] < nc[b]) next[k++] = cur[a++];
+						else if (cur[a] > nc[b]) next[k++] = nc[b++];
+						else
+						{
+							next[k++] = cur[a++];
+							b++;
+						}
+					}
+					while (a < len) next[k++] = cur[a++];
+					while (b < nc.length) next[k++] = nc[b++];
+
+					int [] tmp = cur;
+					cur = next;
+					next = tmp;
+					len = k;
+				}
+				closures[v] = Arrays.copyOf(cur, len);
+			}
+		}
+	}
+
+	/**
+	 * Initialize the ancestor and, unless only ancestors are requested, the
+	 * descendant closures. The vertices are processed
+	 * in topological order such that the closure of a vertex can be determined
+	 * by merging the closures of its parents (or children respectively). Vertices
+	 * are grouped into levels, i.e., the length of the longest path from a source,
+	 * and vertices of the same level are processed in parallel if a pool is given.
+	 *
+	 * @param slim the slim view whose parents and children are already set up.
+	 * @param closureType the representation of the closures
+	 * @param pool the pool that is used for the parallel processing or null.
+	 */
+	private static <V> void initTopologicalClosures(SlimDirectedGraphView<V> slim, ClosureType closureType, ForkJoinPool pool)
+	{
+		int numVertices = slim.mapper.getSize();
+		int [] order = Algorithms.topologicalOrder(slim.vertexParents, slim.vertexChildren);
+		if (order.length != numVertices)
+			throw new IllegalArgumentException("Closures can be only created in topological order for acyclic graphs");
+
+		/* Determine the level of each vertex */
+		int [] level = new int[numVertices];
+		int numLevels = 0;
+		for (int v : order)
+		{
+			int l = 0;
+			for (int p : slim.vertexParents[v])
+				l = Math.max(l, level[p] + 1);
+			level[v] = l;
+			numLevels = Math.max(numLevels, l + 1);
+		}
+
+		/* Group the vertices by their level */
+		int [] levelStart = new int[numLevels + 1];
+		for (int v = 0; v < numVertices; v++)
+			levelStart[level[v] + 1]++;
+		for (int l = 0; l < numLevels; l++)
+			levelStart[l + 1] += levelStart[l];
+		int [] levelVertices = new int[numVertices];
+		int [] fill = Arrays.copyOf(levelStart, numLevels);
+		for (int v : order)
+			levelVertices[fill[level[v]]++] = v;
+
+		if (closureType == ClosureType.BITMAPS)
+		{
+			slim.ancestorBitmaps = new CompressedBitmap[numVertices];
+			slim.descendantBitmaps = new CompressedBitmap[numVertices];
+		} else
+		{
+			slim.vertexAncestors = new int[numVertices][];
+			if (closureType != ClosureType.ANCESTOR_ARRAYS)
+				slim.vertexDescendants = new int[numVertices][];
+		}
+
+		for (int l = 0; l < numLevels; l++)
+			runLevel(new ClosureAction(slim, closureType, true, levelVertices, levelStart[l], levelStart[l + 1]), pool);
+
+		if (closureType == ClosureType.ANCESTOR_ARRAYS)
+			return;
+
+		for (int l = numLevels - 1; l >= 0; l--)
+			runLevel(new ClosureAction(slim, closureType, false, levelVertices, levelStart[l], levelStart[l + 1]), pool);
+	}
+
+	/**
+	 * Run the given action either directly or within the given pool.
+	 *
+	 * @param action
+	 * @param pool
+	 */
+	private static void runLevel(ClosureAction action, ForkJoinPool pool)
+	{
+		if (pool == null || action.to - action.from <= PARALLEL_THRESHOLD)
+			action.computeDirectly();
+		else
+			pool.invoke(action);
+	}
+
 	/**
 	 * Creates an index array from the given vertex iterator.
 	 *
@@ -365,12 +1052,142 @@ public final class SlimDirectedGraphView<V> implements Serializable
 	 * @return the slim graph corresponding to graph
 	 */
 	public static <V,ED> SlimDirectedGraphView<V> create(DirectedGraph<V,ED> graph)
+	{
+		return create(graph, ClosureType.SORTED_ARRAYS);
+	}
+
+	/**
+	 * Create the slim view from the given directed graph using the given
+	 * representation of the closures.
+	 *
+	 * @param graph
+	 * @param closureType defines how ancestors and descendants are represented.
+	 *  Bitmaps and the reachability index require the graph to be acyclic.
+	 * @return the slim graph corresponding to graph
+	 */
+	public static <V,ED> SlimDirectedGraphView<V> create(DirectedGraph<V,ED> graph, ClosureType closureType)
 	{
 		SlimDirectedGraphView<V> g = new SlimDirectedGraphView<V>();
-		init(g, graph);
+		init(g, graph, closureType, false, null);
 		return g;
 	}
 
+	/**
+	 * Create the slim view from the given acyclic directed graph. The closures
+	 * are determined in topological order by merging the already determined
+	 * closures of the parents (or children respectively) rather than by a
+	 * breadth-first search for every vertex.
+	 *
+	 * @param graph the acyclic graph
+	 * @param closureType defines how ancestors and descendants are represented.
+	 * @param pool the pool that is used to process vertices that are on the same
+	 *  topological level in parallel. If null, all vertices are processed in
+	 *  the calling thread.
+	 * @return the slim graph corresponding to graph
+	 * @throws IllegalArgumentException if the graph contains a cycle.
+	 */
+	public static <V,ED> SlimDirectedGraphView<V> create(DirectedGraph<V,ED> graph, ClosureType closureType, ForkJoinPool pool)
+	{
+		SlimDirectedGraphView<V> g = new SlimDirectedGraphView<V>();
+		init(g, graph, closureType, true, pool);
+		return g;
+	}
+
+	/**
+	 * Create the slim view from the given acyclic compact graph. The vertex
+	 * indices of the view are the ids of the compact graph. The closures are
+	 * determined in topological order.
+	 *
+	 * @param graph the acyclic graph
+	 * @param filter the filter that defines the edges to be left out or null
+	 *  if all edges shall be included.
+	 * @param closureType defines how ancestors and descendants are represented.
+	 * @param pool the pool that is used for the parallel construction or null.
+	 * @return the slim graph corresponding to graph
+	 * @throws IllegalArgumentException if the graph contains a cycle.
+	 * @see #create(DirectedGraph, ClosureType, ForkJoinPool)
+	 */
+	public static <V,ED> SlimDirectedGraphView<V> create(CompactDirectedGraph<V,ED> graph, IEdgeFilter<ED> filter, ClosureType closureType, ForkJoinPool pool)
+	{
+		SlimDirectedGraphView<V> slim = new SlimDirectedGraphView<V>();
+		initNeighbours(slim, graph, filter);
+
+		if (closureType == ClosureType.REACHABILITY_INDEX)
+			slim.reachabilityIndex = ReachabilityIndex.create(slim.mapper, slim.vertexChildren);
+		else if (closureType != ClosureType.NONE)
+			initTopologicalClosures(slim, closureType, pool);
+		return slim;
+	}
+
+	/**
+	 * Create the slim view from the given compact graph and the already
+	 * determined ancestors of its vertices, e.g., as read from a serialized
+	 * representation. The vertex indices of the view are the ids of the
+	 * compact graph. Only the ancestors are materialized, i.e., the closure
+	 * type of the view is {@link ClosureType#ANCESTOR_ARRAYS}.
+	 *
+	 * @param graph the acyclic graph
+	 * @param vertexAncestors the sorted ids of the ancestors of each vertex
+	 *  including the vertex itself. The array is used as is, i.e., it is not
+	 *  copied.
+	 * @return the slim graph corresponding to graph
+	 * @throws IllegalArgumentException if the number of ancestor lists doesn't
+	 *  match the number of vertices.
+	 */
+	public static <V,ED> SlimDirectedGraphView<V> create(CompactDirectedGraph<V,ED> graph, int [][] vertexAncestors)
+	{
+		if (vertexAncestors.length != graph.getNumberOfVertices())
+			throw new IllegalArgumentException("The number of ancestor lists doesn't match the number of vertices");
+
+		SlimDirectedGraphView<V> slim = new SlimDirectedGraphView<V>();
+		initNeighbours(slim, graph, null);
+		slim.vertexAncestors = vertexAncestors;
+		return slim;
+	}
+
+	/**
+	 * Initializes the mapper, the parents and the children of the given view
+	 * from the given compact graph.
+	 *
+	 * @param slim the view to be initialized
+	 * @param graph the graph
+	 * @param filter the filter that defines the edges to be left out or null
+	 *  if all edges shall be included.
+	 */
+	private static <V,ED> void initNeighbours(SlimDirectedGraphView<V> slim, CompactDirectedGraph<V,ED> graph, IEdgeFilter<ED> filter)
+	{
+		int numVertices = graph.getNumberOfVertices();
+		int [] buf = new int[16];
+
+		slim.mapper = graph.getVertexMapper();
+		slim.vertexParents = new int[numVertices][];
+		slim.vertexChildren = new int[numVertices][];
+		for (int i = 0; i < numVertices; i++)
+		{
+			int deg = graph.getInDegree(i);
+			if (buf.length < deg)
+				buf = new int[deg];
+			int num = 0;
+			for (int k = 0; k < deg; k++)
+			{
+				if (filter == null || !filter.leaveOut(graph.getInEdgeData(i, k)))
+					buf[num++] = graph.getParent(i, k);
+			}
+			slim.vertexParents[i] = Arrays.copyOf(buf, num);
+
+			deg = graph.getOutDegree(i);
+			if (buf.length < deg)
+				buf = new int[deg];
+			num = 0;
+			for (int k = 0; k < deg; k++)
+			{
+				if (filter == null || !filter.leaveOut(graph.getOutEdgeData(i, k)))
+					buf[num++] = graph.getChild(i, k);
+			}
+			slim.vertexChildren[i] = Arrays.copyOf(buf, num);
+		}
+	}
+
 	/**
 	 * Create the slim view from the given directed graph but apply a mapping of the underlying
 	 * type.
@@ -381,13 +1198,73 @@ public final class SlimDirectedGraphView<V> implements Serializable
 	 */
 	public static <K,ED, V> SlimDirectedGraphView<V> create(DirectedGraph<K,ED> graph, final Map<K,V> map)
 	{
-		final SlimDirectedGraphView<K> kg = create(graph);
+		return create(graph, map, ClosureType.SORTED_ARRAYS);
+	}
+
+	/**
+	 * Create the slim view from the given directed graph but apply a mapping of the underlying
+	 * type.
+	 *
+	 * @param graph the graph from which a static mapping
+	 * @param map mapping
+	 * @param closureType defines how ancestors and descendants are represented.
+	 * @return the slim graph view.
+	 */
+	public static <K,ED, V> SlimDirectedGraphView<V> create(DirectedGraph<K,ED> graph, final Map<K,V> map, ClosureType closureType)
+	{
+		return map(create(graph, closureType), map);
+	}
+
+	/**
+	 * Create the slim view from the given acyclic directed graph in topological
+	 * order but apply a mapping of the underlying type.
+	 *
+	 * @param graph the acyclic graph
+	 * @param map mapping
+	 * @param closureType defines how ancestors and descendants are represented.
+	 * @param pool the pool that is used for the parallel construction or null.
+	 * @return the slim graph view.
+	 * @see #create(DirectedGraph, ClosureType, ForkJoinPool)
+	 */
+	public static <K,ED, V> SlimDirectedGraphView<V> create(DirectedGraph<K,ED> graph, final Map<K,V> map, ClosureType closureType, ForkJoinPool pool)
+	{
+		return map(create(graph, closureType, pool), map);
+	}
+
+	/**
+	 * Create the slim view from the given acyclic compact graph but apply a
+	 * mapping of the underlying type. The vertex indices of the view are the
+	 * ids of the compact graph.
+	 *
+	 * @param graph the acyclic graph
+	 * @param map mapping
+	 * @return the slim graph view.
+	 * @see #create(CompactDirectedGraph, IEdgeFilter, ClosureType, ForkJoinPool)
+	 */
+	public static <K,ED, V> SlimDirectedGraphView<V> create(CompactDirectedGraph<K,ED> graph, final Map<K,V> map)
+	{
+		return map(create(graph, null, ClosureType.SORTED_ARRAYS, null), map);
+	}
+
+	/**
+	 * Create a slim view that shares the structure of the given view but whose
+	 * vertices are mapped.
+	 *
+	 * @param kg the view to be mapped
+	 * @param map mapping
+	 * @return the mapped slim graph view.
+	 */
+	private static <K,V> SlimDirectedGraphView<V> map(final SlimDirectedGraphView<K> kg, final Map<K,V> map)
+	{
 		SlimDirectedGraphView<V> vg = new SlimDirectedGraphView<V>();
 
 		vg.vertexAncestors = kg.vertexAncestors;
 		vg.vertexChildren = kg.vertexChildren;
 		vg.vertexDescendants = kg.vertexDescendants;
 		vg.vertexParents = kg.vertexParents;
+		vg.ancestorBitmaps = kg.ancestorBitmaps;
+		vg.descendantBitmaps = kg.descendantBitmaps;
+		vg.reachabilityIndex = kg.reachabilityIndex;
 
 		vg.mapper = IntMapper.create(new Iterable<V>()
 		{
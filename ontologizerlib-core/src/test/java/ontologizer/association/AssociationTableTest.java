@@ -0,0 +1,136 @@
+package ontologizer.association;
+
+import static ontologizer.types.ByteString.b;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ontologizer.ontology.TermID;
+
+public class AssociationTableTest
+{
+	private List<Association> assocs;
+	private AnnotationContext context;
+
+	private static String line(String objectId, String symbol, String qualifier, String term, String evidence, String aspect)
+	{
+		return "SGD\t" + objectId + "\t" + symbol + "\t" + qualifier + "\t" + term + "\tPMID:00000\t" + evidence + "\t\t" + aspect + "\t\t\tgene\ttaxon:4932\t20121212\tSGD";
+	}
+
+	@Before
+	public void setUp()
+	{
+		assocs = new ArrayList<Association>();
+		assocs.add(Association.createFromGAFLine(line("S1", "AAC1", "", "GO:0015886", "IPI", "P")));
+		assocs.add(Association.createFromGAFLine(line("S2", "AAC2", "NOT", "GO:0015886", "IDA", "F")));
+		assocs.add(Association.createFromGAFLine(line("S1", "AAC1", "", "GO:0005743", "IDA", "C")));
+		assocs.add(Association.createFromGAFLine(line("S1", "AAC1", "", "GO:0005743", "IEA", "C")));
+
+		AnnotationMapBuilder mapBuilder = new AnnotationMapBuilder();
+		for (Association a : assocs)
+			mapBuilder.add(a, a.getSynonyms(), 0);
+		mapBuilder.add(Association.createFromGAFLine(line("S3", "AAC3", "", "GO:0005743", "IDA", "C")), null, 0);
+		context = mapBuilder.build();
+	}
+
+	@Test
+	public void testCursor()
+	{
+		AssociationTable table = AssociationTable.create(assocs, context);
+		assertEquals(4, table.size());
+		assertEquals(2, table.getNumberOfTerms());
+
+		AssociationTable.Cursor c = table.cursor();
+		for (Association a : assocs)
+		{
+			assertTrue(c.next());
+			assertEquals(a.getObjectSymbol(), c.getObjectSymbol());
+			assertEquals(a.getDB_Object(), c.getDB_Object());
+			assertEquals(a.getTermID(), c.getTermID());
+			assertEquals(a.getTermID(), table.getTermID(c.getTermIndex()));
+			assertEquals(a.getEvidence(), c.getEvidence());
+			assertEquals(a.getAspect(), c.getAspect());
+			assertEquals(a.hasNotQualifier(), c.hasNotQualifier());
+
+			Association m = c.toAssociation();
+			assertEquals(a.getObjectSymbol(), m.getObjectSymbol());
+			assertEquals(a.getTermID(), m.getTermID());
+			assertEquals(a.hasNotQualifier(), m.hasNotQualifier());
+		}
+		assertFalse(c.next());
+
+		c.reset();
+		assertTrue(c.next());
+		assertEquals(0, c.getRow());
+	}
+
+	@Test
+	public void testItems()
+	{
+		AssociationTable table = AssociationTable.create(assocs, context);
+		int aac1 = context.mapSymbol(b("AAC1"));
+		int aac3 = context.mapSymbol(b("AAC3"));
+
+		assertEquals(3, table.getNumberOfRows(aac1));
+		assertEquals(0, table.getNumberOfRows(aac3));
+		assertNull(table.getItemAssociations(aac3));
+
+		AssociationTable.Cursor c = table.cursor(aac1);
+		int [] expectedRows = new int[]{0, 2, 3};
+		for (int row : expectedRows)
+		{
+			assertTrue(c.next());
+			assertEquals(row, c.getRow());
+			assertEquals(aac1, c.getItem());
+		}
+		assertFalse(c.next());
+
+		/* Duplicate terms are removed by ItemAssociations */
+		ItemAssociations ia = table.getItemAssociations(aac1);
+		assertEquals(2, ia.getAssociations().size());
+		assertEquals(new TermID("GO:0015886"), ia.getAssociations().get(0));
+	}
+
+	@Test
+	public void testContainer()
+	{
+		AssociationContainer expected = new AssociationContainer(assocs, context);
+		AssociationContainer actual = new AssociationContainer(AssociationTable.create(assocs, context));
+
+		assertEquals(expected.getAllAnnotatedGenes(), actual.getAllAnnotatedGenes());
+		assertEquals(expected.get(b("AAC1")).getAssociations(), actual.get(b("AAC1")).getAssociations());
+		assertEquals(expected.get(b("S2")).getAssociations(), actual.get(b("S2")).getAssociations());
+		assertNull(actual.get(b("AAC3")));
+		assertNull(actual.get(b("AAC4")));
+
+		/* Associations are not retained by the container */
+		assertNotSame(actual.get(b("AAC1")), actual.get(b("AAC1")));
+
+		/* Iteration covers all items, the ones without associations are empty */
+		int n = 0;
+		for (ItemAssociations ia : actual)
+		{
+			assertNotNull(ia);
+			assertEquals(context.getSymbols()[n], ia.name());
+			if (ia.name().equals(b("AAC3")))
+				assertEquals(0, ia.getAssociations().size());
+			n++;
+		}
+		assertEquals(context.getSymbols().length, n);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnknownItem()
+	{
+		new AssociationTable.Builder(context).add(context.getSymbols().length, new TermID("GO:0015886"), b("IDA"), b("P"), false);
+	}
+}
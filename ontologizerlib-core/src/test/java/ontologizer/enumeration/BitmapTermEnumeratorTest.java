@@ -0,0 +1,133 @@
+package ontologizer.enumeration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import ontologizer.association.Association;
+import ontologizer.association.ItemAssociations;
+import ontologizer.ontology.TermID;
+import ontologizer.types.ByteString;
+
+public class BitmapTermEnumeratorTest
+{
+	private static void assertSameElements(List<ByteString> expected, List<ByteString> actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		assertEquals(new HashSet<ByteString>(expected), new HashSet<ByteString>(actual));
+	}
+
+	@Test
+	public void testEnumeratorOnInternalOntology()
+	{
+		InternalOntology internal = new InternalOntology();
+		TermEnumerator e = new TermEnumerator(internal.graph);
+		BitmapTermEnumerator b = new BitmapTermEnumerator(internal.graph, internal.assoc.getMapping());
+		for (ItemAssociations g2a : internal.assoc)
+		{
+			e.push(g2a);
+			b.push(g2a);
+		}
+
+		assertEquals(e.getTotalNumberOfAnnotatedTerms(), b.getTotalNumberOfAnnotatedTerms());
+		assertEquals(500, b.getNumberOfItems());
+
+		List<TermID> terms = new ArrayList<TermID>();
+		for (TermID tid : b)
+			terms.add(tid);
+		assertEquals(e.getTotalNumberOfAnnotatedTerms(), terms.size());
+
+		for (TermID tid : e)
+		{
+			TermAnnotations expected = e.getAnnotatedGenes(tid);
+			TermAnnotations actual = b.getAnnotatedGenes(tid);
+			assertSameElements(expected.directAnnotated, actual.directAnnotated);
+			assertSameElements(expected.totalAnnotated, actual.totalAnnotated);
+			assertEquals(expected.totalAnnotatedCount(), b.getTotalAnnotatedCount(tid));
+			assertEquals(expected.directAnnotatedCount(), b.getDirectAnnotatedCount(tid));
+		}
+
+		/* Intersections */
+		for (TermID t1 : terms)
+		{
+			int i1 = b.getTermIndex(t1);
+			HashSet<ByteString> s1 = new HashSet<ByteString>(e.getAnnotatedGenes(t1).totalAnnotated);
+			for (TermID t2 : terms)
+			{
+				int i2 = b.getTermIndex(t2);
+				HashSet<ByteString> s2 = new HashSet<ByteString>(e.getAnnotatedGenes(t2).totalAnnotated);
+				s2.retainAll(s1);
+				assertEquals(s2.size(), b.getTotalAnnotatedIntersectionCount(i1, i2));
+			}
+		}
+	}
+
+	@Test
+	public void testItemIndices()
+	{
+		InternalOntology internal = new InternalOntology();
+		BitmapTermEnumerator b = new BitmapTermEnumerator(internal.graph, null);
+
+		/* Push in reverse order, so the lists must be sorted */
+		List<ItemAssociations> items = new ArrayList<ItemAssociations>();
+		for (ItemAssociations g2a : internal.assoc)
+			items.add(g2a);
+		for (int i = items.size() - 1; i >= 0; i--)
+			b.push(items.get(i));
+		int annotatedTerms = b.getTotalNumberOfAnnotatedTerms();
+		b.push(items.get(0));
+
+		assertEquals(items.size(), b.getNumberOfItems());
+		assertEquals(annotatedTerms, b.getTotalNumberOfAnnotatedTerms());
+
+		int root = b.getTermIndex(new TermID("GO:0000001"));
+		int [] total = b.getTotalAnnotated(root);
+		int count = b.getTotalAnnotatedCount(root);
+		assertEquals(items.size(), count);
+		for (int i = 0; i < count; i++)
+			assertEquals(i, total[i]);
+		assertEquals(items.get(items.size() - 1).name(), b.getItem(0));
+		assertEquals(0, b.getItemIndex(items.get(items.size() - 1).name()));
+
+		int [] study = new int[]{ 0, 1, 2, 3 };
+		assertEquals(4, b.getTotalAnnotatedIntersectionCount(root, study));
+		assertArrayEquals(study, Arrays.copyOf(total, 4));
+		assertEquals(-1, b.getTermIndex(new TermID("GO:9999999")));
+	}
+
+	@Test
+	public void testDuplicateAssociations()
+	{
+		InternalOntology internal = new InternalOntology();
+		TermID term = new TermID("GO:0000002");
+
+		/* ItemAssociations keeps a single association per term, so associations
+		 * of the same term with different evidences are pushed separately */
+		ItemAssociations exp = new ItemAssociations(new ByteString("item"));
+		exp.add(new Association(new ByteString("item"), term));
+		ItemAssociations iea = new ItemAssociations(new ByteString("item"));
+		iea.add(new Association(new ByteString("item"), term));
+
+		TermEnumerator e = new TermEnumerator(internal.graph);
+		BitmapTermEnumerator b = new BitmapTermEnumerator(internal.graph, null);
+		for (ItemAssociations item : Arrays.asList(exp, iea))
+		{
+			e.push(item);
+			b.push(item);
+		}
+
+		/* Direct annotations keep the duplicates, total annotations are distinct */
+		assertEquals(2, e.getAnnotatedGenes(term).directAnnotatedCount());
+		assertEquals(e.getAnnotatedGenes(term).directAnnotated, b.getAnnotatedGenes(term).directAnnotated);
+		assertEquals(2, b.getDirectAnnotatedCount(term));
+		assertEquals(1, b.getTotalAnnotatedCount(term));
+		assertEquals(1, b.getNumberOfItems());
+		assertEquals(e.getTotalNumberOfAnnotatedTerms(), b.getTotalNumberOfAnnotatedTerms());
+	}
+}
@@ -0,0 +1,185 @@
+package ontologizer.enumeration;
+
+import static ontologizer.types.ByteString.b;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import ontologizer.association.ItemAssociations;
+import ontologizer.ontology.TermID;
+import ontologizer.types.ByteString;
+
+public class TermEnumeratorCacheTest
+{
+	@Test
+	public void testHitsAndMisses()
+	{
+		InternalOntology internal = new InternalOntology();
+		TermEnumeratorCache cache = new TermEnumeratorCache(Long.MAX_VALUE);
+
+		TermEnumerator all = cache.get(internal.assoc, internal.graph, null, null);
+		assertEquals(11, all.getTotalNumberOfAnnotatedTerms());
+		assertSame(all, cache.get(internal.assoc, internal.graph, null, null));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertTrue(cache.getEstimatedBytes() > 0);
+
+		/* Different evidences are different keys, equal sets are the same */
+		Set<ByteString> exp = Collections.singleton(b("EXP"));
+		TermEnumerator experimental = cache.get(internal.assoc, internal.graph, exp, null);
+		assertNotSame(all, experimental);
+		assertEquals(0, experimental.getTotalNumberOfAnnotatedTerms());
+		assertSame(experimental, cache.get(internal.assoc, internal.graph, new HashSet<ByteString>(exp), null));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.size());
+
+		cache.invalidate(internal.assoc);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getEstimatedBytes());
+		assertNotSame(all, cache.get(internal.assoc, internal.graph, null, null));
+	}
+
+	@Test
+	public void testEviction()
+	{
+		InternalOntology internal = new InternalOntology();
+		TermEnumeratorCache single = new TermEnumeratorCache(Long.MAX_VALUE);
+		single.get(new Object(), internal.assoc, internal.graph, null, null);
+		long size = single.getEstimatedBytes();
+
+		/* Room for two enumerators including their populations */
+		TermEnumeratorCache cache = new TermEnumeratorCache(2 * size);
+		List<Object> populations = new ArrayList<Object>();
+		for (int i = 0; i < 3; i++)
+		{
+			Object population = new Object();
+			populations.add(population);
+			cache.get(population, internal.assoc, internal.graph, null, null);
+		}
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2 * size, cache.getEstimatedBytes());
+
+		/* Touch the second one, so the third one is evicted next */
+		cache.get(populations.get(1), internal.assoc, internal.graph, null, null);
+		cache.get(populations.get(0), internal.assoc, internal.graph, null, null);
+		assertEquals(2, cache.getEvictionCount());
+		cache.get(populations.get(1), internal.assoc, internal.graph, null, null);
+		assertEquals(2, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+	}
+
+	@Test
+	public void testPopulationBytes()
+	{
+		InternalOntology internal = new InternalOntology();
+		TermEnumeratorCache cache = new TermEnumeratorCache(Long.MAX_VALUE);
+
+		TermEnumerator all = cache.get(internal.assoc, internal.graph, null, null);
+		long populationBytes = cache.getEstimatedBytes() - all.estimateBytes();
+		assertTrue(populationBytes > 0);
+
+		/* The population is shared by both enumerators, so it is accounted once */
+		TermEnumerator experimental = cache.get(internal.assoc, internal.graph, Collections.singleton(b("EXP")), null);
+		assertEquals(all.estimateBytes() + experimental.estimateBytes() + populationBytes, cache.getEstimatedBytes());
+
+		cache.invalidate(internal.assoc);
+		assertEquals(0, cache.getEstimatedBytes());
+	}
+
+	@Test
+	public void testReadOnly()
+	{
+		InternalOntology internal = new InternalOntology();
+		TermEnumeratorCache cache = new TermEnumeratorCache(Long.MAX_VALUE);
+		TermEnumerator enumerator = cache.get(internal.assoc, internal.graph, null, null);
+
+		try
+		{
+			enumerator.push(new ItemAssociations(b("item")));
+			fail();
+		} catch (UnsupportedOperationException e)
+		{
+		}
+
+		try
+		{
+			enumerator.removeTerms(new TermEnumerator.IRemover()
+			{
+				@Override
+				public boolean remove(TermID tid, TermAnnotations tag)
+				{
+					return true;
+				}
+			});
+			fail();
+		} catch (UnsupportedOperationException e)
+		{
+		}
+
+		TermID tid = enumerator.iterator().next();
+		try
+		{
+			enumerator.getAnnotatedGenes(tid).totalAnnotated.clear();
+			fail();
+		} catch (UnsupportedOperationException e)
+		{
+		}
+
+		try
+		{
+			enumerator.getAnnotatedGenes(tid).directAnnotated.add(b("item"));
+			fail();
+		} catch (UnsupportedOperationException e)
+		{
+		}
+		assertEquals(11, enumerator.getTotalNumberOfAnnotatedTerms());
+	}
+
+	@Test
+	public void testConcurrentRequests() throws Exception
+	{
+		final InternalOntology internal = new InternalOntology();
+		final TermEnumeratorCache cache = new TermEnumeratorCache(Long.MAX_VALUE);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			List<Future<TermEnumerator>> futures = new ArrayList<Future<TermEnumerator>>();
+			for (int i = 0; i < 16; i++)
+			{
+				futures.add(executor.submit(new Callable<TermEnumerator>()
+				{
+					@Override
+					public TermEnumerator call()
+					{
+						return cache.get(internal.assoc, internal.graph, null, null);
+					}
+				}));
+			}
+			TermEnumerator first = futures.get(0).get();
+			for (Future<TermEnumerator> f : futures)
+				assertSame(first, f.get());
+		} finally
+		{
+			executor.shutdown();
+		}
+		assertEquals(1, cache.getMissCount());
+		assertEquals(15, cache.getHitCount());
+	}
+}
@@ -1,8 +1,13 @@
 package ontologizer.enumeration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -44,4 +49,114 @@ public class TermEnumeratorTest
 		TermEnumerator e = TermEnumerator.ontology(internal.graph).forAll(internal.assocList).build();
 		assertEnumerator(internal.assoc, e);
 	}
+
+	/**
+	 * Asserts that the enumerator contains the same terms and items as the
+	 * expected one, ignoring the order.
+	 */
+	private static void assertSameTerms(TermEnumerator expected, TermEnumerator actual)
+	{
+		assertEquals(expected.getAllAnnotatedTermsAsSet(), actual.getAllAnnotatedTermsAsSet());
+		for (TermID tid : expected)
+		{
+			TermAnnotations e = expected.getAnnotatedGenes(tid);
+			TermAnnotations a = actual.getAnnotatedGenes(tid);
+			assertEquals(e.directAnnotatedCount(), a.directAnnotatedCount());
+			assertEquals(e.totalAnnotatedCount(), a.totalAnnotatedCount());
+			assertEquals(new HashSet<ByteString>(e.directAnnotated), new HashSet<ByteString>(a.directAnnotated));
+			assertEquals(new HashSet<ByteString>(e.totalAnnotated), new HashSet<ByteString>(a.totalAnnotated));
+		}
+	}
+
+	private void assertAddRemove(InternalOntology internal)
+	{
+		List<ItemAssociations> items = new ArrayList<ItemAssociations>();
+		for (ItemAssociations g2a : internal.assoc)
+			items.add(g2a);
+
+		/* Start with the first half */
+		TermEnumerator e = new TermEnumerator(internal.graph, false, true);
+		for (int i = 0; i < items.size() / 2; i++)
+			assertTrue(e.add(items.get(i)));
+		assertFalse(e.add(items.get(0)));
+
+		/* Add the second half and remove every third item */
+		for (int i = items.size() / 2; i < items.size(); i++)
+			assertTrue(e.add(items.get(i)));
+		for (int i = 0; i < items.size(); i += 3)
+			assertTrue(e.remove(items.get(i).name()));
+		assertFalse(e.remove(items.get(0).name()));
+
+		TermEnumerator expected = new TermEnumerator(internal.graph);
+		for (int i = 0; i < items.size(); i++)
+		{
+			if (i % 3 != 0)
+				expected.push(items.get(i));
+		}
+		assertSameTerms(expected, e);
+		assertEquals(expected.getGenes(), new HashSet<ByteString>(e.getGenes()));
+
+		/* Removing all items leaves no annotated terms behind */
+		for (int i = 0; i < items.size(); i++)
+			e.remove(items.get(i).name());
+		assertEquals(0, e.getTotalNumberOfAnnotatedTerms());
+	}
+
+	@Test
+	public void testAddRemove()
+	{
+		InternalOntology internal = new InternalOntology();
+		assertAddRemove(internal);
+		internal.graph.freeze();
+		assertAddRemove(internal);
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testAddRequiresIncremental()
+	{
+		InternalOntology internal = new InternalOntology();
+		TermEnumerator e = new TermEnumerator(internal.graph);
+		e.add(internal.assoc.iterator().next());
+	}
+
+	@Test
+	public void testAddAfterRemoveTerms()
+	{
+		InternalOntology internal = new InternalOntology();
+		List<ItemAssociations> items = new ArrayList<ItemAssociations>();
+		for (ItemAssociations g2a : internal.assoc)
+			items.add(g2a);
+
+		final Set<TermID> removed = new HashSet<TermID>();
+		TermEnumerator e = TermEnumerator.ontology(internal.graph).incremental().build();
+		for (int i = 0; i < items.size() / 2; i++)
+			assertTrue(e.add(items.get(i)));
+		e.removeTerms(new TermEnumerator.IRemover()
+		{
+			@Override
+			public boolean remove(TermID tid, TermAnnotations tag)
+			{
+				if (tag.directAnnotatedCount() == 0)
+					return false;
+				removed.add(tid);
+				return true;
+			}
+		});
+		assertFalse(removed.isEmpty());
+		for (int i = items.size() / 2; i < items.size(); i++)
+			assertTrue(e.add(items.get(i)));
+
+		/* The removed terms stay removed while all others are complete */
+		TermEnumerator expected = new TermEnumerator(internal.graph);
+		for (ItemAssociations item : items)
+			expected.push(item);
+		Set<TermID> expectedTerms = expected.getAllAnnotatedTermsAsSet();
+		expectedTerms.removeAll(removed);
+		assertEquals(expectedTerms, e.getAllAnnotatedTermsAsSet());
+		for (TermID tid : e)
+		{
+			assertEquals(expected.getAnnotatedGenes(tid).directAnnotatedCount(), e.getAnnotatedGenes(tid).directAnnotatedCount());
+			assertEquals(expected.getAnnotatedGenes(tid).totalAnnotatedCount(), e.getAnnotatedGenes(tid).totalAnnotatedCount());
+		}
+	}
 }
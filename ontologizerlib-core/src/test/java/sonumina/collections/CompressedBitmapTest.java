@@ -0,0 +1,96 @@
+package sonumina.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class CompressedBitmapTest
+{
+	private static int [] toArray(TreeSet<Integer> set)
+	{
+		int [] a = new int[set.size()];
+		int i = 0;
+		for (int v : set)
+			a[i++] = v;
+		return a;
+	}
+
+	@Test
+	public void testSimple()
+	{
+		CompressedBitmap b = CompressedBitmap.of(5, 1, 70000, 3);
+		assertEquals(4, b.cardinality());
+		assertTrue(b.contains(1));
+		assertTrue(b.contains(70000));
+		assertFalse(b.contains(2));
+		assertFalse(b.contains(-1));
+		assertFalse(b.contains(4464));
+		assertArrayEquals(new int[]{1, 3, 5, 70000}, b.toArray());
+
+		CompressedBitmap c = CompressedBitmap.of(3, 4, 70000);
+		assertEquals(2, b.andCardinality(c));
+		assertEquals(5, b.orCardinality(c));
+		assertTrue(b.intersects(c));
+		assertFalse(b.intersects(CompressedBitmap.of(2, 4)));
+		assertArrayEquals(new int[]{3, 70000}, b.and(c).toArray());
+		assertArrayEquals(new int[]{1, 3, 4, 5, 70000}, b.or(c).toArray());
+		assertEquals(CompressedBitmap.EMPTY, b.and(CompressedBitmap.of(2)));
+	}
+
+	@Test
+	public void testRandomDenseAndSparse()
+	{
+		Random rnd = new Random(1);
+		TreeSet<Integer> s1 = new TreeSet<Integer>();
+		TreeSet<Integer> s2 = new TreeSet<Integer>();
+
+		/* Dense in the first chunk, sparse in the second and third one */
+		for (int i = 0; i < 20000; i++)
+			s1.add(rnd.nextInt(65536));
+		for (int i = 0; i < 1000; i++)
+			s1.add(65536 + rnd.nextInt(140000));
+		for (int i = 0; i < 3000; i++)
+			s2.add(rnd.nextInt(200000));
+
+		CompressedBitmap b1 = CompressedBitmap.of(toArray(s1));
+		CompressedBitmap b2 = CompressedBitmap.of(toArray(s2));
+		assertArrayEquals(toArray(s1), b1.toArray());
+		assertArrayEquals(toArray(s2), b2.toArray());
+
+		for (int i = 0; i < 200000; i++)
+			assertEquals(s1.contains(i), b1.contains(i));
+
+		TreeSet<Integer> and = new TreeSet<Integer>(s1);
+		and.retainAll(s2);
+		TreeSet<Integer> or = new TreeSet<Integer>(s1);
+		or.addAll(s2);
+
+		assertEquals(and.size(), b1.andCardinality(b2));
+		assertEquals(or.size(), b1.orCardinality(b2));
+		assertArrayEquals(toArray(and), b1.and(b2).toArray());
+		assertArrayEquals(toArray(or), b1.or(b2).toArray());
+		assertArrayEquals(toArray(and), b2.and(b1).toArray());
+
+		int [] buffer = new int[Math.min(b1.cardinality(), b2.cardinality())];
+		assertEquals(and.size(), b1.and(b2, buffer));
+		assertArrayEquals(toArray(and), Arrays.copyOf(buffer, and.size()));
+	}
+
+	@Test
+	public void testBuilderReuse()
+	{
+		CompressedBitmap.Builder builder = new CompressedBitmap.Builder();
+		CompressedBitmap a = builder.add(1).add(100000).build();
+		CompressedBitmap b = builder.clear().add(2).build();
+		assertArrayEquals(new int[]{1, 100000}, a.toArray());
+		assertArrayEquals(new int[]{2}, b.toArray());
+		assertEquals(CompressedBitmap.of(1, 2, 100000), builder.addAll(a).build());
+	}
+}
@@ -0,0 +1,71 @@
+package sonumina.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntIndexedHeapTest
+{
+	@Test
+	public void testDecreaseKey()
+	{
+		IntIndexedHeap heap = new IntIndexedHeap(2);
+		assertTrue(heap.offer(0, 10));
+		assertTrue(heap.offer(5, 3));
+		assertTrue(heap.offer(2, 7));
+		assertFalse(heap.offer(2, 8));
+		assertTrue(heap.offer(0, 1));
+		assertEquals(3, heap.size());
+		assertTrue(heap.contains(5));
+		assertFalse(heap.contains(4));
+		assertFalse(heap.contains(100));
+
+		assertEquals(1, heap.peekKey());
+		assertEquals(0, heap.poll());
+		assertEquals(5, heap.poll());
+		assertEquals(2, heap.poll());
+		assertEquals(7, heap.getKey(2));
+		assertTrue(heap.isEmpty());
+		assertFalse(heap.contains(0));
+	}
+
+	@Test
+	public void testRandom()
+	{
+		Random rnd = new Random(3);
+		int n = 1000;
+		int [] keys = new int[n];
+		Arrays.fill(keys, Integer.MAX_VALUE);
+		IntIndexedHeap heap = new IntIndexedHeap(16);
+
+		for (int i = 0; i < 5000; i++)
+		{
+			int id = rnd.nextInt(n);
+			int key = rnd.nextInt(100000);
+			heap.offer(id, key);
+			keys[id] = Math.min(keys[id], key);
+		}
+
+		int [] sorted = keys.clone();
+		Arrays.sort(sorted);
+		int i = 0;
+		while (!heap.isEmpty())
+		{
+			int key = heap.peekKey();
+			int id = heap.poll();
+			assertEquals(sorted[i++], key);
+			assertEquals(keys[id], key);
+		}
+		assertTrue(i == n || sorted[i] == Integer.MAX_VALUE);
+
+		heap.offer(3, 1);
+		heap.clear();
+		assertTrue(heap.isEmpty());
+		assertFalse(heap.contains(3));
+	}
+}
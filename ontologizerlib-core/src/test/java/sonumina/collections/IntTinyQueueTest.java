@@ -0,0 +1,36 @@
+package sonumina.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IntTinyQueueTest
+{
+	@Test
+	public void testWrapAndGrow()
+	{
+		IntTinyQueue queue = new IntTinyQueue(4);
+		int next = 0;
+		int expected = 0;
+
+		/* Interleave offers and polls so the ring wraps before it grows */
+		for (int round = 0; round < 10; round++)
+		{
+			for (int i = 0; i < round + 2; i++)
+				queue.offerInt(next++);
+			for (int i = 0; i < round; i++)
+				assertEquals(expected++, queue.pollInt());
+		}
+		assertEquals(next - expected, queue.size());
+		while (!queue.isEmpty())
+			assertEquals(expected++, queue.pollInt());
+		assertEquals(next, expected);
+
+		queue.offer(3);
+		assertEquals(Integer.valueOf(3), queue.poll());
+		queue.offerInt(1);
+		queue.clear();
+		assertTrue(queue.isEmpty());
+	}
+}
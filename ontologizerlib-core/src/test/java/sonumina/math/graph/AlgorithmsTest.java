@@ -0,0 +1,100 @@
+package sonumina.math.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class AlgorithmsTest
+{
+	/**
+	 * <pre>
+	 *   a
+	 *  / \
+	 * b   c
+	 *  \ / \
+	 *   d   e
+	 *   |
+	 *   f
+	 * </pre>
+	 */
+	private static DirectedGraph<TestData,Object> createGraph()
+	{
+		DirectedGraph<TestData,Object> graph = new DirectedGraph<TestData,Object>();
+		String [] names = new String[]{"a", "b", "c", "d", "e", "f"};
+		TestData [] v = new TestData[names.length];
+		for (int i = 0; i < names.length; i++)
+		{
+			v[i] = new TestData(names[i]);
+			graph.addVertex(v[i]);
+		}
+		graph.addEdge(v[0], v[1]);
+		graph.addEdge(v[0], v[2]);
+		graph.addEdge(v[1], v[3]);
+		graph.addEdge(v[2], v[3]);
+		graph.addEdge(v[2], v[4]);
+		graph.addEdge(v[3], v[5]);
+		return graph;
+	}
+
+	@Test
+	public void testIntSearches()
+	{
+		DirectedGraph<TestData,Object> graph = createGraph();
+		final CompactDirectedGraph<TestData,Object> cg = CompactDirectedGraph.create(graph);
+		IntSearchState state = new IntSearchState(1);
+
+		for (TestData t : graph)
+		{
+			/* The generic and the index-based bfs visit the vertices in the same order */
+			final List<TestData> visited = new ArrayList<TestData>();
+			Algorithms.bfs(cg.getVertexIndex(t), Grabbers.intOutGrabber(cg), new IntVisitor()
+			{
+				@Override
+				public boolean visited(int vertex)
+				{
+					visited.add(cg.getVertex(vertex));
+					return true;
+				}
+			}, state);
+			assertEquals(Algorithms.bfsOrder(Arrays.asList(t), Grabbers.outGrabber(graph)), visited);
+
+			final Set<TestData> up = new HashSet<TestData>();
+			Algorithms.dfs(cg.getVertexIndex(t), Grabbers.intInGrabber(cg), new IntVisitor()
+			{
+				@Override
+				public boolean visited(int vertex)
+				{
+					up.add(cg.getVertex(vertex));
+					return true;
+				}
+			}, state);
+			for (TestData s : graph)
+			{
+				assertEquals(graph.existsPath(s, t), up.contains(s));
+				assertEquals(up.contains(s), state.isVisited(cg.getVertexIndex(s)));
+			}
+		}
+
+		/* Stop after the first two vertices, i.e., a and b */
+		final int [] count = new int[1];
+		Algorithms.bfs(new int[]{0}, 1, Grabbers.intOutGrabber(cg), new IntVisitor()
+		{
+			@Override
+			public boolean visited(int vertex)
+			{
+				return ++count[0] < 2;
+			}
+		}, state);
+		assertEquals(2, count[0]);
+		assertTrue(state.isVisited(1));
+		assertFalse(state.isVisited(5));
+	}
+}
@@ -0,0 +1,283 @@
+package sonumina.math.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompactDirectedGraphTest
+{
+	private static <V> List<V> list(Iterable<V> iterable)
+	{
+		List<V> l = new ArrayList<V>();
+		for (V v : iterable)
+			l.add(v);
+		return l;
+	}
+
+	@Test
+	public void testCompactGraph()
+	{
+		DirectedGraph<TestData,String> graph = new DirectedGraph<TestData,String>();
+		TestData root = new TestData("root");
+		TestData a = new TestData("a");
+		TestData b = new TestData("b");
+		TestData c = new TestData("c");
+		TestData d = new TestData("d");
+		TestData e = new TestData("e");
+
+		graph.addVertex(root);
+		graph.addVertex(a);
+		graph.addVertex(b);
+		graph.addVertex(c);
+		graph.addVertex(d);
+
+		graph.addEdge(root, a, "is_a");
+		graph.addEdge(root, b, "is_a");
+		graph.addEdge(a, c, "part_of");
+		graph.addEdge(b, c, "is_a");
+		graph.addEdge(c, d);
+
+		CompactDirectedGraph<TestData,String> cg = CompactDirectedGraph.create(graph);
+		assertEquals(5, cg.getNumberOfVertices());
+		assertEquals(5, cg.getNumberOfEdges());
+
+		/* Vertex order is preserved */
+		Iterator<TestData> iter = graph.iterator();
+		for (int i = 0; i < cg.getNumberOfVertices(); i++)
+		{
+			assertEquals(iter.next(), cg.getVertex(i));
+			assertEquals(i, cg.getVertexIndex(cg.getVertex(i)));
+		}
+
+		for (TestData v : graph)
+		{
+			assertEquals(list(graph.getParentNodes(v)), list(cg.getParentNodes(v)));
+			assertEquals(list(graph.getChildNodes(v)), list(cg.getChildNodes(v)));
+			assertEquals(graph.getInDegree(v), cg.getInDegree(v));
+			assertEquals(graph.getOutDegree(v), cg.getOutDegree(v));
+		}
+
+		assertFalse(cg.containsVertex(e));
+		assertEquals(-1, cg.getInDegree(e));
+		assertEquals(-1, cg.getVertexIndex(e));
+
+		assertTrue(cg.hasEdge(a, c));
+		assertFalse(cg.hasEdge(c, a));
+		assertEquals("part_of", cg.getEdgeData(a, c));
+		assertEquals("is_a", cg.getEdgeData(b, c));
+		assertNull(cg.getEdgeData(c, d));
+		assertNull(cg.getEdgeData(root, d));
+
+		int ci = cg.getVertexIndex(c);
+		int [] buf = new int[2];
+		assertEquals(2, cg.getParents(ci, buf));
+		assertEquals(a, cg.getVertex(buf[0]));
+		assertEquals(b, cg.getVertex(buf[1]));
+		assertEquals("part_of", cg.getInEdgeData(ci, 0));
+		assertEquals("is_a", cg.getInEdgeData(ci, 1));
+		assertEquals(1, cg.getChildren(ci, buf));
+		assertEquals(d, cg.getVertex(buf[0]));
+
+		assertTrue(cg.existsPath(root, d));
+		assertFalse(cg.existsPath(d, root));
+	}
+
+	@Test
+	public void testCompactGraphFromParents()
+	{
+		TestData root = new TestData("root");
+		TestData a = new TestData("a");
+		TestData b = new TestData("b");
+		TestData c = new TestData("c");
+
+		TestData [] vertices = new TestData[]{c, root, b, a};
+		int [][] parents = new int[][]{{3, 2}, {}, {1}, {1}};
+		String [][] data = new String[][]{{"part_of", "is_a"}, {}, {"is_a"}, {"is_a"}};
+
+		CompactDirectedGraph<TestData,String> cg = CompactDirectedGraph.create(vertices, parents, data);
+		assertEquals(4, cg.getNumberOfVertices());
+		assertEquals(4, cg.getNumberOfEdges());
+		for (int i = 0; i < vertices.length; i++)
+			assertEquals(i, cg.getVertexIndex(vertices[i]));
+
+		/* Parents keep their order, children are ordered by their ids */
+		assertEquals(Arrays.asList(a, b), list(cg.getParentNodes(c)));
+		assertEquals(Arrays.asList(b, a), list(cg.getChildNodes(root)));
+		assertEquals("part_of", cg.getEdgeData(a, c));
+		assertEquals("is_a", cg.getEdgeData(b, c));
+		assertEquals("is_a", cg.getOutEdgeData(1, 0));
+		assertTrue(cg.existsPath(root, c));
+		assertFalse(cg.existsPath(c, root));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testCompactGraphFromInvalidParents()
+	{
+		CompactDirectedGraph.create(new TestData[]{new TestData("a")}, new int[][]{{1}}, new String[][]{{"is_a"}});
+	}
+
+	@Test
+	public void testToDirectedGraph()
+	{
+		DirectedGraph<TestData,String> graph = new DirectedGraph<TestData,String>();
+		TestData root = new TestData("root");
+		TestData a = new TestData("a");
+		TestData b = new TestData("b");
+		TestData c = new TestData("c");
+
+		graph.addVertex(root);
+		graph.addVertex(a);
+		graph.addVertex(b);
+		graph.addVertex(c);
+
+		/* Edges are added such that the out-edges are not in vertex order */
+		graph.addEdge(b, c, "is_a");
+		graph.addEdge(root, c, "part_of");
+		graph.addEdge(root, b, "is_a");
+		graph.addEdge(root, a, "is_a");
+		graph.addEdge(a, c, "is_a");
+
+		DirectedGraph<TestData,String> copy = CompactDirectedGraph.create(graph).toDirectedGraph();
+		assertEquals(list(graph), list(copy));
+		for (TestData v : graph)
+		{
+			assertEquals(list(graph.getParentNodes(v)), list(copy.getParentNodes(v)));
+			assertEquals(list(graph.getChildNodes(v)), list(copy.getChildNodes(v)));
+		}
+		assertEquals("part_of", copy.getEdge(root, c).getData());
+		assertFalse(copy.isReadOnly());
+
+		copy.setReadOnly();
+		assertTrue(copy.isReadOnly());
+		try
+		{
+			copy.addEdge(c, a, "is_a");
+			fail();
+		} catch (UnsupportedOperationException e)
+		{
+		}
+		try
+		{
+			copy.removeVertex(a);
+			fail();
+		} catch (UnsupportedOperationException e)
+		{
+		}
+		assertEquals(5, copy.getNumberEdges());
+	}
+
+	private static <V> IDistanceVisitor<V> distanceCollector(final Map<V,Integer> distances, final Map<V,List<V>> paths)
+	{
+		return new IDistanceVisitor<V>()
+		{
+			@Override
+			public boolean visit(V vertex, List<V> path, int distance)
+			{
+				distances.put(vertex, distance);
+				paths.put(vertex, new ArrayList<V>(path));
+				return true;
+			}
+		};
+	}
+
+	private static void assertPathLengths(DirectedGraph<TestData,Object> graph, TestData s, boolean againstFlow, Map<TestData,Integer> distances, Map<TestData,List<TestData>> paths)
+	{
+		for (TestData v : paths.keySet())
+		{
+			List<TestData> path = paths.get(v);
+			assertEquals(s, path.get(0));
+			assertEquals(v, path.get(path.size() - 1));
+			int len = 0;
+			for (int i = 1; i < path.size(); i++)
+			{
+				if (againstFlow) len += (Integer)graph.getEdge(path.get(i), path.get(i - 1)).getData();
+				else len += (Integer)graph.getEdge(path.get(i - 1), path.get(i)).getData();
+			}
+			assertEquals(distances.get(v).intValue(), len);
+		}
+	}
+
+	@Test
+	public void testPaths()
+	{
+		Random rnd = new Random(4);
+		DirectedGraph<TestData,Object> graph = new DirectedGraph<TestData,Object>();
+		List<TestData> vertices = new ArrayList<TestData>();
+		for (int i = 0; i < 100; i++)
+		{
+			TestData v = new TestData("v" + i);
+			vertices.add(v);
+			graph.addVertex(v);
+		}
+		for (int i = 1; i < vertices.size(); i++)
+		{
+			for (int k = 0; k < 3; k++)
+			{
+				TestData p = vertices.get(rnd.nextInt(i));
+				if (!graph.hasEdge(p, vertices.get(i)))
+					graph.addEdge(p, vertices.get(i), rnd.nextInt(5) + 1);
+			}
+		}
+
+		IEdgeWeighter<TestData,Object> weighter = new IEdgeWeighter<TestData,Object>()
+		{
+			@Override
+			public int getWeight(TestData src, TestData dest, Object data)
+			{
+				return (Integer)data;
+			}
+		};
+
+		CompactDirectedGraph<TestData,Object> cg = CompactDirectedGraph.create(graph);
+		TestData source = vertices.get(0);
+		TestData sink = vertices.get(vertices.size() - 1);
+
+		for (boolean againstFlow : new boolean[]{false, true})
+		{
+			TestData s = againstFlow ? sink : source;
+			Map<TestData,Integer> d1 = new HashMap<TestData,Integer>();
+			Map<TestData,Integer> d2 = new HashMap<TestData,Integer>();
+			Map<TestData,List<TestData>> p1 = new HashMap<TestData,List<TestData>>();
+			Map<TestData,List<TestData>> p2 = new HashMap<TestData,List<TestData>>();
+			graph.singleSourceShortestPath(s, againstFlow, distanceCollector(d1, p1), weighter);
+			cg.singleSourceShortestPath(s, againstFlow, distanceCollector(d2, p2), weighter);
+			assertEquals(d1, d2);
+
+			/* Paths may differ for ties but must have the reported length */
+			assertPathLengths(graph, s, againstFlow, d1, p1);
+			assertPathLengths(graph, s, againstFlow, d2, p2);
+		}
+
+		Map<TestData,Integer> l1 = new HashMap<TestData,Integer>();
+		Map<TestData,Integer> l2 = new HashMap<TestData,Integer>();
+		Map<TestData,List<TestData>> p = new HashMap<TestData,List<TestData>>();
+		graph.singleSourceLongestPath(source, distanceCollector(l1, p));
+		cg.singleSourceLongestPath(source, distanceCollector(l2, p));
+		assertEquals(l1, l2);
+		for (TestData v : p.keySet())
+			assertEquals(l2.get(v).intValue(), p.get(v).size() - 1);
+
+		int [] longest = cg.getDepths(new int[]{0}, 1, true);
+		int [] shortest = cg.getDepths(new int[]{0}, 1, false);
+		Map<TestData,Integer> unweighted = new HashMap<TestData,Integer>();
+		graph.singleSourceShortestPath(source, false, distanceCollector(unweighted, new HashMap<TestData,List<TestData>>()), null);
+		for (int i = 0; i < cg.getNumberOfVertices(); i++)
+		{
+			TestData v = cg.getVertex(i);
+			assertEquals(l1.containsKey(v) ? l1.get(v) : -1, longest[i]);
+			assertEquals(unweighted.containsKey(v) ? unweighted.get(v) : -1, shortest[i]);
+		}
+	}
+}
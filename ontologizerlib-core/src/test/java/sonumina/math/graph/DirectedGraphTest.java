@@ -10,6 +10,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -621,4 +623,100 @@ public class DirectedGraphTest
 		assertTrue(subgraph.hasEdge(1, 3));
 		assertTrue(subgraph.hasEdge(4, 5));
 	}
+
+	@Test
+	public void testBFWithUnknownSource()
+	{
+		DirectedGraph<Integer,Object> graph = new DirectedGraph<Integer,Object>();
+		graph.addVertex(0);
+		graph.addVertex(1);
+		graph.addEdge(0, 1);
+
+		final List<Integer> visited = new ArrayList<Integer>();
+		final List<List<Integer>> paths = new ArrayList<List<Integer>>();
+		final List<Integer> distances = new ArrayList<Integer>();
+		IDistanceVisitor<Integer> visitor = new IDistanceVisitor<Integer>()
+		{
+			@Override
+			public boolean visit(Integer vertex, List<Integer> path, int distance)
+			{
+				visited.add(vertex);
+				paths.add(new ArrayList<Integer>(path));
+				distances.add(distance);
+				return true;
+			}
+		};
+
+		/* Only the unknown source itself is visited */
+		graph.singleSourceShortestPathBF(2, visitor);
+		graph.singleSourceLongestPath(2, visitor);
+		assertEquals(Arrays.asList(2, 2), visited);
+		assertEquals(Arrays.asList(Arrays.asList(2), Arrays.asList(2)), paths);
+		assertEquals(Arrays.asList(0, 0), distances);
+	}
+
+	/**
+	 * Creates a chain of diamonds, i.e., 2^k paths from vertex 0 to vertex 3k.
+	 */
+	private static DirectedGraph<Integer,Object> createDiamondChain(int k)
+	{
+		DirectedGraph<Integer,Object> graph = new DirectedGraph<Integer,Object>();
+		for (int i = 0; i <= 3 * k; i++)
+			graph.addVertex(i);
+		for (int i = 0; i < k; i++)
+		{
+			graph.addEdge(3 * i, 3 * i + 1);
+			graph.addEdge(3 * i, 3 * i + 2);
+			graph.addEdge(3 * i + 1, 3 * i + 3);
+			graph.addEdge(3 * i + 2, 3 * i + 3);
+		}
+		return graph;
+	}
+
+	@Test
+	public void testPathCounting()
+	{
+		DirectedGraph<Integer,Object> graph = createDiamondChain(4);
+		assertEquals(16, graph.getNumberOfPaths(0, 12));
+		assertEquals(2, graph.getNumberOfPaths(4, 9));
+		assertEquals(1, graph.getNumberOfPaths(5, 5));
+		assertEquals(0, graph.getNumberOfPaths(12, 0));
+		assertEquals(0, graph.getNumberOfPaths(1, 2));
+
+		List<List<Integer>> paths = new ArrayList<List<Integer>>();
+		for (List<Integer> path : graph.getPaths(0, 12))
+			paths.add(path);
+		assertEquals(16, paths.size());
+		assertEquals(16, new HashSet<List<Integer>>(paths).size());
+		assertEquals(Arrays.asList(0, 1, 3, 4, 6, 7, 9, 10, 12), paths.get(0));
+		assertFalse(graph.getPaths(1, 2).iterator().hasNext());
+		assertEquals(Arrays.asList(Arrays.asList(5)), list(graph.getPaths(5, 5)));
+
+		/* Counts beyond the range of a long */
+		DirectedGraph<Integer,Object> large = createDiamondChain(100);
+		assertEquals(BigInteger.ONE.shiftLeft(100), large.getNumberOfPathsExact(0, 300));
+		assertEquals(BigInteger.ONE.shiftLeft(40), large.getNumberOfPathsExact(0, 120));
+		assertEquals(100 * Math.log(2), large.getLogNumberOfPaths(0, 300), 1e-9);
+		assertEquals(Double.NEGATIVE_INFINITY, large.getLogNumberOfPaths(300, 0), 0);
+		try
+		{
+			large.getNumberOfPaths(0, 300);
+			Assert.fail();
+		} catch (ArithmeticException ex)
+		{
+		}
+
+		/* Taking the first path doesn't enumerate all of them */
+		Iterator<List<Integer>> iter = large.getPaths(0, 300).iterator();
+		assertEquals(201, iter.next().size());
+		assertEquals(201, iter.next().size());
+	}
+
+	private static <V> List<V> list(Iterable<V> iterable)
+	{
+		List<V> l = new ArrayList<V>();
+		for (V v : iterable)
+			l.add(v);
+		return l;
+	}
 }
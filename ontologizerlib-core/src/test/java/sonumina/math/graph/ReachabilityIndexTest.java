@@ -0,0 +1,68 @@
+package sonumina.math.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ReachabilityIndexTest
+{
+	@Test
+	public void testRandomDAG()
+	{
+		Random rnd = new Random(2);
+		DirectedGraph<TestData,Object> graph = new DirectedGraph<TestData,Object>();
+		List<TestData> vertices = new ArrayList<TestData>();
+		for (int i = 0; i < 200; i++)
+		{
+			TestData v = new TestData("v" + i);
+			vertices.add(v);
+			graph.addVertex(v);
+		}
+
+		/* Edges only go from lower to higher indices, so the graph is acyclic */
+		for (int i = 1; i < vertices.size(); i++)
+		{
+			int parents = 1 + rnd.nextInt(3);
+			for (int k = 0; k < parents; k++)
+			{
+				TestData p = vertices.get(rnd.nextInt(i));
+				if (!graph.hasEdge(p, vertices.get(i)))
+					graph.addEdge(p, vertices.get(i));
+			}
+		}
+
+		ReachabilityIndex<TestData> index = graph.createReachabilityIndex();
+		assertEquals(vertices.size(), index.getNumberOfVertices());
+
+		for (TestData s : vertices)
+		{
+			for (TestData d : vertices)
+				assertEquals(graph.existsPath(s, d), index.reaches(s, d));
+		}
+
+		assertFalse(index.reaches(vertices.get(0), new TestData("unknown")));
+		assertTrue(graph.existsPath(vertices.get(0), vertices.get(0), index));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testCycle()
+	{
+		DirectedGraph<TestData,Object> graph = new DirectedGraph<TestData,Object>();
+		TestData a = new TestData("a");
+		TestData b = new TestData("b");
+		TestData c = new TestData("c");
+		graph.addVertex(a);
+		graph.addVertex(b);
+		graph.addVertex(c);
+		graph.addEdge(a, b);
+		graph.addEdge(b, c);
+		graph.addEdge(c, b);
+		graph.createReachabilityIndex();
+	}
+}
@@ -1,10 +1,17 @@
 package sonumina.math.graph;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
@@ -34,8 +41,23 @@ public class SlimDirectedGraphViewTest
 		}
 	}
 
-	@Test
-	public void testCreateSlimGraph()
+	/**
+	 * Create a small test graph.
+	 *
+	 * <pre>
+	       root
+	       / |\
+	      /  | \
+	      a->b  c
+	           / \
+	           d e
+	           | |
+	           | f
+	           \ /
+	            g
+	 * </pre>
+	 */
+	private static DirectedGraph<TestData, Object> createGraph()
 	{
 		final DirectedGraph<TestData, Object> graph = new DirectedGraph<TestData,Object>();
 		final TestData root = new TestData("root");
@@ -57,19 +79,6 @@ public class SlimDirectedGraphViewTest
 		graph.addVertex(f);
 		graph.addVertex(g);
 
-		/* Link the vertices as follow (always top down direction):
-		       root
-		       / |\
-		      /  | \
-		      a->b  c
-		           / \
-		           d e
-		           | |
-		           | f
-		           \ /
-		            g
-		*/
-
 		graph.addEdge(root,a);
 		graph.addEdge(root,b);
 		graph.addEdge(root,c);
@@ -79,6 +88,50 @@ public class SlimDirectedGraphViewTest
 		graph.addEdge(d,g);
 		graph.addEdge(e,f);
 		graph.addEdge(f,g);
+		return graph;
+	}
+
+	/**
+	 * Create a random layered graph whose topological levels are large enough
+	 * to be processed in parallel. Each vertex has a parent on the previous
+	 * level and possibly further parents on any of the levels above.
+	 */
+	private static DirectedGraph<TestData, Object> createLargeGraph()
+	{
+		final DirectedGraph<TestData, Object> graph = new DirectedGraph<TestData,Object>();
+		List<TestData> vertices = new ArrayList<TestData>();
+		Random rnd = new Random(7);
+
+		TestData root = new TestData("root");
+		graph.addVertex(root);
+		vertices.add(root);
+
+		int levelStart = 0;
+		for (int level = 1; level <= 4; level++)
+		{
+			int levelEnd = vertices.size();
+			for (int i = 0; i < 600; i++)
+			{
+				TestData v = new TestData(level + "." + i);
+				graph.addVertex(v);
+				graph.addEdge(vertices.get(levelStart + rnd.nextInt(levelEnd - levelStart)), v);
+				for (int k = rnd.nextInt(3); k > 0; k--)
+				{
+					TestData p = vertices.get(rnd.nextInt(levelEnd));
+					if (!graph.hasEdge(p, v))
+						graph.addEdge(p, v);
+				}
+				vertices.add(v);
+			}
+			levelStart = levelEnd;
+		}
+		return graph;
+	}
+
+	@Test
+	public void testCreateSlimGraph()
+	{
+		final DirectedGraph<TestData, Object> graph = createGraph();
 
 		SlimDirectedGraphView<TestData> sg = SlimDirectedGraphView.create(graph);
 		assertEquals(8, sg.getNumberOfVertices());
@@ -97,4 +150,217 @@ public class SlimDirectedGraphViewTest
 			checkNodes(graph.getParentNodes(sg.getVertex(i)), sg.vertexParents[i], map);
 		}
 	}
+
+	@Test
+	public void testBitmapClosures()
+	{
+		final DirectedGraph<TestData, Object> graph = createGraph();
+
+		SlimDirectedGraphView<TestData> ag = SlimDirectedGraphView.create(graph);
+		SlimDirectedGraphView<TestData> bg = SlimDirectedGraphView.create(graph, SlimDirectedGraphView.ClosureType.BITMAPS);
+		assertEquals(SlimDirectedGraphView.ClosureType.BITMAPS, bg.getClosureType());
+		assertNull(bg.vertexAncestors);
+
+		int vs = ag.getNumberOfVertices();
+		for (int i=0; i<vs; i++)
+		{
+			assertArrayEquals(ag.vertexAncestors[i], bg.getAncestorIndices(i));
+			assertArrayEquals(ag.vertexDescendants[i], bg.getDescendantIndices(i));
+			assertEquals(ag.getAncestors(ag.getVertex(i)), bg.getAncestors(bg.getVertex(i)));
+
+			for (int j=0; j<vs; j++)
+			{
+				assertEquals(ag.isAncestor(i, j), bg.isAncestor(i, j));
+				assertEquals(ag.isDescendant(i, j), bg.isDescendant(i, j));
+				assertEquals(ag.getNumberOfCommonAncestors(i, j), bg.getNumberOfCommonAncestors(i, j));
+			}
+		}
+	}
+
+	@Test
+	public void testTopologicalConstruction()
+	{
+		final DirectedGraph<TestData, Object> graph = createGraph();
+
+		SlimDirectedGraphView<TestData> ag = SlimDirectedGraphView.create(graph);
+		SlimDirectedGraphView<TestData> tg = SlimDirectedGraphView.create(graph, SlimDirectedGraphView.ClosureType.SORTED_ARRAYS, null);
+
+		for (int i=0; i<ag.getNumberOfVertices(); i++)
+		{
+			assertArrayEquals(ag.vertexAncestors[i], tg.vertexAncestors[i]);
+			assertArrayEquals(ag.vertexDescendants[i], tg.vertexDescendants[i]);
+		}
+	}
+
+	@Test
+	public void testParallelTopologicalConstruction()
+	{
+		final DirectedGraph<TestData, Object> graph = createLargeGraph();
+
+		SlimDirectedGraphView<TestData> ag = SlimDirectedGraphView.create(graph);
+		SlimDirectedGraphView<TestData> tg = SlimDirectedGraphView.create(graph, SlimDirectedGraphView.ClosureType.SORTED_ARRAYS, null);
+		SlimDirectedGraphView<TestData> pg;
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			pg = SlimDirectedGraphView.create(graph, SlimDirectedGraphView.ClosureType.SORTED_ARRAYS, pool);
+		} finally
+		{
+			pool.shutdown();
+		}
+
+		assertEquals(2401, pg.getNumberOfVertices());
+		for (int i=0; i<tg.getNumberOfVertices(); i++)
+		{
+			assertArrayEquals(ag.vertexAncestors[i], tg.vertexAncestors[i]);
+			assertArrayEquals(ag.vertexDescendants[i], tg.vertexDescendants[i]);
+			assertArrayEquals(tg.vertexAncestors[i], pg.vertexAncestors[i]);
+			assertArrayEquals(tg.vertexDescendants[i], pg.vertexDescendants[i]);
+		}
+	}
+
+	@Test
+	public void testReachabilityIndexClosures()
+	{
+		final DirectedGraph<TestData, Object> graph = createGraph();
+
+		SlimDirectedGraphView<TestData> ag = SlimDirectedGraphView.create(graph);
+		SlimDirectedGraphView<TestData> rg = SlimDirectedGraphView.create(graph, SlimDirectedGraphView.ClosureType.REACHABILITY_INDEX);
+		assertEquals(SlimDirectedGraphView.ClosureType.REACHABILITY_INDEX, rg.getClosureType());
+		assertNull(rg.vertexAncestors);
+
+		int vs = ag.getNumberOfVertices();
+		for (int i=0; i<vs; i++)
+		{
+			assertArrayEquals(ag.vertexAncestors[i], rg.getAncestorIndices(i));
+			assertArrayEquals(ag.vertexDescendants[i], rg.getDescendantIndices(i));
+
+			for (int j=0; j<vs; j++)
+			{
+				assertEquals(ag.isAncestor(i, j), rg.isAncestor(i, j));
+				assertEquals(ag.isDescendant(i, j), rg.isDescendant(i, j));
+				assertEquals(ag.getNumberOfCommonAncestors(i, j), rg.getNumberOfCommonAncestors(i, j));
+			}
+		}
+	}
+
+	@Test
+	public void testAncestorArrayClosures()
+	{
+		final DirectedGraph<TestData, Object> graph = createGraph();
+
+		SlimDirectedGraphView<TestData> ag = SlimDirectedGraphView.create(graph);
+		for (SlimDirectedGraphView<TestData> cg : Arrays.asList(
+				SlimDirectedGraphView.create(graph, SlimDirectedGraphView.ClosureType.ANCESTOR_ARRAYS),
+				SlimDirectedGraphView.create(graph, SlimDirectedGraphView.ClosureType.ANCESTOR_ARRAYS, null)))
+		{
+			assertEquals(SlimDirectedGraphView.ClosureType.ANCESTOR_ARRAYS, cg.getClosureType());
+			assertNull(cg.vertexDescendants);
+
+			int vs = ag.getNumberOfVertices();
+			for (int i=0; i<vs; i++)
+			{
+				assertArrayEquals(ag.vertexAncestors[i], cg.vertexAncestors[i]);
+				assertArrayEquals(ag.vertexDescendants[i], cg.getDescendantIndices(i));
+
+				for (int j=0; j<vs; j++)
+					assertEquals(ag.isDescendant(i, j), cg.isDescendant(i, j));
+			}
+		}
+	}
+
+	@Test
+	public void testNoClosures()
+	{
+		final DirectedGraph<TestData, Object> graph = createGraph();
+
+		SlimDirectedGraphView<TestData> ag = SlimDirectedGraphView.create(graph);
+		SlimDirectedGraphView<TestData> ng = SlimDirectedGraphView.create(graph, SlimDirectedGraphView.ClosureType.NONE);
+		assertEquals(SlimDirectedGraphView.ClosureType.NONE, ng.getClosureType());
+		assertNull(ng.vertexAncestors);
+		assertNull(ng.vertexDescendants);
+
+		int vs = ag.getNumberOfVertices();
+		for (int i=0; i<vs; i++)
+		{
+			assertArrayEquals(ag.vertexParents[i], ng.vertexParents[i]);
+			assertArrayEquals(ag.vertexChildren[i], ng.vertexChildren[i]);
+			assertArrayEquals(ag.vertexAncestors[i], ng.getAncestorIndices(i));
+			assertArrayEquals(ag.vertexDescendants[i], ng.getDescendantIndices(i));
+
+			for (int j=0; j<vs; j++)
+			{
+				assertEquals(ag.isAncestor(i, j), ng.isAncestor(i, j));
+				assertEquals(ag.isDescendant(i, j), ng.isDescendant(i, j));
+			}
+		}
+	}
+
+	@Test
+	public void testMostInformativeCommonAncestors()
+	{
+		final DirectedGraph<TestData, Object> graph = createGraph();
+		SlimDirectedGraphView<TestData> ag = SlimDirectedGraphView.create(graph);
+		int vs = ag.getNumberOfVertices();
+
+		/* Deeper vertices are more informative */
+		double [] ic = new double[vs];
+		int [] intIC = new int[vs];
+		for (int i = 0; i < vs; i++)
+			intIC[i] = ag.vertexAncestors[i].length;
+		for (int i = 0; i < vs; i++)
+			ic[i] = intIC[i];
+
+		int [] first = new int[vs * vs];
+		int [] second = new int[vs * vs];
+		for (int i = 0; i < vs; i++)
+		{
+			for (int j = 0; j < vs; j++)
+			{
+				first[i * vs + j] = i;
+				second[i * vs + j] = j;
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			for (SlimDirectedGraphView.ClosureType type : SlimDirectedGraphView.ClosureType.values())
+			{
+				SlimDirectedGraphView<TestData> g = SlimDirectedGraphView.create(graph, type);
+				int [] micas = g.getMostInformativeCommonAncestors(first, second, ic, pool);
+				int [] intMicas = g.getMostInformativeCommonAncestors(first, second, intIC, null);
+				int [] buffer = new int[vs];
+				int [] expectedCommon = new int[vs];
+
+				for (int i = 0; i < vs; i++)
+				{
+					for (int j = 0; j < vs; j++)
+					{
+						/* Brute force */
+						int expected = -1;
+						int n = 0;
+						for (int k = 0; k < vs; k++)
+						{
+							if (ag.isAncestor(k, i) && ag.isAncestor(k, j))
+							{
+								expectedCommon[n++] = k;
+								if (expected == -1 || ic[k] > ic[expected])
+									expected = k;
+							}
+						}
+						assertEquals(n, g.getCommonAncestors(i, j, buffer));
+						assertArrayEquals(Arrays.copyOf(expectedCommon, n), Arrays.copyOf(buffer, n));
+						assertEquals(expected, g.getMostInformativeCommonAncestor(i, j, ic));
+						assertEquals(expected, g.getMostInformativeCommonAncestor(i, j, intIC));
+						assertEquals(expected, micas[i * vs + j]);
+						assertEquals(expected, intMicas[i * vs + j]);
+					}
+				}
+			}
+		} finally
+		{
+			pool.shutdown();
+		}
+	}
 }
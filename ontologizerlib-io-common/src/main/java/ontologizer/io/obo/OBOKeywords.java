@@ -27,6 +27,14 @@ public class OBOKeywords
 	public final static byte [] SUBSET_KEYWORD = "subset".getBytes();
 	public final static byte [] TRUE_KEYWORD = "true".getBytes();
 
+	public final static byte[][] HEADER_KEYWORDS =
+	{
+		FORMAT_VERSION_KEYWORD,
+		DATE_KEYWORD,
+		DATA_VERSION_KEYWORD,
+		SUBSETDEF_KEYWORD
+	};
+
 	public final static byte[][] TERM_KEYWORDS =
 	{
 		ID_KEYWORD,
@@ -38,10 +46,16 @@ public class OBOKeywords
 		NAMESPACE_KEYWORD,
 		EQUIVALENT_TO_KEYWORD,
 		IS_OBSOLETE_KEYWORD,
+		ALT_ID_KEYWORD,
 		XREF_KEYWORD,
 		SUBSET_KEYWORD
 	};
 
+	public final static byte[][] TYPEDEF_KEYWORDS =
+	{
+		ID_KEYWORD
+	};
+
 	/* Supported relationship types */
 	public final static byte [] PART_OF_KEYWORD = "part_of".getBytes();
 	public final static byte [] REGULATES_KEYWORD = "regulates".getBytes();
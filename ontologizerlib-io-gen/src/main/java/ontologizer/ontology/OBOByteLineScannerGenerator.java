@@ -1,223 +1,285 @@
 package ontologizer.ontology;
 
+import static ontologizer.io.obo.OBOKeywords.HEADER_KEYWORDS;
 import static ontologizer.io.obo.OBOKeywords.TERM_KEYWORDS;
+import static ontologizer.io.obo.OBOKeywords.TYPEDEF_KEYWORDS;
 
 import java.io.PrintStream;
-import java.util.Iterator;
-
-import sonumina.math.graph.DirectedGraph;
-import sonumina.math.graph.Edge;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
- * This class represents a simple parser generator for reading obo files. For now
- * it just generates a simple value parser for term keywords.
+ * This class represents a simple parser generator for reading obo files. It
+ * generates the keyword dispatchers of all stanza types as well as the
+ * tokenisers of the values. The code is meant to be pasted into the
+ * OBOByteLineScanner of the OBOParser.
+ *
+ * The dispatchers switch on the length of the key first. If several keywords
+ * share the same length, they switch on the first byte that distinguishes
+ * these keywords. The candidate keyword is then verified with a single
+ * comparison, so every key is compared at most once.
  *
  * @author Sebastian Bauer
  */
 public class OBOByteLineScannerGenerator
 {
 	/**
-	 * Writes selection - action code to the given out.
-	 *
-	 * @param out where to put the output
-	 * @param current the index of the current node
-	 * @param tree the tree
-	 * @param indentLevel the level of code intend
-	 * @param depth the current node depth within the tree
-	 * @param pos the position within the tree
-	 * @param name
+	 * Describes a tokeniser that finds the first unescaped occurrence of
+	 * some stop bytes.
 	 */
-	private void writeCode(PrintStream out, Integer current, DirectedGraph<Integer, String> tree, int indentLevel, int depth, int pos, String name)
+	private static class Tokeniser
 	{
-		boolean first = true;
-		Iterator<Edge<Integer, String>> iter = tree.getOutEdges(current);
+		public final String name;
+		public final String description;
+		public final char [] stops;
 
-		while (iter.hasNext())
+		public Tokeniser(String name, String description, char...stops)
 		{
-			Edge<Integer, String> se = iter.next();
-
-			for (int i=0;i<indentLevel;i++)
-				out.print("\t");
-
-			if (!first) out.print("else ");
-
-			out.print("if (");
+			this.name = name;
+			this.description = description;
+			this.stops = stops;
+		}
+	}
 
-			if (depth != 0)
-			{
-				for (int i=0;i<se.getData().length();i++)
-				{
-					int plus = pos+i-1;
+	/** The tokenisers to be generated */
+	private static final Tokeniser [] TOKENISERS =
+	{
+		new Tokeniser("findQuote", "the first unescaped quotation mark of a quoted string", '"'),
+		new Tokeniser("findModifiers", "the start of the trailing modifiers or comment", '{', '!'),
+		new Tokeniser("findXrefEnd", "the end of a single xref of an xref list or value", ' ', '\t', ',', ']', '"', '{', '!')
+	};
 
-					out.print(String.format("toLower(buf[keyStart%s]) == %d && ",plus!=0?String.format(" + %d", plus):"",se.getData().getBytes()[i]));
-				}
-				out.println(String.format("true) /* %s */",se.getData()));
-			} else
-			{
-				out.println(String.format("keyLen==%d)",se.getData().getBytes()[0]));
-			}
+	/** The base indentation of the generated code */
+	private static final int BASE_INDENT = 2;
 
-			for (int i=0;i<indentLevel;i++)
-				out.print("\t");
-			out.println("{");
-			writeCode(out,se.getDest(),tree,indentLevel+1,depth+1,pos + se.getData().length(),name + se.getData());
+	private final PrintStream out;
 
-			for (int i=0;i<indentLevel;i++)
-				out.print("\t");
-			out.println("}");
+	public OBOByteLineScannerGenerator(PrintStream out)
+	{
+		this.out = out;
+	}
 
-			first = false;
-		}
-		if (first)
+	/**
+	 * Prints the given line with the given indentation. A line may contain
+	 * several lines, each of them is indented.
+	 *
+	 * @param indentLevel
+	 * @param line
+	 */
+	private void println(int indentLevel, String line)
+	{
+		for (String l : line.split("\n"))
 		{
-			/* We are at a leaf */
-			for (int i=0;i<indentLevel;i++)
+			for (int i=0;i<indentLevel + BASE_INDENT;i++)
 				out.print("\t");
-			out.println(String.format("parse_%s(buf, valueStart, valueLen);",name.substring(1)));
+			out.println(l);
 		}
 	}
 
-
 	/**
-	 * Try to collapse the given tree at the given node.
+	 * Returns the Java literal of the given character.
 	 *
-	 * @param current
-	 * @param tree
+	 * @param c
+	 * @return the literal
 	 */
-	private void collapse(Integer current, DirectedGraph<Integer, String> tree)
+	private static String literal(char c)
 	{
-		int currentOutDegree = tree.getOutDegree(current);
-		if (currentOutDegree > 1)
-		{
-			Iterator<Edge<Integer, String>> iter = tree.getOutEdges(current);
-			while (iter.hasNext())
-				collapse(iter.next().getDest(),tree);
-		} else if (currentOutDegree == 1)
+		switch (c)
 		{
-			Edge<Integer, String> e = tree.getOutEdges(current).next();
-			Integer next = e.getDest();
-			int nextOutDegree = tree.getOutDegree(next);
-			if (nextOutDegree == 1)
-			{
-				Edge<Integer, String>  ne = tree.getOutEdges(next).next();
-				Integer nextnext = ne.getDest();
-
-				/* Merge current label with next label */
-				String newLabel = e.getData() + ne.getData();
-				tree.removeConnections(current, next);
-				tree.addEdge(current, next, newLabel);
+		case '\t': return "'\\t'";
+		case '\n': return "'\\n'";
+		case '\\': return "'\\\\'";
+		case '\'': return "'\\''";
+		}
+		if (c < 32 || c > 126)
+			return Integer.toString(c);
+		return "'" + c + "'";
+	}
 
-				/* Move all out edges of next next to next */
-				Iterator<Edge<Integer, String>> nextnextIter = tree.getOutEdges(nextnext);
-				while (nextnextIter.hasNext())
-				{
-					Edge<Integer, String> se = nextnextIter.next();
-					tree.addEdge(next,se.getDest(),se.getData());
-				}
+	/**
+	 * @param keyword
+	 * @return the name of the constant of the given keyword as defined in OBOKeywords.
+	 */
+	private static String constantName(byte [] keyword)
+	{
+		return new String(keyword).toUpperCase().replace('-', '_') + "_KEYWORD";
+	}
 
-				/* Finally, remove next next */
-				tree.removeVertex(nextnext);
+	/**
+	 * @param keyword
+	 * @return the name of the keyword as used in method names.
+	 */
+	private static String methodName(byte [] keyword)
+	{
+		return new String(keyword).replace('-', '_');
+	}
 
-				collapse(current,tree);
-			} else
+	/**
+	 * Finds the first position at which all of the given keywords of the same
+	 * length differ if compared case-insensitive.
+	 *
+	 * @param keywords
+	 * @return the position or -1 if there is no such position.
+	 */
+	private static int findDiscriminatingPosition(List<byte[]> keywords)
+	{
+		int len = keywords.get(0).length;
+		for (int pos = 0; pos < len; pos++)
+		{
+			Set<Integer> seen = new HashSet<Integer>();
+			for (byte [] keyword : keywords)
 			{
-				collapse(next,tree);
+				if (!seen.add(keyword[pos] | 0x20))
+					break;
 			}
+			if (seen.size() == keywords.size())
+				return pos;
 		}
+		return -1;
 	}
 
+	/**
+	 * Writes the verification and the action for the given keyword.
+	 *
+	 * @param indentLevel
+	 * @param keyword
+	 * @param actionPrefix
+	 * @param first whether this is the first keyword of a cascade
+	 */
+	private void writeAction(int indentLevel, byte [] keyword, String actionPrefix, boolean first)
+	{
+		println(indentLevel, String.format("%sif (equalsIgnoreCase(buf, keyStart, keyLen, %s)) %s%s(buf, valueStart, valueLen);",
+				first ? "" : "else ", constantName(keyword), actionPrefix, methodName(keyword)));
+	}
 
 	/**
-	 * Try to identify the neighbor of the current node.
+	 * Writes a dispatcher for the given keywords. For each keyword k the
+	 * method actionPrefix + k is called with the value.
 	 *
-	 * @param tree
-	 * @param current
-	 * @param c
-	 * @return the neighbor or null if it is non-existent.
+	 * @param name the name of the dispatcher
+	 * @param description what is parsed
+	 * @param actionPrefix the prefix of the action methods
+	 * @param keywords the keywords
 	 */
-	private Integer followEdge(final DirectedGraph<Integer, String> tree, Integer current, byte c)
+	public void writeDispatcher(String name, String description, String actionPrefix, byte [][] keywords)
 	{
-		Integer next = null;
-		Iterator<Edge<Integer, String>> iter = tree.getOutEdges(current);
-		while (iter.hasNext())
+		Map<Integer,List<byte[]>> keywordsByLength = new TreeMap<Integer,List<byte[]>>();
+		for (byte [] keyword : keywords)
 		{
-			Edge<Integer, String> se = iter.next();
-			if (se.getData().getBytes()[0] == c)
+			List<byte[]> l = keywordsByLength.get(keyword.length);
+			if (l == null)
 			{
-				next = se.getDest();
-				break;
+				l = new ArrayList<byte[]>();
+				keywordsByLength.put(keyword.length, l);
 			}
+			l.add(keyword);
 		}
-		return next;
-	}
 
-	private int currentVertexIndex = 1;
+		println(0, "/**");
+		println(0, " * Parse key/value as " + description + ".");
+		println(0, " *");
+		println(0, " * @param buf");
+		println(0, " * @param keyStart");
+		println(0, " * @param keyLen");
+		println(0, " * @param valueStart");
+		println(0, " * @param valueLen");
+		println(0, " */");
+		println(0, "private void " + name + "(byte[] buf, int keyStart, int keyLen, int valueStart, int valueLen)");
+		println(0, "{");
+		println(1, "switch (keyLen)");
+		println(1, "{");
+		for (Map.Entry<Integer, List<byte[]>> e : keywordsByLength.entrySet())
+		{
+			List<byte[]> l = e.getValue();
+			println(1, "case " + e.getKey() + ":");
+			if (l.size() == 1)
+			{
+				writeAction(2, l.get(0), actionPrefix, true);
+			} else
+			{
+				int pos = findDiscriminatingPosition(l);
+				if (pos == -1)
+				{
+					boolean first = true;
+					for (byte [] keyword : l)
+					{
+						writeAction(2, keyword, actionPrefix, first);
+						first = false;
+					}
+				} else
+				{
+					println(2, "switch (buf[keyStart" + (pos != 0 ? " + " + pos : "") + "] | 0x20)");
+					println(2, "{");
+					for (byte [] keyword : l)
+					{
+						println(2, "case " + literal((char)(keyword[pos] | 0x20)) + ":");
+						writeAction(3, keyword, actionPrefix, true);
+						println(3, "break;");
+					}
+					println(2, "}");
+				}
+			}
+			println(2, "break;");
+		}
+		println(1, "}");
+		println(0, "}");
+	}
 
 	/**
-	 * Insert the a new edge to the given byte into the tree if it is
-	 * not already present.
+	 * Writes the given tokeniser.
 	 *
-	 * @param tree
-	 * @param current
-	 * @param c
-	 * @return the node to which the edge points to.
+	 * @param tokeniser
 	 */
-	private Integer insertEdge(final DirectedGraph<Integer, String> tree, Integer current, byte c)
+	private void writeTokeniser(Tokeniser tokeniser)
 	{
-		Integer next = followEdge(tree, current, c);
-		if (next == null)
-		{
-			next = new Integer(currentVertexIndex++);
-			tree.addVertex(next);
-			tree.addEdge(current, next, ((char)c)+"");
-		}
-		return next;
+		println(0, "/**");
+		println(0, " * Finds " + tokeniser.description + "\n * in buf starting from start but not exceeding len. Escaped bytes\n * are skipped.");
+		println(0, " *");
+		println(0, " * @return -1 if not found.");
+		println(0, " */");
+		println(0, "private int " + tokeniser.name + "(final byte [] buf, int start, int len)");
+		println(0, "{");
+		println(1, "int end = start + len;");
+		println(1, "for (int i=start;i<end;i++)");
+		println(1, "{");
+		println(2, "switch (buf[i])");
+		println(2, "{");
+		println(2, "case '\\\\':");
+		println(3, "i++;");
+		println(3, "break;");
+		for (char c : tokeniser.stops)
+			println(2, "case " + literal(c) + ":");
+		println(3, "return i;");
+		println(2, "}");
+		println(1, "}");
+		println(1, "return -1;");
+		println(0, "}");
 	}
 
-
 	/**
-	 * Generate Java code for if clauses.
+	 * Generate Java code for the tokenisers and the dispatchers.
 	 */
-	public void generateKeywordIfClauses()
+	public void generate()
 	{
-		/* Graph represents some vertices with ids (which are itself not relevant) with labels */
-		final DirectedGraph<Integer, String> tree = new DirectedGraph<Integer, String>();
-
-		Integer root = new Integer(0);
-		tree.addVertex(root);
-
-		for (byte [] keyword : TERM_KEYWORDS)
+		for (Tokeniser tokeniser : TOKENISERS)
 		{
-			/* First level is the length of the keyword */
-			Integer current = insertEdge(tree, root, (byte)keyword.length);
-
-			for (int j=0;j<keyword.length;j++)
-			{
-				byte c = keyword[j];
-				current = insertEdge(tree, current, c);
-			}
+			writeTokeniser(tokeniser);
+			out.println();
 		}
 
-		/* Collapse */
-		collapse(root,tree);
-
-		System.out.println("private void readTermValue(byte[] buf, int keyStart, int keyLen, int valueStart, int valueLen)");
-		System.out.println("{");
-		writeCode(System.out, root,tree,1,0,0,"");
-		System.out.println("}");
-
-//		tree.writeDOT(new PrintStream(System.out), new DotAttributesProvider<Integer>()
-//				{
-//					@Override
-//					public String getDotEdgeAttributes(Integer src, Integer dest) {
-//
-//						return "label=\"" + tree.getEdge(src, dest).getData() +  "\"";
-//					}
-//				});
+		writeDispatcher("readHeaderValue", "header", "parse_header_", HEADER_KEYWORDS);
+		out.println();
+		writeDispatcher("readTermValue", "term value", "parse_", TERM_KEYWORDS);
+		out.println();
+		writeDispatcher("readTypedefValue", "typedef value", "parse_typedef_", TYPEDEF_KEYWORDS);
 	}
 
 	public static void main(String[] args)
 	{
-		new OBOByteLineScannerGenerator().generateKeywordIfClauses();
+		new OBOByteLineScannerGenerator(System.out).generate();
 	}
 }
@@ -19,6 +19,19 @@ public class ParserFileInput implements IParserInput
 	private FileChannel fc;
 
 	public ParserFileInput(String filename) throws IOException
+	{
+		this(filename, false);
+	}
+
+	/**
+	 * Constructs the input for the given file.
+	 *
+	 * @param filename the name of the file
+	 * @param pipelined whether compressed files shall be decompressed on a
+	 *  separate thread, see {@link PipelinedInputStream}.
+	 * @throws IOException
+	 */
+	public ParserFileInput(String filename, boolean pipelined) throws IOException
 	{
 		this.filename = filename;
 		fis = new FileInputStream(filename);
@@ -26,6 +39,8 @@ public class ParserFileInput implements IParserInput
 		try
 		{
 			is = new GZIPInputStream(fis);
+			if (pipelined)
+				is = new PipelinedInputStream(is);
 		} catch (IOException exp)
 		{
 			fis.close();
@@ -46,6 +61,8 @@ public class ParserFileInput implements IParserInput
 	{
 		try
 		{
+			if (is instanceof PipelinedInputStream)
+				is.close();
 			fis.close();
 		} catch (IOException e)
 		{
@@ -0,0 +1,216 @@
+package ontologizer.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An IParserInput for a local file that is mapped into memory. The file is
+ * mapped in windows, so files larger than 2 GB can be handled as well.
+ * Uncompressed files can be scanned directly within the windows, e.g., via
+ * {@link ontologizer.io.linescanner.AbstractByteBufferLineScanner}. The input
+ * stream that is provided for other parsers reads from the mapped windows
+ * and decompresses the contents if the file is gzip compressed.
+ *
+ * @author Sebastian Bauer
+ */
+public class ParserMappedFileInput implements IParserInput
+{
+	/** The default size of the mapped windows */
+	public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+	private String filename;
+	private RandomAccessFile raf;
+	private FileChannel fc;
+	private long size;
+	private int windowSize;
+	private boolean compressed;
+
+	private MappedInputStream mis;
+	private InputStream is;
+
+	public ParserMappedFileInput(String filename) throws IOException
+	{
+		this(filename, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Constructs the input for the given file.
+	 *
+	 * @param filename the name of the file
+	 * @param windowSize the maximum number of bytes that are mapped at once
+	 * @throws IOException
+	 */
+	public ParserMappedFileInput(String filename, int windowSize) throws IOException
+	{
+		if (windowSize < 1)
+			throw new IllegalArgumentException("The window size must be positive");
+
+		this.filename = filename;
+		this.windowSize = windowSize;
+
+		raf = new RandomAccessFile(filename, "r");
+		fc = raf.getChannel();
+		size = fc.size();
+
+		if (size >= 2)
+		{
+			ByteBuffer magic = fc.map(FileChannel.MapMode.READ_ONLY, 0, 2);
+			compressed = (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+		}
+	}
+
+	/**
+	 * @return whether the file is gzip compressed.
+	 */
+	public boolean isCompressed()
+	{
+		return compressed;
+	}
+
+	/**
+	 * @return the size of the file in bytes.
+	 */
+	public long getFileSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of windows that cover the file.
+	 */
+	public int getNumberOfWindows()
+	{
+		return (int)((size + windowSize - 1) / windowSize);
+	}
+
+	/**
+	 * Maps the window with the given index. The window covers the bytes
+	 * starting at index * windowSize of the file. Note that the buffer
+	 * stays valid even after the input has been closed.
+	 *
+	 * @param index the index of the window
+	 * @return the window as read-only buffer
+	 * @throws IOException
+	 */
+	public ByteBuffer getWindow(int index) throws IOException
+	{
+		if (index < 0 || index >= getNumberOfWindows())
+			throw new IndexOutOfBoundsException("Window " + index + " out of range");
+
+		long start = (long)index * windowSize;
+		return fc.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+	}
+
+	/**
+	 * An input stream that reads from the mapped windows.
+	 */
+	private class MappedInputStream extends InputStream
+	{
+		private ByteBuffer window;
+		private int windowIndex = -1;
+		private long position;
+
+		/**
+		 * Ensures that the current window has remaining bytes.
+		 *
+		 * @return false if the end of the file has been reached.
+		 */
+		private boolean ensureWindow() throws IOException
+		{
+			while (window == null || !window.hasRemaining())
+			{
+				if (windowIndex + 1 >= getNumberOfWindows())
+					return false;
+				window = getWindow(++windowIndex);
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (!ensureWindow())
+				return -1;
+			position++;
+			return window.get() & 0xff;
+		}
+
+		@Override
+		public int read(byte [] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+				return 0;
+			if (!ensureWindow())
+				return -1;
+
+			int l = Math.min(len, window.remaining());
+			window.get(b, off, l);
+			position += l;
+			return l;
+		}
+
+		@Override
+		public int available()
+		{
+			return (int)Math.min(size - position, Integer.MAX_VALUE);
+		}
+	}
+
+	@Override
+	public InputStream inputStream()
+	{
+		if (is == null)
+		{
+			mis = new MappedInputStream();
+			if (compressed)
+			{
+				try
+				{
+					is = new GZIPInputStream(mis);
+				} catch (IOException e)
+				{
+					throw new IllegalStateException("Failed to initialize the decompression of " + filename, e);
+				}
+			} else
+			{
+				is = mis;
+			}
+		}
+		return is;
+	}
+
+	@Override
+	public void close()
+	{
+		try
+		{
+			raf.close();
+		} catch (IOException e)
+		{
+		}
+	}
+
+	@Override
+	public int getSize()
+	{
+		return (int)Math.min(size, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int getPosition()
+	{
+		if (mis == null)
+			return 0;
+		return (int)Math.min(mis.position, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public String getFilename()
+	{
+		return filename;
+	}
+}
@@ -0,0 +1,245 @@
+package ontologizer.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * An input stream that reads the source stream on a dedicated producer
+ * thread. This is useful for sources that are expensive to read, e.g.,
+ * streams that inflate compressed data, as reading and processing the
+ * contents can happen at the same time.
+ *
+ * The producer fills a fixed ring of reusable buffers, so it can read
+ * ahead at most that many buffers. Exceptions of the producer are
+ * rethrown by the read methods of this stream.
+ *
+ * @author Sebastian Bauer
+ */
+public class PipelinedInputStream extends InputStream
+{
+	/** The default size of a single buffer */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	/** The default number of buffers */
+	public static final int DEFAULT_NUMBER_OF_BUFFERS = 4;
+
+	/**
+	 * A buffer of the ring.
+	 */
+	private static final class Buffer
+	{
+		public final byte [] data;
+		public int len;
+		public boolean last;
+		public Throwable failure;
+
+		public Buffer(int size)
+		{
+			data = new byte[size];
+		}
+	}
+
+	private final InputStream source;
+
+	/** Buffers that have been filled by the producer */
+	private final ArrayBlockingQueue<Buffer> filled;
+
+	/** Buffers that can be filled by the producer */
+	private final ArrayBlockingQueue<Buffer> free;
+
+	private final Thread producer;
+
+	private volatile boolean closed;
+
+	/** The buffer that is currently consumed */
+	private Buffer current;
+	private int currentPos;
+
+	/** Whether the end of the stream has been reached */
+	private boolean eof;
+
+	/** The failure of the producer, which is rethrown on each read */
+	private Throwable failure;
+
+	public PipelinedInputStream(InputStream source)
+	{
+		this(source, DEFAULT_BUFFER_SIZE, DEFAULT_NUMBER_OF_BUFFERS);
+	}
+
+	/**
+	 * Constructs the stream and starts the producer thread.
+	 *
+	 * @param source the stream to be read on the producer thread
+	 * @param bufferSize the size of each buffer
+	 * @param numberOfBuffers the number of buffers, which bounds the read ahead
+	 */
+	public PipelinedInputStream(InputStream source, int bufferSize, int numberOfBuffers)
+	{
+		if (bufferSize < 1 || numberOfBuffers < 1)
+			throw new IllegalArgumentException("Buffer size and number of buffers must be positive");
+
+		this.source = source;
+		filled = new ArrayBlockingQueue<Buffer>(numberOfBuffers);
+		free = new ArrayBlockingQueue<Buffer>(numberOfBuffers);
+		for (int i = 0; i < numberOfBuffers; i++)
+			free.add(new Buffer(bufferSize));
+
+		producer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				produce();
+			}
+		}, "PipelinedInputStream");
+		producer.setDaemon(true);
+		producer.start();
+	}
+
+	/**
+	 * The loop of the producer thread.
+	 */
+	private void produce()
+	{
+		Buffer buf = null;
+		try
+		{
+			while (!closed)
+			{
+				buf = free.take();
+				buf.len = 0;
+				buf.last = false;
+
+				int read = 0;
+				while (buf.len < buf.data.length && (read = source.read(buf.data, buf.len, buf.data.length - buf.len)) >= 0)
+					buf.len += read;
+				buf.last = read < 0;
+
+				filled.put(buf);
+				buf = null;
+				if (read < 0)
+					break;
+			}
+		} catch (InterruptedException e)
+		{
+			/* We have been closed */
+		} catch (Throwable t)
+		{
+			if (!closed && buf != null)
+			{
+				buf.len = 0;
+				buf.last = true;
+				buf.failure = t;
+				filled.offer(buf);
+			}
+		}
+	}
+
+	/**
+	 * Throws the failure of the producer.
+	 */
+	private IOException rethrow() throws IOException
+	{
+		if (failure instanceof IOException) throw (IOException)failure;
+		if (failure instanceof RuntimeException) throw (RuntimeException)failure;
+		if (failure instanceof Error) throw (Error)failure;
+		throw new IOException(failure);
+	}
+
+	/**
+	 * Makes sure that the current buffer has some remaining bytes.
+	 *
+	 * @return false if the end of the stream has been reached.
+	 * @throws IOException
+	 */
+	private boolean ensureBuffer() throws IOException
+	{
+		if (failure != null)
+			throw rethrow();
+		if (closed)
+			throw new IOException("Stream closed");
+
+		while (!eof && (current == null || currentPos == current.len))
+		{
+			if (current != null)
+			{
+				eof = current.last;
+				free.offer(current);
+				current = null;
+				if (eof)
+					break;
+			}
+
+			try
+			{
+				current = filled.take();
+			} catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			currentPos = 0;
+
+			if (current.failure != null)
+			{
+				failure = current.failure;
+				current = null;
+				eof = true;
+				throw rethrow();
+			}
+		}
+		return !eof;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		if (!ensureBuffer())
+			return -1;
+		return current.data[currentPos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte [] b, int off, int len) throws IOException
+	{
+		if (len == 0)
+			return 0;
+		if (!ensureBuffer())
+			return -1;
+
+		int l = Math.min(len, current.len - currentPos);
+		System.arraycopy(current.data, currentPos, b, off, l);
+		currentPos += l;
+		return l;
+	}
+
+	@Override
+	public int available()
+	{
+		if (current == null)
+			return 0;
+		return current.len - currentPos;
+	}
+
+	/**
+	 * Stops the producer and closes the source.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (closed)
+			return;
+		closed = true;
+		producer.interrupt();
+		try
+		{
+			producer.join();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		source.close();
+	}
+}
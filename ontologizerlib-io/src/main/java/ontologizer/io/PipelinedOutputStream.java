@@ -0,0 +1,277 @@
+package ontologizer.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * An output stream that writes to the destination stream on a dedicated
+ * consumer thread. This is useful for destinations that are expensive to
+ * write, e.g., streams that deflate the data, as producing and writing the
+ * contents can happen at the same time. It is the counterpart of
+ * {@link PipelinedInputStream}.
+ *
+ * The consumer drains a fixed ring of reusable buffers, so the producer
+ * can write ahead at most that many buffers. Exceptions of the consumer are
+ * rethrown by the write methods of this stream and by close().
+ *
+ * @author Sebastian Bauer
+ */
+public class PipelinedOutputStream extends OutputStream
+{
+	/**
+	 * A buffer of the ring.
+	 */
+	private static final class Buffer
+	{
+		public final byte [] data;
+		public int len;
+		public boolean flush;
+		public boolean last;
+
+		public Buffer(int size)
+		{
+			data = new byte[size];
+		}
+	}
+
+	private final OutputStream destination;
+
+	/** Buffers that have been filled by the producer */
+	private final ArrayBlockingQueue<Buffer> filled;
+
+	/** Buffers that can be filled by the producer */
+	private final ArrayBlockingQueue<Buffer> free;
+
+	private final Thread consumer;
+
+	private boolean closed;
+
+	/** The buffer that is currently filled */
+	private Buffer current;
+
+	/** The failure of the consumer */
+	private volatile Throwable failure;
+
+	public PipelinedOutputStream(OutputStream destination)
+	{
+		this(destination, PipelinedInputStream.DEFAULT_BUFFER_SIZE, PipelinedInputStream.DEFAULT_NUMBER_OF_BUFFERS);
+	}
+
+	/**
+	 * Constructs the stream and starts the consumer thread.
+	 *
+	 * @param destination the stream to be written on the consumer thread
+	 * @param bufferSize the size of each buffer
+	 * @param numberOfBuffers the number of buffers, which bounds the write ahead
+	 */
+	public PipelinedOutputStream(OutputStream destination, int bufferSize, int numberOfBuffers)
+	{
+		if (bufferSize < 1 || numberOfBuffers < 1)
+			throw new IllegalArgumentException("Buffer size and number of buffers must be positive");
+
+		this.destination = destination;
+		filled = new ArrayBlockingQueue<Buffer>(numberOfBuffers);
+		free = new ArrayBlockingQueue<Buffer>(numberOfBuffers);
+		for (int i = 0; i < numberOfBuffers; i++)
+			free.add(new Buffer(bufferSize));
+
+		consumer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				consume();
+			}
+		}, "PipelinedOutputStream");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	/**
+	 * The loop of the consumer thread. After a failure, the buffers are
+	 * still recycled so the producer never blocks forever.
+	 */
+	private void consume()
+	{
+		try
+		{
+			while (true)
+			{
+				Buffer buf = filled.take();
+				if (failure == null)
+				{
+					try
+					{
+						destination.write(buf.data, 0, buf.len);
+						if (buf.flush || buf.last)
+							destination.flush();
+					} catch (Throwable t)
+					{
+						failure = t;
+					}
+				}
+				boolean last = buf.last;
+				free.put(buf);
+				if (last)
+					break;
+			}
+		} catch (InterruptedException e)
+		{
+			/* We have been aborted */
+		}
+	}
+
+	/**
+	 * Throws the failure of the consumer.
+	 */
+	private IOException rethrow() throws IOException
+	{
+		Throwable f = failure;
+		if (f instanceof IOException) throw (IOException)f;
+		if (f instanceof RuntimeException) throw (RuntimeException)f;
+		if (f instanceof Error) throw (Error)f;
+		throw new IOException(f);
+	}
+
+	/**
+	 * Makes sure that the current buffer has some room left.
+	 *
+	 * @throws IOException
+	 */
+	private void ensureBuffer() throws IOException
+	{
+		if (failure != null)
+			throw rethrow();
+		if (closed)
+			throw new IOException("Stream closed");
+
+		if (current != null && current.len == current.data.length)
+			handOver(false, false);
+
+		if (current == null)
+		{
+			try
+			{
+				current = free.take();
+			} catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			current.len = 0;
+			current.flush = false;
+			current.last = false;
+		}
+	}
+
+	/**
+	 * Hands the current buffer over to the consumer.
+	 *
+	 * @param flush whether the destination shall be flushed afterwards
+	 * @param last whether this is the last buffer
+	 * @throws IOException
+	 */
+	private void handOver(boolean flush, boolean last) throws IOException
+	{
+		Buffer buf = current;
+		if (buf == null)
+		{
+			try
+			{
+				buf = free.take();
+			} catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			buf.len = 0;
+		}
+		current = null;
+		buf.flush = flush;
+		buf.last = last;
+
+		try
+		{
+			filled.put(buf);
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException
+	{
+		ensureBuffer();
+		current.data[current.len++] = (byte)b;
+	}
+
+	@Override
+	public void write(byte [] b, int off, int len) throws IOException
+	{
+		while (len > 0)
+		{
+			ensureBuffer();
+			int l = Math.min(len, current.data.length - current.len);
+			System.arraycopy(b, off, current.data, current.len, l);
+			current.len += l;
+			off += l;
+			len -= l;
+		}
+	}
+
+	/**
+	 * Hands the pending bytes over to the consumer, which flushes the
+	 * destination once they have been written. This method doesn't wait
+	 * for the consumer.
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		if (failure != null)
+			throw rethrow();
+		if (closed)
+			throw new IOException("Stream closed");
+		if (current != null && current.len > 0)
+			handOver(true, false);
+	}
+
+	/**
+	 * Writes all pending bytes, waits for the consumer, and closes the
+	 * destination.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (closed)
+			return;
+
+		try
+		{
+			if (failure == null)
+				handOver(true, true);
+			else
+				consumer.interrupt();
+
+			try
+			{
+				consumer.join();
+			} catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				consumer.interrupt();
+				throw new InterruptedIOException();
+			}
+		} finally
+		{
+			closed = true;
+			destination.close();
+		}
+
+		if (failure != null)
+			throw rethrow();
+	}
+}
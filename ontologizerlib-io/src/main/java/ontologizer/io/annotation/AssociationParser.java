@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import ontologizer.association.AnnotationContext;
@@ -37,6 +38,9 @@ public class AssociationParser
 {
 	private static Logger logger = Logger.getLogger(AssociationParser.class.getName());
 
+	/** The default number of bytes of the chunks that are parsed in parallel */
+	static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
 	enum Type
 	{
 		UNKNOWN,
@@ -52,6 +56,10 @@ public class AssociationParser
 	private IAssociationParserProgress progress;
 	private boolean iterative;
 	private boolean parsingFinished;
+	private ForkJoinPool pool;
+
+	/** The minimum number of bytes of the chunks that are parsed in parallel */
+	int chunkSize = DEFAULT_CHUNK_SIZE;
 
 	/** Mapping from gene (or gene product) names to Association objects */
 	private ArrayList<Association> associations;
@@ -161,6 +169,27 @@ public class AssociationParser
 	 * @throws IOException
 	 */
 	public AssociationParser(IParserInput input, TermMap terms, HashSet<ByteString> names, Collection<String> evidences, IAssociationParserProgress progress, boolean iterative) throws IOException
+	{
+		this(input,terms,names,evidences,progress,iterative,null);
+	}
+
+	/**
+	 * Construct the association parser object. The given file name will
+	 * parsed. If a pool is given, GAF files are parsed in parallel. The result
+	 * is the same as the one of the sequential parse.
+	 *
+	 * @param input specifies wrapping input that contains association of genes to GO terms.
+	 * @param terms the container of the GO terms
+	 * @param names list of genes from which the associations should be gathered.
+	 *        If null all associations are taken,
+	 * @param evidences keep only the annotation whose evidence match the given ones. If null, all annotations are used.
+	 *        Note that this field is currently used when the filenames referes to a GAF file.
+	 * @param progress
+	 * @param iterative set to true if no actual parsing should be done in the constructor.
+	 * @param pool the pool used for parsing GAF files or null for a sequential parse.
+	 * @throws IOException
+	 */
+	public AssociationParser(IParserInput input, TermMap terms, HashSet<ByteString> names, Collection<String> evidences, IAssociationParserProgress progress, boolean iterative, ForkJoinPool pool) throws IOException
 	{
 		this.input = input;
 		this.terms = terms;
@@ -168,6 +197,7 @@ public class AssociationParser
 		this.evidences = evidences;
 		this.progress = progress;
 		this.iterative = iterative;
+		this.pool = pool;
 
 		associations = new ArrayList<Association>();
 
@@ -354,7 +384,10 @@ public class AssociationParser
 			progress.init(input.getSize());
 
 		GAFByteLineScanner ls = new GAFByteLineScanner(input, head, names, terms,getByteStringSetFromStringCollection(evidences), progress);
-		ls.scan();
+		if (pool == null)
+			ls.scan();
+		else
+			ls.scanInParallel(pool, chunkSize);
 
 		if (progress != null)
 			progress.update(input.getSize());
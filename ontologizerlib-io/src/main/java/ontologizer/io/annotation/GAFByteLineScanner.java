@@ -1,14 +1,23 @@
 package ontologizer.io.annotation;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import ontologizer.association.AnnotationContext;
 import ontologizer.association.AnnotationMapBuilder;
 import ontologizer.association.Association;
 import ontologizer.association.AssociationResolver;
 import ontologizer.io.IParserInput;
+import ontologizer.io.ParserMappedFileInput;
 import ontologizer.io.linescanner.AbstractByteLineScanner;
 import ontologizer.ontology.PrefixPool;
 import ontologizer.ontology.TermID;
@@ -25,6 +34,9 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 	/** The wrapped input */
 	private IParserInput input;
 
+	/** The beginning of the input that has been already read */
+	private byte [] head;
+
 	/** Contains all items whose associations should gathered or null if all should be gathered */
 	private Set<ByteString> names;
 
@@ -32,6 +44,9 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 	private IAssociationParserProgress progress;
 
 	private int lineno = 0;
+
+	/** Whether the lines before the head still need to be skipped */
+	private boolean skipHeader;
 	private long millis = 0;
 	public int good = 0;
 	public int bad = 0;
@@ -43,10 +58,13 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 	private ArrayList<Association> associations = new ArrayList<Association>();
 
 	/** Our prefix pool */
-	private PrefixPool prefixPool = new PrefixPool();
+	private PrefixPool prefixPool;
 
 	private HashSet<TermID> usedTermIDs = new HashSet<TermID>();
 
+	/** The line numbers of the associations for scanners of a single chunk */
+	private int [] associationLines;
+
 	/**********************************************************************/
 
 	private AnnotationMapBuilder mapBuilder;
@@ -67,8 +85,10 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 		}
 
 		this.input = input;
+		this.head = head;
 		this.names = names;
 		this.progress = progress;
+		this.prefixPool = new PrefixPool();
 
 		if (progress != null)
 		{
@@ -84,16 +104,65 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 		this.mapBuilder = new AnnotationMapBuilder(warningCallback);
 	}
 
+	/**
+	 * Constructs a scanner for a chunk of the input of the given scanner.
+	 * The accepted associations are not added to an annotation map but
+	 * recorded together with their line numbers, so they can be merged
+	 * into the given scanner afterwards.
+	 *
+	 * @param is the stream of the chunk
+	 * @param parent the scanner whose settings are used
+	 */
+	private GAFByteLineScanner(InputStream is, GAFByteLineScanner parent)
+	{
+		super(is);
+
+		if (parent.resolver != null)
+		{
+			resolver = new AssociationResolver(parent.resolver);
+		}
+
+		this.names = parent.names;
+		this.prefixPool = new PrefixPool(parent.prefixPool);
+		this.associationLines = new int[64];
+	}
+
+	/**
+	 * Scans the input. Uncompressed mapped files are scanned directly within
+	 * the mapped windows, in which case the header lines that precede the
+	 * head are skipped again.
+	 */
+	@Override
+	public void scan() throws IOException
+	{
+		if (input instanceof ParserMappedFileInput && !((ParserMappedFileInput)input).isCompressed())
+		{
+			skipHeader = true;
+			scan((ParserMappedFileInput)input);
+		} else
+		{
+			super.scan();
+		}
+	}
+
 	@Override
 	public boolean newLine(byte[] buf, int start, int len)
 	{
+		if (skipHeader)
+		{
+			/* Same condition as for finding the head */
+			if (len < 1 || buf[start] == '#')
+				return true;
+			skipHeader = false;
+		}
+
 		/* Progress stuff */
 		if (progress != null)
 		{
 			long newMillis = System.currentTimeMillis();
 			if (newMillis - millis > 250)
 			{
-				progress.update(input.getPosition());
+				progress.update(getPosition(input));
 				millis = newMillis;
 			}
 		}
@@ -164,11 +233,124 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 		/* Add the Association to ArrayList */
 		associations.add(assoc);
 
-		mapBuilder.add(assoc, synonyms, lineno);
+		if (mapBuilder != null)
+		{
+			mapBuilder.add(assoc, synonyms, lineno);
+		} else
+		{
+			if (associations.size() > associationLines.length)
+				associationLines = Arrays.copyOf(associationLines, associationLines.length * 2);
+			associationLines[associations.size() - 1] = lineno;
+		}
 
 		return true;
 	}
 
+	/**
+	 * Merges the results of a scanner of a chunk that follows the lines
+	 * scanned so far. The associations are added to the annotation map in
+	 * the order of their lines, so the mapping and the issued warnings are
+	 * the same as if the lines were scanned by this scanner.
+	 *
+	 * @param chunk the scanner of the chunk
+	 */
+	private void merge(GAFByteLineScanner chunk)
+	{
+		good += chunk.good;
+		bad += chunk.bad;
+		skipped += chunk.skipped;
+		nots += chunk.nots;
+		kept += chunk.kept;
+		usedTermIDs.addAll(chunk.usedTermIDs);
+
+		if (resolver != null)
+			resolver.merge(chunk.resolver);
+
+		for (int i = 0; i < chunk.associations.size(); i++)
+		{
+			Association assoc = chunk.associations.get(i);
+			associations.add(assoc);
+			mapBuilder.add(assoc, assoc.getSynonyms(), lineno + chunk.associationLines[i]);
+		}
+		lineno += chunk.lineno;
+	}
+
+	/**
+	 * Scans the input in chunks of whole lines that are parsed on the given
+	 * pool. The results of the chunks are merged in the order of the input,
+	 * so the outcome is the same as the one of {@link #scan()}. Only the
+	 * warnings about unknown or obsolete terms may be logged in a different
+	 * order.
+	 *
+	 * @param pool the pool used for parsing the chunks
+	 * @param chunkSize the minimum number of bytes of a chunk
+	 * @throws IOException
+	 */
+	public void scanInParallel(ForkJoinPool pool, int chunkSize) throws IOException
+	{
+		InputStream is = input.inputStream();
+		ArrayDeque<ForkJoinTask<GAFByteLineScanner>> chunks = new ArrayDeque<ForkJoinTask<GAFByteLineScanner>>();
+		byte [] buf = new byte[Math.max(chunkSize, head.length)];
+		System.arraycopy(head, 0, buf, 0, head.length);
+		int len = head.length;
+		boolean eof = false;
+
+		try
+		{
+			while (!eof || len > 0)
+			{
+				while (!eof && len < buf.length)
+				{
+					int read = is.read(buf, len, buf.length - len);
+					if (read < 0) eof = true;
+					else len += read;
+				}
+
+				if (progress != null)
+					progress.update(input.getPosition());
+
+				int cut = len;
+				if (!eof)
+				{
+					while (cut > 0 && buf[cut - 1] != '\n')
+						cut--;
+					if (cut == 0)
+					{
+						/* No line ends within the buffer, so we need a larger one */
+						buf = Arrays.copyOf(buf, buf.length * 2);
+						continue;
+					}
+				}
+
+				final byte [] chunk = Arrays.copyOf(buf, cut);
+				System.arraycopy(buf, cut, buf, 0, len - cut);
+				len -= cut;
+
+				chunks.add(pool.submit(new Callable<GAFByteLineScanner>()
+				{
+					@Override
+					public GAFByteLineScanner call() throws IOException
+					{
+						GAFByteLineScanner ls = new GAFByteLineScanner(new ByteArrayInputStream(chunk), GAFByteLineScanner.this);
+						ls.scan();
+						return ls;
+					}
+				}));
+
+				/* Merge early to bound the number of pending chunks */
+				while (chunks.size() > 2 * pool.getParallelism())
+					merge(chunks.removeFirst().join());
+			}
+
+			while (!chunks.isEmpty())
+				merge(chunks.removeFirst().join());
+		} finally
+		{
+			for (ForkJoinTask<GAFByteLineScanner> task : chunks)
+				task.cancel(false);
+		}
+	}
+
 	/**
 	 * @return the number of terms used by the import.
 	 */
@@ -0,0 +1,254 @@
+package ontologizer.io.annotation;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A filter for lines of GAF files that works on the raw columns, i.e.,
+ * lines are accepted or rejected before any object is created for them.
+ * A line is accepted if all columns that have a constraint are accepted.
+ * A column with constraints on values is accepted if one of its elements,
+ * which are separated by pipes, equals one of the given values.
+ *
+ * @author Sebastian Bauer
+ */
+public class GAFColumnFilter
+{
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	/** The index of the DB column */
+	public static final int DB_COLUMN = 0;
+
+	/** The index of the qualifier column */
+	public static final int QUALIFIER_COLUMN = 3;
+
+	/** The index of the evidence column */
+	public static final int EVIDENCE_COLUMN = 6;
+
+	/** The index of the aspect column */
+	public static final int ASPECT_COLUMN = 8;
+
+	/** The index of the taxon column */
+	public static final int TAXON_COLUMN = 12;
+
+	/** The number of columns of a GAF 2.0 line */
+	public static final int COLUMNS = 15;
+
+	/**
+	 * A predicate on the raw contents of a single column.
+	 */
+	public static interface IColumnPredicate
+	{
+		/**
+		 * @param buf the buffer that contains the line
+		 * @param start the offset of the first byte of the column
+		 * @param end the offset after the last byte of the column
+		 * @return whether the column is accepted.
+		 */
+		boolean accept(byte [] buf, int start, int end);
+	}
+
+	/**
+	 * A predicate that accepts a column if one of the pipe separated elements
+	 * equals one of the given values.
+	 */
+	private static class ValuesPredicate implements IColumnPredicate
+	{
+		private final byte [][] values;
+
+		public ValuesPredicate(byte [][] values)
+		{
+			this.values = values;
+		}
+
+		private boolean matches(byte [] buf, int start, int end)
+		{
+			int len = end - start;
+			outer:
+			for (byte [] v : values)
+			{
+				if (v.length != len)
+					continue;
+				for (int i = 0; i < len; i++)
+				{
+					if (buf[start + i] != v[i])
+						continue outer;
+				}
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public boolean accept(byte [] buf, int start, int end)
+		{
+			int elementStart = start;
+			for (int p = start; p <= end; p++)
+			{
+				if (p == end || buf[p] == '|')
+				{
+					if (matches(buf, elementStart, p))
+						return true;
+					elementStart = p + 1;
+				}
+			}
+			return false;
+		}
+	}
+
+	/** The predicates indexed by the column */
+	private IColumnPredicate [] predicates = new IColumnPredicate[COLUMNS];
+
+	/** The number of columns that need to be inspected */
+	private int lastColumn = -1;
+
+	/**
+	 * Adds the given predicate for the given column. Several predicates for
+	 * the same column are combined conjunctively.
+	 *
+	 * @param column the index of the column
+	 * @param predicate the predicate
+	 * @return this for composing further calls.
+	 */
+	public GAFColumnFilter column(int column, final IColumnPredicate predicate)
+	{
+		if (column < 0 || column >= COLUMNS)
+			throw new IllegalArgumentException("Column " + column + " out of range");
+
+		final IColumnPredicate previous = predicates[column];
+		if (previous == null)
+		{
+			predicates[column] = predicate;
+		} else
+		{
+			predicates[column] = new IColumnPredicate()
+			{
+				@Override
+				public boolean accept(byte [] buf, int start, int end)
+				{
+					return previous.accept(buf, start, end) && predicate.accept(buf, start, end);
+				}
+			};
+		}
+		lastColumn = Math.max(lastColumn, column);
+		return this;
+	}
+
+	/**
+	 * Constrains the given column to the given values.
+	 *
+	 * @param column the index of the column
+	 * @param values the accepted values
+	 * @return this for composing further calls.
+	 */
+	public GAFColumnFilter column(int column, Collection<String> values)
+	{
+		byte [][] bytes = new byte[values.size()][];
+		int i = 0;
+		for (String v : values)
+			bytes[i++] = v.getBytes(ASCII);
+		return column(column, new ValuesPredicate(bytes));
+	}
+
+	/**
+	 * Accept only lines whose DB is one of the given ones.
+	 *
+	 * @param dbs the accepted DBs, e.g., "UniProtKB"
+	 * @return this for composing further calls.
+	 */
+	public GAFColumnFilter db(String...dbs)
+	{
+		return column(DB_COLUMN, Arrays.asList(dbs));
+	}
+
+	/**
+	 * Accept only lines that have one of the given qualifiers.
+	 *
+	 * @param qualifiers the accepted qualifiers, e.g., "contributes_to"
+	 * @return this for composing further calls.
+	 */
+	public GAFColumnFilter qualifier(String...qualifiers)
+	{
+		return column(QUALIFIER_COLUMN, Arrays.asList(qualifiers));
+	}
+
+	/**
+	 * Accept only lines whose evidence is one of the given ones.
+	 *
+	 * @param evidences the accepted evidence codes, e.g., "IDA"
+	 * @return this for composing further calls.
+	 */
+	public GAFColumnFilter evidence(String...evidences)
+	{
+		return evidence(Arrays.asList(evidences));
+	}
+
+	/**
+	 * Accept only lines whose evidence is one of the given ones.
+	 *
+	 * @param evidences the accepted evidence codes, e.g., "IDA"
+	 * @return this for composing further calls.
+	 */
+	public GAFColumnFilter evidence(Collection<String> evidences)
+	{
+		return column(EVIDENCE_COLUMN, evidences);
+	}
+
+	/**
+	 * Accept only lines whose aspect is one of the given ones.
+	 *
+	 * @param aspects the accepted aspects, i.e., "P", "F", or "C"
+	 * @return this for composing further calls.
+	 */
+	public GAFColumnFilter aspect(String...aspects)
+	{
+		return column(ASPECT_COLUMN, Arrays.asList(aspects));
+	}
+
+	/**
+	 * Accept only lines that refer to one of the given taxa.
+	 *
+	 * @param taxa the accepted taxa, either with or without the "taxon:"
+	 *  prefix, e.g., "9606"
+	 * @return this for composing further calls.
+	 */
+	public GAFColumnFilter taxon(String...taxa)
+	{
+		String [] prefixed = new String[taxa.length];
+		for (int i = 0; i < taxa.length; i++)
+			prefixed[i] = taxa[i].startsWith("taxon:") ? taxa[i] : "taxon:" + taxa[i];
+		return column(TAXON_COLUMN, Arrays.asList(prefixed));
+	}
+
+	/**
+	 * Determines whether the given line is accepted. Only the columns up to
+	 * the last one with a constraint are inspected. Missing columns are
+	 * treated as empty ones.
+	 *
+	 * @param buf the buffer that contains the line
+	 * @param start the offset of the first byte of the line
+	 * @param len the length of the line
+	 * @return whether the line is accepted.
+	 */
+	public boolean accept(byte [] buf, int start, int len)
+	{
+		int end = start + len;
+		int columnStart = start;
+		int column = 0;
+
+		for (int p = start; column <= lastColumn; p++)
+		{
+			if (p >= end || buf[p] == '\t')
+			{
+				int columnEnd = Math.min(p, end);
+				IColumnPredicate predicate = predicates[column];
+				if (predicate != null && !predicate.accept(buf, columnStart, columnEnd))
+					return false;
+				columnStart = Math.min(p + 1, end);
+				column++;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,198 @@
+package ontologizer.io.annotation;
+
+import java.io.IOException;
+
+import ontologizer.association.Association;
+import ontologizer.association.AssociationResolver;
+import ontologizer.association.IAssociationVisitor;
+import ontologizer.io.IParserInput;
+import ontologizer.io.linescanner.AbstractByteLineScanner;
+import ontologizer.ontology.PrefixPool;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermMap;
+
+/**
+ * Provides the associations of a GAF file one by one without collecting
+ * them. Lines can be filtered on their raw columns via a
+ * {@link GAFColumnFilter}, in which case no objects are created for the
+ * rejected lines. As in {@link AssociationParser}, associations that are
+ * qualified with NOT are skipped and, if terms are given, associations are
+ * resolved against these terms.
+ *
+ * @author Sebastian Bauer
+ */
+public class GAFStream
+{
+	private IParserInput input;
+
+	private AssociationResolver resolver;
+
+	private GAFColumnFilter filter;
+
+	private PrefixPool prefixPool = new PrefixPool();
+
+	private int lines;
+	private int rejected;
+	private int nots;
+	private int unresolved;
+	private int associations;
+
+	/**
+	 * Constructs a stream that provides the associations of the given
+	 * input as they are.
+	 *
+	 * @param input the input of the GAF file
+	 */
+	public GAFStream(IParserInput input)
+	{
+		this(input, null);
+	}
+
+	/**
+	 * Constructs a stream that provides the associations of the given
+	 * input that can be resolved against the given terms.
+	 *
+	 * @param input the input of the GAF file
+	 * @param terms the known terms or null if associations shall not be resolved.
+	 */
+	public GAFStream(IParserInput input, TermMap terms)
+	{
+		this.input = input;
+		if (terms != null)
+			resolver = new AssociationResolver(terms);
+	}
+
+	/**
+	 * Sets the filter on the raw columns.
+	 *
+	 * @param filter the filter
+	 * @return this for composing further calls.
+	 */
+	public GAFStream filter(GAFColumnFilter filter)
+	{
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * Determines whether the qualifier column of the given line contains NOT.
+	 */
+	private static boolean hasNotQualifier(byte [] buf, int start, int len)
+	{
+		int end = start + len;
+		int column = 0;
+		for (int p = start; p < end; p++)
+		{
+			if (buf[p] == '\t')
+			{
+				if (++column > GAFColumnFilter.QUALIFIER_COLUMN)
+					return false;
+			} else if (column == GAFColumnFilter.QUALIFIER_COLUMN && p + 2 < end &&
+					buf[p] == 'N' && buf[p + 1] == 'O' && buf[p + 2] == 'T')
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the input and calls the visitor for every association that
+	 * passed the filter and, if applicable, could be resolved. The input is
+	 * closed afterwards.
+	 *
+	 * @param visitor the visitor
+	 * @throws IOException
+	 */
+	public void forEach(final IAssociationVisitor visitor) throws IOException
+	{
+		AbstractByteLineScanner ls = new AbstractByteLineScanner(input.inputStream())
+		{
+			@Override
+			public boolean newLine(byte [] buf, int start, int len)
+			{
+				/* Ignore comments */
+				if (len < 1 || buf[start] == '!')
+					return true;
+
+				lines++;
+
+				if (filter != null && !filter.accept(buf, start, len))
+				{
+					rejected++;
+					return true;
+				}
+
+				if (hasNotQualifier(buf, start, len))
+				{
+					nots++;
+					return true;
+				}
+
+				Association assoc = Association.createFromGAFLine(buf, start, len, prefixPool);
+				if (resolver != null)
+				{
+					TermID tid = resolver.resolveAssociation(assoc);
+					if (tid == null)
+					{
+						unresolved++;
+						return true;
+					}
+				}
+
+				associations++;
+				return visitor.visited(assoc);
+			}
+		};
+
+		try
+		{
+			ls.scan();
+		} finally
+		{
+			input.close();
+		}
+	}
+
+	/**
+	 * @return the number of lines that are no comments.
+	 */
+	public int getNumberOfLines()
+	{
+		return lines;
+	}
+
+	/**
+	 * @return the number of lines that have been rejected by the filter.
+	 */
+	public int getNumberOfRejectedLines()
+	{
+		return rejected;
+	}
+
+	/**
+	 * @return the number of associations that have been skipped as they
+	 *  were qualified with NOT.
+	 */
+	public int getNumberOfNots()
+	{
+		return nots;
+	}
+
+	/**
+	 * @return the number of associations that have been skipped as they
+	 *  referred to unknown or obsolete terms.
+	 */
+	public int getNumberOfUnresolved()
+	{
+		return unresolved;
+	}
+
+	/**
+	 * @return the number of associations that have been passed to the visitor.
+	 */
+	public int getNumberOfAssociations()
+	{
+		return associations;
+	}
+}
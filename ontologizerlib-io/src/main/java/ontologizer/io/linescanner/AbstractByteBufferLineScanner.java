@@ -0,0 +1,146 @@
+package ontologizer.io.linescanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import ontologizer.io.ParserMappedFileInput;
+
+/**
+ * A line scanner that reads the lines of a memory mapped file directly
+ * from the mapped windows. In contrast to {@link AbstractByteLineScanner},
+ * the contents are not copied into an intermediate buffer. Only lines that
+ * cross the boundary of two windows are assembled in a separate buffer.
+ *
+ * @author Sebastian Bauer
+ */
+public abstract class AbstractByteBufferLineScanner
+{
+	private ParserMappedFileInput input;
+
+	/** Buffer for lines that cross windows */
+	private byte [] carry = new byte[1024];
+	private int carryLen;
+
+	private int lineNum;
+
+	/** The offset of the end of the current line within the input */
+	private long position;
+
+	/**
+	 * Constructs the line scanner for the given input.
+	 *
+	 * @param input the input, which must not be compressed.
+	 */
+	public AbstractByteBufferLineScanner(ParserMappedFileInput input)
+	{
+		if (input.isCompressed())
+			throw new IllegalArgumentException("Compressed input \"" + input.getFilename() + "\" cannot be scanned directly");
+		this.input = input;
+	}
+
+	/**
+	 * Appends the given range of the buffer to the carry.
+	 */
+	private void appendCarry(ByteBuffer buf, int from, int to)
+	{
+		int len = to - from;
+		if (carryLen + len > carry.length)
+		{
+			byte [] newCarry = new byte[Math.max(carryLen + len, carry.length * 2)];
+			System.arraycopy(carry, 0, newCarry, 0, carryLen);
+			carry = newCarry;
+		}
+		ByteBuffer dup = buf.duplicate();
+		dup.position(from);
+		dup.get(carry, carryLen, len);
+		carryLen += len;
+	}
+
+	public void scan() throws IOException
+	{
+		int windows = input.getNumberOfWindows();
+		long windowStart = 0;
+
+		for (int w = 0; w < windows; w++)
+		{
+			ByteBuffer buf = input.getWindow(w);
+			int limit = buf.limit();
+			int lineStart = 0;
+			int pos = 0;
+
+			if (carryLen > 0)
+			{
+				/* Complete the line that has been started in a previous window */
+				while (pos < limit && buf.get(pos) != '\n')
+					pos++;
+				appendCarry(buf, 0, pos);
+				if (pos == limit)
+				{
+					windowStart += limit;
+					continue;
+				}
+
+				lineNum++;
+				position = windowStart + pos;
+				int len = carryLen;
+				carryLen = 0;
+				if (!newLine(ByteBuffer.wrap(carry), 0, len))
+					return;
+				lineStart = ++pos;
+			}
+
+			for (; pos < limit; pos++)
+			{
+				if (buf.get(pos) == '\n')
+				{
+					lineNum++;
+					position = windowStart + pos;
+					if (!newLine(buf, lineStart, pos - lineStart))
+						return;
+					lineStart = pos + 1;
+				}
+			}
+
+			if (lineStart < limit)
+				appendCarry(buf, lineStart, limit);
+			windowStart += limit;
+		}
+
+		if (carryLen > 0)
+		{
+			lineNum++;
+			position = windowStart;
+			int len = carryLen;
+			carryLen = 0;
+			newLine(ByteBuffer.wrap(carry), 0, len);
+		}
+	}
+
+	/**
+	 * @return the offset of the end of the current line within the input
+	 */
+	protected final long getPosition()
+	{
+		return position;
+	}
+
+	/**
+	 * @return the current line number
+	 */
+	protected final int getLineNum()
+	{
+		return lineNum;
+	}
+
+	/**
+	 * Called whenever a new line was encountered. The line is accessible
+	 * via absolute get operations on the given buffer. The buffer may be
+	 * reused after the call returned.
+	 *
+	 * @param buf the buffer containing the line
+	 * @param start the offset of the first byte of the line within buf
+	 * @param len the length of the line excluding the line break
+	 * @return false for aborting the reading
+	 */
+	abstract public boolean newLine(ByteBuffer buf, int start, int len);
+}
@@ -2,6 +2,10 @@ package ontologizer.io.linescanner;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import ontologizer.io.IParserInput;
+import ontologizer.io.ParserMappedFileInput;
 
 /**
  * This is a simple class that can be used to read an input stream
@@ -16,13 +20,17 @@ public abstract class AbstractByteLineScanner
 	private int available;
 	private int availableStart;
 
-	byte [] byteBuf = new byte[2*BUF_SIZE];
+	/** The buffer, which is allocated when the scan starts */
+	byte [] byteBuf;
 
 	private byte [] pushedBytes;
 	private int pushedCurrent = -1;
 
 	private int lineNum;
 
+	/** The position within a mapped input that is scanned directly or -1 */
+	private long mappedPosition = -1;
+
 	public AbstractByteLineScanner(InputStream is)
 	{
 		this.is = is;
@@ -33,6 +41,9 @@ public abstract class AbstractByteLineScanner
 		int read;
 		int read_offset = 0;
 
+		if (byteBuf == null)
+			byteBuf = new byte[2*BUF_SIZE];
+
 		outer:
 		while ((read = read(byteBuf, read_offset, BUF_SIZE) + read_offset) > read_offset)
 		{
@@ -48,6 +59,7 @@ public abstract class AbstractByteLineScanner
 					{
 						availableStart = pos + 1;
 						available = read - availableStart;
+						read_offset = 0;
 						break outer;
 					}
 					line_start = pos + 1;
@@ -66,6 +78,57 @@ public abstract class AbstractByteLineScanner
 		}
 	}
 
+	/**
+	 * Scans the lines of the given uncompressed input directly within its
+	 * mapped windows rather than reading them from the input stream of this
+	 * scanner. Only lines that are not backed by an array, which applies to
+	 * most of the lines of a mapped file, are copied into a separate buffer
+	 * before {@link #newLine(byte[], int, int)} is called. Pushed bytes are
+	 * ignored.
+	 *
+	 * @param input the input, which must not be compressed.
+	 * @throws IOException
+	 */
+	public void scan(ParserMappedFileInput input) throws IOException
+	{
+		AbstractByteBufferLineScanner bbls = new AbstractByteBufferLineScanner(input)
+		{
+			private byte [] line = new byte[1024];
+
+			@Override
+			public boolean newLine(ByteBuffer buf, int start, int len)
+			{
+				lineNum = getLineNum();
+				mappedPosition = getPosition();
+
+				if (buf.hasArray())
+					return AbstractByteLineScanner.this.newLine(buf.array(), buf.arrayOffset() + start, len);
+
+				if (len > line.length)
+					line = new byte[Math.max(len, line.length * 2)];
+				ByteBuffer dup = buf.duplicate();
+				dup.position(start);
+				dup.get(line, 0, len);
+				return AbstractByteLineScanner.this.newLine(line, 0, len);
+			}
+		};
+		bbls.scan();
+	}
+
+	/**
+	 * Returns the current position of the scan within the given input, which
+	 * is the input that is scanned.
+	 *
+	 * @param input the input
+	 * @return the position
+	 */
+	protected final int getPosition(IParserInput input)
+	{
+		if (mappedPosition >= 0)
+			return (int)Math.min(mappedPosition, Integer.MAX_VALUE);
+		return input.getPosition();
+	}
+
 	/**
 	 * @return the current line number
 	 */
@@ -113,7 +176,8 @@ public abstract class AbstractByteLineScanner
 	 */
 	public byte [] availableBuffer() {
 		byte [] b = new byte[available];
-		System.arraycopy(byteBuf, availableStart, b, 0, available);
+		if (available != 0)
+			System.arraycopy(byteBuf, availableStart, b, 0, available);
 		return b;
 	}
 
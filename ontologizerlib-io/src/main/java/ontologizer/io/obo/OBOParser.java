@@ -24,17 +24,25 @@ import static ontologizer.io.obo.OBOKeywords.TRUE_KEYWORD;
 import static ontologizer.io.obo.OBOKeywords.TYPEDEF_KEYWORD;
 import static ontologizer.io.obo.OBOKeywords.XREF_KEYWORD;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import ontologizer.io.IParserInput;
+import ontologizer.io.ParserMappedFileInput;
 import ontologizer.io.linescanner.AbstractByteLineScanner;
 import ontologizer.ontology.Namespace;
 import ontologizer.ontology.ParentTermID;
@@ -75,6 +83,9 @@ public class OBOParser
 		TYPEDEF
 	}
 
+	/** The default number of bytes of the chunks that are parsed in parallel */
+	static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
 	/** Flag to keep the definitions */
 	public final static int PARSE_DEFINITIONS 	= 1 << 0;
 
@@ -90,15 +101,19 @@ public class OBOParser
 	/** Ignore synonyms */
 	public final static int IGNORE_SYNONYMS     = 1 << 4;
 
+	/** Load definitions, synonyms and xrefs on demand */
+	public final static int LAZY_BODIES         = 1 << 5;
+
 	/**
 	 * Escaped characters such as \\ in the gene_ontology.obo file.
 	 */
 	private static final HashMap<Character, Character> escapeChars = new HashMap<Character, Character>();
 
 	/**
-	 * Reverse direction
+	 * Reverse direction, i.e., the escape character of characters that
+	 * need to be escaped. Used by {@link OBOWriter}.
 	 */
-	private static final HashMap<Character, Character> unescapeChars = new HashMap<Character, Character>();
+	static final HashMap<Character, Character> unescapeChars = new HashMap<Character, Character>();
 
 
 	static
@@ -134,6 +149,9 @@ public class OBOParser
 	/** The current parse options */
 	private int options;
 
+	/** The loader of the term bodies if they are loaded on demand, or null */
+	private OBOTermBodyLoader bodyLoader;
+
 	/** Format version of the gene_ontology.obo file */
 	private ByteString format_version;
 
@@ -177,41 +195,9 @@ public class OBOParser
 	/** All parsed namespaces */
 	private HashMap<ByteString,Namespace> namespaces = new HashMap<ByteString,Namespace>();
 
-	/** The Stanza currently being processed */
-	private Stanza currentStanza;
-
-	/** The id of the current Term in the stanza currently being parsed */
-	private TermID currentID;
-
-	/** The name of the GO Term currently being parsed */
-	private ByteString currentName;
-
-	/** The namespace of the stanza currently being parsed */
-	private Namespace currentNamespace;
-
-	/** The definition of the stanza currently being parsed */
-	private ByteString currentDefintion;
-
-	/** Is current term obsolete? */
-	private boolean currentObsolete;
-
-	/** The parents of the term of the stanza currently being parsed */
-	private ArrayList<ParentTermID> currentParents = new ArrayList<ParentTermID>();
-
-	/** The alternative ids of the term */
-	private ArrayList<TermID> currentAlternatives = new ArrayList<TermID>();
-
-	/** The equivalent ids of the term */
-	private ArrayList<TermID> currentEquivalents = new ArrayList<TermID>();
-
-	/** Synonyms, if any, for the Term currently being parsed */
-	private ArrayList<ByteString> currentSynonyms = new ArrayList<ByteString>();
-
-	/** The subsets */
-	private ArrayList<Subset> currentSubsets = new ArrayList<Subset>();
+	/** The minimum number of bytes of the chunks that are parsed in parallel */
+	int chunkSize = DEFAULT_CHUNK_SIZE;
 
-	/** The xrefs of the term */
-	private ArrayList<TermXref> currentXrefs = new ArrayList<TermXref>();
 
 	/**
 	 * Construct an obo parser.
@@ -234,6 +220,11 @@ public class OBOParser
 	 * <li>SETNAMEEQUALTOID - to set the name to the actual term id if no name
 	 *  property is defined.
 	 * <li>IGNORE_SYNONYMS - to ignore synonyms.
+	 * <li>LAZY_BODIES - to load the definitions, synonyms and xrefs of a term
+	 *  on demand, i.e., when they are accessed for the first time. The file
+	 *  of the input is re-read for this purpose, so it must not change. As
+	 *  bodies are available on demand, PARSE_DEFINITIONS and PARSE_XREFS are
+	 *  implied. Inputs without a file are parsed eagerly.
 	 * </ul>
 	 *
 	 * @param input defines the input wrapping the stanza files
@@ -242,6 +233,19 @@ public class OBOParser
 	public OBOParser(IParserInput input, int options)
 	{
 		this.input = input;
+
+		if ((options & LAZY_BODIES) != 0)
+		{
+			if (input.getFilename() != null)
+			{
+				bodyLoader = new OBOTermBodyLoader(input.getFilename(), (options | PARSE_DEFINITIONS | PARSE_XREFS) & ~LAZY_BODIES);
+				options = (options | IGNORE_SYNONYMS) & ~(PARSE_DEFINITIONS | PARSE_XREFS);
+			} else
+			{
+				logger.warning("Input has no file, so term bodies are parsed eagerly");
+				options &= ~LAZY_BODIES;
+			}
+		}
 		this.options = options;
 
 		for (int i = 0; i < knownRelations.length; i++)
@@ -257,660 +261,1265 @@ public class OBOParser
 	}
 
 	/**
-	 * This puts the results of the parse of a single OBO stanza into one Term
-	 * object and stores that in the HashSet terms.
+	 * Scans the lines of an OBO input and collects the terms of the stanzas.
+	 * The state of the stanza that is currently parsed is kept by the scanner,
+	 * so several scanners can parse different parts of the input in parallel.
 	 */
-	private void enterNewTerm()
+	private class OBOByteLineScanner extends AbstractByteLineScanner
 	{
-		if (currentStanza != null)
-		{
-			/* Ignore typedefs */
-			if (currentStanza == Stanza.TYPEDEF)
-				return;
+		private final IOBOParserProgress progress;
+		private long millis = 0;
+		public int currentTerm = 0;
 
-			/* If no name is defined use the id as a name */
-			if (currentName == null && currentID != null)
-				currentName = currentID.toByteString();
+		/** The parsed terms */
+		private final Collection<Term> terms;
 
-			if (currentID == null || currentName == null)
-			{
-				logger.warning("Error parsing stanza: " + currentStanza.toString()+" currentID: "+currentID+", currentName: "+currentName);
+		/** Statistics */
+		public int numberOfRelations;
 
-				resetCurrentStanza();
-				return;
+		/** Pool for prefixes */
+		private final PrefixPool prefixPool;
 
-			}
+		/** Pool for relation types */
+		private final RelationTypePool relationTypePool;
 
-			/* Create a Term object and put it in the HashMap terms. */
-			Term t = new Term(currentID, currentName, currentNamespace, currentParents);
-			t.setObsolete(currentObsolete);
-			t.setDefinition(currentDefintion);
-			t.setAlternatives(currentAlternatives);
-			t.setEquivalents(currentEquivalents);
-			t.setSubsets(currentSubsets);
-			t.setSynonyms(currentSynonyms);
-			t.setXrefs(currentXrefs);
-			terms.add(t);
+		/** Pool for term ids */
+		private final ReferencePool<TermID> termIDPool;
 
-			/* Statistics */
-			numberOfRelations += currentParents.size();
-		}
+		/** The namespaces known to this scanner */
+		private final HashMap<ByteString,Namespace> namespaces;
 
-		resetCurrentStanza();
-	}
+		/** The namespaces that are shared with other scanners or null */
+		private final HashMap<ByteString,Namespace> sharedNamespaces;
 
-	private void resetCurrentStanza()
-	{
-		/* Now reset... */
-		currentID = null;
-		currentName = null;
-		currentNamespace = null;
-		currentDefintion = null;
-		currentObsolete = false;
-		currentParents.clear();
-		currentAlternatives.clear();
-		currentEquivalents.clear();
-		currentSubsets.clear();
-		currentSynonyms.clear();
-		currentXrefs.clear();
-	}
+		/** The Stanza currently being processed */
+		private Stanza currentStanza;
 
+		/** The id of the current Term in the stanza currently being parsed */
+		private TermID currentID;
 
-	/**
-	 * The main parsing routine for the gene_ontology.obo file
-	 *
-	 * @return A string giving details about the parsed obo file
-	 * @throws OBOParserException
-	 * @throws IOException
-	 */
-	public String doParse() throws IOException, OBOParserException
-	{
-		return doParse(null);
-	}
+		/** The name of the GO Term currently being parsed */
+		private ByteString currentName;
 
-	/**
-	 * The main parsing routine for the gene_ontology.obo file
-	 *
-	 * @param progress
-	 * @return A string giving details about the parsed obo file
-	 * @throws OBOParserException
-	 * @throws IOException
-	 */
-	public String doParse(final IOBOParserProgress progress) throws IOException, OBOParserException
-	{
-		if (parsed)
+		/** The namespace of the stanza currently being parsed */
+		private Namespace currentNamespace;
+
+		/** The definition of the stanza currently being parsed */
+		private ByteString currentDefintion;
+
+		/** Is current term obsolete? */
+		private boolean currentObsolete;
+
+		/** The parents of the term of the stanza currently being parsed */
+		private ArrayList<ParentTermID> currentParents = new ArrayList<ParentTermID>();
+
+		/** The alternative ids of the term */
+		private ArrayList<TermID> currentAlternatives = new ArrayList<TermID>();
+
+		/** The equivalent ids of the term */
+		private ArrayList<TermID> currentEquivalents = new ArrayList<TermID>();
+
+		/** Synonyms, if any, for the Term currently being parsed */
+		private ArrayList<ByteString> currentSynonyms = new ArrayList<ByteString>();
+
+		/** The subsets */
+		private ArrayList<Subset> currentSubsets = new ArrayList<Subset>();
+
+		/** The xrefs of the term */
+		private ArrayList<TermXref> currentXrefs = new ArrayList<TermXref>();
+
+		private byte [] multilineBuf;
+
+		/** The offset of the current and the next line within the input */
+		private long lineOffset;
+		private long nextLineOffset;
+
+		/** The offset of the stanza currently being parsed */
+		private long stanzaOffset;
+
+		private byte [] line;
+		private int start;
+		private int len;
+
+		private byte [] temp;
+
+		public OBOParserException exception;
+
+		/**
+		 * Whether the scan is aborted with an {@link UndeterminedTermIDException}
+		 * rather than making new integer ids for arbitrary term ids.
+		 */
+		private final boolean deferUndetermined;
+
+		/**
+		 * Constructs a scanner that stores the terms and pooled objects
+		 * directly in the parser.
+		 *
+		 * @param is the input
+		 * @param progress the progress monitor or null
+		 */
+		public OBOByteLineScanner(InputStream is, IOBOParserProgress progress)
 		{
-			return getParseDiagnostics();
+			this(is, progress, 0);
 		}
 
-		long startMillis = System.currentTimeMillis();
+		/**
+		 * Constructs a scanner that stores the terms and pooled objects
+		 * directly in the parser.
+		 *
+		 * @param is the input
+		 * @param progress the progress monitor or null
+		 * @param offset the offset of the input within the whole input
+		 */
+		public OBOByteLineScanner(InputStream is, IOBOParserProgress progress, long offset)
+		{
+			super(is);
+
+			this.progress = progress;
+			this.terms = OBOParser.this.terms;
+			this.prefixPool = OBOParser.this.prefixPool;
+			this.relationTypePool = OBOParser.this.relationTypePool;
+			this.termIDPool = OBOParser.this.termIDPool;
+			this.namespaces = OBOParser.this.namespaces;
+			this.sharedNamespaces = null;
+			this.nextLineOffset = offset;
+			this.deferUndetermined = false;
+		}
 
-		if (progress != null)
-			progress.init(input.getSize());
+		/**
+		 * Constructs a scanner for a chunk of stanzas. The terms are kept by the
+		 * scanner, while the pools are backed by the pools of the parser.
+		 *
+		 * @param is the input of the chunk
+		 * @param offset the offset of the chunk within the whole input
+		 * @param deferUndetermined whether the scan is aborted with an
+		 *  {@link UndeterminedTermIDException} when an arbitrary term id is
+		 *  encountered that has not been seen before.
+		 */
+		public OBOByteLineScanner(InputStream is, long offset, boolean deferUndetermined)
+		{
+			super(is);
+
+			this.progress = null;
+			this.terms = new ArrayList<Term>();
+			this.prefixPool = new PrefixPool(OBOParser.this.prefixPool);
+			this.relationTypePool = new RelationTypePool(OBOParser.this.relationTypePool);
+			this.termIDPool = new ReferencePool<TermID>(OBOParser.this.termIDPool);
+			this.namespaces = new HashMap<ByteString,Namespace>();
+			this.sharedNamespaces = OBOParser.this.namespaces;
+			this.nextLineOffset = offset;
+			this.deferUndetermined = deferUndetermined;
+		}
+
+		/**
+		 * @return the number of lines that have been scanned so far.
+		 */
+		public int getNumberOfLines()
+		{
+			return getLineNum();
+		}
 
-		class OBOByteLineScanner extends AbstractByteLineScanner
+		/**
+		 * This puts the results of the parse of the very last OBO stanza into one
+		 * Term object and stores that in the HashSet terms. To be called after
+		 * the scan.
+		 */
+		private void enterNewTerm()
 		{
-			private long millis = 0;
-			public int currentTerm = 0;
+			enterNewTerm(nextLineOffset);
+		}
 
-			private byte [] multilineBuf;
+		/**
+		 * This puts the results of the parse of a single OBO stanza into one Term
+		 * object and stores that in the HashSet terms.
+		 *
+		 * @param stanzaEnd the offset of the end of the stanza within the input
+		 */
+		private void enterNewTerm(long stanzaEnd)
+		{
+			if (currentStanza != null)
+			{
+				/* Ignore typedefs */
+				if (currentStanza == Stanza.TYPEDEF)
+					return;
 
-			private byte [] line;
-			private int start;
-			private int len;
+				/* If no name is defined use the id as a name */
+				if (currentName == null && currentID != null)
+					currentName = currentID.toByteString();
 
-			private byte [] temp;
+				if (currentID == null || currentName == null)
+				{
+					logger.warning("Error parsing stanza: " + currentStanza.toString()+" currentID: "+currentID+", currentName: "+currentName);
 
-			public OBOParserException exception;
+					resetCurrentStanza();
+					return;
 
-			public OBOByteLineScanner(InputStream is)
-			{
-				super(is);
+				}
+
+				/* Create a Term object and put it in the HashMap terms. */
+				Term t = new Term(currentID, currentName, currentNamespace, currentParents);
+				t.setObsolete(currentObsolete);
+				t.setDefinition(currentDefintion);
+				t.setAlternatives(currentAlternatives);
+				t.setEquivalents(currentEquivalents);
+				t.setSubsets(currentSubsets);
+				t.setSynonyms(currentSynonyms);
+				t.setXrefs(currentXrefs);
+				if (bodyLoader != null)
+					t.setBodyLoader(bodyLoader, stanzaOffset, (int)Math.min(stanzaEnd - stanzaOffset, Integer.MAX_VALUE));
+				terms.add(t);
+
+				/* Statistics */
+				numberOfRelations += currentParents.size();
 			}
 
-			/**
-			 * Issue a progress report.
-			 */
-			private void updateProgress()
+			resetCurrentStanza();
+		}
+
+		private void resetCurrentStanza()
+		{
+			/* Now reset... */
+			currentID = null;
+			currentName = null;
+			currentNamespace = null;
+			currentDefintion = null;
+			currentObsolete = false;
+			currentParents.clear();
+			currentAlternatives.clear();
+			currentEquivalents.clear();
+			currentSubsets.clear();
+			currentSynonyms.clear();
+			currentXrefs.clear();
+		}
+
+		/**
+		 * Issue a progress report.
+		 */
+		private void updateProgress()
+		{
+			if (progress != null)
 			{
-				if (progress != null)
+				long newMillis = System.currentTimeMillis();
+				if (newMillis - millis > 250)
 				{
-					long newMillis = System.currentTimeMillis();
-					if (newMillis - millis > 250)
-					{
-						int pos = input.getPosition();
-						if (pos >= 0)
-							progress.update(pos, currentTerm);
+					int pos = getPosition(input);
+					if (pos >= 0)
+						progress.update(pos, currentTerm);
 
-						millis = newMillis;
-					}
+					millis = newMillis;
 				}
 			}
+		}
 
-			/**
-			 * Expands the multiline buf with the given buf.
-			 *
-			 * @param buf
-			 * @param start
-			 * @param len
-			 */
-			private void expandMultilibeBuf(byte [] buf, int start, int len)
-			{
-				int oldlen;
-				if (multilineBuf != null)
-					oldlen = multilineBuf.length;
-				else oldlen = 0;
+		/**
+		 * Expands the multiline buf with the given buf.
+		 *
+		 * @param buf
+		 * @param start
+		 * @param len
+		 */
+		private void expandMultilibeBuf(byte [] buf, int start, int len)
+		{
+			int oldlen;
+			if (multilineBuf != null)
+				oldlen = multilineBuf.length;
+			else oldlen = 0;
 
-				byte [] newMultilineBuf = new byte[oldlen + len];
+			byte [] newMultilineBuf = new byte[oldlen + len];
 
-				if (oldlen != 0)
-					System.arraycopy(multilineBuf, 0, newMultilineBuf, 0, oldlen);
-				System.arraycopy(buf, start, newMultilineBuf, oldlen, len);
-				multilineBuf = newMultilineBuf;
-			}
+			if (oldlen != 0)
+				System.arraycopy(multilineBuf, 0, newMultilineBuf, 0, oldlen);
+			System.arraycopy(buf, start, newMultilineBuf, oldlen, len);
+			multilineBuf = newMultilineBuf;
+		}
+
+		/**
+		 * Returns the current line content as string.
+		 *
+		 * @return
+		 */
+		private String getLineContens()
+		{
+			return new ByteString(line,start,start+len).toString();
+		}
+
+		/**
+		 * Compares buf vs cmp.
+		 * @param buf
+		 * @param start where to start in buf
+		 * @param len where to end in buf
+		 * @param cmp is assumed to be lower case
+		 * @return
+		 */
+		private boolean equalsIgnoreCase(final byte [] buf, int start, int len, byte [] cmp)
+		{
+			if (cmp.length != len) return false;
 
-			/**
-			 * Returns the current line content as string.
-			 *
-			 * @return
-			 */
-			private String getLineContens()
+			for (int i=0;i<len;i++)
 			{
-				return new ByteString(line,start,start+len).toString();
+				byte c = buf[start+i];
+				if (c>=65 && c <=90) c += 32;
+				if (cmp[i] != c)
+					return false;
 			}
+			return true;
+		}
 
-			/**
-			 * Compares buf vs cmp.
-			 * @param buf
-			 * @param start where to start in buf
-			 * @param len where to end in buf
-			 * @param cmp is assumed to be lower case
-			 * @return
-			 */
-			private boolean equalsIgnoreCase(final byte [] buf, int start, int len, byte [] cmp)
-			{
-				if (cmp.length != len) return false;
+		@Override
+		public boolean newLine(byte[] buf, int start, int len)
+		{
+			updateProgress();
 
-				for (int i=0;i<len;i++)
-				{
-					byte c = buf[start+i];
-					if (c>=65 && c <=90) c += 32;
-					if (cmp[i] != c)
-						return false;
-				}
+			lineOffset = nextLineOffset;
+			nextLineOffset += len + 1;
+
+			if (len == 0)
+				return true;
+
+			if (buf[start+len-1] == '\\')
+			{
+				expandMultilibeBuf(buf, start, len-1);
 				return true;
 			}
 
-			@Override
-			public boolean newLine(byte[] buf, int start, int len)
+			if (multilineBuf != null)
 			{
-				updateProgress();
+				expandMultilibeBuf(buf, start, len);
+				buf = multilineBuf;
+				start = 0;
+				len = multilineBuf.length;
+			}
+			multilineBuf = null;
 
-				if (len == 0)
-					return true;
+			/* Skip any comments */
+			if (buf[start] == '!')
+				return true;
 
-				if (buf[start+len-1] == '\\')
-				{
-					expandMultilibeBuf(buf, start, len-1);
-					return true;
-				}
+			/* Trim line ending */
+			while (len != 0 && Character.isWhitespace(buf[start + len-1]))
+					len--;
+			if (len == 0)
+				return true;
 
-				if (multilineBuf != null)
-				{
-					expandMultilibeBuf(buf, start, len);
-					buf = multilineBuf;
-					start = 0;
-					len = multilineBuf.length;
-				}
-				multilineBuf = null;
+			/* Bring the line info into our context */
+			this.line = buf;
+			this.start = start;
+			this.len = len;
 
-				/* Skip any comments */
-				if (buf[start] == '!')
-					return true;
+			/* If the line starts with "[", we are at a new [Term] or [Typedef] */
+			if (buf[start] == '[')
+			{
+				enterNewTerm(lineOffset);
+				stanzaOffset = lineOffset;
+				currentTerm++;
 
-				/* Trim line ending */
-				while (len != 0 && Character.isWhitespace(buf[start + len-1]))
-						len--;
-				if (len == 0)
-					return true;
+				if (buf[start + len - 1] != ']')
+				{
+					exception = new OBOParserException("Unclosed stanza", getLineContens(), getLineNum());
+					return false;
+				}
 
-				/* Bring the line info into our context */
-				this.line = buf;
-				this.start = start;
-				this.len = len;
+				start++;
+				len-=2;
 
-				/* If the line starts with "[", we are at a new [Term] or [Typedef] */
-				if (buf[start] == '[')
+				if (equalsIgnoreCase(line, start, len, TERM_KEYWORD)) currentStanza = Stanza.TERM;
+				else if (equalsIgnoreCase(line, start, len, TYPEDEF_KEYWORD)) currentStanza = Stanza.TYPEDEF;
+				else
 				{
-					enterNewTerm();
-					currentTerm++;
-
-					if (buf[start + len - 1] != ']')
+					exception = new OBOParserException("Unknown stanza type", getLineContens(), getLineNum());
+					return false;
+				}
+				currentTerm++;
+			} else
+			{
+				/* Find colon */
+				int keyEnd = -1;
+				int valueStart = -1;
+				for (int i=start;i<start+len;i++)
+				{
+					if (buf[i] == ':')
 					{
-						exception = new OBOParserException("Unclosed stanza", getLineContens(), getLineNum());
-						return false;
+						keyEnd = i;
+						break;
 					}
+				}
 
-					start++;
-					len-=2;
+				/* Ignore these lines without key: value format */
+				if (keyEnd == -1)
+					return true;
 
-					if (equalsIgnoreCase(line, start, len, TERM_KEYWORD)) currentStanza = Stanza.TERM;
-					else if (equalsIgnoreCase(line, start, len, TYPEDEF_KEYWORD)) currentStanza = Stanza.TYPEDEF;
-					else
-					{
-						exception = new OBOParserException("Unknown stanza type", getLineContens(), getLineNum());
-						return false;
-					}
-					currentTerm++;
-				} else
+				/* Find start of the value */
+				for (int i=keyEnd+1;i<start+len;i++)
 				{
-					/* Find colon */
-					int keyEnd = -1;
-					int valueStart = -1;
-					for (int i=start;i<start+len;i++)
+					if (!Character.isWhitespace(buf[i]))
 					{
-						if (buf[i] == ':')
-						{
-							keyEnd = i;
-							break;
-						}
+						valueStart = i;
+						break;
 					}
+				}
 
-					/* Ignore these lines without key: value format */
-					if (keyEnd == -1)
-						return true;
+				/* Ignore any lines without a proper value */
+				if (valueStart == -1)
+					return true;
 
-					/* Find start of the value */
-					for (int i=keyEnd+1;i<start+len;i++)
-					{
-						if (!Character.isWhitespace(buf[i]))
-						{
-							valueStart = i;
-							break;
-						}
-					}
+				int keyStart = start;
+				int keyLen = keyEnd - start;
+				int valueLen = start + len - valueStart;
 
-					/* Ignore any lines without a proper value */
-					if (valueStart == -1)
-						return true;
+				if (currentStanza == null) readHeaderValue(line, keyStart, keyLen, valueStart, valueLen);
+				else if (currentStanza == Stanza.TERM) readTermValue(line, keyStart, keyLen, valueStart, valueLen);
+				else readTypedefValue(line, keyStart, keyLen, valueStart, valueLen);
+			}
+			return true;
+		}
 
-					int keyStart = start;
-					int keyLen = keyEnd - start;
-					int valueLen = start + len - valueStart;
+		private void parse_header_format_version(byte[] buf, int valueStart, int valueLen)
+		{
+			format_version = new ByteString(buf, valueStart, valueStart + valueLen);
+		}
 
-					if (currentStanza == null) readHeaderValue(line, keyStart, keyLen, valueStart, valueLen);
-					else if (currentStanza == Stanza.TERM) readTermValue(line, keyStart, keyLen, valueStart, valueLen);
-				}
-				return true;
-			}
+		private void parse_header_date(byte[] buf, int valueStart, int valueLen)
+		{
+			date = new ByteString(buf, valueStart, valueStart + valueLen);
+		}
 
-			/**
-			 * Parse key/value as header.
-			 *
-			 * @param buf
-			 * @param keyStart
-			 * @param keyLen
-			 * @param valueStart
-			 * @param valueLen
-			 */
-			private void readHeaderValue(byte[] buf, int keyStart, int keyLen, int valueStart, int valueLen)
-			{
-				if (equalsIgnoreCase(buf, keyStart, keyLen, FORMAT_VERSION_KEYWORD))
-				{
-					format_version = new ByteString(buf, valueStart, valueStart + valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, DATE_KEYWORD))
-				{
-					date = new ByteString(buf, valueStart, valueStart + valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, DATA_VERSION_KEYWORD))
-				{
-					data_version = new ByteString(buf, valueStart, valueStart + valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, SUBSETDEF_KEYWORD))
-				{
-					Subset s = Subset.createFromString(new String(buf, valueStart, valueLen));
-					if (!subsets.containsKey(s.getName()))
-						subsets.put(s.getName(),s);
-				}
-			}
+		private void parse_header_data_version(byte[] buf, int valueStart, int valueLen)
+		{
+			data_version = new ByteString(buf, valueStart, valueStart + valueLen);
+		}
 
-			/**
-			 * Reads the term id stored in the buf at the given locations.
-			 *
-			 * @param buf
-			 * @param valueStart
-			 * @param valueLen
-			 * @return
-			 */
-			private TermID readTermID(byte[] buf, int valueStart, int valueLen)
-			{
-				return termIDPool.map(new TermID(buf,valueStart,valueLen,prefixPool));
-			}
+		private void parse_header_subsetdef(byte[] buf, int valueStart, int valueLen)
+		{
+			Subset s = Subset.createFromString(new String(buf, valueStart, valueLen));
+			if (!subsets.containsKey(s.getName()))
+				subsets.put(s.getName(),s);
+		}
+
+		/**
+		 * Reads the term id stored in the buf at the given locations.
+		 *
+		 * @param buf
+		 * @param valueStart
+		 * @param valueLen
+		 * @return
+		 */
+		private TermID readTermID(byte[] buf, int valueStart, int valueLen)
+		{
+			if (deferUndetermined && !TermID.isDetermined(buf, valueStart, valueLen))
+				throw new UndeterminedTermIDException();
+			return termIDPool.map(new TermID(buf,valueStart,valueLen,prefixPool));
+		}
 
-			/**
-			 * Finds the first occurrence of c in buf starting from start but
-			 * not exceeding len.
-			 *
-			 * @return -1 if not found.
-			 */
-			private int findUnescaped(final byte [] buf, int start, int len, char c)
+		/**
+		 * Finds the first occurrence of c in buf starting from start but
+		 * not exceeding len.
+		 *
+		 * @return -1 if not found.
+		 */
+		private int findUnescaped(final byte [] buf, int start, int len, char c)
+		{
+			while (len > 0)
 			{
-				while (len > 0)
+				if (buf[start] == '\\')
 				{
-					if (buf[start] == '\\')
-					{
-						start+=2;
-						len-=2;
-						continue;
-					}
-
-					if (buf[start] == c)
-						return start;
-					start++;
-					len--;
+					start+=2;
+					len-=2;
+					continue;
 				}
-				return -1;
+
+				if (buf[start] == c)
+					return start;
+				start++;
+				len--;
 			}
+			return -1;
+		}
 
 
-			/**
-			 * Finds teh first occurrence of c1 or c2 in buf starting from start but
-			 * not exceeding len.
-			 *
-			 * @return -1 if not found.
-			 */
-			@SuppressWarnings("unused")
-			private int findUnescaped(final byte [] buf, int start, int len, char c1, char c2)
+		/**
+		 * Resolves the escape sequences of the given part of buf.
+		 *
+		 * @param buf
+		 * @param start
+		 * @param end the end (exclusive)
+		 * @return the unescaped contents
+		 */
+		private ByteString unescape(final byte [] buf, int start, int end)
+		{
+			int i = start;
+			while (i < end && buf[i] != '\\')
+				i++;
+			if (i == end)
+				return new ByteString(buf, start, end);
+
+			if (temp == null || temp.length < end - start)
+				temp = new byte[end - start];
+			int len = i - start;
+			System.arraycopy(buf, start, temp, 0, len);
+			for (; i < end; i++)
 			{
-				while (len != 0)
+				byte c = buf[i];
+				if (c == '\\' && i + 1 < end)
 				{
-					if (buf[start] == c1|| buf[start] == c2)
-						return start;
-					start++;
-					len--;
+					c = buf[++i];
+					Character e = escapeChars.get((char)c);
+					if (e != null)
+						c = (byte)e.charValue();
 				}
-				return -1;
+				temp[len++] = c;
 			}
+			return new ByteString(temp, 0, len);
+		}
 
-			/**
-			 * Finds the first occurrence of c1, c2, or c3 in buf starting from start but
-			 * not exceeding len.
-			 *
-			 * @return -1 if not found.
-			 */
-			private int findUnescaped(final byte [] buf, int start, int len, char c1, char c2, char c3)
+		/**
+		 * Skip spaces starting at start not more than len.
+		 *
+		 * @param buf
+		 * @param start
+		 * @param len
+		 * @return -1 if no space could be found.
+		 */
+		private int skipSpaces(final byte [] buf, int start, int len)
+		{
+			while (len != 0)
 			{
-				while (len != 0)
-				{
-					if (buf[start] == c1|| buf[start] == c2)
-						return start;
-					start++;
-					len--;
-				}
-				return -1;
+				if (buf[start] != ' ' && buf[start] != '\t')
+					return start;
+				start++;
+				len--;
 			}
+			return -1;
+		}
+
+
+		/**
+		 * Strips the trailing modifiers, the trailing comment and spaces from
+		 * the given value.
+		 *
+		 * @param buf
+		 * @param start
+		 * @param len
+		 * @return the length of the stripped value.
+		 */
+		private int trimValue(final byte [] buf, int start, int len)
+		{
+			int end = findModifiers(buf, start, len);
+			if (end == -1) end = start + len;
+			while (end > start && (buf[end-1] == ' ' || buf[end-1] == '\t'))
+				end--;
+			return end - start;
+		}
+
+		private void parse_id(byte[] buf, int valueStart, int valueLen)
+		{
+			currentID = readTermID(buf, valueStart, trimValue(buf, valueStart, valueLen));
+			if ((options & SETNAMEEQUALTOID) != 0)
+				currentName = currentID.toByteString();
+		}
 
-			/**
-			 * Skip spaces starting at start not more than len.
-			 *
-			 * @param buf
-			 * @param start
-			 * @param len
-			 * @return -1 if no space could be found.
-			 */
-			private int skipSpaces(final byte [] buf, int start, int len)
+		private void parse_name(byte[] buf, int valueStart, int valueLen)
+		{
+			currentName = unescape(buf, valueStart, valueStart + valueLen);
+		}
+
+		private void parse_is_a(byte[] buf, int valueStart, int valueLen)
+		{
+			currentParents.add(new ParentTermID(readTermID(buf, valueStart, trimValue(buf, valueStart, valueLen)),knownRelations[IS_A]));
+			referencedRelations[IS_A] = true;
+		}
+
+		private RelationType parse_relation_type(byte[] buf, int typeStart, int typeEnd)
+		{
+			int meaning;
+
+			if (equalsIgnoreCase(buf, typeStart, typeEnd - typeStart, PART_OF_KEYWORD)) meaning = PART_OF_A;
+			else if (equalsIgnoreCase(buf, typeStart, typeEnd - typeStart, REGULATES_KEYWORD)) meaning = REGULATES;
+			else if (equalsIgnoreCase(buf, typeStart, typeEnd - typeStart, NEGATIVELY_REGULATES_KEYWORD)) meaning = NEGATIVELY_REGULATES;
+			else if (equalsIgnoreCase(buf, typeStart, typeEnd - typeStart, POSITIVELY_REGULATES_KEYWORD)) meaning = POSITIVELY_REGULATES;
+			else
 			{
-				while (len != 0)
+				RelationType type = relationTypePool.map(buf, typeStart, typeEnd);
+				if (type != null)
 				{
-					if (buf[start] != ' ' && buf[start] != '\t')
-						return start;
-					start++;
-					len--;
+					return type;
 				}
-				return -1;
+				return relationTypePool.map(new RelationType(new ByteString(buf, typeStart, typeEnd), RelationMeaning.UNKOWN));
 			}
+			referencedRelations[meaning] = true;
+			return knownRelations[meaning];
+		}
 
+		private void parse_relationship(byte[] buf, int valueStart, int valueLen)
+		{
+			RelationType type;
 
-			private void parse_id(byte[] buf, int valueStart, int valueLen)
-			{
-				currentID = readTermID(buf, valueStart, valueLen);
-				if ((options & SETNAMEEQUALTOID) != 0)
-					currentName = currentID.toByteString();
-			}
+			int typeStart = valueStart;
+			int typeEnd = findUnescaped(buf, valueStart, valueLen, ' ');
+			if (typeEnd== -1) return;
+
+			int idStart = skipSpaces(buf, typeEnd, valueStart + valueLen - typeEnd);
+			if (idStart == -1) return;
+			int idLen = trimValue(buf, idStart, valueStart + valueLen - idStart);
+			if (idLen == 0) return;
+
+			type = parse_relation_type(buf, typeStart, typeEnd);
+
+			currentParents.add(new ParentTermID(readTermID(buf,idStart,idLen),type));
+		}
 
-			private void parse_name(byte[] buf, int valueStart, int valueLen)
+		private void parse_synonym(byte[] buf, int valueStart, int valueLen)
+		{
+			if ((options & IGNORE_SYNONYMS) == 0)
 			{
-				currentName = new ByteString(buf, valueStart, valueStart + valueLen);
+				int synonymStart = findQuote(buf, valueStart, valueLen);
+				if (synonymStart == -1) return;
+				synonymStart++;
+				int synonymEnd = findQuote(buf, synonymStart, valueStart + valueLen - synonymStart);
+				if (synonymEnd == -1) return;
+
+				currentSynonyms.add(unescape(buf,synonymStart,synonymEnd));
 			}
+		}
 
-			private void parse_is_a(byte[] buf, int valueStart, int valueLen)
+		private void parse_def(byte[] buf, int valueStart, int valueLen)
+		{
+			if ((options & PARSE_DEFINITIONS) != 0)
 			{
-				currentParents.add(new ParentTermID(readTermID(buf, valueStart, valueLen),knownRelations[IS_A]));
-				referencedRelations[IS_A] = true;
+				int defStart = findQuote(buf, valueStart, valueLen);
+				if (defStart == -1) return;
+				defStart++;
+				int defEnd = findQuote(buf, defStart, valueStart + valueLen - defStart);
+				if (defEnd == -1) return;
+
+				currentDefintion = unescape(buf, defStart, defEnd);
 			}
+		}
 
-			private RelationType parse_relation_type(byte[] buf, int typeStart, int typeEnd)
+		private void parse_namespace(byte[] buf, int valueStart, int valueLen)
+		{
+			ByteString newNamespace = new ByteString(buf, valueStart, valueStart + valueLen);
+			Namespace namespace = namespaces.get(newNamespace);
+			if (namespace == null)
 			{
-				int meaning;
-
-				if (equalsIgnoreCase(buf, typeStart, typeEnd - typeStart, PART_OF_KEYWORD)) meaning = PART_OF_A;
-				else if (equalsIgnoreCase(buf, typeStart, typeEnd - typeStart, REGULATES_KEYWORD)) meaning = REGULATES;
-				else if (equalsIgnoreCase(buf, typeStart, typeEnd - typeStart, NEGATIVELY_REGULATES_KEYWORD)) meaning = NEGATIVELY_REGULATES;
-				else if (equalsIgnoreCase(buf, typeStart, typeEnd - typeStart, POSITIVELY_REGULATES_KEYWORD)) meaning = POSITIVELY_REGULATES;
-				else
+				if (sharedNamespaces != null)
 				{
-					RelationType type = relationTypePool.map(buf, typeStart, typeEnd);
-					if (type != null)
+					synchronized (sharedNamespaces)
 					{
-						return type;
+						namespace = sharedNamespaces.get(newNamespace);
+						if (namespace == null)
+						{
+							namespace = new Namespace(newNamespace);
+							sharedNamespaces.put(newNamespace,namespace);
+						}
 					}
-					return relationTypePool.map(new RelationType(new ByteString(buf, typeStart, typeEnd), RelationMeaning.UNKOWN));
+				} else
+				{
+					namespace = new Namespace(newNamespace);
 				}
-				referencedRelations[meaning] = true;
-				return knownRelations[meaning];
+				namespaces.put(newNamespace,namespace);
 			}
 
-			private void parse_relationship(byte[] buf, int valueStart, int valueLen)
-			{
-				RelationType type;
+			currentNamespace = namespace;
+		}
+
+		private void parse_equivalent_to(byte[] buf, int valueStart, int valueLen)
+		{
+			currentEquivalents.add(readTermID(buf, valueStart, trimValue(buf, valueStart, valueLen)));
+		}
+
+		private void parse_is_obsolete(byte[] buf, int valueStart, int valueLen)
+		{
+			currentObsolete = equalsIgnoreCase(buf, valueStart, valueLen, TRUE_KEYWORD);
+		}
+
+
+		private void parse_alt_id(byte[] buf, int valueStart, int valueLen)
+		{
+			currentAlternatives.add(readTermID(buf, valueStart, trimValue(buf, valueStart, valueLen)));
+		}
 
-				int typeStart = valueStart;
-				int typeEnd = findUnescaped(buf, valueStart, valueLen, ' ');
-				if (typeEnd== -1) return;
 
-				int idStart = skipSpaces(buf, typeEnd, valueStart + valueLen - typeEnd);
+		private void parse_xref(byte[] buf, int valueStart, int valueLen)
+		{
+			if ((options & PARSE_XREFS) !=0)
+			{
+				/* Parse xrefs, e.g.
+				 *  (1st form) ICD-10:Q20.4  or
+				 *  (2nd form) UMLS:C0426891 "Broad thumb"
+				 *
+				 *  We refer to the part before the colon as db, the part after the colon as id,
+				 *  and the stuff between the quotation marks as name.
+				 *
+				 *  Also see http://www.geneontology.org/GO.format.obo-1_2.shtml#S.2.2.3
+				 */
+
+				int dbStart = valueStart;
+				int dbEnd = findUnescaped(buf, valueStart, valueLen, ':');
+				if (dbEnd == -1) return;
+
+				int valueEnd = valueStart + valueLen;
+				int idStart = skipSpaces(buf, dbEnd + 1, valueEnd - dbEnd - 1);
 				if (idStart == -1) return;
-				int idEnd = findUnescaped(buf, idStart, valueStart + valueLen - idStart, '[', ' ', '!');
-				if (idEnd == -1) idEnd = valueStart + valueLen;
+				int idEnd = findXrefEnd(buf, idStart, valueEnd - idStart);
+				if (idEnd == -1) idEnd = valueEnd;
+
+				/* A quoted string following the id is the name, i.e., the 2nd form */
+				int nameStart = skipSpaces(buf, idEnd, valueEnd - idEnd);
+				String xrefName;
+				if (nameStart != -1 && buf[nameStart] == '"')
+				{
+					nameStart++; /* Skip " */
+					int nameEnd = findQuote(buf, nameStart, valueEnd - nameStart);
+					if (nameEnd == -1) nameEnd = valueEnd;
+
+					xrefName = unescape(buf,nameStart,nameEnd).toString();
+				} else xrefName = null;
 
-				type = parse_relation_type(buf, typeStart, typeEnd);
+				String xrefDb = unescape(buf,dbStart,dbEnd).toString();
+				String xrefId = unescape(buf,idStart,idEnd).toString();
 
-				currentParents.add(new ParentTermID(readTermID(buf,idStart,idEnd - idStart + 1),type));
+				currentXrefs.add(new TermXref(xrefDb, xrefId, xrefName));
 			}
+		}
 
-			private void parse_synonym(byte[] buf, int valueStart, int valueLen)
+		private void parse_subset(byte[] buf, int valueStart, int valueLen)
+		{
+			/* TODO: Avoid ByteString creation */
+			Subset subset = subsets.get(new ByteString(buf, valueStart, valueStart + valueLen));
+			if (subset != null)
+				currentSubsets.add(subset);
+		}
+
+		private void parse_typedef_id(byte[] buf, int valueStart, int valueLen)
+		{
+			/* Make the relation type known to the pool */
+			int idLen = trimValue(buf, valueStart, valueLen);
+			if (idLen != 0)
+				parse_relation_type(buf, valueStart, valueStart + idLen);
+		}
+
+		/* The following code has been generated by OBOByteLineScannerGenerator */
+
+		/**
+		 * Finds the first unescaped quotation mark of a quoted string
+		 * in buf starting from start but not exceeding len. Escaped bytes
+		 * are skipped.
+		 *
+		 * @return -1 if not found.
+		 */
+		private int findQuote(final byte [] buf, int start, int len)
+		{
+			int end = start + len;
+			for (int i=start;i<end;i++)
 			{
-				if ((options & IGNORE_SYNONYMS) == 0)
+				switch (buf[i])
 				{
-					int synonymStart = findUnescaped(buf, valueStart, valueLen, '\"');
-					if (synonymStart == -1) return;
-					synonymStart++;
-					int synonymEnd = findUnescaped(buf, synonymStart, valueStart + valueLen - synonymStart, '\"');
-					if (synonymEnd == -1) return;
-
-					currentSynonyms.add(new ByteString(buf,synonymStart,synonymEnd));
+				case '\\':
+					i++;
+					break;
+				case '"':
+					return i;
 				}
 			}
+			return -1;
+		}
 
-			private void parse_def(byte[] buf, int valueStart, int valueLen)
+		/**
+		 * Finds the start of the trailing modifiers or comment
+		 * in buf starting from start but not exceeding len. Escaped bytes
+		 * are skipped.
+		 *
+		 * @return -1 if not found.
+		 */
+		private int findModifiers(final byte [] buf, int start, int len)
+		{
+			int end = start + len;
+			for (int i=start;i<end;i++)
 			{
-				if ((options & PARSE_DEFINITIONS) != 0)
+				switch (buf[i])
 				{
-					/* TODO: Refactor with the above */
-					int defStart = findUnescaped(buf, valueStart, valueLen, '\"');
-					if (defStart == -1) return;
-					defStart++;
-					int defEnd = findUnescaped(buf, defStart, valueStart + valueLen - defStart, '\"');
-					if (defEnd == -1) return;
-
-					if (temp == null || temp.length < defEnd - defStart + 1)
-						temp = new byte[defEnd - defStart + 1];
-					int len = 0;
-					for (int i=defStart;i<defEnd;i++)
-					{
-						if (buf[i]=='\\')
-							continue;
-						temp[len++] = buf[i];
-					}
-					currentDefintion = new ByteString(temp, 0, len);
+				case '\\':
+					i++;
+					break;
+				case '{':
+				case '!':
+					return i;
 				}
 			}
+			return -1;
+		}
 
-			private void parse_namespace(byte[] buf, int valueStart, int valueLen)
+		/**
+		 * Finds the end of a single xref of an xref list or value
+		 * in buf starting from start but not exceeding len. Escaped bytes
+		 * are skipped.
+		 *
+		 * @return -1 if not found.
+		 */
+		private int findXrefEnd(final byte [] buf, int start, int len)
+		{
+			int end = start + len;
+			for (int i=start;i<end;i++)
 			{
-				ByteString newNamespace = new ByteString(buf, valueStart, valueStart + valueLen);
-				Namespace namespace = namespaces.get(newNamespace);
-				if (namespace == null)
+				switch (buf[i])
 				{
-					namespace = new Namespace(newNamespace);
-					namespaces.put(newNamespace,namespace);
+				case '\\':
+					i++;
+					break;
+				case ' ':
+				case '\t':
+				case ',':
+				case ']':
+				case '"':
+				case '{':
+				case '!':
+					return i;
 				}
+			}
+			return -1;
+		}
 
-				currentNamespace = namespace;
+		/**
+		 * Parse key/value as header.
+		 *
+		 * @param buf
+		 * @param keyStart
+		 * @param keyLen
+		 * @param valueStart
+		 * @param valueLen
+		 */
+		private void readHeaderValue(byte[] buf, int keyStart, int keyLen, int valueStart, int valueLen)
+		{
+			switch (keyLen)
+			{
+			case 4:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, DATE_KEYWORD)) parse_header_date(buf, valueStart, valueLen);
+				break;
+			case 9:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, SUBSETDEF_KEYWORD)) parse_header_subsetdef(buf, valueStart, valueLen);
+				break;
+			case 12:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, DATA_VERSION_KEYWORD)) parse_header_data_version(buf, valueStart, valueLen);
+				break;
+			case 14:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, FORMAT_VERSION_KEYWORD)) parse_header_format_version(buf, valueStart, valueLen);
+				break;
 			}
+		}
 
-			private void parse_equivalent_to(byte[] buf, int valueStart, int valueLen)
+		/**
+		 * Parse key/value as term value.
+		 *
+		 * @param buf
+		 * @param keyStart
+		 * @param keyLen
+		 * @param valueStart
+		 * @param valueLen
+		 */
+		private void readTermValue(byte[] buf, int keyStart, int keyLen, int valueStart, int valueLen)
+		{
+			switch (keyLen)
 			{
-				currentEquivalents.add(readTermID(buf, valueStart, valueLen));
+			case 2:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, ID_KEYWORD)) parse_id(buf, valueStart, valueLen);
+				break;
+			case 3:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, DEF_KEYWORD)) parse_def(buf, valueStart, valueLen);
+				break;
+			case 4:
+				switch (buf[keyStart] | 0x20)
+				{
+				case 'n':
+					if (equalsIgnoreCase(buf, keyStart, keyLen, NAME_KEYWORD)) parse_name(buf, valueStart, valueLen);
+					break;
+				case 'i':
+					if (equalsIgnoreCase(buf, keyStart, keyLen, IS_A_KEYWORD)) parse_is_a(buf, valueStart, valueLen);
+					break;
+				case 'x':
+					if (equalsIgnoreCase(buf, keyStart, keyLen, XREF_KEYWORD)) parse_xref(buf, valueStart, valueLen);
+					break;
+				}
+				break;
+			case 6:
+				switch (buf[keyStart] | 0x20)
+				{
+				case 'a':
+					if (equalsIgnoreCase(buf, keyStart, keyLen, ALT_ID_KEYWORD)) parse_alt_id(buf, valueStart, valueLen);
+					break;
+				case 's':
+					if (equalsIgnoreCase(buf, keyStart, keyLen, SUBSET_KEYWORD)) parse_subset(buf, valueStart, valueLen);
+					break;
+				}
+				break;
+			case 7:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, SYNONYM_KEYWORD)) parse_synonym(buf, valueStart, valueLen);
+				break;
+			case 9:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, NAMESPACE_KEYWORD)) parse_namespace(buf, valueStart, valueLen);
+				break;
+			case 11:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, IS_OBSOLETE_KEYWORD)) parse_is_obsolete(buf, valueStart, valueLen);
+				break;
+			case 12:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, RELATIONSHIP_KEYWORD)) parse_relationship(buf, valueStart, valueLen);
+				break;
+			case 13:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, EQUIVALENT_TO_KEYWORD)) parse_equivalent_to(buf, valueStart, valueLen);
+				break;
 			}
+		}
 
-			private void parse_is_obsolete(byte[] buf, int valueStart, int valueLen)
+		/**
+		 * Parse key/value as typedef value.
+		 *
+		 * @param buf
+		 * @param keyStart
+		 * @param keyLen
+		 * @param valueStart
+		 * @param valueLen
+		 */
+		private void readTypedefValue(byte[] buf, int keyStart, int keyLen, int valueStart, int valueLen)
+		{
+			switch (keyLen)
 			{
-				currentObsolete = equalsIgnoreCase(buf, valueStart, valueLen, TRUE_KEYWORD);
+			case 2:
+				if (equalsIgnoreCase(buf, keyStart, keyLen, ID_KEYWORD)) parse_typedef_id(buf, valueStart, valueLen);
+				break;
 			}
+		}
+	}
+
+	/**
+	 * Thrown by a chunk scanner that encounters an arbitrary term id whose
+	 * integer id is not yet determined.
+	 */
+	private static final class UndeterminedTermIDException extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * The result of parsing a chunk of stanzas.
+	 */
+	private static final class ParsedChunk
+	{
+		/** The chunk and its offset within the input */
+		public byte [] chunk;
+		public long offset;
+
+		/** The terms or null if the chunk has to be parsed again sequentially */
+		public Collection<Term> terms;
+		public int numberOfRelations;
+		public int numberOfStanzas;
+		public int numberOfLines;
+		public OBOParserException exception;
+	}
+
+	/**
+	 * The main parsing routine for the gene_ontology.obo file
+	 *
+	 * @return A string giving details about the parsed obo file
+	 * @throws OBOParserException
+	 * @throws IOException
+	 */
+	public String doParse() throws IOException, OBOParserException
+	{
+		return doParse(null);
+	}
 
+	/**
+	 * The main parsing routine for the gene_ontology.obo file
+	 *
+	 * @param progress
+	 * @return A string giving details about the parsed obo file
+	 * @throws OBOParserException
+	 * @throws IOException
+	 */
+	public String doParse(final IOBOParserProgress progress) throws IOException, OBOParserException
+	{
+		return doParse(progress, null);
+	}
 
-			private void parse_alt_id(byte[] buf, int valueStart, int valueLen)
+	/**
+	 * The main parsing routine for the gene_ontology.obo file. If a pool is
+	 * given, the stanzas are parsed in parallel. The result is the same as the
+	 * one of the sequential parse.
+	 *
+	 * @param progress
+	 * @param pool the pool used for parsing the stanzas or null for a
+	 *  sequential parse.
+	 * @return A string giving details about the parsed obo file
+	 * @throws OBOParserException
+	 * @throws IOException
+	 */
+	public String doParse(final IOBOParserProgress progress, ForkJoinPool pool) throws IOException, OBOParserException
+	{
+		if (parsed)
+		{
+			return getParseDiagnostics();
+		}
+
+		long startMillis = System.currentTimeMillis();
+
+		if (progress != null)
+			progress.init(input.getSize());
+
+		if (pool == null)
+		{
+			OBOByteLineScanner obls;
+			if (input instanceof ParserMappedFileInput && !((ParserMappedFileInput)input).isCompressed())
 			{
-				currentAlternatives.add(readTermID(buf, valueStart, valueLen));
+				/* Scan the lines directly within the mapped file */
+				obls = new OBOByteLineScanner(null, progress);
+				obls.scan((ParserMappedFileInput)input);
+			} else
+			{
+				obls = new OBOByteLineScanner(input.inputStream(), progress);
+				obls.scan();
 			}
+			obls.enterNewTerm(); /* Get very last stanza after loop! */
+			numberOfRelations += obls.numberOfRelations;
+			if (progress != null)
+				progress.update(input.getSize(),obls.currentTerm);
+
+			if (obls.exception != null)
+				throw obls.exception;
+		} else
+		{
+			parseInParallel(progress, pool);
+		}
+		input.close();
 
+		long durationMillis = System.currentTimeMillis() - startMillis;
+		logger.log(Level.INFO, "Got " + terms.size() + " terms and " + numberOfRelations + " relations in " + durationMillis + " ms");
+		parsed = true;
+		return this.getParseDiagnostics();
+	}
 
-			private void parse_xref(byte[] buf, int valueStart, int valueLen)
+	/**
+	 * Parses the definition, the synonyms and the xrefs of the given stanza
+	 * and sets them for the given term.
+	 *
+	 * @param term the term whose body shall be set
+	 * @param stanza the bytes of the stanza
+	 * @param len the number of valid bytes of the stanza
+	 */
+	void parseBody(Term term, byte [] stanza, int len)
+	{
+		OBOByteLineScanner obls = new OBOByteLineScanner(null, 0, false);
+		int lineStart = 0;
+		for (int i = 0; i <= len; i++)
+		{
+			if (i == len || stanza[i] == '\n')
 			{
-				if ((options & PARSE_XREFS) !=0)
-				{
-					/* Parse xrefs, e.g.
-					 *  (1st form) ICD-10:Q20.4  or
-					 *  (2nd form) UMLS:C0426891 "Broad thumb"
-					 *
-					 *  We refer to the part before the colon as db, the part after the colon as id,
-					 *  and the stuff between the quotation marks as name.
-					 *
-					 *  Also see http://www.geneontology.org/GO.format.obo-1_2.shtml#S.2.2.3
-					 */
-
-					int dbStart = valueStart;
-					int dbEnd = findUnescaped(buf, valueStart, valueLen, ':');
-					if (dbEnd == -1) return;
-
-					int idStart = skipSpaces(buf, dbEnd + 1, valueStart + valueLen - dbEnd - 1);
-					if (idStart == -1) return;
-					int idEnd = valueStart + valueLen;
-
-					/* We assume that the unescaped presence of " indicates a name, i.e., the 2nd form */
-					int nameStart = findUnescaped(buf, idStart + 1, valueStart + valueLen - idStart - 1, '"');
-					String xrefName;
-					if (nameStart != -1)
-					{
-						nameStart++; /* Skip " */
-						int nameEnd = findUnescaped(buf, nameStart, valueStart + valueLen - nameStart, '"');
+				obls.newLine(stanza, lineStart, i - lineStart);
+				lineStart = i + 1;
+			}
+		}
+		term.setDefinition(obls.currentDefintion);
+		term.setSynonyms(obls.currentSynonyms);
+		term.setXrefs(obls.currentXrefs);
+	}
 
-						/* So we have a name, thus the idEnd must decrease because it includes the whole line so far */
-						idEnd = nameStart - 2;
-						while (idEnd > idStart && buf[idEnd-1] == ' ') idEnd--;
+	/**
+	 * Finds the start of a stanza, i.e., a line starting with "[" that
+	 * doesn't continue the previous line.
+	 *
+	 * @param buf
+	 * @param len number of valid bytes in buf
+	 * @param last whether the last start (that is not the first byte) should
+	 *  be returned, rather than the first one.
+	 * @return the offset of the stanza start or -1 if there is none.
+	 */
+	private static int findStanza(byte [] buf, int len, boolean last)
+	{
+		if (!last && len > 0 && buf[0] == '[')
+			return 0;
 
-						xrefName = new String(buf,nameStart,nameEnd-nameStart);
-					} else xrefName = null;
+		for (int k = 1; k < len; k++)
+		{
+			int i = last ? len - k : k;
+			if (buf[i] == '[' && buf[i - 1] == '\n' && (i < 2 || buf[i - 2] != '\\'))
+				return i;
+		}
+		return -1;
+	}
 
-					String xrefDb = new String(buf,dbStart,dbEnd-dbStart);
-					String xrefId = new String(buf,idStart,idEnd-idStart);
+	/**
+	 * Parses the given chunk of stanzas.
+	 *
+	 * @param chunk the chunk
+	 * @param offset the offset of the chunk within the input
+	 * @param deferUndetermined whether the parse should be given up when an
+	 *  arbitrary term id is encountered that has not been seen before.
+	 * @return the parsed chunk, whose terms are null if the parse was given up.
+	 * @throws IOException
+	 */
+	private ParsedChunk parseChunk(byte [] chunk, long offset, boolean deferUndetermined) throws IOException
+	{
+		ParsedChunk parsed = new ParsedChunk();
+		parsed.chunk = chunk;
+		parsed.offset = offset;
 
-					currentXrefs.add(new TermXref(xrefDb, xrefId, xrefName));
-				}
-			}
+		OBOByteLineScanner obls = new OBOByteLineScanner(new ByteArrayInputStream(chunk), offset, deferUndetermined);
+		try
+		{
+			obls.scan();
+		} catch (UndeterminedTermIDException e)
+		{
+			return parsed;
+		}
+		obls.enterNewTerm();
+
+		parsed.terms = obls.terms;
+		parsed.numberOfRelations = obls.numberOfRelations;
+		parsed.numberOfStanzas = obls.currentTerm;
+		parsed.numberOfLines = obls.getNumberOfLines();
+		parsed.exception = obls.exception;
+		return parsed;
+	}
 
-			private void parse_subset(byte[] buf, int valueStart, int valueLen)
+	/**
+	 * Merges the parsed chunks in order and stops at the first error like the
+	 * sequential parse.
+	 */
+	private final class ChunkMerger
+	{
+		public int lines;
+		public int stanzas;
+		public OBOParserException exception;
+
+		/**
+		 * Merges the next chunk. A chunk that has been given up is parsed
+		 * again, which makes the integer ids of arbitrary term ids in the
+		 * order of the input, like in the sequential parse.
+		 *
+		 * @param chunk
+		 * @throws IOException
+		 */
+		public void merge(ParsedChunk chunk) throws IOException
+		{
+			if (exception != null)
+				return;
+
+			if (chunk.terms == null)
+				chunk = parseChunk(chunk.chunk, chunk.offset, false);
+
+			terms.addAll(chunk.terms);
+			numberOfRelations += chunk.numberOfRelations;
+			stanzas += chunk.numberOfStanzas;
+			if (chunk.exception != null)
 			{
-				/* TODO: Avoid ByteString creation */
-				Subset subset = subsets.get(new ByteString(buf, valueStart, valueStart + valueLen));
-				if (subset != null)
-					currentSubsets.add(subset);
+				exception = new OBOParserException(chunk.exception.getMessage(), chunk.exception.getLine(), lines + chunk.exception.getLineNum());
+				return;
 			}
+			lines += chunk.numberOfLines;
+		}
+	}
 
-			/**
-			 * Parse key/value as term value.
-			 *
-			 * @param buf
-			 * @param keyStart
-			 * @param keyLen
-			 * @param valueStart
-			 * @param valueLen
-			 */
-			private void readTermValue(byte[] buf, int keyStart, int keyLen, int valueStart, int valueLen)
+	/**
+	 * Parses the input in chunks of whole stanzas on the given pool. The header
+	 * is parsed first, as subset definitions must be known before any stanza is
+	 * parsed. Each chunk uses own pools that are backed by the pools of the
+	 * parser. The terms of the chunks are added in the order of the chunks, so
+	 * the resulting terms are identical to the ones of the sequential parse.
+	 * Chunks containing arbitrary term ids that have not been seen before are
+	 * parsed again when they are merged, as the integer ids of such term ids
+	 * depend on the order in which they are seen. Only warnings about malformed
+	 * stanzas may be logged in a different order.
+	 *
+	 * @param progress
+	 * @param pool
+	 * @throws IOException
+	 * @throws OBOParserException
+	 */
+	private void parseInParallel(IOBOParserProgress progress, ForkJoinPool pool) throws IOException, OBOParserException
+	{
+		InputStream is = input.inputStream();
+		ArrayDeque<ForkJoinTask<ParsedChunk>> chunks = new ArrayDeque<ForkJoinTask<ParsedChunk>>();
+		ChunkMerger merger = new ChunkMerger();
+		OBOByteLineScanner header = null;
+		byte [] buf = new byte[chunkSize];
+		int len = 0;
+		long offset = 0;
+		boolean eof = false;
+
+		try
+		{
+			while ((!eof || len > 0) && merger.exception == null)
 			{
-				if (equalsIgnoreCase(buf, keyStart, keyLen, ID_KEYWORD))
-				{
-					parse_id(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, NAME_KEYWORD))
-				{
-					parse_name(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, IS_A_KEYWORD))
-				{
-					parse_is_a(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, RELATIONSHIP_KEYWORD))
-				{
-					parse_relationship(buf, valueStart, valueLen);
-				} else if ((options & IGNORE_SYNONYMS) == 0 && equalsIgnoreCase(buf, keyStart, keyLen, SYNONYM_KEYWORD))
-				{
-					parse_synonym(buf, valueStart, valueLen);
-				} else if ((options & PARSE_DEFINITIONS) != 0 && equalsIgnoreCase(buf, keyStart, keyLen, DEF_KEYWORD))
-				{
-					parse_def(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, NAMESPACE_KEYWORD))
+				while (!eof && len < buf.length)
 				{
-					parse_namespace(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, EQUIVALENT_TO_KEYWORD))
+					int read = is.read(buf, len, buf.length - len);
+					if (read < 0) eof = true;
+					else len += read;
+				}
+
+				if (progress != null)
 				{
-					parse_equivalent_to(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, IS_OBSOLETE_KEYWORD))
+					int pos = input.getPosition();
+					if (pos >= 0)
+						progress.update(pos, 0);
+				}
+
+				int cut;
+				if (header == null)
 				{
-					parse_is_obsolete(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, ALT_ID_KEYWORD))
+					cut = findStanza(buf, len, false);
+					if (cut == -1 && eof) cut = len;
+				} else
 				{
-					parse_alt_id(buf, valueStart, valueLen);
-				} else if (((options & PARSE_XREFS) !=0) && equalsIgnoreCase(buf, keyStart, keyLen, XREF_KEYWORD))
+					cut = eof ? len : findStanza(buf, len, true);
+				}
+
+				if (cut == -1)
 				{
-					parse_xref(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, SUBSET_KEYWORD))
+					/* No stanza starts within the buffer, so we need a larger one */
+					buf = Arrays.copyOf(buf, buf.length * 2);
+					continue;
+				}
+
+				final byte [] chunk = Arrays.copyOf(buf, cut);
+				final long chunkOffset = offset;
+				System.arraycopy(buf, cut, buf, 0, len - cut);
+				len -= cut;
+				offset += cut;
+
+				if (header == null)
 				{
-					parse_subset(buf, valueStart, valueLen);
+					header = new OBOByteLineScanner(new ByteArrayInputStream(chunk), null);
+					header.scan();
+					merger.lines = header.getNumberOfLines();
+					continue;
 				}
+
+				chunks.add(pool.submit(new Callable<ParsedChunk>()
+				{
+					@Override
+					public ParsedChunk call() throws IOException
+					{
+						return parseChunk(chunk, chunkOffset, true);
+					}
+				}));
+
+				/* Merge early to bound the number of pending chunks */
+				while (chunks.size() > 2 * pool.getParallelism())
+					merger.merge(chunks.removeFirst().join());
 			}
-		}
 
-		OBOByteLineScanner obls = new OBOByteLineScanner(input.inputStream());
-		obls.scan();
-		enterNewTerm(); /* Get very last stanza after loop! */
-		if (progress != null)
-			progress.update(input.getSize(),obls.currentTerm);
+			while (!chunks.isEmpty() && merger.exception == null)
+				merger.merge(chunks.removeFirst().join());
 
-		if (obls.exception != null)
-			throw obls.exception;
-		input.close();
+			if (progress != null)
+				progress.update(input.getSize(), merger.stanzas);
 
-		long durationMillis = System.currentTimeMillis() - startMillis;
-		logger.log(Level.INFO, "Got " + terms.size() + " terms and " + numberOfRelations + " relations in " + durationMillis + " ms");
-		parsed = true;
-		return this.getParseDiagnostics();
+			if (merger.exception != null)
+				throw merger.exception;
+		} finally
+		{
+			for (ForkJoinTask<ParsedChunk> task : chunks)
+				task.cancel(false);
+		}
 	}
 
 	public ByteString getFormatVersion()
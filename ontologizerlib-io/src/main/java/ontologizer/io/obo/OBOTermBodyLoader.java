@@ -0,0 +1,132 @@
+package ontologizer.io.obo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import ontologizer.ontology.ITermBodyLoader;
+import ontologizer.ontology.Term;
+
+/**
+ * Loads the bodies of terms from an obo file on demand. The file is
+ * re-opened for each body, so no file handle is kept open. As the locations
+ * of the bodies refer to the uncompressed contents, a gzip compressed file
+ * is decompressed into a temporary file once the first body is requested.
+ *
+ * @author Sebastian Bauer
+ */
+class OBOTermBodyLoader implements ITermBodyLoader
+{
+	private static Logger logger = Logger.getLogger(OBOTermBodyLoader.class.getName());
+
+	/** The file from which the terms have been parsed */
+	private final File file;
+
+	/** The state of the file at the time the terms have been parsed */
+	private final long fileLength;
+	private final long fileLastModified;
+
+	/** The options of the parser of the bodies */
+	private final int options;
+
+	/** The uncompressed contents of the file, determined on the first load */
+	private File uncompressed;
+
+	/**
+	 * Constructs the loader.
+	 *
+	 * @param filename the name of the obo file
+	 * @param options the options used for parsing the bodies
+	 */
+	OBOTermBodyLoader(String filename, int options)
+	{
+		this.file = new File(filename);
+		this.fileLength = file.length();
+		this.fileLastModified = file.lastModified();
+		this.options = options;
+	}
+
+	/**
+	 * @return whether the file is gzip compressed.
+	 * @throws IOException
+	 */
+	private boolean isCompressed() throws IOException
+	{
+		InputStream is = new FileInputStream(file);
+		try
+		{
+			return is.read() == 0x1f && is.read() == 0x8b;
+		} finally
+		{
+			is.close();
+		}
+	}
+
+	/**
+	 * Returns the file with the uncompressed contents, decompressing the
+	 * file if necessary.
+	 *
+	 * @return the file
+	 * @throws IOException
+	 */
+	private synchronized File getUncompressedFile() throws IOException
+	{
+		if (file.length() != fileLength || file.lastModified() != fileLastModified)
+			throw new IOException("File " + file + " has been modified since it has been parsed");
+
+		if (uncompressed == null)
+		{
+			if (isCompressed())
+			{
+				File tmp = File.createTempFile("ontologizer", ".obo");
+				tmp.deleteOnExit();
+				InputStream is = new GZIPInputStream(new FileInputStream(file));
+				try
+				{
+					Files.copy(is, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				} finally
+				{
+					is.close();
+				}
+				logger.info("Decompressed " + file + " to " + tmp + " for loading term bodies");
+				uncompressed = tmp;
+			} else
+			{
+				uncompressed = file;
+			}
+		}
+		return uncompressed;
+	}
+
+	@Override
+	public void loadBody(Term term, long offset, int length)
+	{
+		byte [] stanza;
+
+		try
+		{
+			RandomAccessFile raf = new RandomAccessFile(getUncompressedFile(), "r");
+			try
+			{
+				/* The length of the very last stanza may exceed the file */
+				stanza = new byte[(int)Math.max(0, Math.min(length, raf.length() - offset))];
+				raf.seek(offset);
+				raf.readFully(stanza);
+			} finally
+			{
+				raf.close();
+			}
+		} catch (IOException e)
+		{
+			throw new IllegalStateException("Failed to load the body of " + term.getIDAsString() + " from " + file, e);
+		}
+
+		new OBOParser(null, options).parseBody(term, stanza, stanza.length);
+	}
+}
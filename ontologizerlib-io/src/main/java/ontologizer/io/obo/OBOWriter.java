@@ -0,0 +1,613 @@
+package ontologizer.io.obo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+import ontologizer.io.PipelinedOutputStream;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.ParentTermID;
+import ontologizer.ontology.RelationMeaning;
+import ontologizer.ontology.RelationType;
+import ontologizer.ontology.Subset;
+import ontologizer.ontology.Term;
+import ontologizer.ontology.TermContainer;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermMap;
+import ontologizer.ontology.TermXref;
+import ontologizer.types.ByteString;
+import sonumina.math.graph.CompactDirectedGraph;
+
+/**
+ * Writes an ontology or a subgraph of it, e.g., the result of
+ * {@link Ontology#getInducedGraph(Collection)}, in the OBO 1.2 format that
+ * can be read by {@link OBOParser}. Only the terms and edges of the graph
+ * are written, vertices without a term in the term map such as an
+ * artificial root are omitted.
+ *
+ * The output is deterministic: terms are ordered by their id, and parents
+ * by relation and id. ByteString fields are copied from their backing
+ * bytes into a reusable output buffer and escaped in place.
+ *
+ * @author Sebastian Bauer
+ */
+public class OBOWriter
+{
+	/** The size of the output buffer */
+	private static final int BUFFER_SIZE = 1 << 18;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/* Contexts of values that determine which bytes are escaped */
+	private static final byte [] ESCAPE_QUOTED = new byte[256];
+	private static final byte [] ESCAPE_UNQUOTED = new byte[256];
+	private static final byte [] ESCAPE_XREF = new byte[256];
+	private static final byte [] ESCAPE_XREF_DB = new byte[256];
+
+	static
+	{
+		initEscapes(ESCAPE_QUOTED, '\\', '"', '\n', '\t');
+		initEscapes(ESCAPE_UNQUOTED, '\\', '\n', '\t', '!', '{');
+		initEscapes(ESCAPE_XREF, '\\', '\n', '\t', '!', '{', ' ', ',', '"', ']');
+		initEscapes(ESCAPE_XREF_DB, '\\', '\n', '\t', '!', '{', ' ', ',', '"', ']', ':');
+	}
+
+	/**
+	 * Initializes the table of escapes for the given characters using the
+	 * inverse of the escapes the parser understands.
+	 *
+	 * @param table
+	 * @param chars
+	 */
+	private static void initEscapes(byte [] table, char...chars)
+	{
+		for (char c : chars)
+			table[c] = (byte)OBOParser.unescapeChars.get(c).charValue();
+	}
+
+	/** Comparator for term ids, ordered by id and prefix */
+	private static final Comparator<TermID> TERM_ID_COMPARATOR = new Comparator<TermID>()
+	{
+		@Override
+		public int compare(TermID o1, TermID o2)
+		{
+			if (o1.id != o2.id)
+				return o1.id < o2.id ? -1 : 1;
+			return o1.getPrefix().getByteString().compareTo(o2.getPrefix().getByteString());
+		}
+	};
+
+	/** Comparator for names */
+	private static final Comparator<ByteString> NAME_COMPARATOR = new Comparator<ByteString>()
+	{
+		@Override
+		public int compare(ByteString o1, ByteString o2)
+		{
+			return o1.compareTo(o2);
+		}
+	};
+
+	/** Comparator for parents, is_a relations come first */
+	private static final Comparator<ParentTermID> PARENT_COMPARATOR = new Comparator<ParentTermID>()
+	{
+		@Override
+		public int compare(ParentTermID o1, ParentTermID o2)
+		{
+			boolean isA1 = isA(o1.getRelation());
+			boolean isA2 = isA(o2.getRelation());
+			if (isA1 != isA2)
+				return isA1 ? -1 : 1;
+			if (!isA1)
+			{
+				int c = o1.getRelation().name().compareTo(o2.getRelation().name());
+				if (c != 0)
+					return c;
+			}
+			return TERM_ID_COMPARATOR.compare(o1.getRelated(), o2.getRelated());
+		}
+	};
+
+	private final OutputStream out;
+
+	private byte [] buf = new byte[BUFFER_SIZE];
+	private int pos;
+
+	private OBOWriter(OutputStream out)
+	{
+		this.out = out;
+	}
+
+	/**
+	 * Writes the given ontology to the given file. If the name of the file
+	 * ends with ".gz" the output is gzip compressed on a separate thread.
+	 *
+	 * @param ontology the ontology to be written
+	 * @param file the destination
+	 * @throws IOException
+	 */
+	public static void write(Ontology ontology, File file) throws IOException
+	{
+		OutputStream out = new FileOutputStream(file);
+		try
+		{
+			write(ontology, out, file.getName().endsWith(".gz"));
+		} finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the given ontology to the given stream.
+	 *
+	 * @param ontology the ontology to be written
+	 * @param os the destination, which is not closed
+	 * @throws IOException
+	 */
+	public static void write(Ontology ontology, OutputStream os) throws IOException
+	{
+		write(ontology, os, false);
+	}
+
+	/**
+	 * Writes the given ontology to the given stream.
+	 *
+	 * @param ontology the ontology to be written
+	 * @param os the destination, which is not closed
+	 * @param gzip whether the output shall be gzip compressed. The
+	 *  compression takes place on a separate thread, see {@link PipelinedOutputStream}.
+	 * @throws IOException
+	 */
+	public static void write(Ontology ontology, OutputStream os, boolean gzip) throws IOException
+	{
+		if (!gzip)
+		{
+			new OBOWriter(os).writeOntology(ontology);
+			return;
+		}
+
+		/* The destination must not be closed when the pipeline is closed */
+		OutputStream unclosable = new FilterOutputStream(os)
+		{
+			@Override
+			public void write(byte [] b, int off, int len) throws IOException
+			{
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				flush();
+			}
+		};
+
+		OutputStream pipeline = new PipelinedOutputStream(new GZIPOutputStream(unclosable, 1 << 16));
+		try
+		{
+			new OBOWriter(pipeline).writeOntology(ontology);
+		} finally
+		{
+			pipeline.close();
+		}
+	}
+
+	private static boolean isA(RelationType type)
+	{
+		return type == null || type.meaning() == RelationMeaning.IS_A;
+	}
+
+	/**
+	 * Makes sure that the buffer can hold the given number of further bytes.
+	 *
+	 * @param len
+	 * @throws IOException
+	 */
+	private void ensure(int len) throws IOException
+	{
+		if (pos + len <= buf.length)
+			return;
+		flushBuffer();
+		if (len > buf.length)
+			buf = new byte[len];
+	}
+
+	private void flushBuffer() throws IOException
+	{
+		out.write(buf, 0, pos);
+		pos = 0;
+	}
+
+	private void write(byte b) throws IOException
+	{
+		ensure(1);
+		buf[pos++] = b;
+	}
+
+	private void write(byte [] b) throws IOException
+	{
+		ensure(b.length);
+		System.arraycopy(b, 0, buf, pos, b.length);
+		pos += b.length;
+	}
+
+	private void newLine() throws IOException
+	{
+		write((byte)'\n');
+	}
+
+	/**
+	 * Escapes the len bytes at the current position in place and advances
+	 * the position. The buffer must have room for 2 * len bytes.
+	 *
+	 * @param len
+	 * @param escapes
+	 */
+	private void escapeInPlace(int len, byte [] escapes)
+	{
+		int end = pos + len;
+		int n = 0;
+		for (int i = pos; i < end; i++)
+		{
+			if (escapes[buf[i] & 0xff] != 0)
+				n++;
+		}
+
+		if (n != 0)
+		{
+			/* Expand from the back so that each byte is moved only once */
+			int dst = end + n - 1;
+			for (int src = end - 1; src >= pos; src--)
+			{
+				byte c = buf[src];
+				byte e = escapes[c & 0xff];
+				if (e != 0)
+				{
+					buf[dst--] = e;
+					buf[dst--] = '\\';
+				} else
+				{
+					buf[dst--] = c;
+				}
+			}
+		}
+		pos = end + n;
+	}
+
+	private void writeEscaped(ByteString str, byte [] escapes) throws IOException
+	{
+		int len = str.length();
+		ensure(len * 2);
+		str.copyTo(0, len, buf, pos);
+		escapeInPlace(len, escapes);
+	}
+
+	private void writeEscaped(String str, byte [] escapes) throws IOException
+	{
+		byte [] b = str.getBytes(UTF8);
+		ensure(b.length * 2);
+		System.arraycopy(b, 0, buf, pos, b.length);
+		escapeInPlace(b.length, escapes);
+	}
+
+	private void writeQuoted(ByteString str) throws IOException
+	{
+		write((byte)'"');
+		writeEscaped(str, ESCAPE_QUOTED);
+		write((byte)'"');
+	}
+
+	private void writeByteString(ByteString str) throws IOException
+	{
+		int len = str.length();
+		ensure(len);
+		str.copyTo(0, len, buf, pos);
+		pos += len;
+	}
+
+	/**
+	 * Writes the given term id, which is formatted like
+	 * {@link TermID#toString()}.
+	 *
+	 * @param id
+	 * @throws IOException
+	 */
+	private void writeTermID(TermID id) throws IOException
+	{
+		ByteString prefix = id.getPrefix().getByteString();
+		ensure(prefix.length() + 12);
+		writeByteString(prefix);
+		buf[pos++] = ':';
+
+		int v = id.id;
+		int digits = 1;
+		for (int t = v; t >= 10; t /= 10)
+			digits++;
+		for (int i = digits; i < 7; i++)
+			buf[pos++] = '0';
+		pos += digits;
+		for (int i = pos - 1; i >= pos - digits; i--)
+		{
+			buf[i] = (byte)('0' + v % 10);
+			v /= 10;
+		}
+	}
+
+	private void writeKey(byte [] key) throws IOException
+	{
+		write(key);
+		write((byte)':');
+		write((byte)' ');
+	}
+
+	/**
+	 * Writes a single key/value line.
+	 *
+	 * @param key
+	 * @param value
+	 * @throws IOException
+	 */
+	private void writeLine(byte [] key, ByteString value) throws IOException
+	{
+		writeKey(key);
+		writeEscaped(value, ESCAPE_UNQUOTED);
+		newLine();
+	}
+
+	private void writeLine(byte [] key, TermID id) throws IOException
+	{
+		writeKey(key);
+		writeTermID(id);
+		newLine();
+	}
+
+	/**
+	 * Writes the header.
+	 *
+	 * @param ontology
+	 * @param subsets
+	 * @throws IOException
+	 */
+	private void writeHeader(Ontology ontology, Collection<Subset> subsets) throws IOException
+	{
+		TermMap termMap = ontology.getTermMap();
+		ByteString formatVersion = null;
+		ByteString date = null;
+		if (termMap instanceof TermContainer)
+		{
+			formatVersion = ((TermContainer)termMap).getFormatVersion();
+			date = ((TermContainer)termMap).getDate();
+		}
+
+		writeLine(OBOKeywords.FORMAT_VERSION_KEYWORD, formatVersion != null ? formatVersion : FORMAT_VERSION);
+		if (date != null)
+			writeLine(OBOKeywords.DATE_KEYWORD, date);
+
+		for (Subset s : subsets)
+		{
+			writeKey(OBOKeywords.SUBSETDEF_KEYWORD);
+			writeEscaped(s.getName(), ESCAPE_XREF);
+			write((byte)' ');
+
+			/* The description of subsets that have been parsed contains the quotation marks */
+			ByteString desc = s.getDescription();
+			if (desc.length() >= 2 && desc.startsWith("\"") && desc.toString().endsWith("\""))
+				desc = desc.substring(1, desc.length() - 1);
+			writeQuoted(desc);
+			newLine();
+		}
+	}
+
+	/**
+	 * Writes a single term.
+	 *
+	 * @param t the term
+	 * @param parents the parents of the term, in order
+	 * @throws IOException
+	 */
+	private void writeTerm(Term t, List<ParentTermID> parents) throws IOException
+	{
+		newLine();
+		write(TERM_STANZA);
+		newLine();
+
+		writeLine(OBOKeywords.ID_KEYWORD, t.getID());
+		writeLine(OBOKeywords.NAME_KEYWORD, t.getName());
+		if (t.getNamespace() != null)
+			writeLine(OBOKeywords.NAMESPACE_KEYWORD, t.getNamespace().getName());
+
+		TermID [] alternatives = t.getAlternatives().clone();
+		Arrays.sort(alternatives, TERM_ID_COMPARATOR);
+		for (TermID alt : alternatives)
+			writeLine(OBOKeywords.ALT_ID_KEYWORD, alt);
+
+		ByteString definition = t.getDefinition();
+		if (definition != null)
+		{
+			writeKey(OBOKeywords.DEF_KEYWORD);
+			writeQuoted(definition);
+			write(EMPTY_XREF_LIST);
+			newLine();
+		}
+
+		if (t.getSubsets() != null)
+		{
+			for (Subset s : t.getSubsets())
+			{
+				writeKey(OBOKeywords.SUBSET_KEYWORD);
+				writeEscaped(s.getName(), ESCAPE_XREF);
+				newLine();
+			}
+		}
+
+		if (t.getSynonyms() != null)
+		{
+			for (ByteString s : t.getSynonyms())
+			{
+				writeKey(OBOKeywords.SYNONYM_KEYWORD);
+				writeQuoted(s);
+				write(RELATED_SCOPE);
+				newLine();
+			}
+		}
+
+		if (t.getXrefs() != null)
+		{
+			for (TermXref x : t.getXrefs())
+			{
+				writeKey(OBOKeywords.XREF_KEYWORD);
+				writeEscaped(x.getDatabase(), ESCAPE_XREF_DB);
+				write((byte)':');
+				writeEscaped(x.getXrefId(), ESCAPE_XREF);
+				if (x.getXrefName() != null)
+				{
+					write((byte)' ');
+					write((byte)'"');
+					writeEscaped(x.getXrefName(), ESCAPE_QUOTED);
+					write((byte)'"');
+				}
+				newLine();
+			}
+		}
+
+		for (ParentTermID p : parents)
+		{
+			if (isA(p.getRelation()))
+			{
+				writeLine(OBOKeywords.IS_A_KEYWORD, p.getRelated());
+			} else
+			{
+				writeKey(OBOKeywords.RELATIONSHIP_KEYWORD);
+				writeEscaped(p.getRelation().name(), ESCAPE_XREF);
+				write((byte)' ');
+				writeTermID(p.getRelated());
+				newLine();
+			}
+		}
+
+		if (t.getEquivalents() != null)
+		{
+			TermID [] equivalents = t.getEquivalents().clone();
+			Arrays.sort(equivalents, TERM_ID_COMPARATOR);
+			for (TermID e : equivalents)
+				writeLine(OBOKeywords.EQUIVALENT_TO_KEYWORD, e);
+		}
+
+		if (t.isObsolete())
+		{
+			writeKey(OBOKeywords.IS_OBSOLETE_KEYWORD);
+			write(OBOKeywords.TRUE_KEYWORD);
+			newLine();
+		}
+	}
+
+	/**
+	 * Writes a typedef stanza for the given relation type.
+	 *
+	 * @param type
+	 * @throws IOException
+	 */
+	private void writeTypedef(RelationType type) throws IOException
+	{
+		newLine();
+		write(TYPEDEF_STANZA);
+		newLine();
+		writeKey(OBOKeywords.ID_KEYWORD);
+		writeEscaped(type.name(), ESCAPE_XREF);
+		newLine();
+		writeLine(OBOKeywords.NAME_KEYWORD, type.fancyName());
+	}
+
+	/**
+	 * Writes the given ontology.
+	 *
+	 * @param ontology
+	 * @throws IOException
+	 */
+	private void writeOntology(Ontology ontology) throws IOException
+	{
+		CompactDirectedGraph<TermID,RelationType> graph = ontology.getCompactGraph();
+		if (graph == null)
+			graph = CompactDirectedGraph.create(ontology.getGraph());
+		TermMap termMap = ontology.getTermMap();
+
+		/* Determine the terms in order */
+		List<TermID> ids = new ArrayList<TermID>(graph.getNumberOfVertices());
+		for (TermID id : graph)
+		{
+			if (termMap.get(id) != null)
+				ids.add(id);
+		}
+		Collections.sort(ids, TERM_ID_COMPARATOR);
+
+		/* Determine the subsets and the relation types that are used */
+		TreeMap<ByteString,Subset> subsets = new TreeMap<ByteString,Subset>(NAME_COMPARATOR);
+		if (ontology.getAvailableSubsets() != null)
+		{
+			for (Subset s : ontology.getAvailableSubsets())
+				subsets.put(s.getName(), s);
+		}
+		TreeMap<ByteString,RelationType> relations = new TreeMap<ByteString,RelationType>(NAME_COMPARATOR);
+		for (TermID id : ids)
+		{
+			Subset [] termSubsets = termMap.get(id).getSubsets();
+			if (termSubsets != null)
+			{
+				for (Subset s : termSubsets)
+				{
+					if (!subsets.containsKey(s.getName()))
+						subsets.put(s.getName(), s);
+				}
+			}
+
+			int v = graph.getVertexIndex(id);
+			for (int k = 0; k < graph.getInDegree(v); k++)
+			{
+				RelationType type = graph.getInEdgeData(v, k);
+				if (!isA(type))
+					relations.put(type.name(), type);
+			}
+		}
+
+		writeHeader(ontology, subsets.values());
+
+		List<ParentTermID> parents = new ArrayList<ParentTermID>();
+		for (TermID id : ids)
+		{
+			parents.clear();
+			int v = graph.getVertexIndex(id);
+			for (int k = 0; k < graph.getInDegree(v); k++)
+			{
+				TermID source = graph.getVertex(graph.getParent(v, k));
+				if (termMap.get(source) != null)
+					parents.add(new ParentTermID(source, graph.getInEdgeData(v, k)));
+			}
+			Collections.sort(parents, PARENT_COMPARATOR);
+
+			writeTerm(termMap.get(id), parents);
+		}
+
+		for (RelationType type : relations.values())
+			writeTypedef(type);
+
+		flushBuffer();
+		out.flush();
+	}
+
+	private static final ByteString FORMAT_VERSION = new ByteString("1.2");
+	private static final byte [] TERM_STANZA = "[Term]".getBytes(UTF8);
+	private static final byte [] TYPEDEF_STANZA = "[Typedef]".getBytes(UTF8);
+	private static final byte [] EMPTY_XREF_LIST = " []".getBytes(UTF8);
+	private static final byte [] RELATED_SCOPE = " RELATED []".getBytes(UTF8);
+}
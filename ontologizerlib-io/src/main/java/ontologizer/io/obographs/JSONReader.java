@@ -0,0 +1,405 @@
+package ontologizer.io.obographs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import ontologizer.types.ByteString;
+
+/**
+ * A streaming pull reader for JSON that works on the bytes of the input.
+ * Only the current token is kept in memory, so inputs of arbitrary size can
+ * be read. Strings are decoded to UTF-8 bytes into a reusable buffer that
+ * stays valid until the next string is read.
+ *
+ * The reader is lenient in the sense that separators (',' and ':') are not
+ * validated, the structure is defined by the calls of the client.
+ *
+ * @author Sebastian Bauer
+ */
+class JSONReader
+{
+	/* Token types */
+	public static final int END = 0;
+	public static final int BEGIN_OBJECT = 1;
+	public static final int END_OBJECT = 2;
+	public static final int BEGIN_ARRAY = 3;
+	public static final int END_ARRAY = 4;
+	public static final int STRING = 5;
+	public static final int LITERAL = 6;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final InputStream is;
+	private final byte [] buf = new byte[65536];
+	private int pos;
+	private int limit;
+
+	/** The number of bytes before the current buffer */
+	private long bufOffset;
+
+	/** The bytes of the last string that has been read */
+	private byte [] string = new byte[256];
+	private int stringLength;
+
+	public JSONReader(InputStream is)
+	{
+		this.is = is;
+	}
+
+	/**
+	 * Makes sure that at least one byte is available.
+	 *
+	 * @return false if the end of the input has been reached.
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException
+	{
+		if (pos < limit)
+			return true;
+
+		bufOffset += limit;
+		pos = 0;
+		limit = 0;
+		int read;
+		while ((read = is.read(buf, 0, buf.length)) == 0);
+		if (read < 0)
+			return false;
+		limit = read;
+		return true;
+	}
+
+	/**
+	 * @return the next byte, which is consumed.
+	 * @throws IOException if the end of the input has been reached.
+	 */
+	private byte nextByte() throws IOException
+	{
+		if (!fill())
+			throw syntaxError("Unexpected end of input");
+		return buf[pos++];
+	}
+
+	/**
+	 * Creates an exception that describes a syntax error at the current position.
+	 *
+	 * @param msg
+	 * @return the exception
+	 */
+	IOException syntaxError(String msg)
+	{
+		return new IOException(msg + " at offset " + (bufOffset + pos));
+	}
+
+	/**
+	 * Returns the type of the next token without consuming it.
+	 *
+	 * @return the token type
+	 * @throws IOException
+	 */
+	public int peek() throws IOException
+	{
+		while (fill())
+		{
+			switch (buf[pos])
+			{
+			case ' ': case '\t': case '\n': case '\r': case ',': case ':':
+				pos++;
+				continue;
+			case '{': return BEGIN_OBJECT;
+			case '}': return END_OBJECT;
+			case '[': return BEGIN_ARRAY;
+			case ']': return END_ARRAY;
+			case '"': return STRING;
+			default: return LITERAL;
+			}
+		}
+		return END;
+	}
+
+	/**
+	 * Consumes the next token, which must be of the given type.
+	 *
+	 * @param type
+	 * @throws IOException
+	 */
+	private void expect(int type) throws IOException
+	{
+		if (peek() != type)
+			throw syntaxError("Unexpected token");
+		pos++;
+	}
+
+	public void beginObject() throws IOException
+	{
+		expect(BEGIN_OBJECT);
+	}
+
+	public void endObject() throws IOException
+	{
+		expect(END_OBJECT);
+	}
+
+	public void beginArray() throws IOException
+	{
+		expect(BEGIN_ARRAY);
+	}
+
+	public void endArray() throws IOException
+	{
+		expect(END_ARRAY);
+	}
+
+	/**
+	 * @return whether the current object or array has further elements.
+	 * @throws IOException
+	 */
+	public boolean hasNext() throws IOException
+	{
+		int type = peek();
+		return type != END_OBJECT && type != END_ARRAY && type != END;
+	}
+
+	/**
+	 * Ensures that the string buffer can hold the given number of bytes.
+	 *
+	 * @param len
+	 */
+	private void ensureString(int len)
+	{
+		if (len > string.length)
+			string = Arrays.copyOf(string, Math.max(len, string.length * 2));
+	}
+
+	/**
+	 * Appends the given code point encoded as UTF-8 to the string buffer.
+	 *
+	 * @param cp
+	 */
+	private void appendCodePoint(int cp)
+	{
+		ensureString(stringLength + 4);
+		if (cp < 0x80)
+		{
+			string[stringLength++] = (byte)cp;
+		} else if (cp < 0x800)
+		{
+			string[stringLength++] = (byte)(0xc0 | (cp >> 6));
+			string[stringLength++] = (byte)(0x80 | (cp & 0x3f));
+		} else if (cp < 0x10000)
+		{
+			string[stringLength++] = (byte)(0xe0 | (cp >> 12));
+			string[stringLength++] = (byte)(0x80 | ((cp >> 6) & 0x3f));
+			string[stringLength++] = (byte)(0x80 | (cp & 0x3f));
+		} else
+		{
+			string[stringLength++] = (byte)(0xf0 | (cp >> 18));
+			string[stringLength++] = (byte)(0x80 | ((cp >> 12) & 0x3f));
+			string[stringLength++] = (byte)(0x80 | ((cp >> 6) & 0x3f));
+			string[stringLength++] = (byte)(0x80 | (cp & 0x3f));
+		}
+	}
+
+	/**
+	 * @return the value of the next four hex digits.
+	 * @throws IOException
+	 */
+	private int readHex() throws IOException
+	{
+		int v = 0;
+		for (int i = 0; i < 4; i++)
+		{
+			int c = nextByte();
+			int d = Character.digit(c, 16);
+			if (d < 0)
+				throw syntaxError("Invalid unicode escape");
+			v = (v << 4) | d;
+		}
+		return v;
+	}
+
+	/**
+	 * Reads the next string, which can be a name or a value. Afterwards, the
+	 * decoded bytes can be accessed via {@link #getStringBytes()} and
+	 * {@link #getStringLength()}.
+	 *
+	 * @throws IOException
+	 */
+	public void nextString() throws IOException
+	{
+		expect(STRING);
+		stringLength = 0;
+
+		while (true)
+		{
+			if (!fill())
+				throw syntaxError("Unterminated string");
+
+			/* Copy the plain run of bytes at once */
+			int start = pos;
+			while (pos < limit && buf[pos] != '"' && buf[pos] != '\\')
+				pos++;
+			int len = pos - start;
+			if (len != 0)
+			{
+				ensureString(stringLength + len);
+				System.arraycopy(buf, start, string, stringLength, len);
+				stringLength += len;
+			}
+			if (pos == limit)
+				continue;
+
+			if (buf[pos++] == '"')
+				return;
+
+			byte c = nextByte();
+			switch (c)
+			{
+			case 'b': appendCodePoint('\b'); break;
+			case 'f': appendCodePoint('\f'); break;
+			case 'n': appendCodePoint('\n'); break;
+			case 'r': appendCodePoint('\r'); break;
+			case 't': appendCodePoint('\t'); break;
+			case 'u':
+				int cp = readHex();
+				if (Character.isHighSurrogate((char)cp) && fill() && buf[pos] == '\\')
+				{
+					pos++;
+					if (nextByte() != 'u')
+						throw syntaxError("Invalid surrogate pair");
+					int low = readHex();
+					cp = Character.toCodePoint((char)cp, (char)low);
+				}
+				appendCodePoint(cp);
+				break;
+			default:
+				appendCodePoint(c & 0xff);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return the buffer of the last string. Only the first
+	 *  {@link #getStringLength()} bytes are valid.
+	 */
+	public byte [] getStringBytes()
+	{
+		return string;
+	}
+
+	/**
+	 * @return the length of the last string.
+	 */
+	public int getStringLength()
+	{
+		return stringLength;
+	}
+
+	/**
+	 * @param cmp
+	 * @return whether the last string equals the given bytes.
+	 */
+	public boolean stringEquals(byte [] cmp)
+	{
+		if (cmp.length != stringLength)
+			return false;
+		for (int i = 0; i < stringLength; i++)
+		{
+			if (cmp[i] != string[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the last string as ByteString.
+	 */
+	public ByteString getByteString()
+	{
+		return new ByteString(string, 0, stringLength);
+	}
+
+	/**
+	 * @return the last string as String.
+	 */
+	public String getString()
+	{
+		return new String(string, 0, stringLength, UTF8);
+	}
+
+	/**
+	 * Reads the next literal, i.e., a number, true, false, or null, into the
+	 * string buffer.
+	 *
+	 * @throws IOException
+	 */
+	private void nextLiteral() throws IOException
+	{
+		if (peek() != LITERAL)
+			throw syntaxError("Unexpected token");
+
+		stringLength = 0;
+		while (fill())
+		{
+			byte c = buf[pos];
+			if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') && c != '-' && c != '+' && c != '.' && c != 'E')
+				break;
+			ensureString(stringLength + 1);
+			string[stringLength++] = c;
+			pos++;
+		}
+		if (stringLength == 0)
+			throw syntaxError("Unexpected character");
+	}
+
+	/**
+	 * @return the next value, which must be a boolean.
+	 * @throws IOException
+	 */
+	public boolean nextBoolean() throws IOException
+	{
+		nextLiteral();
+		if (stringEquals(TRUE)) return true;
+		if (stringEquals(FALSE)) return false;
+		throw syntaxError("Boolean expected");
+	}
+
+	private static final byte [] TRUE = "true".getBytes();
+	private static final byte [] FALSE = "false".getBytes();
+
+	/**
+	 * Skips the next value including all nested values.
+	 *
+	 * @throws IOException
+	 */
+	public void skipValue() throws IOException
+	{
+		int depth = 0;
+		do
+		{
+			switch (peek())
+			{
+			case BEGIN_OBJECT:
+			case BEGIN_ARRAY:
+				pos++;
+				depth++;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				pos++;
+				depth--;
+				break;
+			case STRING:
+				nextString();
+				break;
+			case LITERAL:
+				nextLiteral();
+				break;
+			default:
+				throw syntaxError("Unexpected end of input");
+			}
+		} while (depth > 0);
+	}
+}
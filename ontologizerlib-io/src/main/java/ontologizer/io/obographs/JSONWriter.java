@@ -0,0 +1,212 @@
+package ontologizer.io.obographs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import ontologizer.types.ByteString;
+
+/**
+ * A streaming writer for JSON. Separators are inserted automatically.
+ * Strings are written as UTF-8, only quotation marks, backslashes and
+ * control characters are escaped.
+ *
+ * @author Sebastian Bauer
+ */
+class JSONWriter
+{
+	private static final byte [] HEX = "0123456789abcdef".getBytes();
+
+	private final OutputStream out;
+
+	/** Whether the current object or array has any element, for each level */
+	private boolean [] hasElements = new boolean[16];
+	private int depth;
+
+	/** Whether the next value follows a name */
+	private boolean afterName;
+
+	/** Scratch buffer for ByteStrings */
+	private byte [] scratch = new byte[256];
+
+	/**
+	 * Constructs the writer.
+	 *
+	 * @param out the destination, which should be buffered.
+	 */
+	public JSONWriter(OutputStream out)
+	{
+		this.out = out;
+	}
+
+	/**
+	 * Writes the separator that precedes a new element if necessary.
+	 *
+	 * @throws IOException
+	 */
+	private void separate() throws IOException
+	{
+		if (afterName)
+		{
+			afterName = false;
+			return;
+		}
+		if (depth > 0)
+		{
+			if (hasElements[depth])
+				out.write(',');
+			hasElements[depth] = true;
+		}
+	}
+
+	private void open(int c) throws IOException
+	{
+		separate();
+		out.write(c);
+		if (++depth == hasElements.length)
+			hasElements = Arrays.copyOf(hasElements, depth * 2);
+		hasElements[depth] = false;
+	}
+
+	private void close(int c) throws IOException
+	{
+		out.write(c);
+		depth--;
+	}
+
+	public JSONWriter beginObject() throws IOException
+	{
+		open('{');
+		return this;
+	}
+
+	public JSONWriter endObject() throws IOException
+	{
+		close('}');
+		return this;
+	}
+
+	public JSONWriter beginArray() throws IOException
+	{
+		open('[');
+		return this;
+	}
+
+	public JSONWriter endArray() throws IOException
+	{
+		close(']');
+		return this;
+	}
+
+	/**
+	 * Writes the given bytes as quoted and escaped string.
+	 *
+	 * @param b
+	 * @param len
+	 * @throws IOException
+	 */
+	private void writeString(byte [] b, int len) throws IOException
+	{
+		out.write('"');
+		int start = 0;
+		for (int i = 0; i < len; i++)
+		{
+			int c = b[i] & 0xff;
+			if (c >= 0x20 && c != '"' && c != '\\')
+				continue;
+
+			out.write(b, start, i - start);
+			start = i + 1;
+			out.write('\\');
+			switch (c)
+			{
+			case '"': out.write('"'); break;
+			case '\\': out.write('\\'); break;
+			case '\n': out.write('n'); break;
+			case '\r': out.write('r'); break;
+			case '\t': out.write('t'); break;
+			default:
+				out.write('u');
+				out.write('0');
+				out.write('0');
+				out.write(HEX[c >> 4]);
+				out.write(HEX[c & 0xf]);
+				break;
+			}
+		}
+		out.write(b, start, len - start);
+		out.write('"');
+	}
+
+	/**
+	 * Writes the name of the next object member.
+	 *
+	 * @param name the name, which must not require escaping
+	 * @return this for composing further calls.
+	 * @throws IOException
+	 */
+	public JSONWriter name(byte [] name) throws IOException
+	{
+		separate();
+		out.write('"');
+		out.write(name);
+		out.write('"');
+		out.write(':');
+		afterName = true;
+		return this;
+	}
+
+	public JSONWriter value(byte [] value) throws IOException
+	{
+		separate();
+		writeString(value, value.length);
+		return this;
+	}
+
+	public JSONWriter value(ByteString value) throws IOException
+	{
+		int len = value.length();
+		if (len > scratch.length)
+			scratch = new byte[Math.max(len, scratch.length * 2)];
+		value.copyTo(0, len, scratch, 0);
+		separate();
+		writeString(scratch, len);
+		return this;
+	}
+
+	public JSONWriter value(String value) throws IOException
+	{
+		return value(value.getBytes("UTF-8"));
+	}
+
+	public JSONWriter value(boolean value) throws IOException
+	{
+		separate();
+		out.write(value ? TRUE : FALSE);
+		return this;
+	}
+
+	private static final byte [] TRUE = "true".getBytes();
+	private static final byte [] FALSE = "false".getBytes();
+
+	/**
+	 * Writes a line break, which is useful to keep the lines of large
+	 * outputs short.
+	 *
+	 * @throws IOException
+	 */
+	public void newLine() throws IOException
+	{
+		out.write('\n');
+	}
+
+	/**
+	 * Flushes the underlying stream.
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+}
@@ -0,0 +1,76 @@
+package ontologizer.io.obographs;
+
+import java.nio.charset.Charset;
+
+import ontologizer.ontology.RelationMeaning;
+import ontologizer.types.ByteString;
+
+/**
+ * Names and IRIs of the OBO Graphs JSON format shared by the parser and the
+ * writer.
+ *
+ * @author Sebastian Bauer
+ */
+final class OBOGraphs
+{
+	private OBOGraphs()
+	{
+	}
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private static byte [] b(String str)
+	{
+		return str.getBytes(ASCII);
+	}
+
+	/* Member names */
+	static final byte [] GRAPHS = b("graphs");
+	static final byte [] ID = b("id");
+	static final byte [] META = b("meta");
+	static final byte [] NODES = b("nodes");
+	static final byte [] EDGES = b("edges");
+	static final byte [] EQUIVALENT_NODES_SETS = b("equivalentNodesSets");
+	static final byte [] NODE_IDS = b("nodeIds");
+	static final byte [] VERSION = b("version");
+	static final byte [] LBL = b("lbl");
+	static final byte [] TYPE = b("type");
+	static final byte [] DEFINITION = b("definition");
+	static final byte [] SYNONYMS = b("synonyms");
+	static final byte [] XREFS = b("xrefs");
+	static final byte [] SUBSETS = b("subsets");
+	static final byte [] DEPRECATED = b("deprecated");
+	static final byte [] BASIC_PROPERTY_VALUES = b("basicPropertyValues");
+	static final byte [] PRED = b("pred");
+	static final byte [] VAL = b("val");
+	static final byte [] SUB = b("sub");
+	static final byte [] OBJ = b("obj");
+
+	/* Values */
+	static final byte [] CLASS = b("CLASS");
+	static final byte [] HTTP = b("http");
+	static final byte [] RELATED_SYNONYM = b("hasRelatedSynonym");
+
+	static final String OBO_IRI_PREFIX_STRING = "http://purl.obolibrary.org/obo/";
+	static final byte [] OBO_IRI_PREFIX = b(OBO_IRI_PREFIX_STRING);
+
+	static final String OBO_IN_OWL = "http://www.geneontology.org/formats/oboInOwl#";
+	static final ByteString NAMESPACE_PROPERTY = new ByteString(OBO_IN_OWL + "hasOBONamespace");
+	static final byte [] NAMESPACE_PROPERTY_BYTES = b(OBO_IN_OWL + "hasOBONamespace");
+	static final ByteString ALT_ID_PROPERTY = new ByteString(OBO_IN_OWL + "hasAlternativeId");
+	static final byte [] ALT_ID_PROPERTY_BYTES = b(OBO_IN_OWL + "hasAlternativeId");
+	static final ByteString DATE_PROPERTY = new ByteString(OBO_IN_OWL + "date");
+	static final ByteString FORMAT_VERSION_PROPERTY = new ByteString(OBO_IN_OWL + "hasOBOFormatVersion");
+
+	/** The IRIs of the known relations, indexed by the ordinal of the {@link RelationMeaning} */
+	static final ByteString [] RELATION_IRIS = new ByteString[RelationMeaning.UNKOWN.ordinal()];
+
+	static
+	{
+		RELATION_IRIS[RelationMeaning.IS_A.ordinal()] = new ByteString("is_a");
+		RELATION_IRIS[RelationMeaning.PART_OF_A.ordinal()] = new ByteString(OBO_IRI_PREFIX_STRING + "BFO_0000050");
+		RELATION_IRIS[RelationMeaning.REGULATES.ordinal()] = new ByteString(OBO_IRI_PREFIX_STRING + "RO_0002211");
+		RELATION_IRIS[RelationMeaning.NEGATIVELY_REGULATES.ordinal()] = new ByteString(OBO_IRI_PREFIX_STRING + "RO_0002212");
+		RELATION_IRIS[RelationMeaning.POSITIVELY_REGULATES.ordinal()] = new ByteString(OBO_IRI_PREFIX_STRING + "RO_0002213");
+	}
+}
@@ -0,0 +1,767 @@
+package ontologizer.io.obographs;
+
+import static ontologizer.io.obographs.OBOGraphs.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import ontologizer.io.IParserInput;
+import ontologizer.io.obo.OBOParser;
+import ontologizer.ontology.Namespace;
+import ontologizer.ontology.ParentTermID;
+import ontologizer.ontology.PrefixPool;
+import ontologizer.ontology.RelationMeaning;
+import ontologizer.ontology.RelationType;
+import ontologizer.ontology.RelationTypePool;
+import ontologizer.ontology.Subset;
+import ontologizer.ontology.Term;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermXref;
+import ontologizer.types.ByteString;
+import sonumina.collections.ReferencePool;
+
+/**
+ * Parses ontologies in the OBO Graphs JSON format. The input is read in a
+ * streaming fashion without building a document tree, the terms are the
+ * same as the ones that {@link OBOParser} creates for the equivalent obo
+ * file. Only nodes of type CLASS that have a label become terms, edges
+ * become the parents of the terms.
+ *
+ * The options of {@link OBOParser} are supported, i.e., PARSE_DEFINITIONS,
+ * PARSE_XREFS, SETNAMEEQUALTOID, and IGNORE_SYNONYMS.
+ *
+ * @author Sebastian Bauer
+ */
+public class OBOGraphsParser
+{
+	private static Logger logger = Logger.getLogger(OBOGraphsParser.class.getName());
+
+	/** The input */
+	private IParserInput input;
+
+	/** The parse options */
+	private int options;
+
+	/** Whether the input has been parsed */
+	private boolean parsed;
+
+	private ByteString formatVersion;
+	private ByteString date;
+	private ByteString dataVersion;
+
+	/** Collection of all terms */
+	private HashSet<Term> terms = new HashSet<Term>();
+
+	private PrefixPool prefixPool = new PrefixPool();
+	private ReferencePool<TermID> termIDPool = new ReferencePool<TermID>();
+	private RelationTypePool relationTypePool = new RelationTypePool();
+	private HashMap<ByteString,Namespace> namespaces = new HashMap<ByteString,Namespace>();
+	private HashMap<ByteString,Subset> subsets = new HashMap<ByteString,Subset>();
+
+	/** The known relation types */
+	private final RelationType [] knownRelations = new RelationType[RelationMeaning.UNKOWN.ordinal()];
+
+	/** The relation types of the predicates of edges that have been seen so far */
+	private HashMap<ByteString,RelationType> predicates = new HashMap<ByteString,RelationType>();
+
+	/** The nodes in the order of their appearance */
+	private LinkedHashMap<TermID,Node> nodes = new LinkedHashMap<TermID,Node>();
+
+	/** The parents as defined by the edges */
+	private HashMap<TermID,List<ParentTermID>> parents = new HashMap<TermID,List<ParentTermID>>();
+
+	/** The equivalent nodes */
+	private HashMap<TermID,List<TermID>> equivalents = new HashMap<TermID,List<TermID>>();
+
+	private int numberOfRelations;
+
+	/** Temporary buffer for converting identifiers */
+	private byte [] idBuf = new byte[64];
+
+	/**
+	 * The properties of a node. The term is created once all edges are known.
+	 */
+	private static class Node
+	{
+		public TermID id;
+		public ByteString name;
+		public boolean isClass = true;
+		public boolean hasMeta;
+		public ByteString definition;
+		public Namespace namespace;
+		public boolean obsolete;
+		public ArrayList<TermID> alternatives = new ArrayList<TermID>();
+		public ArrayList<ByteString> synonyms = new ArrayList<ByteString>();
+		public ArrayList<TermXref> xrefs = new ArrayList<TermXref>();
+		public ArrayList<Subset> subsets = new ArrayList<Subset>();
+	}
+
+	public OBOGraphsParser(IParserInput input)
+	{
+		this(input, 0);
+	}
+
+	/**
+	 * Constructs a parser for the given input.
+	 *
+	 * @param input the input
+	 * @param options the options as defined in {@link OBOParser}
+	 */
+	public OBOGraphsParser(IParserInput input, int options)
+	{
+		this.input = input;
+		this.options = options;
+
+		for (int i = 0; i < knownRelations.length; i++)
+		{
+			RelationMeaning tr = RelationMeaning.values()[i];
+			knownRelations[i] = relationTypePool.map(new RelationType(tr.relationName(), tr));
+		}
+	}
+
+	/**
+	 * Parses the input.
+	 *
+	 * @return some diagnostics
+	 * @throws IOException on read errors or if the input is malformed
+	 */
+	public String doParse() throws IOException
+	{
+		if (!parsed)
+		{
+			long startMillis = System.currentTimeMillis();
+
+			try
+			{
+				JSONReader reader = new JSONReader(input.inputStream());
+				reader.beginObject();
+				while (reader.hasNext())
+				{
+					reader.nextString();
+					if (reader.stringEquals(GRAPHS))
+					{
+						reader.beginArray();
+						while (reader.hasNext())
+							readGraph(reader);
+						reader.endArray();
+					} else
+					{
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} finally
+			{
+				input.close();
+			}
+
+			createTerms();
+
+			long durationMillis = System.currentTimeMillis() - startMillis;
+			logger.log(Level.INFO, "Got " + terms.size() + " terms and " + numberOfRelations + " relations in " + durationMillis + " ms");
+			parsed = true;
+		}
+		return "Details of parsed obo graph:\n  date:\t\t\t" + date + "\n  format:\t\t" + formatVersion + "\n  term definitions:\t" + terms.size();
+	}
+
+	/**
+	 * Reads a single graph.
+	 *
+	 * @param reader
+	 * @throws IOException
+	 */
+	private void readGraph(JSONReader reader) throws IOException
+	{
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			reader.nextString();
+			if (reader.stringEquals(NODES))
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+					readNode(reader);
+				reader.endArray();
+			} else if (reader.stringEquals(EDGES))
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+					readEdge(reader);
+				reader.endArray();
+			} else if (reader.stringEquals(EQUIVALENT_NODES_SETS))
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+					readEquivalentNodesSet(reader);
+				reader.endArray();
+			} else if (reader.stringEquals(META))
+			{
+				readGraphMeta(reader);
+			} else
+			{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+	}
+
+	/**
+	 * Reads the meta data of the graph.
+	 *
+	 * @param reader
+	 * @throws IOException
+	 */
+	private void readGraphMeta(JSONReader reader) throws IOException
+	{
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			reader.nextString();
+			if (reader.stringEquals(VERSION))
+			{
+				reader.nextString();
+				dataVersion = reader.getByteString();
+			} else if (reader.stringEquals(BASIC_PROPERTY_VALUES))
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+				{
+					ByteString [] pv = readPropertyValue(reader);
+					if (pv[0] == null || pv[1] == null)
+						continue;
+					if (pv[0].equals(DATE_PROPERTY)) date = pv[1];
+					else if (pv[0].equals(FORMAT_VERSION_PROPERTY)) formatVersion = pv[1];
+				}
+				reader.endArray();
+			} else
+			{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+	}
+
+	/**
+	 * Reads a property value, i.e., an object with a pred and a val member.
+	 *
+	 * @param reader
+	 * @return an array containing the pred and the val, which can be null.
+	 * @throws IOException
+	 */
+	private ByteString [] readPropertyValue(JSONReader reader) throws IOException
+	{
+		ByteString [] pv = new ByteString[2];
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			reader.nextString();
+			if (reader.stringEquals(PRED))
+			{
+				reader.nextString();
+				pv[0] = reader.getByteString();
+			} else if (reader.stringEquals(VAL))
+			{
+				reader.nextString();
+				pv[1] = reader.getByteString();
+			} else
+			{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return pv;
+	}
+
+	/**
+	 * Reads the val member of the current object.
+	 *
+	 * @param reader
+	 * @return the value or null if there is none.
+	 * @throws IOException
+	 */
+	private ByteString readVal(JSONReader reader) throws IOException
+	{
+		ByteString val = null;
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			reader.nextString();
+			if (reader.stringEquals(VAL))
+			{
+				reader.nextString();
+				val = reader.getByteString();
+			} else
+			{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return val;
+	}
+
+	/**
+	 * Converts the identifier of the last string of the reader, which can
+	 * be an OBO IRI (e.g., http://purl.obolibrary.org/obo/GO_0000001) or a
+	 * CURIE (e.g., GO:0000001), into a term id.
+	 *
+	 * @param reader
+	 * @return the term id or null if the identifier doesn't denote a term id.
+	 */
+	private TermID readTermID(JSONReader reader)
+	{
+		byte [] s = reader.getStringBytes();
+		int len = reader.getStringLength();
+		int start = 0;
+
+		if (startsWith(s, len, OBO_IRI_PREFIX))
+			start = OBO_IRI_PREFIX.length;
+		else if (startsWith(s, len, HTTP))
+			return null;
+
+		len -= start;
+		if (len > idBuf.length)
+			idBuf = new byte[Math.max(len, idBuf.length * 2)];
+		System.arraycopy(s, start, idBuf, 0, len);
+
+		/* Find the separator of the prefix */
+		int colon = -1;
+		for (int i = 0; i < len; i++)
+		{
+			if (idBuf[i] == ':')
+			{
+				colon = i;
+				break;
+			}
+		}
+		if (colon == -1 && start != 0)
+		{
+			for (int i = 0; i < len; i++)
+			{
+				if (idBuf[i] == '_')
+				{
+					idBuf[i] = ':';
+					colon = i;
+					break;
+				}
+			}
+		}
+		if (colon < 1)
+			return null;
+
+		return termIDPool.map(new TermID(idBuf, 0, len, prefixPool));
+	}
+
+	private static boolean startsWith(byte [] s, int len, byte [] prefix)
+	{
+		if (len < prefix.length)
+			return false;
+		for (int i = 0; i < prefix.length; i++)
+		{
+			if (s[i] != prefix[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the relation type for the given predicate of an edge.
+	 *
+	 * @param pred
+	 * @return the relation type
+	 */
+	private RelationType getRelationType(ByteString pred)
+	{
+		RelationType type = predicates.get(pred);
+		if (type != null)
+			return type;
+
+		for (int i = 0; i < knownRelations.length; i++)
+		{
+			if (pred.equals(knownRelations[i].name()) || pred.equals(RELATION_IRIS[i]))
+				type = knownRelations[i];
+		}
+
+		if (type == null)
+		{
+			/* Use the CURIE as name, if it is an OBO IRI */
+			ByteString name = pred;
+			if (pred.startsWith(OBO_IRI_PREFIX_STRING))
+			{
+				String curie = pred.substring(OBO_IRI_PREFIX.length, pred.length()).toString();
+				if (curie.indexOf(':') == -1)
+					curie = curie.replaceFirst("_", ":");
+				name = new ByteString(curie);
+			}
+			type = relationTypePool.map(name);
+			if (type == null)
+				type = relationTypePool.map(new RelationType(name, RelationMeaning.UNKOWN));
+		}
+		predicates.put(pred, type);
+		return type;
+	}
+
+	/**
+	 * Returns the name of the subset given by the IRI, i.e., the part after
+	 * the hash sign.
+	 *
+	 * @param iri
+	 * @return the subset
+	 */
+	private Subset getSubset(ByteString iri)
+	{
+		String s = iri.toString();
+		int hash = s.lastIndexOf('#');
+		ByteString name = hash != -1 ? new ByteString(s.substring(hash + 1)) : iri;
+		Subset subset = subsets.get(name);
+		if (subset == null)
+		{
+			subset = new Subset(name, ByteString.EMPTY);
+			subsets.put(name, subset);
+		}
+		return subset;
+	}
+
+	/**
+	 * Reads a single node.
+	 *
+	 * @param reader
+	 * @throws IOException
+	 */
+	private void readNode(JSONReader reader) throws IOException
+	{
+		Node node = new Node();
+
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			reader.nextString();
+			if (reader.stringEquals(ID))
+			{
+				reader.nextString();
+				node.id = readTermID(reader);
+			} else if (reader.stringEquals(LBL))
+			{
+				reader.nextString();
+				node.name = reader.getByteString();
+			} else if (reader.stringEquals(TYPE))
+			{
+				reader.nextString();
+				node.isClass = reader.stringEquals(CLASS);
+			} else if (reader.stringEquals(META))
+			{
+				readNodeMeta(reader, node);
+			} else
+			{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (!node.isClass || node.id == null)
+			return;
+
+		if (node.name == null)
+		{
+			/* Nodes without label and meta are references to external classes */
+			if (!node.hasMeta)
+				return;
+			node.name = node.id.toByteString();
+		} else if ((options & OBOParser.SETNAMEEQUALTOID) != 0)
+		{
+			node.name = node.id.toByteString();
+		}
+		nodes.put(node.id, node);
+	}
+
+	/**
+	 * Reads the meta data of a node.
+	 *
+	 * @param reader
+	 * @param node
+	 * @throws IOException
+	 */
+	private void readNodeMeta(JSONReader reader, Node node) throws IOException
+	{
+		node.hasMeta = true;
+
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			reader.nextString();
+			if (reader.stringEquals(DEFINITION) && (options & OBOParser.PARSE_DEFINITIONS) != 0)
+			{
+				node.definition = readVal(reader);
+			} else if (reader.stringEquals(SYNONYMS) && (options & OBOParser.IGNORE_SYNONYMS) == 0)
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+				{
+					ByteString synonym = readPropertyValue(reader)[1];
+					if (synonym != null)
+						node.synonyms.add(synonym);
+				}
+				reader.endArray();
+			} else if (reader.stringEquals(XREFS) && (options & OBOParser.PARSE_XREFS) != 0)
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+				{
+					ByteString xref = readVal(reader);
+					if (xref == null)
+						continue;
+					String x = xref.toString();
+					int colon = x.indexOf(':');
+					if (colon != -1)
+						node.xrefs.add(new TermXref(x.substring(0, colon), x.substring(colon + 1).trim(), null));
+				}
+				reader.endArray();
+			} else if (reader.stringEquals(SUBSETS))
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+				{
+					reader.nextString();
+					node.subsets.add(getSubset(reader.getByteString()));
+				}
+				reader.endArray();
+			} else if (reader.stringEquals(DEPRECATED))
+			{
+				node.obsolete = reader.nextBoolean();
+			} else if (reader.stringEquals(BASIC_PROPERTY_VALUES))
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+					readNodePropertyValue(reader, node);
+				reader.endArray();
+			} else
+			{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+	}
+
+	/**
+	 * Reads a basic property value of a node.
+	 *
+	 * @param reader
+	 * @param node
+	 * @throws IOException
+	 */
+	private void readNodePropertyValue(JSONReader reader, Node node) throws IOException
+	{
+		int pred = 0;
+		ByteString val = null;
+		TermID valID = null;
+
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			reader.nextString();
+			if (reader.stringEquals(PRED))
+			{
+				reader.nextString();
+				if (reader.stringEquals(NAMESPACE_PROPERTY_BYTES)) pred = 1;
+				else if (reader.stringEquals(ALT_ID_PROPERTY_BYTES)) pred = 2;
+			} else if (reader.stringEquals(VAL))
+			{
+				reader.nextString();
+				val = reader.getByteString();
+				valID = readTermID(reader);
+			} else
+			{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (pred == 1 && val != null)
+		{
+			Namespace namespace = namespaces.get(val);
+			if (namespace == null)
+			{
+				namespace = new Namespace(val);
+				namespaces.put(val, namespace);
+			}
+			node.namespace = namespace;
+		} else if (pred == 2 && valID != null)
+		{
+			node.alternatives.add(valID);
+		}
+	}
+
+	/**
+	 * Reads a single edge.
+	 *
+	 * @param reader
+	 * @throws IOException
+	 */
+	private void readEdge(JSONReader reader) throws IOException
+	{
+		TermID sub = null;
+		TermID obj = null;
+		ByteString pred = null;
+
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			reader.nextString();
+			if (reader.stringEquals(SUB))
+			{
+				reader.nextString();
+				sub = readTermID(reader);
+			} else if (reader.stringEquals(OBJ))
+			{
+				reader.nextString();
+				obj = readTermID(reader);
+			} else if (reader.stringEquals(PRED))
+			{
+				reader.nextString();
+				pred = reader.getByteString();
+			} else
+			{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (sub == null || obj == null || pred == null)
+			return;
+
+		List<ParentTermID> p = parents.get(sub);
+		if (p == null)
+		{
+			p = new ArrayList<ParentTermID>(2);
+			parents.put(sub, p);
+		}
+		p.add(new ParentTermID(obj, getRelationType(pred)));
+	}
+
+	/**
+	 * Reads a set of equivalent nodes.
+	 *
+	 * @param reader
+	 * @throws IOException
+	 */
+	private void readEquivalentNodesSet(JSONReader reader) throws IOException
+	{
+		List<TermID> ids = new ArrayList<TermID>();
+
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			reader.nextString();
+			if (reader.stringEquals(NODE_IDS))
+			{
+				reader.beginArray();
+				while (reader.hasNext())
+				{
+					reader.nextString();
+					TermID id = readTermID(reader);
+					if (id != null)
+						ids.add(id);
+				}
+				reader.endArray();
+			} else
+			{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		for (TermID id : ids)
+		{
+			List<TermID> e = equivalents.get(id);
+			if (e == null)
+			{
+				e = new ArrayList<TermID>(2);
+				equivalents.put(id, e);
+			}
+			for (TermID other : ids)
+			{
+				if (!other.equals(id) && !e.contains(other))
+					e.add(other);
+			}
+		}
+	}
+
+	/**
+	 * Creates the terms from the nodes and the edges.
+	 */
+	private void createTerms()
+	{
+		List<ParentTermID> noParents = new ArrayList<ParentTermID>();
+
+		for (Node node : nodes.values())
+		{
+			List<ParentTermID> p = parents.get(node.id);
+			if (p == null)
+				p = noParents;
+
+			Term t = new Term(node.id, node.name, node.namespace, p);
+			t.setObsolete(node.obsolete);
+			t.setDefinition(node.definition);
+			t.setAlternatives(node.alternatives);
+			List<TermID> e = equivalents.get(node.id);
+			t.setEquivalents(e != null ? new ArrayList<TermID>(e) : new ArrayList<TermID>());
+			t.setSubsets(node.subsets);
+			t.setSynonyms(node.synonyms);
+			t.setXrefs(node.xrefs);
+			terms.add(t);
+
+			numberOfRelations += p.size();
+		}
+
+		nodes = null;
+		parents = null;
+		equivalents = null;
+	}
+
+	/**
+	 * @return the parsed terms.
+	 */
+	public Set<Term> getTermMap()
+	{
+		return terms;
+	}
+
+	/**
+	 * @return the OBO format version as declared in the meta data of the graph.
+	 */
+	public ByteString getFormatVersion()
+	{
+		return formatVersion;
+	}
+
+	/**
+	 * @return the date as declared in the meta data of the graph.
+	 */
+	public ByteString getDate()
+	{
+		return date;
+	}
+
+	/**
+	 * @return the version of the graph.
+	 */
+	public ByteString getDataVersion()
+	{
+		return dataVersion;
+	}
+
+	/**
+	 * @return the subsets that are referenced by the terms.
+	 */
+	public Map<ByteString,Subset> getSubsets()
+	{
+		return subsets;
+	}
+}
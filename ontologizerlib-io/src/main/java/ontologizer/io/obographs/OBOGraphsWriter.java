@@ -0,0 +1,277 @@
+package ontologizer.io.obographs;
+
+import static ontologizer.io.obographs.OBOGraphs.*;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.ParentTermID;
+import ontologizer.ontology.RelationMeaning;
+import ontologizer.ontology.RelationType;
+import ontologizer.ontology.Subset;
+import ontologizer.ontology.Term;
+import ontologizer.ontology.TermContainer;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermXref;
+import ontologizer.types.ByteString;
+
+/**
+ * Writes terms in the OBO Graphs JSON format that can be read via
+ * {@link OBOGraphsParser}. The output is written in a streaming fashion,
+ * i.e., apart from the terms no further representation is created.
+ *
+ * As the format of synonyms and xrefs within the terms is simplified,
+ * all synonyms are written as related synonyms and names of xrefs are not
+ * written.
+ *
+ * @author Sebastian Bauer
+ */
+public class OBOGraphsWriter
+{
+	/**
+	 * Writes the given terms to the given file.
+	 *
+	 * @param terms the terms to be written
+	 * @param file the destination
+	 * @throws IOException
+	 */
+	public static void write(TermContainer terms, File file) throws IOException
+	{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try
+		{
+			write(terms, out);
+		} finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the given terms to the given stream.
+	 *
+	 * @param terms the terms to be written
+	 * @param os the destination, which is not closed
+	 * @throws IOException
+	 */
+	public static void write(TermContainer terms, OutputStream os) throws IOException
+	{
+		write(terms, terms.getFormatVersion(), terms.getDate(), os);
+	}
+
+	/**
+	 * Writes all terms of the given ontology to the given stream.
+	 *
+	 * @param ontology the ontology to be written
+	 * @param os the destination, which is not closed
+	 * @throws IOException
+	 */
+	public static void write(Ontology ontology, OutputStream os) throws IOException
+	{
+		write(ontology.getTermMap(), null, null, os);
+	}
+
+	/**
+	 * @param id
+	 * @return the OBO IRI of the given term id.
+	 */
+	private static String iri(TermID id)
+	{
+		return OBO_IRI_PREFIX_STRING + id.toString().replaceFirst(":", "_");
+	}
+
+	/**
+	 * @param type
+	 * @return the predicate of an edge of the given relation type.
+	 */
+	private static ByteString predicate(RelationType type)
+	{
+		RelationMeaning meaning = type.meaning();
+		if (meaning != null && meaning != RelationMeaning.UNKOWN)
+			return RELATION_IRIS[meaning.ordinal()];
+
+		String name = type.name().toString();
+		int colon = name.indexOf(':');
+		if (colon > 0)
+			return new ByteString(OBO_IRI_PREFIX_STRING + name.substring(0, colon) + "_" + name.substring(colon + 1));
+		return type.name();
+	}
+
+	private static void writePropertyValue(JSONWriter w, ByteString pred, String val) throws IOException
+	{
+		w.beginObject();
+		w.name(PRED).value(pred);
+		w.name(VAL).value(val);
+		w.endObject();
+	}
+
+	private static void writePropertyValue(JSONWriter w, ByteString pred, ByteString val) throws IOException
+	{
+		w.beginObject();
+		w.name(PRED).value(pred);
+		w.name(VAL).value(val);
+		w.endObject();
+	}
+
+	/**
+	 * Writes the node of the given term.
+	 *
+	 * @param w
+	 * @param t
+	 * @throws IOException
+	 */
+	private static void writeNode(JSONWriter w, Term t) throws IOException
+	{
+		w.beginObject();
+		w.name(ID).value(iri(t.getID()));
+		w.name(LBL).value(t.getName());
+		w.name(TYPE).value(CLASS);
+		w.name(META).beginObject();
+
+		ByteString definition = t.getDefinition();
+		if (definition != null)
+		{
+			w.name(DEFINITION).beginObject();
+			w.name(VAL).value(definition);
+			w.endObject();
+		}
+
+		Subset [] subsets = t.getSubsets();
+		if (subsets != null && subsets.length > 0)
+		{
+			String base = OBO_IRI_PREFIX_STRING + t.getID().getPrefix().toString().toLowerCase() + "#";
+			w.name(SUBSETS).beginArray();
+			for (Subset s : subsets)
+				w.value(base + s.getName().toString());
+			w.endArray();
+		}
+
+		ByteString [] synonyms = t.getSynonyms();
+		if (synonyms != null && synonyms.length > 0)
+		{
+			w.name(SYNONYMS).beginArray();
+			for (ByteString s : synonyms)
+			{
+				w.beginObject();
+				w.name(PRED).value(RELATED_SYNONYM);
+				w.name(VAL).value(s);
+				w.endObject();
+			}
+			w.endArray();
+		}
+
+		TermXref [] xrefs = t.getXrefs();
+		if (xrefs != null && xrefs.length > 0)
+		{
+			w.name(XREFS).beginArray();
+			for (TermXref x : xrefs)
+			{
+				w.beginObject();
+				w.name(VAL).value(x.getDatabase() + ":" + x.getXrefId());
+				w.endObject();
+			}
+			w.endArray();
+		}
+
+		w.name(BASIC_PROPERTY_VALUES).beginArray();
+		if (t.getNamespace() != null)
+			writePropertyValue(w, NAMESPACE_PROPERTY, t.getNamespace().getName());
+		TermID [] alternatives = t.getAlternatives();
+		if (alternatives != null)
+		{
+			for (TermID alt : alternatives)
+				writePropertyValue(w, ALT_ID_PROPERTY, alt.toString());
+		}
+		w.endArray();
+
+		if (t.isObsolete())
+			w.name(DEPRECATED).value(true);
+
+		w.endObject();
+		w.endObject();
+		w.newLine();
+	}
+
+	/**
+	 * Writes the given terms to the given stream.
+	 *
+	 * @param terms the terms to be written
+	 * @param formatVersion the format version to be stored in the meta data or null
+	 * @param date the date to be stored in the meta data or null
+	 * @param os the destination, which is not closed
+	 * @throws IOException
+	 */
+	private static void write(Iterable<Term> terms, ByteString formatVersion, ByteString date, OutputStream os) throws IOException
+	{
+		JSONWriter w = new JSONWriter(os);
+
+		w.beginObject();
+		w.name(GRAPHS).beginArray();
+		w.beginObject();
+
+		w.name(META).beginObject();
+		w.name(BASIC_PROPERTY_VALUES).beginArray();
+		if (formatVersion != null)
+			writePropertyValue(w, FORMAT_VERSION_PROPERTY, formatVersion);
+		if (date != null)
+			writePropertyValue(w, DATE_PROPERTY, date);
+		w.endArray();
+		w.endObject();
+		w.newLine();
+
+		w.name(NODES).beginArray();
+		for (Term t : terms)
+			writeNode(w, t);
+		w.endArray();
+		w.newLine();
+
+		w.name(EDGES).beginArray();
+		for (Term t : terms)
+		{
+			String sub = null;
+			for (ParentTermID p : t.getParents())
+			{
+				if (sub == null)
+					sub = iri(t.getID());
+				w.beginObject();
+				w.name(SUB).value(sub);
+				w.name(PRED).value(predicate(p.getRelation()));
+				w.name(OBJ).value(iri(p.getRelated()));
+				w.endObject();
+			}
+			if (sub != null)
+				w.newLine();
+		}
+		w.endArray();
+
+		/* Each equivalence is written as a set of two nodes */
+		w.name(EQUIVALENT_NODES_SETS).beginArray();
+		for (Term t : terms)
+		{
+			TermID [] equivalents = t.getEquivalents();
+			if (equivalents == null)
+				continue;
+
+			for (TermID e : equivalents)
+			{
+				w.beginObject();
+				w.name(NODE_IDS).beginArray();
+				w.value(iri(t.getID()));
+				w.value(iri(e));
+				w.endArray();
+				w.endObject();
+			}
+		}
+		w.endArray();
+
+		w.endObject();
+		w.endArray();
+		w.endObject();
+		w.newLine();
+		w.flush();
+	}
+}
@@ -0,0 +1,419 @@
+package ontologizer.io.snapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import ontologizer.association.AnnotationContext;
+import ontologizer.association.AssociationContainer;
+import ontologizer.association.AssociationTable;
+import ontologizer.io.ParserFileInput;
+import ontologizer.io.annotation.AssociationParser;
+import ontologizer.ontology.Prefix;
+import ontologizer.ontology.Term;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermMap;
+import ontologizer.types.ByteString;
+import sonumina.collections.ObjectIntHashMap;
+
+/**
+ * A read-only view of an association snapshot that was written by
+ * {@link AssociationSnapshotWriter}. The file is memory mapped and decoded
+ * when the annotation context or the associations are requested.
+ *
+ * Each snapshot carries a key that identifies the source from which the
+ * associations were parsed, i.e., a hash of the contents of the association
+ * file and of the terms against which the associations were resolved. See
+ * {@link #computeKey(File, TermMap)} and {@link #load(File, File, TermMap)}.
+ *
+ * All integers are stored in big endian byte order. The file starts with
+ * a header consisting of the magic, the version, the key, the number of
+ * items, object ids, synonyms, terms and postings, and the offsets of the
+ * sections. A string reference is a pair of offset (relative to the string
+ * section) and length, where an offset of -1 denotes null. The sections are:
+ * <ul>
+ * <li>strings: the raw bytes of all strings</li>
+ * <li>tables: the prefixes, evidences and aspects</li>
+ * <li>items: the symbol and the object id of each item</li>
+ * <li>object ids: each object id together with the item to which it maps</li>
+ * <li>synonyms: each synonym together with the item to which it maps</li>
+ * <li>terms: the prefix and the id of each term</li>
+ * <li>postings: the start of the postings of each item followed by the
+ *  postings. A posting consists of the term and the attributes, i.e., the
+ *  evidence and the aspect (both one-based, 0 denotes null) and a bit for
+ *  the NOT qualifier.</li>
+ * </ul>
+ *
+ * Instances are thread-safe.
+ *
+ * @author Sebastian Bauer
+ */
+public final class AssociationSnapshot
+{
+	private static Logger logger = Logger.getLogger(AssociationSnapshot.class.getName());
+
+	static final int MAGIC = 0x41534E50;
+	static final int VERSION = 1;
+
+	/** Size of the key in bytes */
+	public static final int KEY_SIZE = 32;
+
+	/** Size of the header in bytes */
+	static final int HEADER_SIZE = 8 + KEY_SIZE + 12 * 4;
+
+	/** Size of an item record in bytes */
+	static final int ITEM_RECORD_SIZE = 16;
+
+	static final int ATTR_NOT = 1 << 31;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final ByteBuffer buf;
+
+	private final byte [] key;
+
+	private final int numItems;
+	private final int numObjectIds;
+	private final int numSynonyms;
+	private final int numTerms;
+	private final int numPostings;
+
+	private final int stringsOffset;
+	private final int itemsOffset;
+	private final int objectIdsOffset;
+	private final int synonymsOffset;
+	private final int termsOffset;
+	private final int postingsOffset;
+
+	private final Prefix [] prefixes;
+	private final ByteString [] evidences;
+	private final ByteString [] aspects;
+
+	private AssociationSnapshot(ByteBuffer buf) throws IOException
+	{
+		this.buf = buf;
+
+		if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC)
+			throw new IOException("Not an association snapshot");
+		int version = buf.getInt(4);
+		if (version != VERSION)
+			throw new IOException("Unsupported association snapshot version " + version + ", expected " + VERSION);
+
+		key = new byte[KEY_SIZE];
+		ByteBuffer dup = buf.duplicate();
+		dup.position(8);
+		dup.get(key);
+
+		int pos = 8 + KEY_SIZE;
+		numItems = buf.getInt(pos);
+		numObjectIds = buf.getInt(pos + 4);
+		numSynonyms = buf.getInt(pos + 8);
+		numTerms = buf.getInt(pos + 12);
+		numPostings = buf.getInt(pos + 16);
+		stringsOffset = buf.getInt(pos + 20);
+		int tablesOffset = buf.getInt(pos + 24);
+		itemsOffset = buf.getInt(pos + 28);
+		objectIdsOffset = buf.getInt(pos + 32);
+		synonymsOffset = buf.getInt(pos + 36);
+		termsOffset = buf.getInt(pos + 40);
+		postingsOffset = buf.getInt(pos + 44);
+		if ((long)postingsOffset + (numItems + 1) * 4L + numPostings * 8L != buf.limit())
+			throw new IOException("Association snapshot is truncated or corrupt");
+
+		pos = tablesOffset;
+		prefixes = new Prefix[buf.getInt(pos)];
+		pos += 4;
+		for (int i = 0; i < prefixes.length; i++, pos += 8)
+			prefixes[i] = new Prefix(string(pos));
+
+		evidences = new ByteString[buf.getInt(pos)];
+		pos += 4;
+		for (int i = 0; i < evidences.length; i++, pos += 8)
+			evidences[i] = string(pos);
+
+		aspects = new ByteString[buf.getInt(pos)];
+		pos += 4;
+		for (int i = 0; i < aspects.length; i++, pos += 8)
+			aspects[i] = string(pos);
+	}
+
+	/**
+	 * Opens the given snapshot file.
+	 *
+	 * @param file the file that was written by {@link AssociationSnapshotWriter}
+	 * @return the snapshot
+	 * @throws IOException if the file could not be mapped or is not a valid
+	 *  snapshot
+	 */
+	public static AssociationSnapshot open(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Association snapshot is too large");
+			return new AssociationSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally
+		{
+			raf.close();
+		}
+	}
+
+	private ByteString string(int pos)
+	{
+		int offset = buf.getInt(pos);
+		if (offset == -1)
+			return null;
+		byte [] bytes = new byte[buf.getInt(pos + 4)];
+		ByteBuffer dup = buf.duplicate();
+		dup.position(stringsOffset + offset);
+		dup.get(bytes);
+		return new ByteString(bytes);
+	}
+
+	/**
+	 * Computes the key for associations that are parsed from the given file
+	 * and resolved against the given terms. The key covers the contents of
+	 * the file as well as the ids, the alternative ids and the obsolete state
+	 * of all terms.
+	 *
+	 * @param gafFile the association file
+	 * @param terms the terms or null if associations are not resolved
+	 * @return the key
+	 * @throws IOException
+	 */
+	public static byte [] computeKey(File gafFile, TermMap terms) throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+
+		byte [] bytes = new byte[65536];
+		InputStream is = new FileInputStream(gafFile);
+		try
+		{
+			int read;
+			while ((read = is.read(bytes)) >= 0)
+				digest.update(bytes, 0, read);
+		} finally
+		{
+			is.close();
+		}
+
+		digest.update((byte)(terms != null ? 1 : 0));
+		if (terms != null)
+		{
+			for (Term t : terms)
+			{
+				digest.update(t.getID().toString().getBytes(UTF8));
+				digest.update((byte)(t.isObsolete() ? 1 : 0));
+				for (TermID alt : t.getAlternatives())
+				{
+					digest.update((byte)'|');
+					digest.update(alt.toString().getBytes(UTF8));
+				}
+				digest.update((byte)'\n');
+			}
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Provides the associations of the given file resolved against the given
+	 * terms. If the snapshot file exists and matches the source, the
+	 * associations are read from it. Otherwise, the association file is parsed
+	 * and the snapshot file is (re)written.
+	 *
+	 * @param snapshotFile the snapshot file
+	 * @param gafFile the association file
+	 * @param terms the terms or null if associations are not resolved
+	 * @return the association container
+	 * @throws IOException
+	 */
+	public static AssociationContainer load(File snapshotFile, File gafFile, TermMap terms) throws IOException
+	{
+		byte [] key = computeKey(gafFile, terms);
+
+		if (snapshotFile.exists())
+		{
+			try
+			{
+				AssociationSnapshot snapshot = open(snapshotFile);
+				if (snapshot.matches(key))
+					return snapshot.createAssociationContainer();
+				logger.info("Snapshot \"" + snapshotFile + "\" is stale");
+			} catch (IOException e)
+			{
+				logger.warning("Ignoring snapshot \"" + snapshotFile + "\": " + e.getMessage());
+			}
+		}
+
+		AssociationContainer container;
+		ParserFileInput input = new ParserFileInput(gafFile.getAbsolutePath());
+		try
+		{
+			AssociationParser parser = new AssociationParser(input, terms);
+			container = new AssociationContainer(parser.getAssociations(), parser.getAnnotationMapping());
+		} finally
+		{
+			input.close();
+		}
+
+		/* Write to a unique temporary file within the same directory first and move it
+		 * atomically, so neither readers nor concurrent writers see partial snapshots */
+		File tmpFile = File.createTempFile("." + snapshotFile.getName() + ".", ".tmp", snapshotFile.getAbsoluteFile().getParentFile());
+		try
+		{
+			AssociationSnapshotWriter.write(container, key, tmpFile);
+			try
+			{
+				Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally
+		{
+			Files.deleteIfExists(tmpFile.toPath());
+		}
+		return container;
+	}
+
+	/**
+	 * @return a copy of the key of the snapshot.
+	 */
+	public byte [] getKey()
+	{
+		return key.clone();
+	}
+
+	/**
+	 * @param key the key of the source
+	 * @return whether the snapshot has been created from the source with the
+	 *  given key.
+	 */
+	public boolean matches(byte [] key)
+	{
+		return Arrays.equals(this.key, key);
+	}
+
+	/**
+	 * @return the number of items.
+	 */
+	public int getNumberOfItems()
+	{
+		return numItems;
+	}
+
+	/**
+	 * @return the number of associations.
+	 */
+	public int getNumberOfAssociations()
+	{
+		return numPostings;
+	}
+
+	/**
+	 * Decodes the annotation context.
+	 *
+	 * @return the annotation context
+	 */
+	public AnnotationContext createAnnotationContext()
+	{
+		List<ByteString> symbols = new ArrayList<ByteString>(numItems);
+		List<ByteString> objectIds = new ArrayList<ByteString>(numItems);
+		ObjectIntHashMap<ByteString> objectSymbolMap = new ObjectIntHashMap<ByteString>(numItems);
+		for (int i = 0; i < numItems; i++)
+		{
+			int pos = itemsOffset + i * ITEM_RECORD_SIZE;
+			ByteString symbol = string(pos);
+			symbols.add(symbol);
+			objectIds.add(string(pos + 8));
+			objectSymbolMap.put(symbol, i);
+		}
+
+		ObjectIntHashMap<ByteString> objectIdMap = new ObjectIntHashMap<ByteString>(numObjectIds);
+		for (int i = 0; i < numObjectIds; i++)
+		{
+			int pos = objectIdsOffset + i * 12;
+			objectIdMap.put(string(pos), buf.getInt(pos + 8));
+		}
+
+		ObjectIntHashMap<ByteString> synonymMap = new ObjectIntHashMap<ByteString>(numSynonyms);
+		for (int i = 0; i < numSynonyms; i++)
+		{
+			int pos = synonymsOffset + i * 12;
+			synonymMap.put(string(pos), buf.getInt(pos + 8));
+		}
+
+		return new AnnotationContext(symbols, objectIds, objectSymbolMap, objectIdMap, synonymMap);
+	}
+
+	/**
+	 * Decodes the associations into a table whose rows are ordered by the
+	 * items.
+	 *
+	 * @param context the context as returned by {@link #createAnnotationContext()}
+	 * @return the table
+	 */
+	public AssociationTable createAssociationTable(AnnotationContext context)
+	{
+		TermID [] terms = new TermID[numTerms];
+		for (int i = 0; i < numTerms; i++)
+		{
+			int pos = termsOffset + i * 8;
+			terms[i] = new TermID(prefixes[buf.getInt(pos)], buf.getInt(pos + 4));
+		}
+
+		AssociationTable.Builder builder = new AssociationTable.Builder(context);
+		int dataOffset = postingsOffset + (numItems + 1) * 4;
+		for (int i = 0; i < numItems; i++)
+		{
+			int start = buf.getInt(postingsOffset + i * 4);
+			int end = buf.getInt(postingsOffset + (i + 1) * 4);
+			for (int p = start; p < end; p++)
+			{
+				int pos = dataOffset + p * 8;
+				int attrs = buf.getInt(pos + 4);
+				int evidence = attrs & 0xffff;
+				int aspect = (attrs >>> 16) & 0x7fff;
+				builder.add(i, terms[buf.getInt(pos)],
+						evidence != 0 ? evidences[evidence - 1] : null,
+						aspect != 0 ? aspects[aspect - 1] : null,
+						(attrs & ATTR_NOT) != 0);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Decodes the snapshot into an association container. The associations
+	 * of the items are created on demand.
+	 *
+	 * @return the association container
+	 */
+	public AssociationContainer createAssociationContainer()
+	{
+		return new AssociationContainer(createAssociationTable(createAnnotationContext()));
+	}
+}
@@ -0,0 +1,195 @@
+package ontologizer.io.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map.Entry;
+
+import ontologizer.association.AnnotationContext;
+import ontologizer.association.Association;
+import ontologizer.association.AssociationContainer;
+import ontologizer.association.ItemAssociations;
+import ontologizer.ontology.Prefix;
+import ontologizer.ontology.TermID;
+import ontologizer.types.ByteString;
+
+/**
+ * Writes an association container in the binary snapshot format that can
+ * be opened via {@link AssociationSnapshot}. The layout is described there.
+ *
+ * @author Sebastian Bauer
+ */
+public class AssociationSnapshotWriter
+{
+	/**
+	 * Writes the snapshot of the given container to the given file.
+	 *
+	 * @param container the container to be written
+	 * @param key the key of the source, see {@link AssociationSnapshot#computeKey(File, ontologizer.ontology.TermMap)}
+	 * @param file the destination
+	 * @throws IOException
+	 */
+	public static void write(AssociationContainer container, byte [] key, File file) throws IOException
+	{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try
+		{
+			write(container, key, out);
+		} finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the given container to the given stream.
+	 *
+	 * @param container the container to be written
+	 * @param key the key of the source, see {@link AssociationSnapshot#computeKey(File, ontologizer.ontology.TermMap)}
+	 * @param os the destination, which is not closed
+	 * @throws IOException
+	 */
+	public static void write(AssociationContainer container, byte [] key, OutputStream os) throws IOException
+	{
+		if (key.length != AssociationSnapshot.KEY_SIZE)
+			throw new IllegalArgumentException("The key must consist of " + AssociationSnapshot.KEY_SIZE + " bytes");
+
+		AnnotationContext context = container.getMapping();
+		ByteString [] symbols = context.getSymbols();
+		ByteString [] objectIds = context.getObjectIds();
+		int numItems = symbols.length;
+
+		StringPool strings = new StringPool();
+		IndexTable<Prefix> prefixes = new IndexTable<Prefix>();
+		IndexTable<TermID> terms = new IndexTable<TermID>();
+		IndexTable<ByteString> evidences = new IndexTable<ByteString>();
+		IndexTable<ByteString> aspects = new IndexTable<ByteString>();
+
+		/* Items */
+		ByteArrayOutputStream itemBytes = new ByteArrayOutputStream(numItems * AssociationSnapshot.ITEM_RECORD_SIZE);
+		DataOutputStream itemOut = new DataOutputStream(itemBytes);
+		for (int i = 0; i < numItems; i++)
+		{
+			strings.writeRef(itemOut, symbols[i]);
+			strings.writeRef(itemOut, objectIds[i]);
+		}
+
+		/* Object id and synonym mappings */
+		ByteArrayOutputStream objectIdBytes = new ByteArrayOutputStream();
+		DataOutputStream objectIdOut = new DataOutputStream(objectIdBytes);
+		int numObjectIds = 0;
+		for (Entry<ByteString,ByteString> e : context.getDbObjectID2Symbol().entrySet())
+		{
+			strings.writeRef(objectIdOut, e.getKey());
+			objectIdOut.writeInt(context.mapSymbol(e.getValue()));
+			numObjectIds++;
+		}
+
+		ByteArrayOutputStream synonymBytes = new ByteArrayOutputStream();
+		DataOutputStream synonymOut = new DataOutputStream(synonymBytes);
+		int numSynonyms = 0;
+		for (Entry<ByteString,ByteString> e : context.getSynonym2Symbol().entrySet())
+		{
+			strings.writeRef(synonymOut, e.getKey());
+			synonymOut.writeInt(context.mapSymbol(e.getValue()));
+			numSynonyms++;
+		}
+
+		/* Postings of the items */
+		ByteArrayOutputStream postingBytes = new ByteArrayOutputStream();
+		DataOutputStream postingOut = new DataOutputStream(postingBytes);
+		int [] postingStart = new int[numItems + 1];
+		int numPostings = 0;
+		for (int i = 0; i < numItems; i++)
+		{
+			postingStart[i] = numPostings;
+			ItemAssociations ia = container.getItemAssociations(i);
+			if (ia == null)
+				continue;
+			for (Association a : ia)
+			{
+				postingOut.writeInt(terms.index(a.getTermID()));
+				int attrs = (evidences.index(a.getEvidence()) + 1) | ((aspects.index(a.getAspect()) + 1) << 16);
+				if (a.hasNotQualifier())
+					attrs |= AssociationSnapshot.ATTR_NOT;
+				postingOut.writeInt(attrs);
+				numPostings++;
+			}
+		}
+		postingStart[numItems] = numPostings;
+		if (evidences.list.size() >= 0xffff || aspects.list.size() >= 0x7fff)
+			throw new IllegalArgumentException("Too many distinct evidences or aspects");
+
+		/* Term dictionary */
+		ByteArrayOutputStream termBytes = new ByteArrayOutputStream(terms.list.size() * 8);
+		DataOutputStream termOut = new DataOutputStream(termBytes);
+		for (TermID tid : terms.list)
+		{
+			termOut.writeInt(prefixes.index(tid.getPrefix()));
+			termOut.writeInt(tid.id);
+		}
+
+		/* Small tables */
+		ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+		DataOutputStream tableOut = new DataOutputStream(tableBytes);
+		tableOut.writeInt(prefixes.list.size());
+		for (Prefix p : prefixes.list)
+			strings.writeRef(tableOut, p.getByteString());
+		tableOut.writeInt(evidences.list.size());
+		for (ByteString e : evidences.list)
+			strings.writeRef(tableOut, e);
+		tableOut.writeInt(aspects.list.size());
+		for (ByteString a : aspects.list)
+			strings.writeRef(tableOut, a);
+
+		/* Now put everything together, each section is aligned to four bytes */
+		DataOutputStream out = new DataOutputStream(os);
+		int stringsOffset = AssociationSnapshot.HEADER_SIZE;
+		int tablesOffset = align(stringsOffset + strings.bytes.size());
+		int itemsOffset = tablesOffset + tableBytes.size();
+		int objectIdsOffset = itemsOffset + itemBytes.size();
+		int synonymsOffset = objectIdsOffset + objectIdBytes.size();
+		int termsOffset = synonymsOffset + synonymBytes.size();
+		int postingsOffset = termsOffset + termBytes.size();
+		long end = (long)postingsOffset + (numItems + 1) * 4L + postingBytes.size();
+		if (end > Integer.MAX_VALUE)
+			throw new IOException("Associations are too large for a snapshot");
+
+		out.writeInt(AssociationSnapshot.MAGIC);
+		out.writeInt(AssociationSnapshot.VERSION);
+		out.write(key);
+		out.writeInt(numItems);
+		out.writeInt(numObjectIds);
+		out.writeInt(numSynonyms);
+		out.writeInt(terms.list.size());
+		out.writeInt(numPostings);
+		out.writeInt(stringsOffset);
+		out.writeInt(tablesOffset);
+		out.writeInt(itemsOffset);
+		out.writeInt(objectIdsOffset);
+		out.writeInt(synonymsOffset);
+		out.writeInt(termsOffset);
+		out.writeInt(postingsOffset);
+		strings.bytes.writeTo(out);
+		for (int i = stringsOffset + strings.bytes.size(); i < tablesOffset; i++)
+			out.writeByte(0);
+		tableBytes.writeTo(out);
+		itemBytes.writeTo(out);
+		objectIdBytes.writeTo(out);
+		synonymBytes.writeTo(out);
+		termBytes.writeTo(out);
+		for (int s : postingStart)
+			out.writeInt(s);
+		postingBytes.writeTo(out);
+		out.flush();
+	}
+
+	private static int align(int offset)
+	{
+		return (offset + 3) & ~3;
+	}
+}
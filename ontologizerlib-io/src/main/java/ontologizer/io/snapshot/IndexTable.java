@@ -0,0 +1,32 @@
+package ontologizer.io.snapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Assigns consecutive indices to objects of a small table of a snapshot.
+ *
+ * @author Sebastian Bauer
+ */
+class IndexTable<T>
+{
+	private HashMap<T,Integer> indices = new HashMap<T,Integer>();
+
+	/** The objects in the order of their indices */
+	final List<T> list = new ArrayList<T>();
+
+	public int index(T obj)
+	{
+		if (obj == null)
+			return -1;
+		Integer idx = indices.get(obj);
+		if (idx == null)
+		{
+			idx = list.size();
+			indices.put(obj, idx);
+			list.add(obj);
+		}
+		return idx;
+	}
+}
@@ -0,0 +1,720 @@
+package ontologizer.io.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import ontologizer.ontology.Namespace;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.ParentTermID;
+import ontologizer.ontology.Prefix;
+import ontologizer.ontology.RelationMeaning;
+import ontologizer.ontology.RelationType;
+import ontologizer.ontology.Subset;
+import ontologizer.ontology.Term;
+import ontologizer.ontology.TermContainer;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermXref;
+import ontologizer.types.ByteString;
+import sonumina.math.graph.CompactDirectedGraph;
+import sonumina.math.graph.SlimDirectedGraphView;
+
+/**
+ * A read-only view of an ontology snapshot that was written by
+ * {@link OntologySnapshotWriter}. The file is memory mapped and only the
+ * small tables of prefixes, namespaces, relation types and subsets are
+ * read when the snapshot is opened. Everything else, i.e., names,
+ * definitions, parents, and the closures are decoded on demand.
+ *
+ * All integers are stored in big endian byte order. The file starts with
+ * a header consisting of the magic, the version, the number of terms and
+ * vertices, the offsets of the sections and the references of the format
+ * version and date. A string reference is a pair of offset (relative to the
+ * string section) and length, where an offset of -1 denotes null. The
+ * sections are:
+ * <ul>
+ * <li>strings: the raw bytes of all strings</li>
+ * <li>tables: the prefixes, namespaces, relation types and subsets</li>
+ * <li>terms: a fixed size record for each term</li>
+ * <li>extras: parents, alternatives, equivalents, subsets, synonyms
+ *  and xrefs of each term. Counts of -1 denote null arrays.</li>
+ * <li>lookup: the term indices sorted by the term id</li>
+ * <li>graph: the term of each vertex, the vertex of each term, and the
+ *  parents (including the relation), the ancestors and the descendants of each
+ *  vertex. The lists are stored as offset arrays followed by the data.</li>
+ * </ul>
+ *
+ * Instances are thread-safe.
+ *
+ * @author Sebastian Bauer
+ */
+public final class OntologySnapshot
+{
+	static final int MAGIC = 0x4F4E5453;
+	static final int VERSION = 1;
+
+	/** Size of the header in bytes */
+	static final int HEADER_SIZE = 14 * 4;
+
+	/** Size of a term record in bytes */
+	static final int TERM_RECORD_SIZE = 9 * 4;
+
+	static final int FLAG_OBSOLETE = 1;
+	static final int FLAG_ARTIFICIAL_ROOT = 2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final ByteBuffer buf;
+
+	private final int numTerms;
+	private final int numVertices;
+
+	private final int stringsOffset;
+	private final int termsOffset;
+	private final int extrasOffset;
+	private final int lookupOffset;
+
+	private final int vertexTermOffset;
+	private final int termVertexOffset;
+	private final int parentsOffset;
+	private final int ancestorsOffset;
+	private final int descendantsOffset;
+
+	private final Prefix [] prefixes;
+	private final HashMap<Prefix,Integer> prefixIndices;
+	private final Namespace [] namespaces;
+	private final RelationType [] relations;
+	private final Subset [] subsets;
+
+	private OntologySnapshot(ByteBuffer buf) throws IOException
+	{
+		this.buf = buf;
+
+		if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC)
+			throw new IOException("Not an ontology snapshot");
+		int version = buf.getInt(4);
+		if (version != VERSION)
+			throw new IOException("Unsupported ontology snapshot version " + version + ", expected " + VERSION);
+
+		numTerms = buf.getInt(8);
+		numVertices = buf.getInt(12);
+		stringsOffset = buf.getInt(16);
+		int tablesOffset = buf.getInt(20);
+		termsOffset = buf.getInt(24);
+		extrasOffset = buf.getInt(28);
+		lookupOffset = buf.getInt(32);
+		vertexTermOffset = buf.getInt(36);
+		termVertexOffset = vertexTermOffset + numVertices * 4;
+		parentsOffset = termVertexOffset + numTerms * 4;
+		ancestorsOffset = listEnd(parentsOffset, numVertices);
+		descendantsOffset = listEnd(ancestorsOffset, numVertices);
+		if (listEnd(descendantsOffset, numVertices) != buf.limit())
+			throw new IOException("Ontology snapshot is truncated or corrupt");
+
+		int pos = tablesOffset;
+		prefixes = new Prefix[buf.getInt(pos)];
+		prefixIndices = new HashMap<Prefix,Integer>();
+		pos += 4;
+		for (int i = 0; i < prefixes.length; i++, pos += 8)
+		{
+			prefixes[i] = new Prefix(string(pos));
+			prefixIndices.put(prefixes[i], i);
+		}
+
+		namespaces = new Namespace[buf.getInt(pos)];
+		pos += 4;
+		for (int i = 0; i < namespaces.length; i++, pos += 8)
+			namespaces[i] = new Namespace(string(pos));
+
+		relations = new RelationType[buf.getInt(pos)];
+		pos += 4;
+		RelationMeaning [] meanings = RelationMeaning.values();
+		for (int i = 0; i < relations.length; i++, pos += 12)
+			relations[i] = new RelationType(string(pos), meanings[buf.getInt(pos + 8)]);
+
+		subsets = new Subset[buf.getInt(pos)];
+		pos += 4;
+		for (int i = 0; i < subsets.length; i++, pos += 16)
+			subsets[i] = new Subset(string(pos), string(pos + 8));
+	}
+
+	/**
+	 * Returns the position right after the list structure starting at the given
+	 * position.
+	 */
+	private int listEnd(int pos, int n)
+	{
+		return pos + (n + 1) * 4 + buf.getInt(pos + n * 4) * 4;
+	}
+
+	/**
+	 * Opens the given snapshot file.
+	 *
+	 * @param file the file that was written by {@link OntologySnapshotWriter}
+	 * @return the snapshot
+	 * @throws IOException if the file could not be mapped or is not a valid
+	 *  snapshot
+	 */
+	public static OntologySnapshot open(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Ontology snapshot is too large");
+			return new OntologySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally
+		{
+			raf.close();
+		}
+	}
+
+	/**
+	 * Copies the bytes of the string that is referenced at the given position.
+	 */
+	private byte [] bytes(int pos)
+	{
+		int offset = buf.getInt(pos);
+		if (offset == -1)
+			return null;
+		byte [] bytes = new byte[buf.getInt(pos + 4)];
+		ByteBuffer dup = buf.duplicate();
+		dup.position(stringsOffset + offset);
+		dup.get(bytes);
+		return bytes;
+	}
+
+	private ByteString string(int pos)
+	{
+		byte [] bytes = bytes(pos);
+		return bytes != null ? new ByteString(bytes) : null;
+	}
+
+	private String javaString(int pos)
+	{
+		byte [] bytes = bytes(pos);
+		return bytes != null ? new String(bytes, UTF8) : null;
+	}
+
+	private int termRecord(int termIndex)
+	{
+		if (termIndex < 0 || termIndex >= numTerms)
+			throw new IndexOutOfBoundsException("Term index " + termIndex + " out of range");
+		return termsOffset + termIndex * TERM_RECORD_SIZE;
+	}
+
+	private TermID termID(int pos)
+	{
+		return new TermID(prefixes[buf.getInt(pos)], buf.getInt(pos + 4));
+	}
+
+	static int compareKeys(int id1, int prefix1, int id2, int prefix2)
+	{
+		if (id1 != id2) return id1 < id2 ? -1 : 1;
+		if (prefix1 != prefix2) return prefix1 < prefix2 ? -1 : 1;
+		return 0;
+	}
+
+	/**
+	 * @return the format version of the ontology or null.
+	 */
+	public ByteString getFormatVersion()
+	{
+		return string(40);
+	}
+
+	/**
+	 * @return the date of the ontology or null.
+	 */
+	public ByteString getDate()
+	{
+		return string(48);
+	}
+
+	/**
+	 * @return the number of terms including a possible artificial root.
+	 */
+	public int getNumberOfTerms()
+	{
+		return numTerms;
+	}
+
+	/**
+	 * Returns the index of the term with the given id.
+	 *
+	 * @param id the id of the term
+	 * @return the index or -1 if the term is not known.
+	 */
+	public int getTermIndex(TermID id)
+	{
+		Integer prefix = prefixIndices.get(id.getPrefix());
+		if (prefix == null)
+			return -1;
+
+		int low = 0;
+		int high = numTerms - 1;
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			int t = buf.getInt(lookupOffset + mid * 4);
+			int rec = termsOffset + t * TERM_RECORD_SIZE;
+			int cmp = compareKeys(buf.getInt(rec + 4), buf.getInt(rec), id.id, prefix);
+			if (cmp < 0) low = mid + 1;
+			else if (cmp > 0) high = mid - 1;
+			else return t;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the id of the term with the given index.
+	 */
+	public TermID getTermID(int termIndex)
+	{
+		return termID(termRecord(termIndex));
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the name of the term with the given index.
+	 */
+	public ByteString getName(int termIndex)
+	{
+		return string(termRecord(termIndex) + 8);
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the definition of the term with the given index or null.
+	 */
+	public ByteString getDefinition(int termIndex)
+	{
+		return string(termRecord(termIndex) + 16);
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the namespace of the term with the given index or null.
+	 */
+	public Namespace getNamespace(int termIndex)
+	{
+		int ns = buf.getInt(termRecord(termIndex) + 24);
+		return ns != -1 ? namespaces[ns] : null;
+	}
+
+	/**
+	 * @param termIndex
+	 * @return whether the term with the given index is obsolete.
+	 */
+	public boolean isObsolete(int termIndex)
+	{
+		return (buf.getInt(termRecord(termIndex) + 28) & FLAG_OBSOLETE) != 0;
+	}
+
+	/**
+	 * @param termIndex
+	 * @return whether the term with the given index is the artificial root
+	 *  of the ontology graph.
+	 */
+	public boolean isArtificialRoot(int termIndex)
+	{
+		return (buf.getInt(termRecord(termIndex) + 28) & FLAG_ARTIFICIAL_ROOT) != 0;
+	}
+
+	/**
+	 * The reader for the variable sized data of a term.
+	 */
+	private class Extras
+	{
+		private int pos;
+
+		public Extras(int termIndex)
+		{
+			pos = extrasOffset + buf.getInt(termRecord(termIndex) + 32);
+		}
+
+		public ParentTermID [] parents()
+		{
+			ParentTermID [] parents = new ParentTermID[buf.getInt(pos)];
+			pos += 4;
+			for (int i = 0; i < parents.length; i++, pos += 12)
+			{
+				int rel = buf.getInt(pos + 8);
+				parents[i] = new ParentTermID(termID(pos), rel != -1 ? relations[rel] : null);
+			}
+			return parents;
+		}
+
+		public TermID [] termIDs()
+		{
+			int n = buf.getInt(pos);
+			pos += 4;
+			if (n == -1)
+				return null;
+			TermID [] ids = new TermID[n];
+			for (int i = 0; i < n; i++, pos += 8)
+				ids[i] = termID(pos);
+			return ids;
+		}
+
+		public Subset [] subsets()
+		{
+			int n = buf.getInt(pos);
+			pos += 4;
+			if (n == -1)
+				return null;
+			Subset [] s = new Subset[n];
+			for (int i = 0; i < n; i++, pos += 4)
+				s[i] = subsets[buf.getInt(pos)];
+			return s;
+		}
+
+		public ByteString [] synonyms()
+		{
+			int n = buf.getInt(pos);
+			pos += 4;
+			if (n == -1)
+				return null;
+			ByteString [] s = new ByteString[n];
+			for (int i = 0; i < n; i++, pos += 8)
+				s[i] = string(pos);
+			return s;
+		}
+
+		public TermXref [] xrefs()
+		{
+			int n = buf.getInt(pos);
+			pos += 4;
+			if (n == -1)
+				return null;
+			TermXref [] x = new TermXref[n];
+			for (int i = 0; i < n; i++, pos += 24)
+				x[i] = new TermXref(javaString(pos), javaString(pos + 8), javaString(pos + 16));
+			return x;
+		}
+
+		/** Skip the given number of lists of the given element size */
+		public Extras skip(int... elementSizes)
+		{
+			for (int size : elementSizes)
+			{
+				int n = buf.getInt(pos);
+				pos += 4 + Math.max(n, 0) * size;
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the parents of the term with the given index.
+	 */
+	public ParentTermID [] getParents(int termIndex)
+	{
+		return new Extras(termIndex).parents();
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the alternative ids of the term with the given index.
+	 */
+	public TermID [] getAlternatives(int termIndex)
+	{
+		TermID [] alternatives = new Extras(termIndex).skip(12).termIDs();
+		return alternatives != null ? alternatives : new TermID[0];
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the equivalents of the term with the given index or null.
+	 */
+	public TermID [] getEquivalents(int termIndex)
+	{
+		return new Extras(termIndex).skip(12, 8).termIDs();
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the subsets of the term with the given index or null.
+	 */
+	public Subset [] getSubsets(int termIndex)
+	{
+		return new Extras(termIndex).skip(12, 8, 8).subsets();
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the synonyms of the term with the given index or null.
+	 */
+	public ByteString [] getSynonyms(int termIndex)
+	{
+		return new Extras(termIndex).skip(12, 8, 8, 4).synonyms();
+	}
+
+	/**
+	 * @param termIndex
+	 * @return the xrefs of the term with the given index or null.
+	 */
+	public TermXref [] getXrefs(int termIndex)
+	{
+		return new Extras(termIndex).skip(12, 8, 8, 4, 8).xrefs();
+	}
+
+	/**
+	 * Materializes the term with the given index.
+	 *
+	 * @param termIndex
+	 * @return the term
+	 */
+	public Term getTerm(int termIndex)
+	{
+		int rec = termRecord(termIndex);
+		int ns = buf.getInt(rec + 24);
+
+		Extras extras = new Extras(termIndex);
+		Term term = new Term(termID(rec), string(rec + 8), ns != -1 ? namespaces[ns] : null, Arrays.asList(extras.parents()));
+		term.setDefinition(string(rec + 16));
+		term.setObsolete((buf.getInt(rec + 28) & FLAG_OBSOLETE) != 0);
+
+		TermID [] alternatives = extras.termIDs();
+		if (alternatives != null)
+			term.setAlternatives(Arrays.asList(alternatives));
+		TermID [] equivalents = extras.termIDs();
+		if (equivalents != null)
+			term.setEquivalents(new ArrayList<TermID>(Arrays.asList(equivalents)));
+		Subset [] termSubsets = extras.subsets();
+		if (termSubsets != null)
+			term.setSubsets(new ArrayList<Subset>(Arrays.asList(termSubsets)));
+		ByteString [] synonyms = extras.synonyms();
+		if (synonyms != null)
+			term.setSynonyms(new ArrayList<ByteString>(Arrays.asList(synonyms)));
+		TermXref [] xrefs = extras.xrefs();
+		if (xrefs != null)
+			term.setXrefs(new ArrayList<TermXref>(Arrays.asList(xrefs)));
+		return term;
+	}
+
+	/**
+	 * Materializes the term with the given id.
+	 *
+	 * @param id
+	 * @return the term or null if the term is not known.
+	 */
+	public Term getTerm(TermID id)
+	{
+		int termIndex = getTermIndex(id);
+		if (termIndex == -1)
+			return null;
+		return getTerm(termIndex);
+	}
+
+	/**
+	 * Materializes all terms except of the artificial root.
+	 *
+	 * @return the term container
+	 */
+	public TermContainer createTermContainer()
+	{
+		List<Term> terms = new ArrayList<Term>(numTerms);
+		for (int i = 0; i < numTerms; i++)
+		{
+			if (!isArtificialRoot(i))
+				terms.add(getTerm(i));
+		}
+		return new TermContainer(terms, getFormatVersion(), getDate());
+	}
+
+	/**
+	 * Materializes all terms and creates the frozen ontology. The graph and
+	 * the ancestor view of the ontology are seeded from the mapped parents and
+	 * ancestors, i.e., neither the graph is built from the parents of the
+	 * terms nor are the closures determined again.
+	 *
+	 * @return the ontology
+	 */
+	public Ontology createOntology()
+	{
+		List<Term> terms = new ArrayList<Term>(numTerms);
+		Term artificialRoot = null;
+		for (int i = 0; i < numTerms; i++)
+		{
+			Term term = getTerm(i);
+			if (isArtificialRoot(i))
+				artificialRoot = term;
+			else
+				terms.add(term);
+		}
+
+		TermID [] vertices = new TermID[numVertices];
+		int [][] parents = new int[numVertices][];
+		RelationType [][] parentRelations = new RelationType[numVertices][];
+		int [][] ancestors = new int[numVertices][];
+		for (int v = 0; v < numVertices; v++)
+		{
+			vertices[v] = getVertex(v);
+			parents[v] = getParentIndices(v);
+			parentRelations[v] = getParentRelations(v);
+			ancestors[v] = getAncestorIndices(v);
+		}
+
+		CompactDirectedGraph<TermID,RelationType> graph = CompactDirectedGraph.create(vertices, parents, parentRelations);
+		return Ontology.createFrozen(new TermContainer(terms, getFormatVersion(), getDate()), graph,
+				SlimDirectedGraphView.create(graph, ancestors), artificialRoot);
+	}
+
+	/**
+	 * @return the number of vertices of the ontology graph.
+	 */
+	public int getNumberOfVertices()
+	{
+		return numVertices;
+	}
+
+	/**
+	 * Returns the vertex index of the given term. Vertex indices are
+	 * the indices of the graph view of the ontology.
+	 *
+	 * @param id
+	 * @return the vertex index or -1 if the term is not part of the graph.
+	 */
+	public int getVertexIndex(TermID id)
+	{
+		int termIndex = getTermIndex(id);
+		if (termIndex == -1)
+			return -1;
+		return buf.getInt(termVertexOffset + termIndex * 4);
+	}
+
+	/**
+	 * @param vertex
+	 * @return the term index of the given vertex.
+	 */
+	public int getVertexTermIndex(int vertex)
+	{
+		return buf.getInt(vertexTermOffset + checkVertex(vertex) * 4);
+	}
+
+	/**
+	 * @param vertex
+	 * @return the term id of the given vertex.
+	 */
+	public TermID getVertex(int vertex)
+	{
+		return getTermID(getVertexTermIndex(vertex));
+	}
+
+	private int checkVertex(int vertex)
+	{
+		if (vertex < 0 || vertex >= numVertices)
+			throw new IndexOutOfBoundsException("Vertex " + vertex + " out of range");
+		return vertex;
+	}
+
+	private int [] list(int offset, int vertex, int stride, int skip)
+	{
+		int from = buf.getInt(offset + checkVertex(vertex) * 4);
+		int to = buf.getInt(offset + vertex * 4 + 4);
+		int data = offset + (numVertices + 1) * 4;
+		int [] l = new int[(to - from) / stride];
+		for (int i = 0; i < l.length; i++)
+			l[i] = buf.getInt(data + (from + i * stride + skip) * 4);
+		return l;
+	}
+
+	/**
+	 * @param vertex
+	 * @return the vertex indices of the parents of the given vertex.
+	 */
+	public int [] getParentIndices(int vertex)
+	{
+		return list(parentsOffset, vertex, 2, 0);
+	}
+
+	/**
+	 * @param vertex
+	 * @return the relation types of the edges to the parents of the given
+	 *  vertex, in the order of getParentIndices().
+	 */
+	public RelationType [] getParentRelations(int vertex)
+	{
+		int [] rels = list(parentsOffset, vertex, 2, 1);
+		RelationType [] types = new RelationType[rels.length];
+		for (int i = 0; i < rels.length; i++)
+			types[i] = rels[i] != -1 ? relations[rels[i]] : null;
+		return types;
+	}
+
+	/**
+	 * @param vertex
+	 * @return the sorted vertex indices of the ancestors of the given vertex
+	 *  including the vertex itself.
+	 */
+	public int [] getAncestorIndices(int vertex)
+	{
+		return list(ancestorsOffset, vertex, 1, 0);
+	}
+
+	/**
+	 * @param vertex
+	 * @return the sorted vertex indices of the descendants of the given vertex
+	 *  including the vertex itself.
+	 */
+	public int [] getDescendantIndices(int vertex)
+	{
+		return list(descendantsOffset, vertex, 1, 0);
+	}
+
+	/**
+	 * Searches the given value within the sorted list of the given vertex.
+	 */
+	private boolean contains(int offset, int vertex, int value)
+	{
+		int low = buf.getInt(offset + checkVertex(vertex) * 4);
+		int high = buf.getInt(offset + vertex * 4 + 4) - 1;
+		int data = offset + (numVertices + 1) * 4;
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			int v = buf.getInt(data + mid * 4);
+			if (v < value) low = mid + 1;
+			else if (v > value) high = mid - 1;
+			else return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether vertex i is an ancestor of vertex j. A vertex is an
+	 * ancestor of itself.
+	 *
+	 * @param i
+	 * @param j
+	 * @return whether i is an ancestor of j.
+	 */
+	public boolean isAncestor(int i, int j)
+	{
+		return contains(ancestorsOffset, j, i);
+	}
+
+	/**
+	 * Determines whether vertex i is a descendant of vertex j. A vertex is a
+	 * descendant of itself.
+	 *
+	 * @param i
+	 * @param j
+	 * @return whether i is a descendant of j.
+	 */
+	public boolean isDescendant(int i, int j)
+	{
+		return contains(descendantsOffset, j, i);
+	}
+}
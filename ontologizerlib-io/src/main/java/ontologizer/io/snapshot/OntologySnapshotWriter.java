@@ -0,0 +1,316 @@
+package ontologizer.io.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import ontologizer.ontology.Namespace;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.ParentTermID;
+import ontologizer.ontology.Prefix;
+import ontologizer.ontology.RelationType;
+import ontologizer.ontology.Subset;
+import ontologizer.ontology.Term;
+import ontologizer.ontology.TermContainer;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermMap;
+import ontologizer.ontology.TermXref;
+import ontologizer.types.ByteString;
+import sonumina.math.graph.CompactDirectedGraph;
+import sonumina.math.graph.SlimDirectedGraphView;
+
+/**
+ * Writes an ontology in the binary snapshot format that can be opened
+ * via {@link OntologySnapshot}. The layout is described there.
+ *
+ * @author Sebastian Bauer
+ */
+public class OntologySnapshotWriter
+{
+	private static void writeTermIDs(DataOutputStream out, IndexTable<Prefix> prefixes, TermID [] ids) throws IOException
+	{
+		if (ids == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(ids.length);
+		for (TermID id : ids)
+		{
+			out.writeInt(prefixes.index(id.getPrefix()));
+			out.writeInt(id.id);
+		}
+	}
+
+	private static void writeCSR(DataOutputStream out, int [][] arrays) throws IOException
+	{
+		int offset = 0;
+		out.writeInt(offset);
+		for (int [] a : arrays)
+		{
+			offset += a.length;
+			out.writeInt(offset);
+		}
+		for (int [] a : arrays)
+		{
+			for (int v : a)
+				out.writeInt(v);
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the given ontology to the given file.
+	 *
+	 * @param ontology the ontology to be written
+	 * @param file the destination
+	 * @throws IOException
+	 */
+	public static void write(Ontology ontology, File file) throws IOException
+	{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try
+		{
+			write(ontology, out);
+		} finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the given ontology to the given stream. All terms of
+	 * the term map are included, while the graph and the closures are that of
+	 * the ontology graph.
+	 *
+	 * @param ontology the ontology to be written
+	 * @param os the destination, which is not closed
+	 * @throws IOException
+	 */
+	public static void write(Ontology ontology, OutputStream os) throws IOException
+	{
+		TermMap termMap = ontology.getTermMap();
+		CompactDirectedGraph<TermID,RelationType> graph = ontology.getCompactGraph();
+		if (graph == null)
+			graph = CompactDirectedGraph.create(ontology.getGraph());
+
+		/* The artificial root is not part of the term map, we store it as an additional term */
+		List<Term> terms = new ArrayList<Term>(termMap.size() + 1);
+		for (int i = 0; i < termMap.size(); i++)
+			terms.add(termMap.get(i));
+		Term root = ontology.getRootTerm();
+		int artificialRoot = -1;
+		if (root != null && termMap.get(root.getID()) == null)
+		{
+			artificialRoot = terms.size();
+			terms.add(root);
+		}
+		int numTerms = terms.size();
+
+		StringPool strings = new StringPool();
+		IndexTable<Prefix> prefixes = new IndexTable<Prefix>();
+		IndexTable<Namespace> namespaces = new IndexTable<Namespace>();
+		IndexTable<RelationType> relations = new IndexTable<RelationType>();
+		IndexTable<Subset> subsets = new IndexTable<Subset>();
+
+		/* Term records and the variable sized term data */
+		ByteArrayOutputStream termBytes = new ByteArrayOutputStream(numTerms * OntologySnapshot.TERM_RECORD_SIZE);
+		DataOutputStream termOut = new DataOutputStream(termBytes);
+		ByteArrayOutputStream extraBytes = new ByteArrayOutputStream();
+		DataOutputStream extraOut = new DataOutputStream(extraBytes);
+
+		for (int i = 0; i < numTerms; i++)
+		{
+			Term t = terms.get(i);
+			termOut.writeInt(prefixes.index(t.getID().getPrefix()));
+			termOut.writeInt(t.getID().id);
+			strings.writeRef(termOut, t.getName());
+			strings.writeRef(termOut, t.getDefinition());
+			termOut.writeInt(namespaces.index(t.getNamespace()));
+			int flags = 0;
+			if (t.isObsolete()) flags |= OntologySnapshot.FLAG_OBSOLETE;
+			if (i == artificialRoot) flags |= OntologySnapshot.FLAG_ARTIFICIAL_ROOT;
+			termOut.writeInt(flags);
+			termOut.writeInt(extraOut.size());
+
+			ParentTermID [] parents = t.getParents();
+			extraOut.writeInt(parents.length);
+			for (ParentTermID p : parents)
+			{
+				extraOut.writeInt(prefixes.index(p.getRelated().getPrefix()));
+				extraOut.writeInt(p.getRelated().id);
+				extraOut.writeInt(relations.index(p.getRelation()));
+			}
+
+			TermID [] alternatives = t.getAlternatives();
+			writeTermIDs(extraOut, prefixes, alternatives.length > 0 ? alternatives : null);
+			writeTermIDs(extraOut, prefixes, t.getEquivalents());
+
+			Subset [] termSubsets = t.getSubsets();
+			extraOut.writeInt(termSubsets != null ? termSubsets.length : -1);
+			if (termSubsets != null)
+			{
+				for (Subset s : termSubsets)
+					extraOut.writeInt(subsets.index(s));
+			}
+
+			ByteString [] synonyms = t.getSynonyms();
+			extraOut.writeInt(synonyms != null ? synonyms.length : -1);
+			if (synonyms != null)
+			{
+				for (ByteString s : synonyms)
+					strings.writeRef(extraOut, s);
+			}
+
+			TermXref [] xrefs = t.getXrefs();
+			extraOut.writeInt(xrefs != null ? xrefs.length : -1);
+			if (xrefs != null)
+			{
+				for (TermXref x : xrefs)
+				{
+					strings.writeRef(extraOut, x.getDatabase());
+					strings.writeRef(extraOut, x.getXrefId());
+					strings.writeRef(extraOut, x.getXrefName());
+				}
+			}
+		}
+
+		/* Term indices sorted by the key that is used for lookups */
+		Integer [] sorted = new Integer[numTerms];
+		final int [] keyPrefix = new int[numTerms];
+		final int [] keyId = new int[numTerms];
+		for (int i = 0; i < numTerms; i++)
+		{
+			sorted[i] = i;
+			keyPrefix[i] = prefixes.index(terms.get(i).getID().getPrefix());
+			keyId[i] = terms.get(i).getID().id;
+		}
+		Arrays.sort(sorted, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer o1, Integer o2)
+			{
+				return OntologySnapshot.compareKeys(keyId[o1], keyPrefix[o1], keyId[o2], keyPrefix[o2]);
+			}
+		});
+
+		/* Graph, parent relations and closures */
+		SlimDirectedGraphView<TermID> view = SlimDirectedGraphView.create(graph, null, SlimDirectedGraphView.ClosureType.SORTED_ARRAYS, null);
+		int numVertices = view.getNumberOfVertices();
+		HashMap<TermID,Integer> termIndices = new HashMap<TermID,Integer>();
+		for (int i = 0; i < numTerms; i++)
+			termIndices.put(terms.get(i).getID(), i);
+
+		ByteArrayOutputStream graphBytes = new ByteArrayOutputStream();
+		DataOutputStream graphOut = new DataOutputStream(graphBytes);
+		int [] termVertex = new int[numTerms];
+		Arrays.fill(termVertex, -1);
+		for (int v = 0; v < numVertices; v++)
+		{
+			Integer ti = termIndices.get(view.getVertex(v));
+			if (ti == null)
+				throw new IllegalArgumentException("Vertex \"" + view.getVertex(v) + "\" of the graph is not a known term");
+			termVertex[ti] = v;
+			graphOut.writeInt(ti);
+		}
+		for (int ti : termVertex)
+			graphOut.writeInt(ti);
+
+		int [][] parentsWithRelation = new int[numVertices][];
+		for (int v = 0; v < numVertices; v++)
+		{
+			/* The parents of the view are in the order of the in-edges of the graph */
+			int [] p = view.vertexParents[v];
+			int [] pr = parentsWithRelation[v] = new int[p.length * 2];
+			for (int k = 0; k < p.length; k++)
+			{
+				pr[k * 2] = p[k];
+				pr[k * 2 + 1] = relations.index(graph.getInEdgeData(v, k));
+			}
+		}
+		writeCSR(graphOut, parentsWithRelation);
+		writeCSR(graphOut, view.vertexAncestors);
+		writeCSR(graphOut, view.vertexDescendants);
+
+		/* Small tables */
+		ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+		DataOutputStream tableOut = new DataOutputStream(tableBytes);
+		tableOut.writeInt(prefixes.list.size());
+		for (Prefix p : prefixes.list)
+			strings.writeRef(tableOut, p.getByteString());
+		tableOut.writeInt(namespaces.list.size());
+		for (Namespace n : namespaces.list)
+			strings.writeRef(tableOut, n.getName());
+		tableOut.writeInt(relations.list.size());
+		for (RelationType r : relations.list)
+		{
+			strings.writeRef(tableOut, r.name());
+			tableOut.writeInt(r.meaning().ordinal());
+		}
+		tableOut.writeInt(subsets.list.size());
+		for (Subset s : subsets.list)
+		{
+			strings.writeRef(tableOut, s.getName());
+			strings.writeRef(tableOut, s.getDescription());
+		}
+
+		ByteString formatVersion = null;
+		ByteString date = null;
+		if (termMap instanceof TermContainer)
+		{
+			formatVersion = ((TermContainer)termMap).getFormatVersion();
+			date = ((TermContainer)termMap).getDate();
+		}
+		ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(OntologySnapshot.HEADER_SIZE);
+		DataOutputStream headerOut = new DataOutputStream(headerBytes);
+		strings.writeRef(headerOut, formatVersion);
+		strings.writeRef(headerOut, date);
+
+		/* Now put everything together, each section is aligned to four bytes */
+		DataOutputStream out = new DataOutputStream(os);
+		int stringsOffset = OntologySnapshot.HEADER_SIZE;
+		int tablesOffset = align(stringsOffset + strings.bytes.size());
+		int termsOffset = tablesOffset + tableBytes.size();
+		int extrasOffset = termsOffset + termBytes.size();
+		int lookupOffset = extrasOffset + extraBytes.size();
+		int graphOffset = lookupOffset + numTerms * 4;
+		long end = (long)graphOffset + graphBytes.size();
+		if (end > Integer.MAX_VALUE)
+			throw new IOException("Ontology is too large for a snapshot");
+
+		out.writeInt(OntologySnapshot.MAGIC);
+		out.writeInt(OntologySnapshot.VERSION);
+		out.writeInt(numTerms);
+		out.writeInt(numVertices);
+		out.writeInt(stringsOffset);
+		out.writeInt(tablesOffset);
+		out.writeInt(termsOffset);
+		out.writeInt(extrasOffset);
+		out.writeInt(lookupOffset);
+		out.writeInt(graphOffset);
+		headerBytes.writeTo(out);
+		strings.bytes.writeTo(out);
+		for (int i = stringsOffset + strings.bytes.size(); i < tablesOffset; i++)
+			out.writeByte(0);
+		tableBytes.writeTo(out);
+		termBytes.writeTo(out);
+		extraBytes.writeTo(out);
+		for (Integer i : sorted)
+			out.writeInt(i);
+		graphBytes.writeTo(out);
+		out.flush();
+	}
+
+	private static int align(int offset)
+	{
+		return (offset + 3) & ~3;
+	}
+}
@@ -0,0 +1,58 @@
+package ontologizer.io.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+import ontologizer.types.ByteString;
+
+/**
+ * Collects all strings of a snapshot. Equal strings are stored only once.
+ *
+ * @author Sebastian Bauer
+ */
+class StringPool
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** The raw bytes of all strings */
+	final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+	private HashMap<ByteString,Integer> offsets = new HashMap<ByteString,Integer>();
+	private byte [] buf = new byte[256];
+
+	/**
+	 * Writes the reference to the given string, i.e., its offset
+	 * and length.
+	 */
+	public void writeRef(DataOutputStream out, ByteString str) throws IOException
+	{
+		if (str == null)
+		{
+			out.writeInt(-1);
+			out.writeInt(0);
+			return;
+		}
+
+		Integer offset = offsets.get(str);
+		if (offset == null)
+		{
+			int len = str.length();
+			if (buf.length < len)
+				buf = new byte[Math.max(len, buf.length * 2)];
+			str.copyTo(0, len, buf, 0);
+			offset = bytes.size();
+			bytes.write(buf, 0, len);
+			offsets.put(str, offset);
+		}
+		out.writeInt(offset);
+		out.writeInt(str.length());
+	}
+
+	public void writeRef(DataOutputStream out, String str) throws IOException
+	{
+		writeRef(out, str != null ? new ByteString(str.getBytes(UTF8)) : null);
+	}
+}
@@ -0,0 +1,82 @@
+package ontologizer.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParserMappedFileInputTest
+{
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static void writeLines(PrintWriter out)
+	{
+		for (int i = 1; i <= 100; i++)
+			out.println("line" + i);
+		out.close();
+	}
+
+	private static void assertLines(IParserInput input) throws IOException
+	{
+		BufferedReader in = new BufferedReader(new InputStreamReader(input.inputStream()));
+		for (int i = 1; i <= 100; i++)
+			assertEquals("line" + i, in.readLine());
+		assertNull(in.readLine());
+		input.close();
+	}
+
+	@Test
+	public void testUncompressed() throws IOException
+	{
+		File outFile = tmpFolder.newFile();
+		writeLines(new PrintWriter(new FileWriter(outFile)));
+
+		ParserMappedFileInput input = new ParserMappedFileInput(outFile.getAbsolutePath(), 7);
+		assertFalse(input.isCompressed());
+		assertEquals(outFile.length(), input.getFileSize());
+		assertEquals((outFile.length() + 6) / 7, input.getNumberOfWindows());
+
+		ByteBuffer last = input.getWindow(input.getNumberOfWindows() - 1);
+		assertTrue(last.limit() <= 7);
+		assertEquals('\n', last.get(last.limit() - 1));
+
+		assertLines(input);
+		assertLines(new ParserMappedFileInput(outFile.getAbsolutePath()));
+	}
+
+	@Test
+	public void testCompressed() throws IOException
+	{
+		File outFile = tmpFolder.newFile();
+		writeLines(new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(outFile)))));
+
+		ParserMappedFileInput input = new ParserMappedFileInput(outFile.getAbsolutePath(), 16);
+		assertTrue(input.isCompressed());
+		assertLines(input);
+	}
+
+	@Test
+	public void testEmpty() throws IOException
+	{
+		File outFile = tmpFolder.newFile();
+		ParserMappedFileInput input = new ParserMappedFileInput(outFile.getAbsolutePath());
+		assertEquals(0, input.getNumberOfWindows());
+		assertEquals(-1, input.inputStream().read());
+	}
+}
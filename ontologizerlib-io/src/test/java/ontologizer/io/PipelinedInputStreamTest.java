@@ -0,0 +1,138 @@
+package ontologizer.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PipelinedInputStreamTest
+{
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static byte [] readAll(InputStream is) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte [] buf = new byte[13];
+		int read;
+		while ((read = is.read(buf)) >= 0)
+			out.write(buf, 0, read);
+		int b = is.read();
+		assertEquals(-1, b);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testCopy() throws IOException
+	{
+		byte [] data = new byte[100000];
+		new Random(1).nextBytes(data);
+
+		PipelinedInputStream is = new PipelinedInputStream(new ByteArrayInputStream(data), 7, 3);
+		assertEquals(data[0] & 0xff, is.read());
+		byte [] rest = readAll(is);
+		assertEquals(data.length - 1, rest.length);
+		for (int i = 0; i < rest.length; i++)
+			assertEquals(data[i + 1], rest[i]);
+		is.close();
+
+		assertArrayEquals(new byte[0], readAll(new PipelinedInputStream(new ByteArrayInputStream(new byte[0]))));
+	}
+
+	@Test
+	public void testFailure() throws IOException
+	{
+		final IOException failure = new IOException("Broken");
+		InputStream source = new InputStream()
+		{
+			private int count;
+
+			@Override
+			public int read() throws IOException
+			{
+				if (count++ == 100)
+					throw failure;
+				return 'a';
+			}
+		};
+
+		PipelinedInputStream is = new PipelinedInputStream(source, 10, 2);
+		int read = 0;
+		try
+		{
+			while (is.read() != -1)
+				read++;
+			fail();
+		} catch (IOException ex)
+		{
+			assertSame(failure, ex);
+		}
+		assertEquals(100, read);
+
+		/* The failure is reported again */
+		try
+		{
+			is.read();
+			fail();
+		} catch (IOException ex)
+		{
+			assertSame(failure, ex);
+		}
+		is.close();
+	}
+
+	@Test
+	public void testEarlyClose() throws IOException
+	{
+		/* An endless source, so the producer is blocked by the full ring */
+		InputStream source = new InputStream()
+		{
+			@Override
+			public int read()
+			{
+				return 'a';
+			}
+		};
+		PipelinedInputStream is = new PipelinedInputStream(source, 10, 2);
+		assertEquals('a', is.read());
+		is.close();
+		try
+		{
+			is.read();
+			fail();
+		} catch (IOException ex)
+		{
+		}
+	}
+
+	@Test
+	public void testParserFileInput() throws IOException
+	{
+		File outFile = tmpFolder.newFile();
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(outFile))));
+		for (int i = 0; i < 10000; i++)
+			out.println("line" + i);
+		out.close();
+
+		IParserInput plain = new ParserFileInput(outFile.getAbsolutePath());
+		IParserInput pipelined = new ParserFileInput(outFile.getAbsolutePath(), true);
+		assertArrayEquals(readAll(plain.inputStream()), readAll(pipelined.inputStream()));
+		plain.close();
+		pipelined.close();
+	}
+}
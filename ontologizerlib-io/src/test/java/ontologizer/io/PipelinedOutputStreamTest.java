@@ -0,0 +1,90 @@
+package ontologizer.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PipelinedOutputStreamTest
+{
+	@Test
+	public void testCopy() throws IOException
+	{
+		byte [] data = new byte[100000];
+		new Random(1).nextBytes(data);
+
+		final boolean [] closed = new boolean[1];
+		ByteArrayOutputStream dest = new ByteArrayOutputStream()
+		{
+			@Override
+			public void close()
+			{
+				closed[0] = true;
+			}
+		};
+
+		PipelinedOutputStream os = new PipelinedOutputStream(dest, 7, 3);
+		os.write(data[0]);
+		int off = 1;
+		while (off < data.length)
+		{
+			int len = Math.min(13, data.length - off);
+			os.write(data, off, len);
+			off += len;
+		}
+		os.close();
+
+		assertArrayEquals(data, dest.toByteArray());
+		assertTrue(closed[0]);
+
+		ByteArrayOutputStream empty = new ByteArrayOutputStream();
+		new PipelinedOutputStream(empty).close();
+		assertArrayEquals(new byte[0], empty.toByteArray());
+	}
+
+	@Test
+	public void testFailure() throws IOException
+	{
+		final IOException failure = new IOException("Broken");
+		OutputStream dest = new OutputStream()
+		{
+			private int count;
+
+			@Override
+			public void write(int b) throws IOException
+			{
+				if (count++ == 100)
+					throw failure;
+			}
+		};
+
+		PipelinedOutputStream os = new PipelinedOutputStream(dest, 10, 2);
+		try
+		{
+			/* The failure is reported by one of the subsequent writes */
+			for (int i = 0; i < 100000; i++)
+				os.write('a');
+			fail();
+		} catch (IOException ex)
+		{
+			assertSame(failure, ex);
+		}
+
+		/* The failure is reported again */
+		try
+		{
+			os.close();
+			fail();
+		} catch (IOException ex)
+		{
+			assertSame(failure, ex);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package ontologizer.enumeration;
+
+import static ontologizer.types.ByteString.EMPTY;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ontologizer.association.Association;
+import ontologizer.association.AssociationContainer;
+import ontologizer.association.ItemAssociations;
+import ontologizer.io.ParserFileInput;
+import ontologizer.io.annotation.AssociationParser;
+import ontologizer.io.obo.OBOParser;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.TermContainer;
+import ontologizer.ontology.TermID;
+
+public class ParallelTermEnumeratorTest
+{
+	private static final String OBO_FILE = ParallelTermEnumeratorTest.class.
+			getClassLoader().getResource("gene_ontology.1_2.obo.gz").getPath();
+	private static final String ASSOCIATION_FILE = ParallelTermEnumeratorTest.class.
+			getClassLoader().getResource("gene_association.sgd.gz").getPath();
+
+	private static Ontology ontology;
+
+	private static AssociationContainer container;
+
+	private static List<Association> associations;
+
+	private static TermContainer terms;
+
+	@BeforeClass
+	public static void setUp() throws Exception
+	{
+		OBOParser oboParser = new OBOParser(new ParserFileInput(OBO_FILE));
+		oboParser.doParse();
+		terms = new TermContainer(oboParser.getTermMap(), EMPTY, EMPTY);
+		ontology = Ontology.create(terms);
+		ontology.freeze();
+
+		AssociationParser ap = new AssociationParser(new ParserFileInput(ASSOCIATION_FILE), terms);
+		associations = ap.getAssociations();
+		container = new AssociationContainer(associations, ap.getAnnotationMapping());
+	}
+
+	private static void assertEnumeratorEquals(TermEnumerator expected, TermEnumerator actual)
+	{
+		List<TermID> expectedTerms = expected.getAllAnnotatedTermsAsList();
+		assertEquals(expectedTerms, actual.getAllAnnotatedTermsAsList());
+
+		for (TermID tid : expectedTerms)
+		{
+			TermAnnotations e = expected.getAnnotatedGenes(tid);
+			TermAnnotations a = actual.getAnnotatedGenes(tid);
+			assertEquals(e.directAnnotated, a.directAnnotated);
+			assertEquals(e.totalAnnotated, a.totalAnnotated);
+		}
+	}
+
+	@Test
+	public void testParallelBuild()
+	{
+		/* The expected enumerators are built on an unfrozen ontology */
+		Ontology unfrozen = Ontology.create(terms);
+		TermEnumerator expected = TermEnumerator.ontology(unfrozen).forAll(container).build();
+		assertEquals(container.getAllAnnotatedGenes().size(), expected.getGenes().size());
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			TermEnumerator parallel = TermEnumerator.ontology(ontology).forAll(container).parallel(pool).build();
+			assertEnumeratorEquals(expected, parallel);
+
+			/* Also with the associations being streamed into the builder */
+			TermEnumerator.Optional builder = TermEnumerator.ontology(ontology).parallel(pool);
+			builder.forAll(associations);
+			assertEnumeratorEquals(TermEnumerator.ontology(unfrozen).forAll(associations).build(), builder.build());
+		} finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testPropagatingClosures()
+	{
+		Ontology unfrozen = Ontology.create(terms);
+		TermEnumerator expected = new TermEnumerator(unfrozen, true);
+		for (ItemAssociations itemAssociations : container)
+			expected.push(itemAssociations);
+
+		TermEnumerator sequential = new TermEnumerator(ontology, true);
+		for (ItemAssociations itemAssociations : container)
+			sequential.push(itemAssociations);
+
+		/* The terms are also added in the same order */
+		assertEnumeratorEquals(expected, sequential);
+
+		List<ItemAssociations> items = new ArrayList<ItemAssociations>();
+		for (ItemAssociations itemAssociations : container)
+			items.add(itemAssociations);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			TermEnumerator parallel = new TermEnumerator(ontology, true);
+			parallel.pushAll(items, pool);
+			assertEnumeratorEquals(sequential, parallel);
+		} finally
+		{
+			pool.shutdown();
+		}
+	}
+}
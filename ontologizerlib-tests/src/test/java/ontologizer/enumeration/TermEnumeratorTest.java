@@ -4,6 +4,7 @@ import static java.util.Arrays.asList;
 import static ontologizer.ontology.TermID.tid;
 import static ontologizer.types.ByteString.b;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 import java.util.List;
@@ -16,6 +17,7 @@ import ontologizer.io.obo.OBOOntologyCreator;
 import ontologizer.io.obo.OBOParserException;
 import ontologizer.io.obo.OBOParserTestBase;
 import ontologizer.ontology.Ontology;
+import sonumina.math.graph.SlimDirectedGraphView;
 
 /**
  * Simple tests for the TermEnumerator
@@ -93,4 +95,57 @@ public class TermEnumeratorTest extends OBOParserTestBase
 		assertEquals(1, te.getAnnotatedGenes(tid("GO:0000001")).totalAnnotated.size());
 		assertEquals("item2", te.getAnnotatedGenes(tid("GO:0000001")).totalAnnotated.get(0).toString());
 	}
+
+	/// [term]
+	/// name: test
+	/// id: GO:0000001
+	///
+	/// [term]
+	/// name: test2
+	/// id: GO:0000002
+	///
+	/// relationship: regulates GO:0000001 ! test
+	///
+	/// [term]
+	/// name: test3
+	/// id: GO:0000003
+	///
+	/// is_a: GO:0000001 ! test
+	@Test
+	public void testBitmapPropagationFlavours() throws IOException, OBOParserException
+	{
+		Ontology ontology = OBOOntologyCreator.create(parseTestComment());
+
+		List<ItemAssociations> associations = createAssociations();
+
+		BitmapTermEnumerator te = new BitmapTermEnumerator(ontology, null);
+		associations.stream().forEach(te::push);
+		assertEquals(3, te.getTotalNumberOfAnnotatedTerms());
+		assertEquals(0, te.getDirectAnnotatedCount(tid("GO:0000001")));
+		assertEquals(2, te.getTotalAnnotatedCount(tid("GO:0000001")));
+
+		assertEquals(SlimDirectedGraphView.ClosureType.NONE, te.getView().getClosureType());
+
+		te = new BitmapTermEnumerator(ontology, null, true);
+		associations.stream().forEach(te::push);
+		assertEquals(3, te.getTotalNumberOfAnnotatedTerms());
+		assertEquals(0, te.getDirectAnnotatedCount(tid("GO:0000001")));
+		assertEquals(1, te.getTotalAnnotatedCount(tid("GO:0000001")));
+		assertEquals("item2", te.getAnnotatedGenes(tid("GO:0000001")).totalAnnotated.get(0).toString());
+
+		/* Frozen ontologies provide the parents via their cached views */
+		ontology.freeze();
+		te = new BitmapTermEnumerator(ontology, null);
+		associations.stream().forEach(te::push);
+		assertSame(ontology.getAncestorView(), te.getView());
+		assertEquals(3, te.getTotalNumberOfAnnotatedTerms());
+		assertEquals(2, te.getTotalAnnotatedCount(tid("GO:0000001")));
+
+		te = new BitmapTermEnumerator(ontology, null, true);
+		associations.stream().forEach(te::push);
+		assertEquals(3, te.getTotalNumberOfAnnotatedTerms());
+		assertEquals(0, te.getDirectAnnotatedCount(tid("GO:0000001")));
+		assertEquals(1, te.getTotalAnnotatedCount(tid("GO:0000001")));
+		assertEquals("item2", te.getAnnotatedGenes(tid("GO:0000001")).totalAnnotated.get(0).toString());
+	}
 }
@@ -10,6 +10,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.GZIPInputStream;
 
 import org.junit.Assert;
@@ -23,6 +24,7 @@ import ontologizer.association.Association;
 import ontologizer.association.AssociationContainer;
 import ontologizer.association.AssociationResolver;
 import ontologizer.io.ParserFileInput;
+import ontologizer.io.ParserMappedFileInput;
 import ontologizer.io.obo.OBOParser;
 import ontologizer.io.obo.OBOParserException;
 import ontologizer.ontology.TermContainer;
@@ -116,6 +118,37 @@ public class AssociationParserTest extends TestBase
 		assertEquals("S000004009",a.getDB_Object().toString());
 	}
 
+	@Test
+	public void testUncompressedMappedInput() throws IOException, OBOParserException
+	{
+		/* Decompress the association file behind a header that needs to be skipped */
+		File assocFile = tmpFolder.newFile();
+		GZIPInputStream in = new GZIPInputStream(new FileInputStream(ASSOCIATION_FILE));
+		FileOutputStream out = new FileOutputStream(assocFile);
+		out.write("# Comment\n\n".getBytes());
+		byte [] buf = new byte[4096];
+		int read;
+		while ((read = in.read(buf)) > 0)
+			out.write(buf, 0,  read);
+		in.close();
+		out.close();
+
+		OBOParser oboParser = new OBOParser(new ParserFileInput(OBO_FILE));
+		oboParser.doParse();
+		TermContainer tc = new TermContainer(oboParser.getTermMap(), EMPTY, EMPTY);
+
+		WarningCapture expectedWarnings = new WarningCapture();
+		AssociationParser expected = new AssociationParser(new ParserFileInput(assocFile.getAbsolutePath()), tc, null, null, expectedWarnings);
+
+		/* Choose a small window size, so many lines cross windows */
+		WarningCapture mappedWarnings = new WarningCapture();
+		AssociationParser mapped = new AssociationParser(new ParserMappedFileInput(assocFile.getAbsolutePath(), 100003), tc, null, null, mappedWarnings);
+		assertEquals(AssociationParser.Type.GAF, mapped.getFileType());
+		assertEquals(87599, mapped.getAssociations().size());
+		assertParsedEquals(expected, mapped);
+		assertEquals(expectedWarnings.warnings, mappedWarnings.warnings);
+	}
+
 	/// # Comment1
 	/// DB\tDBOBJID2\tSYMBOL\t\tGO:0005760\tPMID:00000\tEVIDENCE\t\tC\t\tgene\ttaxon:4932\t20121212\tSBA
 	@Test
@@ -231,6 +264,83 @@ public class AssociationParserTest extends TestBase
 		assertEquals(1, warningCapture.warnings.size());
 	}
 
+	private static void assertParsedEquals(AssociationParser expected, AssociationParser actual)
+	{
+		assertEquals(expected.getAssociations().size(), actual.getAssociations().size());
+		for (int i = 0; i < expected.getAssociations().size(); i++)
+		{
+			Association e = expected.getAssociations().get(i);
+			Association a = actual.getAssociations().get(i);
+			assertEquals(e.getDB_Object(), a.getDB_Object());
+			assertEquals(e.getObjectSymbol(), a.getObjectSymbol());
+			assertEquals(e.getTermID(), a.getTermID());
+			assertEquals(e.getEvidence(), a.getEvidence());
+		}
+		Assert.assertArrayEquals(expected.getAnnotationMapping().getSymbols(), actual.getAnnotationMapping().getSymbols());
+		assertEquals(expected.getAnnotationMapping().getSynonym2Symbol(), actual.getAnnotationMapping().getSynonym2Symbol());
+		assertEquals(expected.getAnnotationMapping().getDbObjectID2Symbol(), actual.getAnnotationMapping().getDbObjectID2Symbol());
+	}
+
+	@Test
+	public void testParallel() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new ParserFileInput(OBO_FILE));
+		oboParser.doParse();
+		TermContainer tc = new TermContainer(oboParser.getTermMap(), EMPTY, EMPTY);
+
+		WarningCapture sequentialWarnings = new WarningCapture();
+		AssociationParser sequential = new AssociationParser(new ParserFileInput(ASSOCIATION_FILE), tc, null, null, sequentialWarnings);
+
+		WarningCapture parallelWarnings = new WarningCapture();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		AssociationParser parallel = new AssociationParser(new ParserFileInput(ASSOCIATION_FILE), tc, null, null, parallelWarnings, true, pool);
+		parallel.chunkSize = 65536;
+		try
+		{
+			parallel.parse();
+		} finally
+		{
+			pool.shutdown();
+		}
+
+		assertEquals(87599, parallel.getAssociations().size());
+		assertParsedEquals(sequential, parallel);
+		assertEquals(sequentialWarnings.warnings, parallelWarnings.warnings);
+	}
+
+	///
+	/// DB\tDBOBJID1\tSYMBOL\t\tGO:0005763\tPMID:00000\tEVIDENCE\t\tC\tSYNONYM1|SYNONYM2\tgene\ttaxon:4932\t20121212\tSBA
+	/// DB\tDBOBJID2\tSYMBOL\t\tGO:0005760\tPMID:00000\tEVIDENCE\t\tC\t\tgene\ttaxon:4932\t20121212\tSBA
+	/// DB\tDBOBJID3\tSYMBOL3\tNOT\tGO:0005760\tPMID:00000\tEVIDENCE\t\tC\t\tgene\ttaxon:4932\t20121212\tSBA
+	/// DB\tDBOBJID2\tSYMBOL2\t\tGO:0005760\tPMID:00000\tEVIDENCE\t\tC\t\tgene\ttaxon:4932\t20121212\tSBA
+	@Test
+	public void testParallelAmbiguousLines() throws IOException, OBOParserException
+	{
+		String gafFile = getTestCommentAsPath(".gaf", TestSourceUtils.DECODE_TABS);
+		TermContainer tc = createTermContainer();
+
+		WarningCapture sequentialWarnings = new WarningCapture();
+		AssociationParser sequential = new AssociationParser(new ParserFileInput(gafFile), tc, null, null, sequentialWarnings);
+
+		/* Each line becomes a chunk of its own */
+		WarningCapture parallelWarnings = new WarningCapture();
+		ForkJoinPool pool = new ForkJoinPool(2);
+		AssociationParser parallel = new AssociationParser(new ParserFileInput(gafFile), tc, null, null, parallelWarnings, true, pool);
+		parallel.chunkSize = 1;
+		try
+		{
+			parallel.parse();
+		} finally
+		{
+			pool.shutdown();
+		}
+
+		assertEquals(3, parallel.getAssociations().size());
+		assertParsedEquals(sequential, parallel);
+		assertEquals(2, parallelWarnings.warnings.size());
+		assertEquals(sequentialWarnings.warnings, parallelWarnings.warnings);
+	}
+
 	/// DB\tDBOBJID1\tSYMBOL1\t\tGO:0000104\tPMID:00000\tEVIDENCE\t\tC\t\tgene\ttaxon:4932\t20121212\tSBA
 	/// DB\tDBOBJID2\tSYMBOL2\t\tGO:0019739\tPMID:00000\tEVIDENCE\t\tC\t\tgene\ttaxon:4932\t20121212\tSBA
 	@Test
@@ -0,0 +1,169 @@
+package ontologizer.io.annotation;
+
+import static ontologizer.types.ByteString.EMPTY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ontologizer.association.Association;
+import ontologizer.association.IAssociationVisitor;
+import ontologizer.enumeration.TermEnumerator;
+import ontologizer.io.ParserFileInput;
+import ontologizer.io.obo.OBOParser;
+import ontologizer.io.obo.OBOParserException;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.TermContainer;
+
+public class GAFStreamTest
+{
+	private static final String OBO_FILE = GAFStreamTest.class.
+			getClassLoader().getResource("gene_ontology.1_2.obo.gz").getPath();
+	private static final String ASSOCIATION_FILE = GAFStreamTest.class.
+			getClassLoader().getResource("gene_association.sgd.gz").getPath();
+
+	private static TermContainer terms;
+
+	@BeforeClass
+	public static void setUp() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new ParserFileInput(OBO_FILE));
+		oboParser.doParse();
+		terms = new TermContainer(oboParser.getTermMap(), EMPTY, EMPTY);
+	}
+
+	/**
+	 * A visitor that collects the associations.
+	 */
+	private static class Collector implements IAssociationVisitor
+	{
+		public List<Association> associations = new ArrayList<Association>();
+
+		@Override
+		public boolean visited(Association association)
+		{
+			associations.add(association);
+			return true;
+		}
+	}
+
+	private static void assertSameAssociations(List<Association> expected, List<Association> actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			assertEquals(expected.get(i).getDB_Object(), actual.get(i).getDB_Object());
+			assertEquals(expected.get(i).getTermID(), actual.get(i).getTermID());
+			assertEquals(expected.get(i).getEvidence(), actual.get(i).getEvidence());
+		}
+	}
+
+	@Test
+	public void testUnfiltered() throws IOException
+	{
+		AssociationParser ap = new AssociationParser(new ParserFileInput(ASSOCIATION_FILE), terms);
+
+		Collector collector = new Collector();
+		GAFStream stream = new GAFStream(new ParserFileInput(ASSOCIATION_FILE), terms);
+		stream.forEach(collector);
+
+		assertEquals(87599, stream.getNumberOfAssociations());
+		assertEquals(0, stream.getNumberOfRejectedLines());
+		assertSameAssociations(ap.getAssociations(), collector.associations);
+	}
+
+	@Test
+	public void testFiltered() throws IOException
+	{
+		AssociationParser ap = new AssociationParser(new ParserFileInput(ASSOCIATION_FILE), terms);
+		List<Association> expected = new ArrayList<Association>();
+		for (Association a : ap.getAssociations())
+		{
+			String evidence = a.getEvidence().toString();
+			if ((evidence.equals("IDA") || evidence.equals("IMP")) && a.getAspect().toString().equals("P"))
+				expected.add(a);
+		}
+
+		Collector collector = new Collector();
+		GAFStream stream = new GAFStream(new ParserFileInput(ASSOCIATION_FILE), terms);
+		stream.filter(new GAFColumnFilter().evidence("IDA", "IMP").aspect("P").taxon("4932").db("SGD"));
+		stream.forEach(collector);
+
+		assertTrue(expected.size() > 0);
+		assertSameAssociations(expected, collector.associations);
+		assertEquals(stream.getNumberOfLines(), stream.getNumberOfRejectedLines() + stream.getNumberOfNots() +
+				stream.getNumberOfUnresolved() + stream.getNumberOfAssociations());
+
+		collector = new Collector();
+		stream = new GAFStream(new ParserFileInput(ASSOCIATION_FILE), terms);
+		stream.filter(new GAFColumnFilter().taxon("9606"));
+		stream.forEach(collector);
+		assertEquals(0, collector.associations.size());
+		assertEquals(stream.getNumberOfLines(), stream.getNumberOfRejectedLines());
+	}
+
+	@Test
+	public void testAbort() throws IOException
+	{
+		final int [] count = new int[1];
+		GAFStream stream = new GAFStream(new ParserFileInput(ASSOCIATION_FILE));
+		stream.forEach(new IAssociationVisitor()
+		{
+			@Override
+			public boolean visited(Association association)
+			{
+				return ++count[0] < 10;
+			}
+		});
+		assertEquals(10, count[0]);
+		assertEquals(10, stream.getNumberOfAssociations());
+	}
+
+	@Test
+	public void testColumnFilter()
+	{
+		Charset ascii = Charset.forName("US-ASCII");
+		byte [] line = "DB\tID\tSYM\tNOT|contributes_to\tGO:0005763\tPMID:00000\tIDA\t\tC\t\t\tgene\ttaxon:4932|taxon:9606".getBytes(ascii);
+
+		assertTrue(new GAFColumnFilter().accept(line, 0, line.length));
+		assertTrue(new GAFColumnFilter().evidence("IMP", "IDA").accept(line, 0, line.length));
+		assertFalse(new GAFColumnFilter().evidence("ID").accept(line, 0, line.length));
+		assertTrue(new GAFColumnFilter().qualifier("contributes_to").accept(line, 0, line.length));
+		assertTrue(new GAFColumnFilter().taxon("9606").aspect("C").accept(line, 0, line.length));
+		assertFalse(new GAFColumnFilter().taxon("9606").aspect("P").accept(line, 0, line.length));
+		assertFalse(new GAFColumnFilter().db("DB").db("UniProtKB").accept(line, 0, line.length));
+
+		/* Missing columns are empty */
+		assertFalse(new GAFColumnFilter().column(14, new ArrayList<String>()).accept(line, 0, line.length));
+		assertTrue(new GAFColumnFilter().column(14, new GAFColumnFilter.IColumnPredicate()
+		{
+			@Override
+			public boolean accept(byte [] buf, int start, int end)
+			{
+				return start == end;
+			}
+		}).accept(line, 0, line.length));
+	}
+
+	@Test
+	public void testTermEnumerator() throws IOException
+	{
+		Ontology ontology = Ontology.create(terms);
+		AssociationParser ap = new AssociationParser(new ParserFileInput(ASSOCIATION_FILE), terms);
+		TermEnumerator expected = TermEnumerator.ontology(ontology).forAll(ap.getAssociations()).build();
+
+		TermEnumerator.Optional builder = TermEnumerator.ontology(ontology);
+		new GAFStream(new ParserFileInput(ASSOCIATION_FILE), terms).forEach(builder);
+		TermEnumerator actual = builder.build();
+
+		assertEquals(expected.getAllAnnotatedTermsAsSet(), actual.getAllAnnotatedTermsAsSet());
+		assertEquals(expected.getGenes(), actual.getGenes());
+	}
+}
@@ -0,0 +1,104 @@
+package ontologizer.io.linescanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ontologizer.io.ParserMappedFileInput;
+import ontologizer.io.obo.OntologyTest;
+
+public class AbstractByteBufferLineScannerTest
+{
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static class CollectingLineScanner extends AbstractByteBufferLineScanner
+	{
+		public List<String> lines = new ArrayList<String>();
+		public List<Long> positions = new ArrayList<Long>();
+
+		public CollectingLineScanner(ParserMappedFileInput input)
+		{
+			super(input);
+		}
+
+		@Override
+		public boolean newLine(ByteBuffer buf, int start, int len)
+		{
+			StringBuilder str = new StringBuilder();
+			for (int i = start; i < start + len; i++)
+				str.append((char)buf.get(i));
+			lines.add(str.toString());
+			positions.add(getPosition());
+			return true;
+		}
+	}
+
+	@Test
+	public void testBigFile() throws IOException
+	{
+		String oboPath = OntologyTest.class.
+				getClassLoader().getResource("gene_ontology.1_2.obo.gz").getPath();
+		File obo = tmpFolder.newFile();
+		InputStream is = new GZIPInputStream(new FileInputStream(oboPath));
+		OutputStream os = new FileOutputStream(obo);
+		byte [] buf = new byte[65536];
+		int read;
+		while ((read = is.read(buf)) > 0)
+			os.write(buf, 0, read);
+		is.close();
+		os.close();
+
+		/* Choose a small window size, so many lines cross windows */
+		CollectingLineScanner scanner = new CollectingLineScanner(new ParserMappedFileInput(obo.getAbsolutePath(), 100003));
+		scanner.scan();
+
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(obo), "ISO-8859-1"));
+		for (String line : scanner.lines)
+			assertEquals(br.readLine(), line);
+		assertNull(br.readLine());
+		br.close();
+	}
+
+	@Test
+	public void testWindowBoundaries() throws IOException
+	{
+		File file = tmpFolder.newFile();
+		PrintWriter pw = new PrintWriter(file);
+		pw.append("a\n\nbcdefghij\nk\n\nlmn");
+		pw.close();
+
+		for (int windowSize = 1; windowSize < 25; windowSize++)
+		{
+			CollectingLineScanner scanner = new CollectingLineScanner(new ParserMappedFileInput(file.getAbsolutePath(), windowSize));
+			scanner.scan();
+			assertEquals("Window size " + windowSize, "[a, , bcdefghij, k, , lmn]", scanner.lines.toString());
+			assertEquals("Window size " + windowSize, "[1, 2, 12, 14, 15, 19]", scanner.positions.toString());
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testCompressed() throws IOException
+	{
+		String oboPath = OntologyTest.class.
+				getClassLoader().getResource("gene_ontology.1_2.obo.gz").getPath();
+		new CollectingLineScanner(new ParserMappedFileInput(oboPath));
+	}
+}
@@ -1,15 +1,30 @@
 package ontologizer.io.obo;
 
 import static ontologizer.types.ByteString.b;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import ontologizer.io.ParserFileInput;
+import ontologizer.io.ParserMappedFileInput;
+import ontologizer.ontology.ParentTermID;
 import ontologizer.ontology.Term;
 import ontologizer.types.ByteString;
 
@@ -20,6 +35,9 @@ import ontologizer.types.ByteString;
  */
 public class OBOParserFullTest
 {
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
 	/* internal fields */
 	public static final String GOtermsOBOFile = OBOParserFullTest.class.
 			getClassLoader().getResource("gene_ontology.1_2.obo.gz").getPath();
@@ -54,6 +72,55 @@ public class OBOParserFullTest
 		assertEquals(0,id2Term.get("GO:0008150").getParents().length);
 	}
 
+	@Test
+	public void testMappedInput() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new ParserMappedFileInput(GOtermsOBOFile));
+		oboParser.doParse();
+		assertEquals(nTermCount, oboParser.getTermMap().size());
+		assertEquals(date,oboParser.getDate());
+	}
+
+	@Test
+	public void testUncompressedMappedInput() throws IOException, OBOParserException
+	{
+		File obo = tmpFolder.newFile();
+		InputStream is = new GZIPInputStream(new FileInputStream(GOtermsOBOFile));
+		OutputStream os = new FileOutputStream(obo);
+		byte [] buf = new byte[65536];
+		int read;
+		while ((read = is.read(buf)) > 0)
+			os.write(buf, 0, read);
+		is.close();
+		os.close();
+
+		int options = OBOParser.PARSE_DEFINITIONS | OBOParser.PARSE_XREFS;
+		OBOParser expected = new OBOParser(new ParserFileInput(GOtermsOBOFile), options);
+		expected.doParse();
+
+		/* Choose a small window size, so many lines cross windows */
+		OBOParser mapped = new OBOParser(new ParserMappedFileInput(obo.getAbsolutePath(), 100003), options);
+		mapped.doParse();
+
+		assertEquals(expected.getDate(), mapped.getDate());
+		List<Term> e = new ArrayList<Term>(expected.getTermMap());
+		List<Term> a = new ArrayList<Term>(mapped.getTermMap());
+		assertEquals(nTermCount, a.size());
+		assertEquals(e, a);
+		for (int i = 0; i < e.size(); i++)
+		{
+			assertEquals(e.get(i).getName(), a.get(i).getName());
+			assertEquals(e.get(i).getDefinition(), a.get(i).getDefinition());
+			assertEquals(e.get(i).getParents().length, a.get(i).getParents().length);
+			for (int j = 0; j < e.get(i).getParents().length; j++)
+			{
+				assertEquals(e.get(i).getParents()[j].getRelated(), a.get(i).getParents()[j].getRelated());
+				assertEquals(e.get(i).getParents()[j].getRelation().name(), a.get(i).getParents()[j].getRelation().name());
+			}
+			assertArrayEquals(e.get(i).getXrefs(), a.get(i).getXrefs());
+		}
+	}
+
 	@Test
 	public void testIgnoreSynonyms() throws IOException, OBOParserException
 	{
@@ -62,4 +129,109 @@ public class OBOParserFullTest
 		for (Term t : oboParser.getTermMap())
 			assertTrue(t.getSynonyms() == null || t.getSynonyms().length == 0);
 	}
+
+	@Test
+	public void testLazyBodies() throws IOException, OBOParserException
+	{
+		int options = OBOParser.PARSE_DEFINITIONS | OBOParser.PARSE_XREFS;
+		OBOParser eager = new OBOParser(new ParserFileInput(GOtermsOBOFile), options);
+		eager.doParse();
+
+		OBOParser lazy = new OBOParser(new ParserFileInput(GOtermsOBOFile), OBOParser.LAZY_BODIES);
+		lazy.doParse();
+
+		OBOParser lazyParallel = new OBOParser(new ParserFileInput(GOtermsOBOFile), OBOParser.LAZY_BODIES);
+		lazyParallel.chunkSize = 65536;
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			lazyParallel.doParse(null, pool);
+		} finally
+		{
+			pool.shutdown();
+		}
+
+		List<Term> expected = new ArrayList<Term>(eager.getTermMap());
+		List<Term> actual = new ArrayList<Term>(lazy.getTermMap());
+		List<Term> actualParallel = new ArrayList<Term>(lazyParallel.getTermMap());
+		assertEquals(expected, actual);
+		assertEquals(expected, actualParallel);
+
+		for (int i = 0; i < expected.size(); i++)
+		{
+			Term e = expected.get(i);
+			for (Term a : new Term[]{actual.get(i), actualParallel.get(i)})
+			{
+				assertEquals(e.getName(), a.getName());
+				assertEquals(e.getParents().length, a.getParents().length);
+				assertEquals(e.getDefinition(), a.getDefinition());
+				assertArrayEquals(e.getSynonyms(), a.getSynonyms());
+				assertArrayEquals(e.getXrefs(), a.getXrefs());
+			}
+		}
+	}
+
+	@Test
+	public void testParallel() throws IOException, OBOParserException
+	{
+		int options = OBOParser.PARSE_DEFINITIONS | OBOParser.PARSE_XREFS;
+		OBOParser sequential = new OBOParser(new ParserFileInput(GOtermsOBOFile), options);
+		sequential.doParse();
+
+		OBOParser parallel = new OBOParser(new ParserFileInput(GOtermsOBOFile), options);
+		parallel.chunkSize = 65536;
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			parallel.doParse(null, pool);
+		} finally
+		{
+			pool.shutdown();
+		}
+
+		assertEquals(sequential.getFormatVersion(), parallel.getFormatVersion());
+		assertEquals(sequential.getDate(), parallel.getDate());
+		assertEquals(sequential.getDataVersion(), parallel.getDataVersion());
+
+		/* Same terms in the same iteration order */
+		List<Term> expected = new ArrayList<Term>(sequential.getTermMap());
+		List<Term> actual = new ArrayList<Term>(parallel.getTermMap());
+		assertEquals(nTermCount, actual.size());
+		assertEquals(expected, actual);
+
+		HashMap<Object,Object> canonical = new HashMap<Object,Object>();
+		for (int i = 0; i < expected.size(); i++)
+		{
+			Term e = expected.get(i);
+			Term a = actual.get(i);
+			assertEquals(e.getName(), a.getName());
+			assertEquals(e.getDefinition(), a.getDefinition());
+			assertEquals(e.getNamespace(), a.getNamespace());
+			assertEquals(e.isObsolete(), a.isObsolete());
+			assertArrayEquals(e.getAlternatives(), a.getAlternatives());
+			assertArrayEquals(e.getEquivalents(), a.getEquivalents());
+			assertArrayEquals(e.getSubsets(), a.getSubsets());
+			assertArrayEquals(e.getSynonyms(), a.getSynonyms());
+			assertArrayEquals(e.getXrefs(), a.getXrefs());
+			assertEquals(e.getParents().length, a.getParents().length);
+			for (int j = 0; j < e.getParents().length; j++)
+			{
+				ParentTermID ep = e.getParents()[j];
+				ParentTermID ap = a.getParents()[j];
+				assertEquals(ep.getRelated(), ap.getRelated());
+				assertEquals(ep.getRelation().name(), ap.getRelation().name());
+			}
+
+			/* Pooled objects are shared among all terms */
+			if (!canonical.containsKey(a.getNamespace()))
+				canonical.put(a.getNamespace(), a.getNamespace());
+			assertSame(canonical.get(a.getNamespace()), a.getNamespace());
+			for (ParentTermID ap : a.getParents())
+			{
+				if (!canonical.containsKey(ap.getRelation().name()))
+					canonical.put(ap.getRelation().name(), ap.getRelation());
+				assertSame(canonical.get(ap.getRelation().name()), ap.getRelation());
+			}
+		}
+	}
 }
@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -136,6 +137,41 @@ public class OBOParserTest extends OBOParserTestBase
 			assertEquals(expected[i],terms.get(0).getSynonyms()[i].toString());
 	}
 
+	/// [term]
+	/// name: test
+	/// id: GO:0000001
+	/// def: "This is a \"test\"" [GOC:test]
+	/// synonym: "test2"
+	///
+	/// [term]
+	/// name: test2
+	/// id: GO:0000002
+	/// is_a: GO:0000001
+	/// xref: db:ID "WW"
+	/// synonym: "test3" EXACT []
+	@Test
+	public void testLazyBodies() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = parseTestComment(OBOParser.LAZY_BODIES);
+		HashMap<String,Term> name2Term = new HashMap<String,Term>();
+		for (Term t : oboParser.getTermMap())
+			name2Term.put(t.getIDAsString(), t);
+		assertEquals(2, name2Term.size());
+
+		Term t1 = name2Term.get("GO:0000001");
+		assertEquals("This is a \"test\"", t1.getDefinition().toString());
+		assertEquals(1, t1.getSynonyms().length);
+		assertEquals("test2", t1.getSynonyms()[0].toString());
+		assertNull(t1.getXrefs());
+
+		Term t2 = name2Term.get("GO:0000002");
+		assertEquals(1, t2.getParents().length);
+		assertNull(t2.getDefinition());
+		assertEquals("test3", t2.getSynonyms()[0].toString());
+		assertEquals("ID", t2.getXrefs()[0].getXrefId());
+		assertEquals("WW", t2.getXrefs()[0].getXrefName());
+	}
+
 	/// [term]
 	/// name: test
 	/// id: GO:0000001
@@ -232,6 +268,50 @@ public class OBOParserTest extends OBOParserTestBase
 		assertNull(terms.get(0).getXrefs()[0].getXrefName());
 	}
 
+	/// [term]
+	/// name: test
+	/// id: GO:0000001
+	/// xref: db:ID {source="WW"} ! comment
+	/// xref: db:ID2 "WW" {source="WW"}
+	@Test
+	public void testXRefModifiers() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = parseTestComment(OBOParser.PARSE_XREFS);
+		ArrayList<Term> terms = new ArrayList<Term>(oboParser.getTermMap());
+		assertEquals(1, terms.size());
+		assertEquals(2, terms.get(0).getXrefs().length);
+		assertEquals("ID",terms.get(0).getXrefs()[0].getXrefId());
+		assertNull(terms.get(0).getXrefs()[0].getXrefName());
+		assertEquals("ID2",terms.get(0).getXrefs()[1].getXrefId());
+		assertEquals("WW",terms.get(0).getXrefs()[1].getXrefName());
+	}
+
+	/// [Typedef]
+	/// id: develops_from
+	/// name: develops from
+	///
+	/// [term]
+	/// name: test
+	/// id: FOO:bar
+	///
+	/// [term]
+	/// name: test2
+	/// id: FOO:baz {source="x"}
+	/// is_a: FOO:bar ! test
+	/// relationship: develops_from FOO:bar {source="x"} ! test
+	@Test
+	public void testTrailingModifiers() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = parseTestComment();
+		ArrayList<Term> terms = new ArrayList<Term>(oboParser.getTermMap());
+		assertEquals(2, terms.size());
+		assertEquals(new TermID("FOO:baz"), terms.get(1).getID());
+		assertEquals(2, terms.get(1).getParents().length);
+		assertEquals(new TermID("FOO:bar"), terms.get(1).getParents()[0].getRelated());
+		assertEquals(new TermID("FOO:bar"), terms.get(1).getParents()[1].getRelated());
+		assertEquals("develops_from", terms.get(1).getParents()[1].getRelation().name().toString());
+	}
+
 	/// subsetdef: subset \"Subset\"
 	/// [term]
 	/// name: test
@@ -311,4 +391,90 @@ public class OBOParserTest extends OBOParserTestBase
 		ArrayList<Term> terms = new ArrayList<Term>(oboParser.getTermMap());
 		assertEquals(1, terms.size());
 	}
+
+	@Test
+	public void testParallelExceptions() throws IOException
+	{
+		File tmp = tmpFolder.newFile();
+		PrintWriter pw = new PrintWriter(tmp);
+		pw.append("format-version: 1.2\n\n");
+		for (int i = 1; i < 200; i++)
+			pw.append("[Term]\nid: GO:" + i + "\nname: term\\\n " + i + "\nis_a: GO:" + (i - 1) + "\n\n");
+		pw.append("[Term\nid: GO:200\n");
+		pw.append("[Term]\nid: GO:201\n");
+		pw.close();
+
+		OBOParserException expected = null;
+		OBOParser sequential = new OBOParser(new ParserFileInput(tmp.getCanonicalPath()));
+		try
+		{
+			sequential.doParse();
+		} catch (OBOParserException ex)
+		{
+			expected = ex;
+		}
+		assertEquals(2 + 199 * 6 + 1, expected.getLineNum());
+
+		OBOParser parallel = new OBOParser(new ParserFileInput(tmp.getCanonicalPath()));
+		parallel.chunkSize = 128;
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			parallel.doParse(null, pool);
+			assertTrue("Exception asserted", false);
+		} catch (OBOParserException ex)
+		{
+			assertEquals(expected.getMessage(), ex.getMessage());
+			assertEquals(expected.getLine(), ex.getLine());
+			assertEquals(expected.getLineNum(), ex.getLineNum());
+		} finally
+		{
+			pool.shutdown();
+		}
+		assertEquals(new ArrayList<Term>(sequential.getTermMap()), new ArrayList<Term>(parallel.getTermMap()));
+	}
+
+	private static String letters(long number)
+	{
+		StringBuilder str = new StringBuilder();
+		for (char c : Long.toString(number).toCharArray())
+			str.append((char)('a' + c - '0'));
+		return str.toString();
+	}
+
+	@Test
+	public void testParallelArbitraryIDs() throws IOException, OBOParserException
+	{
+		/* The ids must not have been seen before and must not contain digits */
+		String prefix = "parallel" + letters(System.nanoTime()) + "_";
+
+		File tmp = tmpFolder.newFile();
+		PrintWriter pw = new PrintWriter(tmp);
+		pw.append("format-version: 1.2\n\n");
+		pw.append("[Term]\nid: ARB:" + prefix + letters(0) + "\nname: term\n\n");
+		for (int i = 1; i < 200; i++)
+			pw.append("[Term]\nid: ARB:" + prefix + letters(i) + "\nname: term\nis_a: ARB:" + prefix + letters(i - 1) + "\n\n");
+		pw.close();
+
+		OBOParser parallel = new OBOParser(new ParserFileInput(tmp.getCanonicalPath()));
+		parallel.chunkSize = 128;
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			parallel.doParse(null, pool);
+		} finally
+		{
+			pool.shutdown();
+		}
+
+		/* Like in the sequential parse, the ids are made in the order of the input */
+		ArrayList<Term> terms = new ArrayList<Term>(parallel.getTermMap());
+		assertEquals(200, terms.size());
+		for (int i = 1; i < terms.size(); i++)
+			assertTrue(terms.get(i).getID().id < terms.get(i - 1).getID().id);
+
+		OBOParser sequential = new OBOParser(new ParserFileInput(tmp.getCanonicalPath()));
+		sequential.doParse();
+		assertEquals(terms, new ArrayList<Term>(sequential.getTermMap()));
+	}
 }
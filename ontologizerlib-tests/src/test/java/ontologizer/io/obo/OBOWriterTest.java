@@ -0,0 +1,186 @@
+package ontologizer.io.obo;
+
+import static ontologizer.types.ByteString.b;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ontologizer.io.ParserFileInput;
+import ontologizer.ontology.Namespace;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.ParentTermID;
+import ontologizer.ontology.RelationMeaning;
+import ontologizer.ontology.RelationType;
+import ontologizer.ontology.Term;
+import ontologizer.ontology.TermContainer;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermXref;
+import ontologizer.types.ByteString;
+
+public class OBOWriterTest
+{
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static final int OPTIONS = OBOParser.PARSE_DEFINITIONS | OBOParser.PARSE_XREFS;
+
+	private static Ontology ontology;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception
+	{
+		OBOParser oboParser = new OBOParser(new ParserFileInput(OBOParserFullTest.GOtermsOBOFile), OPTIONS);
+		oboParser.doParse();
+		ontology = Ontology.create(new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate()));
+	}
+
+	private static Set<String> parents(Ontology o, TermID id)
+	{
+		Set<String> parents = new HashSet<String>();
+		for (ParentTermID p : o.getTermParentsWithRelation(id))
+		{
+			if (o.getTermMap().get(p.getRelated()) == null)
+				continue;
+			RelationType r = p.getRelation();
+			parents.add(p.getRelated() + " " + (r == null ? "is_a" : r.name()));
+		}
+		return parents;
+	}
+
+	private static <T> Set<T> set(T [] array)
+	{
+		return array == null ? new HashSet<T>() : new HashSet<T>(Arrays.asList(array));
+	}
+
+	private static void assertXrefsEquals(TermXref [] expected, TermXref [] actual)
+	{
+		assertEquals(set(expected), set(actual));
+		if (expected != null)
+		{
+			for (int i = 0; i < expected.length; i++)
+				assertEquals(expected[i].getXrefName(), actual[i].getXrefName());
+		}
+	}
+
+	/**
+	 * Parses the given obo file and checks that the terms equal the terms
+	 * of the given ontology.
+	 */
+	private static Ontology assertParsesTo(Ontology expected, File file) throws Exception
+	{
+		OBOParser parser = new OBOParser(new ParserFileInput(file.getAbsolutePath()), OPTIONS);
+		parser.doParse();
+		Ontology actual = Ontology.create(new TermContainer(parser.getTermMap(), parser.getFormatVersion(), parser.getDate()));
+
+		int count = 0;
+		for (Term e : expected)
+		{
+			if (expected.getTermMap().get(e.getID()) == null)
+				continue;
+			count++;
+
+			Term a = actual.getTerm(e.getID());
+			assertEquals(e.getName(), a.getName());
+			assertEquals(e.getNamespace(), a.getNamespace());
+			assertEquals(e.getDefinition(), a.getDefinition());
+			assertEquals(e.isObsolete(), a.isObsolete());
+			assertEquals(set(e.getAlternatives()), set(a.getAlternatives()));
+			assertEquals(set(e.getEquivalents()), set(a.getEquivalents()));
+			assertArrayEquals(e.getSynonyms(), a.getSynonyms());
+			assertArrayEquals(e.getSubsets(), a.getSubsets());
+			assertXrefsEquals(e.getXrefs(), a.getXrefs());
+			assertEquals(parents(expected, e.getID()), parents(actual, a.getID()));
+		}
+		assertEquals(count, parser.getTermMap().size());
+		return actual;
+	}
+
+	private static byte [] readAll(InputStream is) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte [] buf = new byte[8192];
+		int read;
+		while ((read = is.read(buf)) > 0)
+			out.write(buf, 0, read);
+		is.close();
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception
+	{
+		File file = tmpFolder.newFile("go.obo");
+		OBOWriter.write(ontology, file);
+		assertParsesTo(ontology, file);
+
+		/* The output is deterministic */
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OBOWriter.write(ontology, out);
+		assertArrayEquals(Files.readAllBytes(file.toPath()), out.toByteArray());
+	}
+
+	@Test
+	public void testCompressed() throws Exception
+	{
+		File file = tmpFolder.newFile("go.obo.gz");
+		OBOWriter.write(ontology, file);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OBOWriter.write(ontology, out);
+		assertArrayEquals(out.toByteArray(), readAll(new GZIPInputStream(new FileInputStream(file))));
+	}
+
+	@Test
+	public void testInducedGraph() throws Exception
+	{
+		Ontology subgraph = ontology.getInducedGraph(Arrays.asList(new TermID("GO:0009987"), new TermID("GO:0005739")));
+		File file = tmpFolder.newFile("subgraph.obo");
+		OBOWriter.write(subgraph, file);
+		Ontology actual = assertParsesTo(subgraph, file);
+		assertTrue(actual.getNumberOfTerms() < ontology.getNumberOfTerms());
+	}
+
+	@Test
+	public void testEscapes() throws Exception
+	{
+		Namespace ns = new Namespace("test");
+		Term root = new Term("GO:0000001", b("root {with} modifiers ! and \\ backslash"), ns);
+		root.setDefinition(b("A \"quoted\" definition\nwith\ttabs and \\ [brackets] {braces}"));
+		ArrayList<ByteString> synonyms = new ArrayList<ByteString>();
+		synonyms.add(b("\"synonym\" ! {x}"));
+		root.setSynonyms(synonyms);
+		ArrayList<TermXref> xrefs = new ArrayList<TermXref>();
+		xrefs.add(new TermXref("Wiki:pedia", "a b,c]d", "name \"quoted\""));
+		xrefs.add(new TermXref("KEGG", ":R02820", null));
+		root.setXrefs(xrefs);
+		Term child = new Term("GO:0000002", b("child"), ns, new ParentTermID(new TermID("GO:0000001"), new RelationType(b("has_part"), RelationMeaning.UNKOWN)));
+
+		Ontology o = Ontology.create(new TermContainer(Arrays.asList(root, child), b("1.2"), b("01:01:2017 00:00")));
+		File file = tmpFolder.newFile("escapes.obo");
+		OBOWriter.write(o, file);
+		Ontology actual = assertParsesTo(o, file);
+
+		HashMap<ByteString,Term> byName = new HashMap<ByteString,Term>();
+		for (Term t : actual)
+			byName.put(t.getName(), t);
+		assertTrue(byName.containsKey(b("root {with} modifiers ! and \\ backslash")));
+	}
+}
@@ -1,14 +1,22 @@
 package ontologizer.io.obo;
 
 import static ontologizer.ontology.TermID.tid;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -19,11 +27,15 @@ import ontologizer.ontology.Namespace;
 import ontologizer.ontology.Ontology;
 import ontologizer.ontology.Ontology.ITermIDVisitor;
 import ontologizer.ontology.Ontology.TermLevels;
+import ontologizer.ontology.RelationMeaning;
+import ontologizer.ontology.RelationType;
 import ontologizer.ontology.Subset;
 import ontologizer.ontology.Term;
 import ontologizer.ontology.TermContainer;
 import ontologizer.ontology.TermID;
 import ontologizer.types.ByteString;
+import sonumina.math.graph.ReachabilityIndex;
+import sonumina.math.graph.SlimDirectedGraphView;
 
 public class OntologyTest
 {
@@ -281,6 +293,16 @@ public class OntologyTest
 		return set;
 	}
 
+	private static <T> List<T> list(Iterable<T> iterable)
+	{
+		List<T> list = new ArrayList<T>();
+		for (T i : iterable)
+		{
+			list.add(i);
+		}
+		return list;
+	}
+
 	@Test
 	public void testIfTermLevelsAreEmpty()
 	{
@@ -325,6 +347,269 @@ public class OntologyTest
 		assertEquals(5, levels.getTermLevel(new TermID("GO:0000011")));
 	}
 
+	@Test
+	public void testFrozenOntology()
+	{
+		Ontology o = Ontology.create(goTerms);
+		o.freeze();
+		assertTrue(o.isFrozen());
+
+		for (TermID t : graph.getGraph())
+		{
+			assertEquals(set(graph.getParentNodes(t)), set(o.getParentNodes(t)));
+			assertEquals(set(graph.getChildNodes(t)), set(o.getChildNodes(t)));
+			for (TermID p : graph.getParentNodes(t))
+				assertEquals(graph.getDirectRelation(p, t), o.getDirectRelation(p, t));
+		}
+
+		assertTrue(o.existsPath(new TermID("GO:0009987"), new TermID("GO:0006281")));
+		assertFalse(o.existsPath(new TermID("GO:0006281"), new TermID("GO:0009987")));
+		assertEquals(graph.getTermsOfInducedGraph(null, tid("GO:0006281")), o.getTermsOfInducedGraph(null, tid("GO:0006281")));
+
+		Set<TermID> all = set(graph.getGraph().getVertices());
+		TermLevels expectedLevels = graph.getTermLevels(all);
+		TermLevels frozenLevels = o.getTermLevels(all);
+		assertEquals(expectedLevels.getMaxLevel(), frozenLevels.getMaxLevel());
+		for (TermID t : all)
+			assertEquals(expectedLevels.getTermLevel(t), frozenLevels.getTermLevel(t));
+
+		/* The mutable graph is recreated on demand */
+		assertEquals(graph.getNumberOfTerms(), o.getNumberOfTerms());
+		assertEquals(set(graph.getLeafTermIDs()), set(o.getLeafTermIDs()));
+		assertEquals(graph.getGraph().getNumberEdges(), o.getGraph().getNumberEdges());
+		assertEquals(all, set(o.getGraph().getVertices()));
+		assertSame(o.getCompactGraph(), o.getCompactGraph());
+		assertEquals(all, set(o.getCompactGraph().getVertices()));
+
+		/* The recreated graph is read-only */
+		assertTrue(o.getGraph().isReadOnly());
+		try
+		{
+			o.getGraph().addVertex(tid("GO:9999999"));
+			Assert.fail();
+		} catch (UnsupportedOperationException e)
+		{
+		}
+
+		/* Slim views of the frozen ontology are built from the compact graph */
+		SlimDirectedGraphView<TermID> expectedView = graph.getTermIDSlimGraphView();
+		SlimDirectedGraphView<TermID> frozenView = o.getTermIDSlimGraphView();
+		assertEquals(expectedView.getNumberOfVertices(), frozenView.getNumberOfVertices());
+		for (TermID t : all)
+		{
+			assertEquals(set(expectedView.getParents(t)), set(frozenView.getParents(t)));
+			assertEquals(set(expectedView.getAncestors(t)), set(frozenView.getAncestors(t)));
+		}
+		assertEquals(o.getTerm(tid("GO:0006281")), o.getSlimGraphView().getVertex(frozenView.getVertexIndex(tid("GO:0006281"))));
+
+		/* Merging terms thaws the ontology */
+		Term t1 = o.getTerm(tid("GO:0006281"));
+		o.mergeTerms(t1, Arrays.asList(o.getTerm(tid("GO:0006282"))));
+		assertFalse(o.isFrozen());
+		assertFalse(o.termExists(tid("GO:0006282")));
+		assertEquals(graph.getNumberOfTerms() - 1, o.getNumberOfTerms());
+		assertFalse(o.getGraph().isReadOnly());
+
+		/* Thawing keeps the order of the children */
+		assertEquals(list(graph.getChildNodes(tid("GO:0008150"))), list(o.getChildNodes(tid("GO:0008150"))));
+	}
+
+	@Test
+	public void testFrozenWalks()
+	{
+		Ontology o = Ontology.create(goTerms);
+		o.freeze();
+
+		final Set<RelationMeaning> isA = new HashSet<RelationMeaning>(Arrays.asList(RelationMeaning.IS_A));
+		for (TermID t : Arrays.asList(tid("GO:0006281"), tid("GO:0009987"), tid("GO:0008150")))
+		{
+			List<TermID> expected = new ArrayList<TermID>();
+			List<TermID> actual = new ArrayList<TermID>();
+			graph.walkToSource(t, collector(expected));
+			o.walkToSource(t, collector(actual));
+			assertEquals(set(expected), set(actual));
+			assertEquals(expected.size(), actual.size());
+
+			expected.clear();
+			actual.clear();
+			graph.walkToSinks(t, collector(expected));
+			o.walkToSinks(t, collector(actual));
+			assertEquals(set(expected), set(actual));
+			assertEquals(expected.size(), actual.size());
+
+			expected.clear();
+			actual.clear();
+			graph.walkToSource(Arrays.asList(t), collector(expected), isA);
+			o.walkToSource(Arrays.asList(t), collector(actual), isA);
+			assertEquals(expected, actual);
+
+			/* Walks that are stopped early visit the same terms */
+			final List<TermID> prefix = new ArrayList<TermID>();
+			o.walkToSource(Arrays.asList(t), new ITermIDVisitor()
+			{
+				@Override
+				public boolean visited(TermID tid)
+				{
+					prefix.add(tid);
+					return prefix.size() < 3;
+				}
+			}, isA);
+			assertEquals(expected.subList(0, Math.min(3, expected.size())), prefix);
+		}
+	}
+
+	@Test
+	public void testRelationAncestorViews()
+	{
+		Ontology o = Ontology.create(goTerms);
+		assertNull(o.getAncestorView(RelationType.PROPAGATING_MEANINGS));
+		o.freeze();
+
+		SlimDirectedGraphView<TermID> all = o.getAncestorView();
+		assertSame(all, o.getAncestorView(null));
+		assertSame(all, o.getAncestorView(EnumSet.allOf(RelationMeaning.class)));
+
+		Set<RelationMeaning> isA = EnumSet.of(RelationMeaning.IS_A);
+		for (Set<RelationMeaning> relations : Arrays.asList(isA, RelationType.PROPAGATING_MEANINGS, EnumSet.noneOf(RelationMeaning.class)))
+		{
+			SlimDirectedGraphView<TermID> view = o.getAncestorView(relations);
+			assertSame(view, o.getAncestorView(new HashSet<RelationMeaning>(relations)));
+			assertEquals(SlimDirectedGraphView.ClosureType.ANCESTOR_ARRAYS, view.getClosureType());
+			assertEquals(all.getNumberOfVertices(), view.getNumberOfVertices());
+
+			for (int i = 0; i < view.getNumberOfVertices(); i++)
+			{
+				TermID t = view.getVertex(i);
+				assertEquals(t, all.getVertex(i));
+
+				List<TermID> expected = new ArrayList<TermID>();
+				graph.walkToSource(Arrays.asList(t), collector(expected), relations);
+				Set<TermID> actual = new HashSet<TermID>();
+				for (int a : view.getAncestorIndices(i))
+					actual.add(view.getVertex(a));
+				assertEquals(set(expected), actual);
+			}
+		}
+	}
+
+	private static ITermIDVisitor collector(final List<TermID> list)
+	{
+		return new ITermIDVisitor()
+		{
+			@Override
+			public boolean visited(TermID vertex)
+			{
+				list.add(vertex);
+				return true;
+			}
+		};
+	}
+
+	@Test
+	public void testBitmapClosures()
+	{
+		SlimDirectedGraphView<TermID> ag = SlimDirectedGraphView.create(graph.getGraph());
+		SlimDirectedGraphView<TermID> bg = SlimDirectedGraphView.create(graph.getGraph(), SlimDirectedGraphView.ClosureType.BITMAPS);
+
+		for (int i = 0; i < ag.getNumberOfVertices(); i++)
+		{
+			assertArrayEquals(ag.vertexAncestors[i], bg.getAncestorIndices(i));
+			assertArrayEquals(ag.vertexDescendants[i], bg.getDescendantIndices(i));
+		}
+	}
+
+	@Test
+	public void testReachabilityIndex()
+	{
+		Ontology o = Ontology.create(goTerms);
+		assertNull(o.getReachabilityIndex());
+		o.freeze();
+
+		ReachabilityIndex<TermID> index = o.getReachabilityIndex();
+		SlimDirectedGraphView<TermID> ag = SlimDirectedGraphView.create(graph.getGraph());
+		Random rnd = new Random(1);
+		int n = ag.getNumberOfVertices();
+		for (int k = 0; k < 200000; k++)
+		{
+			int i = rnd.nextInt(n);
+			int j = rnd.nextInt(n);
+			assertEquals(ag.isAncestor(i, j), index.reaches(ag.getVertex(i), ag.getVertex(j)));
+		}
+		for (int i = 0; i < n; i++)
+		{
+			for (int j : ag.vertexDescendants[i])
+				assertTrue(index.reaches(ag.getVertex(i), ag.getVertex(j)));
+		}
+
+		assertEquals(graph.getTermsOfInducedGraph(tid("GO:0008150"), tid("GO:0006281")), o.getTermsOfInducedGraph(tid("GO:0008150"), tid("GO:0006281")));
+	}
+
+	@Test
+	public void testSharedParents()
+	{
+		Ontology o = Ontology.create(goTerms);
+		assertNull(o.getAncestorView());
+		o.freeze();
+		SlimDirectedGraphView<TermID> view = o.getAncestorView();
+		assertEquals(SlimDirectedGraphView.ClosureType.ANCESTOR_ARRAYS, view.getClosureType());
+
+		/* Use the number of descendants as inverse information content */
+		double [] ic = new double[view.getNumberOfVertices()];
+		for (int i = 0; i < ic.length; i++)
+			ic[i] = -view.getDescendantIndices(i).length;
+
+		Random rnd = new Random(2);
+		int [] first = new int[1000];
+		int [] second = new int[1000];
+		for (int k = 0; k < first.length; k++)
+		{
+			first[k] = rnd.nextInt(ic.length);
+			second[k] = rnd.nextInt(ic.length);
+		}
+		ForkJoinPool pool = new ForkJoinPool(2);
+		int [] micas = o.getMostInformativeCommonAncestors(first, second, ic, pool);
+		pool.shutdown();
+
+		for (int k = 0; k < first.length; k++)
+		{
+			TermID t1 = view.getVertex(first[k]);
+			TermID t2 = view.getVertex(second[k]);
+			Collection<TermID> expected = graph.getSharedParents(t1, t2);
+			assertEquals(set(expected), set(o.getSharedParents(t1, t2)));
+
+			double best = Double.NEGATIVE_INFINITY;
+			for (TermID t : expected)
+				best = Math.max(best, ic[view.getVertexIndex(t)]);
+			TermID mica = o.getMostInformativeCommonAncestor(t1, t2, ic);
+			if (expected.isEmpty())
+			{
+				assertNull(mica);
+				assertEquals(-1, micas[k]);
+				continue;
+			}
+			assertEquals(best, ic[view.getVertexIndex(mica)], 0);
+			assertEquals(mica, view.getVertex(micas[k]));
+		}
+	}
+
+	@Test
+	public void testTopologicalSlimGraphView()
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+		SlimDirectedGraphView<TermID> ag = SlimDirectedGraphView.create(graph.getGraph());
+		SlimDirectedGraphView<TermID> tg = SlimDirectedGraphView.create(graph.getGraph(), SlimDirectedGraphView.ClosureType.SORTED_ARRAYS, pool);
+		SlimDirectedGraphView<TermID> bg = SlimDirectedGraphView.create(graph.getGraph(), SlimDirectedGraphView.ClosureType.BITMAPS, pool);
+		pool.shutdown();
+
+		for (int i = 0; i < ag.getNumberOfVertices(); i++)
+		{
+			assertArrayEquals(ag.vertexAncestors[i], tg.vertexAncestors[i]);
+			assertArrayEquals(ag.vertexDescendants[i], tg.vertexDescendants[i]);
+			assertArrayEquals(ag.vertexAncestors[i], bg.getAncestorIndices(i));
+			assertArrayEquals(ag.vertexDescendants[i], bg.getDescendantIndices(i));
+		}
+	}
+
 	@Test
 	public void testAlternativeId()
 	{
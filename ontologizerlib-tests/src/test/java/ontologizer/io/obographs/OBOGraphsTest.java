@@ -0,0 +1,197 @@
+package ontologizer.io.obographs;
+
+import static ontologizer.types.ByteString.b;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ontologizer.io.ParserFileInput;
+import ontologizer.io.obo.OBOParser;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.ParentTermID;
+import ontologizer.ontology.RelationMeaning;
+import ontologizer.ontology.Subset;
+import ontologizer.ontology.Term;
+import ontologizer.ontology.TermContainer;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermXref;
+
+public class OBOGraphsTest
+{
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static final String GOtermsOBOFile = OBOGraphsTest.class.
+			getClassLoader().getResource("gene_ontology.1_2.obo.gz").getPath();
+
+	private static <T> Set<T> set(T [] array)
+	{
+		Set<T> set = new HashSet<T>();
+		if (array != null)
+		{
+			for (T t : array)
+				set.add(t);
+		}
+		return set;
+	}
+
+	private static Set<String> parents(Term t)
+	{
+		Set<String> parents = new HashSet<String>();
+		for (ParentTermID p : t.getParents())
+			parents.add(p.getRelated() + " " + p.getRelation().name() + " " + p.getRelation().meaning());
+		return parents;
+	}
+
+	private static Set<String> xrefs(Term t)
+	{
+		Set<String> xrefs = new HashSet<String>();
+		if (t.getXrefs() != null)
+		{
+			for (TermXref x : t.getXrefs())
+				xrefs.add(x.getDatabase() + ":" + x.getXrefId());
+		}
+		return xrefs;
+	}
+
+	private static Set<String> subsets(Term t)
+	{
+		Set<String> subsets = new HashSet<String>();
+		if (t.getSubsets() != null)
+		{
+			for (Subset s : t.getSubsets())
+				subsets.add(s.getName().toString());
+		}
+		return subsets;
+	}
+
+	private File writeJSON(String json) throws IOException
+	{
+		File file = tmpFolder.newFile("test.json");
+		Files.write(file.toPath(), json.getBytes("UTF-8"));
+		return file;
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception
+	{
+		int options = OBOParser.PARSE_DEFINITIONS | OBOParser.PARSE_XREFS;
+
+		OBOParser oboParser = new OBOParser(new ParserFileInput(GOtermsOBOFile), options);
+		oboParser.doParse();
+		TermContainer goTerms = new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate());
+
+		File file = tmpFolder.newFile("go.json");
+		OBOGraphsWriter.write(goTerms, file);
+
+		OBOGraphsParser parser = new OBOGraphsParser(new ParserFileInput(file.getAbsolutePath()), options);
+		parser.doParse();
+		assertEquals(oboParser.getFormatVersion(), parser.getFormatVersion());
+		assertEquals(oboParser.getDate(), parser.getDate());
+		assertEquals(goTerms.termCount(), parser.getTermMap().size());
+
+		HashMap<TermID,Term> id2Term = new HashMap<TermID,Term>();
+		for (Term t : parser.getTermMap())
+			id2Term.put(t.getID(), t);
+
+		for (Term expected : goTerms)
+		{
+			Term actual = id2Term.get(expected.getID());
+			assertEquals(expected.getName(), actual.getName());
+			assertEquals(expected.getNamespace(), actual.getNamespace());
+			assertEquals(expected.isObsolete(), actual.isObsolete());
+			assertEquals(expected.getDefinition(), actual.getDefinition());
+			assertEquals(parents(expected), parents(actual));
+			assertEquals(set(expected.getAlternatives()), set(actual.getAlternatives()));
+			assertEquals(set(expected.getSynonyms()), set(actual.getSynonyms()));
+			assertEquals(xrefs(expected), xrefs(actual));
+			assertEquals(subsets(expected), subsets(actual));
+			assertTrue(set(actual.getEquivalents()).containsAll(set(expected.getEquivalents())));
+		}
+
+		Ontology ontology = Ontology.create(new TermContainer(parser.getTermMap(), parser.getFormatVersion(), parser.getDate()));
+		assertEquals(Ontology.create(goTerms).getNumberOfTerms(), ontology.getNumberOfTerms());
+	}
+
+	@Test
+	public void testSmallGraph() throws Exception
+	{
+		File file = writeJSON(
+			"{ \"graphs\" : [ {\n" +
+			"  \"id\" : \"http://purl.obolibrary.org/obo/test.owl\",\n" +
+			"  \"meta\" : { \"version\" : \"v1\", \"unknown\" : [ 1, 2.5e3, null, { \"a\" : [] } ],\n" +
+			"    \"basicPropertyValues\" : [ { \"pred\" : \"http://www.geneontology.org/formats/oboInOwl#date\", \"val\" : \"01:01:2017 00:00\" } ] },\n" +
+			"  \"nodes\" : [ {\n" +
+			"    \"id\" : \"http://purl.obolibrary.org/obo/GO_0000001\",\n" +
+			"    \"lbl\" : \"root \\\"quoted\\\" \\u00e4\\ud83d\\ude00\",\n" +
+			"    \"type\" : \"CLASS\",\n" +
+			"    \"meta\" : {\n" +
+			"      \"definition\" : { \"val\" : \"line\\nbreak\", \"xrefs\" : [ \"PMID:1\" ] },\n" +
+			"      \"xrefs\" : [ { \"val\" : \"Wikipedia:Root\" } ],\n" +
+			"      \"synonyms\" : [ { \"pred\" : \"hasExactSynonym\", \"val\" : \"origin\" } ],\n" +
+			"      \"basicPropertyValues\" : [ { \"pred\" : \"http://www.geneontology.org/formats/oboInOwl#hasOBONamespace\", \"val\" : \"test\" } ]\n" +
+			"    }\n" +
+			"  }, {\n" +
+			"    \"id\" : \"http://purl.obolibrary.org/obo/GO_0000002\", \"lbl\" : \"child\", \"type\" : \"CLASS\",\n" +
+			"    \"meta\" : { \"deprecated\" : true, \"subsets\" : [ \"http://purl.obolibrary.org/obo/go#goslim\" ] }\n" +
+			"  }, {\n" +
+			"    \"id\" : \"http://purl.obolibrary.org/obo/RO_0002211\", \"lbl\" : \"regulates\", \"type\" : \"PROPERTY\"\n" +
+			"  }, {\n" +
+			"    \"id\" : \"http://purl.obolibrary.org/obo/GO_0000003\"\n" +
+			"  } ],\n" +
+			"  \"edges\" : [\n" +
+			"    { \"sub\" : \"http://purl.obolibrary.org/obo/GO_0000002\", \"pred\" : \"is_a\", \"obj\" : \"http://purl.obolibrary.org/obo/GO_0000001\" },\n" +
+			"    { \"sub\" : \"http://purl.obolibrary.org/obo/GO_0000002\", \"pred\" : \"http://purl.obolibrary.org/obo/RO_0002211\", \"obj\" : \"http://purl.obolibrary.org/obo/GO_0000001\" },\n" +
+			"    { \"sub\" : \"http://purl.obolibrary.org/obo/GO_0000002\", \"pred\" : \"http://purl.obolibrary.org/obo/RO_0009999\", \"obj\" : \"http://purl.obolibrary.org/obo/GO_0000001\" }\n" +
+			"  ]\n" +
+			"} ] }\n");
+
+		OBOGraphsParser parser = new OBOGraphsParser(new ParserFileInput(file.getAbsolutePath()), OBOParser.PARSE_DEFINITIONS | OBOParser.PARSE_XREFS);
+		parser.doParse();
+		assertEquals(b("v1"), parser.getDataVersion());
+		assertEquals(b("01:01:2017 00:00"), parser.getDate());
+		assertNull(parser.getFormatVersion());
+		assertEquals(2, parser.getTermMap().size());
+
+		HashMap<String,Term> id2Term = new HashMap<String,Term>();
+		for (Term t : parser.getTermMap())
+			id2Term.put(t.getIDAsString(), t);
+
+		Term root = id2Term.get("GO:0000001");
+		assertEquals("root \"quoted\" ä😀", root.getName().toString());
+		assertEquals("test", root.getNamespace().getName().toString());
+		assertEquals(b("line\nbreak"), root.getDefinition());
+		assertArrayEquals(new TermXref[]{new TermXref("Wikipedia", "Root")}, root.getXrefs());
+		assertEquals(b("origin"), root.getSynonyms()[0]);
+		assertEquals(0, root.getParents().length);
+
+		Term child = id2Term.get("GO:0000002");
+		assertTrue(child.isObsolete());
+		assertEquals(b("goslim"), child.getSubsets()[0].getName());
+		ParentTermID [] parents = child.getParents();
+		assertEquals(3, parents.length);
+		assertEquals(RelationMeaning.IS_A, parents[0].getRelation().meaning());
+		assertEquals(RelationMeaning.REGULATES, parents[1].getRelation().meaning());
+		assertEquals(RelationMeaning.UNKOWN, parents[2].getRelation().meaning());
+		assertEquals(b("RO:0009999"), parents[2].getRelation().name());
+	}
+
+	@Test(expected=IOException.class)
+	public void testTruncatedInput() throws Exception
+	{
+		File file = writeJSON("{ \"graphs\" : [ { \"nodes\" : [ { \"id\" : \"http://purl.obolibrary.org/obo/GO_0000001\", \"lbl\" : \"ro");
+		new OBOGraphsParser(new ParserFileInput(file.getAbsolutePath())).doParse();
+	}
+}
@@ -0,0 +1,142 @@
+package ontologizer.io.snapshot;
+
+import static ontologizer.types.ByteString.EMPTY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ontologizer.association.AnnotationContext;
+import ontologizer.association.Association;
+import ontologizer.association.AssociationContainer;
+import ontologizer.association.ItemAssociations;
+import ontologizer.io.ParserFileInput;
+import ontologizer.io.annotation.AssociationParser;
+import ontologizer.io.obo.OBOParser;
+import ontologizer.ontology.TermContainer;
+import ontologizer.types.ByteString;
+
+public class AssociationSnapshotTest
+{
+	private static final String OBO_FILE = AssociationSnapshotTest.class.
+			getClassLoader().getResource("gene_ontology.1_2.obo.gz").getPath();
+	private static final String ASSOCIATION_FILE = AssociationSnapshotTest.class.
+			getClassLoader().getResource("gene_association.sgd.gz").getPath();
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static TermContainer terms;
+
+	private static AssociationContainer container;
+
+	@BeforeClass
+	public static void setUp() throws Exception
+	{
+		OBOParser oboParser = new OBOParser(new ParserFileInput(OBO_FILE));
+		oboParser.doParse();
+		terms = new TermContainer(oboParser.getTermMap(), EMPTY, EMPTY);
+
+		AssociationParser ap = new AssociationParser(new ParserFileInput(ASSOCIATION_FILE), terms);
+		container = new AssociationContainer(ap.getAssociations(), ap.getAnnotationMapping());
+	}
+
+	private static void assertContainerEquals(AssociationContainer expected, AssociationContainer actual)
+	{
+		AnnotationContext ec = expected.getMapping();
+		AnnotationContext ac = actual.getMapping();
+		assertArrayEquals(ec.getSymbols(), ac.getSymbols());
+		assertArrayEquals(ec.getObjectIds(), ac.getObjectIds());
+		assertEquals(ec.getSynonym2Symbol(), ac.getSynonym2Symbol());
+		assertEquals(ec.getDbObjectID2Symbol(), ac.getDbObjectID2Symbol());
+
+		for (int i = 0; i < ec.getSymbols().length; i++)
+		{
+			ItemAssociations e = expected.getItemAssociations(i);
+			ItemAssociations a = actual.getItemAssociations(i);
+			if (e == null)
+			{
+				assertNull(a);
+				continue;
+			}
+			assertEquals(e.name(), a.name());
+			assertEquals(e.getAssociations(), a.getAssociations());
+
+			Iterator<Association> it = a.iterator();
+			for (Association ea : e)
+			{
+				Association aa = it.next();
+				assertEquals(ea.getTermID(), aa.getTermID());
+				assertEquals(ea.getEvidence(), aa.getEvidence());
+				assertEquals(ea.getAspect(), aa.getAspect());
+				assertEquals(ea.hasNotQualifier(), aa.hasNotQualifier());
+			}
+			assertFalse(it.hasNext());
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		File file = tmpFolder.newFile("sgd.snapshot");
+		byte [] key = AssociationSnapshot.computeKey(new File(ASSOCIATION_FILE), terms);
+		AssociationSnapshotWriter.write(container, key, file);
+
+		AssociationSnapshot snapshot = AssociationSnapshot.open(file);
+		assertTrue(snapshot.matches(key));
+		assertArrayEquals(key, snapshot.getKey());
+		assertEquals(container.getMapping().getSymbols().length, snapshot.getNumberOfItems());
+
+		AssociationContainer restored = snapshot.createAssociationContainer();
+		assertContainerEquals(container, restored);
+		assertEquals(container.getAllEvidenceCodes(), restored.getAllEvidenceCodes());
+
+		ByteString synonym = container.getMapping().getSynonym2Symbol().keySet().iterator().next();
+		assertTrue(restored.isSynonym(synonym));
+		assertEquals(container.get(synonym).name(), restored.get(synonym).name());
+	}
+
+	@Test
+	public void testLoad() throws IOException
+	{
+		File file = new File(tmpFolder.getRoot(), "sgd.snapshot");
+		File gafFile = new File(ASSOCIATION_FILE);
+
+		AssociationContainer created = AssociationSnapshot.load(file, gafFile, terms);
+		assertTrue(file.exists());
+		assertContainerEquals(container, created);
+
+		AssociationContainer loaded = AssociationSnapshot.load(file, gafFile, terms);
+		assertContainerEquals(container, loaded);
+
+		/* Unresolved associations have a different key, so the snapshot is stale */
+		byte [] unresolvedKey = AssociationSnapshot.computeKey(gafFile, null);
+		assertFalse(AssociationSnapshot.open(file).matches(unresolvedKey));
+		AssociationSnapshot.load(file, gafFile, null);
+		assertTrue(AssociationSnapshot.open(file).matches(unresolvedKey));
+
+		/* No temporary files are left behind */
+		assertArrayEquals(new String[]{"sgd.snapshot"}, tmpFolder.getRoot().list());
+	}
+
+	@Test(expected=IOException.class)
+	public void testInvalidFile() throws IOException
+	{
+		File file = tmpFolder.newFile("invalid.snapshot");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[100]);
+		out.close();
+		AssociationSnapshot.open(file);
+	}
+}
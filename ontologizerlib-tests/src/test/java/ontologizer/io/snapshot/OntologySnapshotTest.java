@@ -0,0 +1,189 @@
+package ontologizer.io.snapshot;
+
+import static ontologizer.ontology.TermID.tid;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ontologizer.io.ParserFileInput;
+import ontologizer.io.obo.OBOParser;
+import ontologizer.ontology.Ontology;
+import ontologizer.ontology.ParentTermID;
+import ontologizer.ontology.Term;
+import ontologizer.ontology.TermContainer;
+import ontologizer.ontology.TermID;
+import ontologizer.ontology.TermXref;
+import sonumina.math.graph.SlimDirectedGraphView;
+
+public class OntologySnapshotTest
+{
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private TermContainer goTerms;
+
+	private Ontology graph;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		String GOtermsOBOFile = OntologySnapshotTest.class.
+				getClassLoader().getResource("gene_ontology.1_2.obo.gz").getPath();
+
+		OBOParser oboParser = new OBOParser(new ParserFileInput(GOtermsOBOFile));
+		oboParser.doParse();
+		goTerms = new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate());
+		graph = Ontology.create(goTerms);
+	}
+
+	private static void assertXrefsEquals(TermXref [] expected, TermXref [] actual)
+	{
+		if (expected == null)
+		{
+			assertNull(actual);
+			return;
+		}
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++)
+		{
+			assertEquals(expected[i], actual[i]);
+			assertEquals(expected[i].getXrefName(), actual[i].getXrefName());
+		}
+	}
+
+	private static void assertTermEquals(Term expected, Term actual)
+	{
+		assertEquals(expected.getID(), actual.getID());
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getDefinition(), actual.getDefinition());
+		assertEquals(expected.getNamespace(), actual.getNamespace());
+		assertEquals(expected.isObsolete(), actual.isObsolete());
+		assertArrayEquals(expected.getAlternatives(), actual.getAlternatives());
+		assertArrayEquals(expected.getEquivalents(), actual.getEquivalents());
+		assertArrayEquals(expected.getSubsets(), actual.getSubsets());
+		assertArrayEquals(expected.getSynonyms(), actual.getSynonyms());
+		assertXrefsEquals(expected.getXrefs(), actual.getXrefs());
+
+		ParentTermID [] ep = expected.getParents();
+		ParentTermID [] ap = actual.getParents();
+		assertEquals(ep.length, ap.length);
+		for (int i = 0; i < ep.length; i++)
+		{
+			assertEquals(ep[i].getRelated(), ap[i].getRelated());
+			assertEquals(ep[i].getRelation().name(), ap[i].getRelation().name());
+			assertEquals(ep[i].getRelation().meaning(), ap[i].getRelation().meaning());
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		File file = tmpFolder.newFile("go.snapshot");
+		OntologySnapshotWriter.write(graph, file);
+
+		OntologySnapshot snapshot = OntologySnapshot.open(file);
+		assertEquals(goTerms.getFormatVersion(), snapshot.getFormatVersion());
+		assertEquals(goTerms.getDate(), snapshot.getDate());
+
+		/* GO has three roots, so there is an artificial root term */
+		assertEquals(goTerms.size() + 1, snapshot.getNumberOfTerms());
+		assertTrue(snapshot.isArtificialRoot(snapshot.getTermIndex(graph.getRootTerm().getID())));
+
+		for (Term t : goTerms)
+		{
+			int ti = snapshot.getTermIndex(t.getID());
+			assertEquals(t.getID(), snapshot.getTermID(ti));
+			assertEquals(t.getName(), snapshot.getName(ti));
+			assertFalse(snapshot.isArtificialRoot(ti));
+			assertTermEquals(t, snapshot.getTerm(ti));
+		}
+		assertEquals(-1, snapshot.getTermIndex(tid("GO:9999999")));
+		assertEquals(-1, snapshot.getTermIndex(new TermID("XX:0000001")));
+		assertNull(snapshot.getTerm(tid("GO:9999999")));
+
+		SlimDirectedGraphView<TermID> view = graph.getTermIDSlimGraphView();
+		assertEquals(view.getNumberOfVertices(), snapshot.getNumberOfVertices());
+		for (int v = 0; v < view.getNumberOfVertices(); v++)
+		{
+			assertEquals(view.getVertex(v), snapshot.getVertex(v));
+			assertEquals(v, snapshot.getVertexIndex(view.getVertex(v)));
+			assertArrayEquals(view.vertexParents[v], snapshot.getParentIndices(v));
+			assertArrayEquals(view.vertexAncestors[v], snapshot.getAncestorIndices(v));
+			assertArrayEquals(view.vertexDescendants[v], snapshot.getDescendantIndices(v));
+		}
+
+		int anc = snapshot.getVertexIndex(tid("GO:0009987"));
+		int desc = snapshot.getVertexIndex(tid("GO:0006281"));
+		assertTrue(snapshot.isAncestor(anc, desc));
+		assertFalse(snapshot.isAncestor(desc, anc));
+		assertTrue(snapshot.isDescendant(desc, anc));
+		assertTrue(snapshot.isAncestor(anc, anc));
+
+		Ontology o = snapshot.createOntology();
+		assertEquals(graph.getNumberOfTerms(), o.getNumberOfTerms());
+		assertEquals(graph.getRootTerm().getID(), o.getRootTerm().getID());
+		assertEquals(graph.getRootTerm().getName(), o.getRootTerm().getName());
+		assertEquals(graph.getLevel1Terms(), o.getLevel1Terms());
+		assertEquals(graph.getAvailableSubsets().size(), o.getAvailableSubsets().size());
+		for (Term t : goTerms)
+		{
+			assertEquals(graph.getTermParents(t.getID()), o.getTermParents(t.getID()));
+			assertEquals(graph.getTermChildren(t.getID()), o.getTermChildren(t.getID()));
+		}
+
+		/* The frozen graph and the ancestors are taken from the snapshot */
+		assertTrue(o.isFrozen());
+		SlimDirectedGraphView<TermID> ancestorView = o.getAncestorView();
+		assertEquals(SlimDirectedGraphView.ClosureType.ANCESTOR_ARRAYS, ancestorView.getClosureType());
+		assertEquals(view.getNumberOfVertices(), ancestorView.getNumberOfVertices());
+		for (int v = 0; v < view.getNumberOfVertices(); v++)
+		{
+			assertEquals(view.getVertex(v), ancestorView.getVertex(v));
+			assertArrayEquals(view.vertexParents[v], ancestorView.vertexParents[v]);
+			assertArrayEquals(view.vertexAncestors[v], ancestorView.vertexAncestors[v]);
+			assertArrayEquals(view.vertexDescendants[v], ancestorView.getDescendantIndices(v));
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void testInvalidFile() throws IOException
+	{
+		File file = tmpFolder.newFile("invalid.snapshot");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[100]);
+		out.close();
+		OntologySnapshot.open(file);
+	}
+
+	@Test
+	public void testUnknownVersion() throws IOException
+	{
+		File file = tmpFolder.newFile("go.snapshot");
+		OntologySnapshotWriter.write(graph, file);
+
+		byte [] bytes = Files.readAllBytes(file.toPath());
+		bytes[7] = 99;
+		Files.write(file.toPath(), bytes);
+		try
+		{
+			OntologySnapshot.open(file);
+			fail();
+		} catch (IOException ex)
+		{
+			assertTrue(ex.getMessage().contains("version"));
+		}
+	}
+}